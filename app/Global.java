@@ -26,6 +26,9 @@ import controllers.UserApp;
 import controllers.routes;
 import mailbox.MailboxService;
 import models.*;
+import models.support.IssueCounters;
+import models.support.MentionIndex;
+import models.support.RenderedMarkdown;
 import org.apache.commons.lang3.StringUtils;
 import play.Application;
 import play.Configuration;
@@ -145,6 +148,14 @@ public class Global extends GlobalSettings {
         NotificationEvent.onStart();
         Attachment.onStart();
         AccessControl.onStart();
+        IssueCounters.onStart();
+        RecentProject.onStart();
+        WebhookDelivery.onStart();
+        IssueSearchToken.onStart();
+        WatcherIndex.onStart();
+        MentionIndex.onStart();
+        RenderedMarkdown.onStart();
+        QueryStatistics.onStart();
 
         if (!isSecretInvalid) {
             YobiUpdate.onStart();
@@ -171,15 +182,17 @@ public class Global extends GlobalSettings {
                 return getConfigSecretAction();
             }
         } else {
-            return getDefaultAction(request);
+            return getDefaultAction(request, actionMethod);
         }
     }
 
     @SuppressWarnings("rawtypes")
-    private Action<Void> getDefaultAction(final Http.Request request) {
+    private Action<Void> getDefaultAction(final Http.Request request, final Method actionMethod) {
         final long start = System.currentTimeMillis();
         return new Action.Simple() {
             public Promise<Result> call(Http.Context ctx) throws Throwable {
+                QueryStatistics.begin(actionMethod.getDeclaringClass().getSimpleName()
+                        + "." + actionMethod.getName());
                 UserApp.initTokenUser();
                 try {
                     UserApp.updatePreferredLanguage();
@@ -188,8 +201,14 @@ public class Global extends GlobalSettings {
                 }
                 ctx.response().setHeader("Date", DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneId.of("GMT"))));
                 ctx.response().setHeader("Cache-Control", "no-cache");
-                Promise<Result> promise = delegate.call(ctx);
-                AccessLogger.log(request, promise, start);
+                Promise<Result> promise;
+                QueryStatistics.Usage queries;
+                try {
+                    promise = delegate.call(ctx);
+                } finally {
+                    queries = QueryStatistics.end();
+                }
+                AccessLogger.log(request, promise, start, queries);
                 return promise;
             }
         };
@@ -296,6 +315,7 @@ public class Global extends GlobalSettings {
 
     public void onStop(Application app) {
         mailboxService.stop();
+        RecentProject.onStop();
     }
 
     @Override
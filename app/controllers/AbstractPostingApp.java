@@ -26,6 +26,7 @@ import models.AbstractPosting;
 import models.Attachment;
 import models.Comment;
 import models.IssueLabel;
+import models.PostingRevision;
 import models.enumeration.Direction;
 import models.enumeration.Operation;
 import models.resource.Resource;
@@ -39,8 +40,10 @@ import play.mvc.Controller;
 import play.mvc.Http;
 import play.mvc.Result;
 import utils.*;
+import views.html.common.partial_history_revisions;
 
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
 import static utils.JodaDateUtil.getDateString;
@@ -117,9 +120,6 @@ public class AbstractPostingApp extends Controller {
         posting.authorName = original.authorName;
         posting.project = original.project;
         posting.setNumber(original.getNumber());
-        if (!StringUtils.defaultString(original.body, "").equals(StringUtils.defaultString(posting.body, ""))) {
-            posting.history = addToHistory(original, posting) + StringUtils.defaultString(original.history, "");
-        }
         preUpdateHook.run();
 
         try {
@@ -137,33 +137,43 @@ public class AbstractPostingApp extends Controller {
         return redirect(redirectTo);
     }
 
-    private static String addToHistory(AbstractPosting original, AbstractPosting posting) {
-        diff_match_patch dmp = new diff_match_patch();
-        LinkedList<diff_match_patch.Diff> diffs = dmp.diff_main(original.body, posting.body);
-        dmp.diff_cleanupSemanticLossless(diffs);
-
-        return (getHistoryMadeBy(posting, diffs) + getDiffText(original.body, posting.body) + "\n").replaceAll("\n", "</br>\n");
+    /**
+     * Renders the change history of the given posting.
+     *
+     * @param posting
+     * @param limit the maximum number of the latest revisions to render
+     * @param moreUrl the url to render the whole history
+     */
+    protected static Result postingHistory(AbstractPosting posting, int limit, String moreUrl) {
+        int limitOrAll = (limit > 0) ? limit : Integer.MAX_VALUE;
+        List<PostingRevision> revisions = PostingRevision.findRecent(posting, limitOrAll);
+        boolean hasMore = posting.numOfRevisions > revisions.size();
+
+        return ok(partial_history_revisions.render(renderHistory(revisions), hasMore ? moreUrl : null));
     }
 
-    private static String getHistoryMadeBy(AbstractPosting posting, LinkedList<diff_match_patch.Diff> diffs) {
-        int insertions = 0;
-        int deletions = 0;
-        for (Diff diff : diffs) {
-            switch (diff.operation) {
-                case DELETE:
-                    deletions++;
-                    break;
-                case INSERT:
-                    insertions++;
-                    break;
-                default:
-                    break;
+    private static String renderHistory(List<PostingRevision> revisions) {
+        StringBuilder sb = new StringBuilder();
+
+        for (PostingRevision revision : revisions) {
+            if (revision.isLegacy()) {
+                sb.append(revision.legacyHistory);
+            } else {
+                sb.append((getHistoryMadeBy(revision) + getDiffText(revision.before, revision.after) + "\n")
+                        .replaceAll("\n", "</br>\n"));
             }
         }
 
+        return sb.toString();
+    }
+
+    private static String getHistoryMadeBy(PostingRevision revision) {
+        int insertions = revision.insertions;
+        int deletions = revision.deletions;
+
         StringBuilder sb = new StringBuilder();
-        sb.append("<div class='history-made-by'>").append(UserApp.currentUser().name)
-                .append("(").append(UserApp.currentUser().loginId).append(") ");
+        sb.append("<div class='history-made-by'>").append(revision.authorName)
+                .append("(").append(revision.authorLoginId).append(") ");
         if (insertions > 0) {
             sb.append("<span class='added'> ")
                     .append(" + ")
@@ -174,7 +184,7 @@ public class AbstractPostingApp extends Controller {
                     .append(" - ")
                     .append(deletions).append(" </span>");
         }
-        sb.append(" at ").append(getDateString(posting.updatedDate, "yyyy-MM-dd h:mm:ss a")).append("</div><hr/>\n");
+        sb.append(" at ").append(getDateString(revision.createdDate, "yyyy-MM-dd h:mm:ss a")).append("</div><hr/>\n");
 
         return sb.toString();
     }
@@ -21,7 +21,9 @@
 package controllers;
 
 import controllers.annotation.AnonymousCheck;
+import models.NotificationEvent;
 import models.Project;
+import models.User;
 import play.Logger;
 import play.mvc.Controller;
 import play.mvc.Result;
@@ -36,7 +38,14 @@ public class Application extends Controller {
 
     @AnonymousCheck
     public static Result index() {
-        return ok(index.render(UserApp.currentUser()));
+        User user = UserApp.currentUser();
+        // The index page shows the latest notifications. They are marked as
+        // read only if there is any unread one, so that a page view does not
+        // write to the database every time.
+        if (NotificationEvent.getUnreadCount(user) > 0) {
+            NotificationEvent.markAllAsRead(user);
+        }
+        return ok(index.render(user));
     }
 
     public static Result removeTrailer(String paths){
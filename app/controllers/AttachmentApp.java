@@ -11,17 +11,24 @@ import models.Attachment;
 import models.User;
 import models.enumeration.Operation;
 import models.enumeration.ResourceType;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.StringUtils;
 import play.Configuration;
 import play.Logger;
+import play.core.j.JavaResults;
 import play.mvc.Controller;
 import play.mvc.Http.MultipartFormData.FilePart;
 import play.mvc.Result;
 import utils.AccessControl;
+import utils.ByteRange;
 import utils.HttpUtil;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.NoSuchAlgorithmException;
 import java.text.Normalizer;
 import java.util.ArrayList;
@@ -37,6 +44,7 @@ public class AttachmentApp extends Controller {
     public static final String TAG_NAME_FOR_TEMPORARY_UPLOAD_FILES = "temporaryUploadFiles";
     public static final long TEMPORARYFILES_KEEPUP_TIME_MILLIS = Configuration.root()
             .getMilliseconds("application.temporaryfiles.keep-up.time", 24 * 60 * 60 * 1000L);
+    private static final int RANGE_CHUNK_SIZE = 64 * 1024;
 
     public static Result uploadFile() throws NoSuchAlgorithmException, IOException {
         // Get the file from request.
@@ -143,10 +151,52 @@ public class AttachmentApp extends Controller {
         response().setHeader("Content-Type", attachment.mimeType);
         response().setHeader("Content-Disposition", dispositionType + "; " + filename);
         response().setHeader("ETag", eTag);
+        response().setHeader("Accept-Ranges", "bytes");
+
+        // The range is ignored if the file has been changed since the client
+        // got the part it has. -- RFC 7233, 3.2. If-Range
+        String ifRangeValue = request().getHeader("If-Range");
+        if (ifRangeValue == null || ifRangeValue.equals(eTag)) {
+            ByteRange range = ByteRange.parse(request().getHeader("Range"), file.length());
+            if (range != null) {
+                return partialContent(file, range);
+            }
+        }
 
         return ok(file);
     }
 
+    /**
+     * Sends the given range of the file, read from a channel positioned at
+     * the start of the range so that the rest of the file is never read.
+     *
+     * The range is sent with its Content-Length rather than chunked, as
+     * download managers and media players check the length of the body
+     * against Content-Range.
+     */
+    private static Result partialContent(File file, ByteRange range) throws IOException {
+        response().setHeader("Content-Range", range.toContentRange());
+        if (!range.isSatisfiable()) {
+            return status(REQUESTED_RANGE_NOT_SATISFIABLE);
+        }
+
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        channel.position(range.start);
+        InputStream content = new BoundedInputStream(Channels.newInputStream(channel), range.length());
+
+        // JavaResults.chunked only reads the stream in chunks; feed sends them
+        // as one body of the given Content-Length.
+        response().setHeader(CONTENT_LENGTH, String.valueOf(range.length()));
+        final play.api.mvc.Result result = JavaResults.Status(PARTIAL_CONTENT).feed(
+                JavaResults.chunked(content, RANGE_CHUNK_SIZE), JavaResults.writeBytes());
+        return new Result() {
+            @Override
+            public play.api.mvc.Result toScala() {
+                return result;
+            }
+        };
+    }
+
     public static Result deleteFile(Long id) {
         // _method must be 'delete'
         Map<String, String[]> data =
@@ -203,6 +253,28 @@ public class AttachmentApp extends Controller {
         return metadata;
     }
 
+    /**
+     * Returns the file list of the given attachments in the same form as
+     * {@link #getFileList(String, String)}, without checking permissions.
+     *
+     * The caller must have checked that the current user can read the
+     * attachments.
+     *
+     * @param attachments
+     * @return the file list
+     */
+    public static Map<String, List<Map<String, String>>> toFileList(List<Attachment> attachments) {
+        List<Map<String, String>> list = new ArrayList<>();
+        for (Attachment attach : attachments) {
+            attach.name = Normalizer.normalize(attach.name, Normalizer.Form.NFC);
+            list.add(extractFileMetaDataFromAttachementAsMap(attach));
+        }
+
+        Map<String, List<Map<String, String>>> files = new HashMap<>();
+        files.put("attachments", list);
+        return files;
+    }
+
     public static Map<String, List<Map<String, String>>> getFileList(String containerType, String
             containerId) throws PermissionDeniedException {
         Map<String, List<Map<String, String>>> files =
@@ -259,6 +259,15 @@ public class BoardApp extends AbstractPostingApp {
         return ok(view.render(post, commentForm, project));
     }
 
+    @IsAllowed(value = Operation.READ, resourceType = ResourceType.BOARD_POST)
+    public static Result history(String userName, String projectName, Long number, int limit) {
+        Project project = Project.findByOwnerAndProjectName(userName, projectName);
+        Posting post = Posting.findByNumber(project, number);
+
+        return postingHistory(post, limit,
+                routes.BoardApp.history(userName, projectName, number, 0).url());
+    }
+
     @With(NullProjectCheckAction.class)
     public static Result editPostForm(String owner, String projectName, Long number) {
         Project project = Project.findByOwnerAndProjectName(owner, projectName);
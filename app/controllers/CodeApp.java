@@ -31,6 +31,7 @@ import org.apache.commons.io.FilenameUtils;
 import org.apache.tika.Tika;
 import org.apache.tika.mime.MediaType;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
 import org.tmatesoft.svn.core.SVNException;
 import play.mvc.Controller;
 import play.mvc.Http;
@@ -181,6 +182,10 @@ public class CodeApp extends Controller {
     public static Result showRawFile(String userName, String projectName, String revision, String path) throws Exception{
         path = HttpUtil.decodePathSegment(path);
         revision = HttpUtil.decodePathSegment(revision);
+        Result notModified = cacheIfImmutable(revision);
+        if (notModified != null) {
+            return notModified;
+        }
         byte[] fileAsRaw = RepositoryService.getFileAsRaw(userName, projectName, revision, path);
         if(fileAsRaw == null){
             return redirect(routes.CodeApp.codeBrowserWithBranch(userName, projectName, revision, path));
@@ -201,11 +206,39 @@ public class CodeApp extends Controller {
     public static Result showImageFile(String userName, String projectName, String revision, String path) throws Exception{
         revision = HttpUtil.decodePathSegment(revision);
         path = HttpUtil.decodePathSegment(path);
+        Result notModified = cacheIfImmutable(revision);
+        if (notModified != null) {
+            return notModified;
+        }
         final byte[] fileAsRaw = RepositoryService.getFileAsRaw(userName, projectName, revision, path);
         String mimeType = tika.detect(fileAsRaw);
         return ok(fileAsRaw).as(mimeType);
     }
 
+    /**
+     * Lets the client keep a file for good if it is requested at a commit
+     * id, because the file at a commit never changes.
+     *
+     * @param revision
+     * @return 304 Not Modified if the client already has the file, or null
+     *         if the file should be sent
+     */
+    private static Result cacheIfImmutable(String revision) {
+        if (!ObjectId.isId(revision)) {
+            return null;
+        }
+
+        String eTag = "\"" + revision + "\"";
+        response().setHeader("Cache-Control", HttpUtil.CACHE_CONTROL_IMMUTABLE);
+        response().setHeader("ETag", eTag);
+
+        if (HttpUtil.isNotModified(request(), eTag)) {
+            return status(NOT_MODIFIED);
+        }
+
+        return null;
+    }
+
     private static Tika tika = new Tika();
 
     public static String getURL(String ownerName, String projectName) {
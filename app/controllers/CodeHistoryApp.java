@@ -39,6 +39,7 @@ import play.mvc.Controller;
 import play.mvc.Result;
 import play.mvc.With;
 import playRepository.Commit;
+import playRepository.DiffCache;
 import playRepository.FileDiff;
 import playRepository.PlayRepository;
 import playRepository.RepositoryService;
@@ -139,7 +140,7 @@ public class CodeHistoryApp extends Controller {
 
             return ok(svnDiff.render(project, commit, parentCommit, patch, comments, selectedBranch, path));
         } else {
-            List<FileDiff> fileDiffs = repository.getDiff(commitId);
+            List<FileDiff> fileDiffs = DiffCache.getDiff(project, repository, commitId);
 
             if (fileDiffs == null) {
                 return notFound(ErrorViews.NotFound.render("error.notfound", project));
@@ -28,6 +28,7 @@ import models.enumeration.Operation;
 import play.mvc.Controller;
 import play.mvc.Result;
 import playRepository.Commit;
+import playRepository.DiffCache;
 import playRepository.FileDiff;
 import playRepository.PlayRepository;
 import playRepository.RepositoryService;
@@ -58,7 +59,7 @@ public class CompareApp extends Controller {
             }
             return ok(compare_svn.render(project, commitA, commitB, patch));
         } else {
-            List<FileDiff> diffs = repository.getDiff(revA, revB);
+            List<FileDiff> diffs = DiffCache.getDiff(project, repository, revA, revB);
             if (diffs == null) {
                 return notFound(ErrorViews.NotFound.render("error.notfound", project));
             }
@@ -26,13 +26,13 @@ import com.avaje.ebean.Page;
 import controllers.annotation.AnonymousCheck;
 import controllers.annotation.IsAllowed;
 import controllers.annotation.IsCreatable;
-import jxl.write.WriteException;
 import models.*;
 import models.enumeration.Operation;
 import models.enumeration.ResourceType;
 import models.enumeration.State;
+import models.support.IssueExporter;
+import models.support.IssueMassUpdater;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.tika.Tika;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import play.twirl.api.Html;
 import play.data.Form;
@@ -47,9 +47,12 @@ import views.html.organization.group_issue_list;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @AnonymousCheck
 public class IssueApp extends AbstractPostingApp {
@@ -57,7 +60,7 @@ public class IssueApp extends AbstractPostingApp {
     private static final Integer ITEMS_PER_PAGE_MAX = 45;
 
     @AnonymousCheck(requiresLogin = false, displaysFlashMessage = true)
-    public static Result organizationIssues(@Nonnull String organizationName, @Nonnull String state, @Nonnull String format, int pageNum) throws WriteException, IOException {
+    public static Result organizationIssues(@Nonnull String organizationName, @Nonnull String state, @Nonnull String format, int pageNum) throws IOException {
         // SearchCondition from param
         Form<models.support.SearchCondition> issueParamForm = new Form<>(models.support.SearchCondition.class);
         models.support.SearchCondition searchCondition = issueParamForm.bindFromRequest().get();
@@ -75,7 +78,7 @@ public class IssueApp extends AbstractPostingApp {
     }
 
     @AnonymousCheck(requiresLogin = true, displaysFlashMessage = true)
-    public static Result userIssues(String state, String format, int pageNum) throws WriteException, IOException {
+    public static Result userIssues(String state, String format, int pageNum) throws IOException {
         Project project = null;
         // SearchCondition from param
         Form<models.support.SearchCondition> issueParamForm = new Form<>(models.support.SearchCondition.class);
@@ -114,7 +117,7 @@ public class IssueApp extends AbstractPostingApp {
 
     @Transactional
     @IsAllowed(Operation.READ)
-    public static Result issues(String ownerName, String projectName, String state, String format, int pageNum) throws WriteException, IOException {
+    public static Result issues(String ownerName, String projectName, String state, String format, int pageNum) throws IOException {
         Project project = Project.findByOwnerAndProjectName(ownerName, projectName);
 
         // SearchCondition from param
@@ -129,14 +132,21 @@ public class IssueApp extends AbstractPostingApp {
             format = HttpUtil.isPJAXRequest(request()) ? "pjax" : "json";
         }
 
-        Integer itemsPerPage = getItemsPerPage();
         ExpressionList<Issue> el = searchCondition.asExpressionList(project);
-        Page<Issue> issues = el.findPagingList(itemsPerPage).getPage(searchCondition.pageNum);
 
         switch(format){
             case EXCEL_EXT:
-                return issuesAsExcel(project, el);
+            case "xlsx":
+                return issuesAsFile(project, el, IssueExporter.Format.XLSX);
+
+            case "csv":
+                return issuesAsFile(project, el, IssueExporter.Format.CSV);
+        }
+
+        Integer itemsPerPage = getItemsPerPage();
+        Page<Issue> issues = el.findPagingList(itemsPerPage).getPage(searchCondition.pageNum);
 
+        switch(format){
             case "pjax":
                 return issuesAsPjax(project, issues, searchCondition);
 
@@ -171,15 +181,29 @@ public class IssueApp extends AbstractPostingApp {
 
     }
 
-    private static Result issuesAsExcel(Project project, ExpressionList<Issue> el) throws WriteException, IOException {
-        byte[] excelData = Issue.excelFrom(el.findList());
+    /**
+     * Streams the issues as a file, which is written while it is downloaded.
+     *
+     * The legacy "xls" format is served as XLSX, which can be written row by
+     * row.
+     */
+    private static Result issuesAsFile(Project project, ExpressionList<Issue> el,
+                                       IssueExporter.Format format) throws IOException {
+        IssueExporter exporter = new IssueExporter(el);
         String filename = HttpUtil.encodeContentDisposition(
-                project.name + "_issues_" + JodaDateUtil.today().getTime() + "." + EXCEL_EXT);
+                project.name + "_issues_" + JodaDateUtil.today().getTime() + "." + format.extension);
 
-        response().setHeader("Content-Type", new Tika().detect(filename));
+        InputStream file;
+        try {
+            file = exporter.stream(format);
+        } catch (RejectedExecutionException e) {
+            return status(SERVICE_UNAVAILABLE, Messages.get("error.tooManyExports"));
+        }
+
+        response().setHeader("Content-Type", format.contentType);
         response().setHeader("Content-Disposition", "attachment; " + filename);
 
-        return ok(excelData);
+        return ok(file);
     }
 
     private static Result issuesAsPjax(Project project, Page<Issue> issues, models.support.SearchCondition searchCondition) {
@@ -269,20 +293,29 @@ public class IssueApp extends AbstractPostingApp {
             result.put("link", routes.IssueApp.issue(project.owner, project.name, issueInfo.getNumber()).toString());
             return ok(result);
         } else {
-            return ok(view.render("title.issueDetail", issueInfo, editForm, commentForm, project));
+            IssueTimeline timeline = new IssueTimeline(issueInfo, UserApp.currentUser());
+            return ok(view.render("title.issueDetail", issueInfo, editForm, commentForm, project, timeline));
         }
     }
 
     @IsAllowed(resourceType = ResourceType.ISSUE_POST, value = Operation.READ)
-    public static Result timeline(String ownerName, String projectName, Long number) {
+    public static Result timeline(String ownerName, String projectName, Long number, long before, long since) {
         Project project = Project.findByOwnerAndProjectName(ownerName, projectName);
         Issue issueInfo = Issue.findByNumber(project, number);
 
-        for (IssueLabel label: issueInfo.labels) {
-            label.refresh();
-        }
+        IssueTimeline timeline = new IssueTimeline(issueInfo, UserApp.currentUser(),
+                before < 0 ? null : new Date(before), since < 0 ? null : new Date(since));
+
+        return ok(partial_comments.render(project, timeline));
+    }
+
+    @IsAllowed(resourceType = ResourceType.ISSUE_POST, value = Operation.READ)
+    public static Result history(String ownerName, String projectName, Long number, int limit) {
+        Project project = Project.findByOwnerAndProjectName(ownerName, projectName);
+        Issue issueInfo = Issue.findByNumber(project, number);
 
-        return ok(partial_comments.render(project, issueInfo));
+        return postingHistory(issueInfo, limit,
+                routes.IssueApp.history(ownerName, projectName, number, 0).url());
     }
 
     @AnonymousCheck(requiresLogin = true, displaysFlashMessage = true)
@@ -304,108 +337,31 @@ public class IssueApp extends AbstractPostingApp {
 
         Project project = Project.findByOwnerAndProjectName(ownerName, projectName);
 
-        int updatedItems = 0;
-        int rejectedByPermission = 0;
-
-        for (Issue issue : issueMassUpdate.issues) {
-            issue.refresh();
-            if (issueMassUpdate.delete) {
-                if (AccessControl.isAllowed(UserApp.currentUser(), issue.asResource(),
-                        Operation.DELETE)) {
-                    issue.delete();
-                    continue;
-                } else {
-                    rejectedByPermission++;
-                    continue;
-                }
-            }
+        IssueMassUpdater updater = new IssueMassUpdater(project, UserApp.currentUser(), issueMassUpdate);
+        updater.run();
 
-            if (!AccessControl.isAllowed(UserApp.currentUser(), issue.asResource(),
-                    Operation.UPDATE)) {
-                rejectedByPermission++;
-                continue;
-            }
-
-            boolean assigneeChanged = false;
-            User oldAssignee = null;
-            if (issueMassUpdate.assignee != null) {
-                if(hasAssignee(issue)) {
-                    oldAssignee = issue.assignee.user;
-                }
-                Assignee newAssignee;
-                if (issueMassUpdate.assignee.isAnonymous()) {
-                    newAssignee = null;
-                } else {
-                    newAssignee = Assignee.add(issueMassUpdate.assignee.id, project.id);
-                }
-                assigneeChanged = !issue.assignedUserEquals(newAssignee);
-                issue.assignee = newAssignee;
-            }
-
-            boolean stateChanged = false;
-            State oldState = null;
-            if ((issueMassUpdate.state != null) && (issue.state != issueMassUpdate.state)) {
-                stateChanged = true;
-                oldState = issue.state;
-                issue.state = issueMassUpdate.state;
-            }
-
-            if (issueMassUpdate.milestone != null) {
-                if(issueMassUpdate.milestone.isNullMilestone()) {
-                    issue.milestone = null;
-                } else {
-                    issue.milestone = issueMassUpdate.milestone;
-                }
-            }
-
-            if (issueMassUpdate.attachingLabelIds != null) {
-                for (Long labelId : issueMassUpdate.attachingLabelIds) {
-                    issue.labels.add(IssueLabel.finder.byId(labelId));
-                }
-            }
-
-            if (issueMassUpdate.detachingLabelIds != null) {
-                for (Long labelId : issueMassUpdate.detachingLabelIds) {
-                    issue.labels.remove(IssueLabel.finder.byId(labelId));
-                }
-            }
-
-            if (issueMassUpdate.isDueDateChanged) {
-                issue.dueDate = JodaDateUtil.lastSecondOfDay(issueMassUpdate.dueDate);
-            }
-
-            issue.updatedDate = JodaDateUtil.now();
-            issue.update();
-            updatedItems++;
-
-            if(assigneeChanged) {
-                NotificationEvent notiEvent = NotificationEvent.afterAssigneeChanged(oldAssignee, issue);
-                IssueEvent.addFromNotificationEvent(notiEvent, issue, UserApp.currentUser().loginId);
-            }
-            if(stateChanged) {
-                NotificationEvent notiEvent = NotificationEvent.afterStateChanged(oldState, issue);
-                IssueEvent.addFromNotificationEvent(notiEvent, issue, UserApp.currentUser().loginId);
-            }
-        }
-
-        if (updatedItems == 0 && rejectedByPermission > 0) {
+        if (updater.getUpdated() == 0 && updater.getDeleted() == 0 && updater.getRejected() > 0) {
             return forbidden(ErrorViews.Forbidden.render("error.forbidden", project));
         }
 
         // Determine type of response with Accept header
         if (HttpUtil.isJSONPreferred(request())){
-            if (issueMassUpdate.isDueDateChanged) {
-                Issue issue = issueMassUpdate.issues.get(0);
-                ObjectNode result = Json.newObject();
+            ObjectNode result = Json.newObject();
+            result.put("total", updater.getTotal());
+            result.put("updated", updater.getUpdated());
+            result.put("deleted", updater.getDeleted());
+            result.put("rejected", updater.getRejected());
+            if (issueMassUpdate.isDueDateChanged && !updater.getUpdatedIssues().isEmpty()) {
+                Issue issue = updater.getUpdatedIssues().get(0);
                 result.put("isOverDue", issue.isOverDueDate());
                 result.put("dueDateMsg", issue.isOverDueDate() ? Messages.get("issue.dueDate.overdue") : issue.until());
-                return ok(result);
-            } else {
-                // jQuery treats as error if response text empty
-                // on dataType is json
-                return ok("{}");
             }
+            return ok(result);
         } else {
+            if (updater.getRejected() > 0) {
+                flash(Constants.WARNING, Messages.get("issue.massUpdate.rejected",
+                        updater.getRejected(), updater.getTotal()));
+            }
             return redirect(request().getHeader("Referer"));
         }
     }
@@ -102,6 +102,8 @@ public class IssueLabelApp extends Controller {
             labelPropertyMap.put("categoryId", "" + label.category.id);
             labelPropertyMap.put("color", label.color);
             labelPropertyMap.put("name", label.name);
+            labelPropertyMap.put("numOpenIssues", "" + label.numOpenIssues);
+            labelPropertyMap.put("numClosedIssues", "" + label.numClosedIssues);
             labels.add(labelPropertyMap);
         }
 
@@ -26,7 +26,7 @@ import play.mvc.Result;
 
 @AnonymousCheck
 public class NotificationApp extends Controller {
-    public static Result notifications(int from, int size) {
-        return ok(views.html.index.partial_notifications.render(from, size));
+    public static Result notifications(Long before, int size) {
+        return ok(views.html.index.partial_notifications.render(before, size));
     }
 }
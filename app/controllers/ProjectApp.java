@@ -28,10 +28,12 @@ import controllers.annotation.IsAllowed;
 import info.schleichardt.play2.mailplugin.Mailer;
 import models.*;
 import models.enumeration.*;
+import models.support.MentionIndex;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.mail.HtmlEmail;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.NoHeadException;
@@ -58,7 +60,6 @@ import views.html.project.setting;
 import views.html.project.transfer;
 import views.html.project.change_vcs;
 
-import javax.annotation.Nonnull;
 import javax.servlet.ServletException;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
@@ -72,7 +73,7 @@ import static utils.TemplateHelper.*;
 @AnonymousCheck
 public class ProjectApp extends Controller {
 
-    private static final int ISSUE_MENTION_SHOW_LIMIT = 2000;
+    private static final int MENTION_QUERY_LIMIT = 20;
 
     private static final int MAX_FETCH_PROJECTS = 1000;
 
@@ -375,37 +376,72 @@ public class ProjectApp extends Controller {
 
         List<User> userList = new ArrayList<>();
         collectAuthorAndCommenter(project, number, userList, resourceType);
-        addProjectMemberList(project, userList);
-        addGroupMemberList(project, userList);
-        addProjectAuthorsAndWatchersList(project, userList);
 
-        userList.remove(UserApp.currentUser());
-        userList.add(UserApp.currentUser()); //send me last at list
+        MentionIndex.Candidates candidates = MentionIndex.get(project);
+        return ok(toMentionList(project, userList, candidates.getUsers().values(),
+                candidates.getIssues()));
+    }
 
-        Map<String, List<Map<String, String>>> result = new HashMap<>();
-        result.put("result", getUserList(project, userList));
-        result.put("issues", getIssueList(project));
+    /**
+     * Builds the mention list of the given users, followed by the current
+     * user, the project and its group, and the given issues.
+     *
+     * If the request has a query, only the users and the issues which begin
+     * with it are returned.
+     *
+     * @param project
+     * @param users the users to come first, e.g. the participants of a resource
+     * @param indexedUsers the users of the project from {@link MentionIndex}
+     * @param issues the issues from {@link MentionIndex}
+     * @return the mention list
+     */
+    private static ObjectNode toMentionList(Project project, List<User> users,
+                                            Collection<ObjectNode> indexedUsers,
+                                            List<ObjectNode> issues) {
+        User currentUser = UserApp.currentUser();
+
+        Map<String, ObjectNode> candidates = new LinkedHashMap<>();
+        for (User user : users) {
+            if (MentionIndex.isMentionable(user) && !user.equals(currentUser)
+                    && !candidates.containsKey(user.loginId)) {
+                candidates.put(user.loginId, MentionIndex.toJson(user));
+            }
+        }
+        for (ObjectNode node : indexedUsers) {
+            String loginId = node.get("loginid").asText();
+            if (!loginId.equals(currentUser.loginId) && !candidates.containsKey(loginId)) {
+                candidates.put(loginId, node);
+            }
+        }
 
-        return ok(toJson(result));
-    }
+        List<ObjectNode> userNodes = new ArrayList<>(candidates.values());
+        if (MentionIndex.isMentionable(currentUser)) {
+            userNodes.add(MentionIndex.toJson(currentUser)); //send me last at list
+        }
+        addProjectNameToMentionList(userNodes, project);
+        addOrganizationNameToMentionList(userNodes, project);
 
-    private static List<Map<String, String>> getIssueList(Project project) {
-        List<Map<String, String>> mentionListOfIssues = new ArrayList<>();
-        collectedIssuesToMap(mentionListOfIssues, getMentionIssueList(project));
-        return mentionListOfIssues;
-    }
+        String query = request().getQueryString("query");
+        if (StringUtils.isNotEmpty(query)) {
+            userNodes = MentionIndex.filter(userNodes, query, MENTION_QUERY_LIMIT);
+            issues = MentionIndex.filter(issues, query, MENTION_QUERY_LIMIT);
+        }
 
-    private static List<Map<String, String>> getUserList(Project project, List<User> userList) {
-        List<Map<String, String>> mentionListOfUser = new ArrayList<>();
-        collectedUsersToMentionList(mentionListOfUser, userList);
-        addProjectNameToMentionList(mentionListOfUser, project);
-        addOrganizationNameToMentionList(mentionListOfUser, project);
-        return mentionListOfUser;
+        ObjectNode result = Json.newObject();
+        ArrayNode userArray = result.putArray("result");
+        for (ObjectNode node : userNodes) {
+            userArray.add(node);
+        }
+        ArrayNode issueArray = result.putArray("issues");
+        for (ObjectNode node : issues) {
+            issueArray.add(node);
+        }
+        return result;
     }
 
-    private static void addProjectNameToMentionList(List<Map<String, String>> users, Project project) {
-        Map<String, String> projectUserMap = new HashMap<>();
+    private static void addProjectNameToMentionList(List<ObjectNode> users, Project project) {
         if(project != null){
+            ObjectNode projectUserMap = Json.newObject();
             projectUserMap.put("loginid", project.owner+"/" + project.name);
             projectUserMap.put("username", project.name );
             projectUserMap.put("name", project.name);
@@ -414,9 +450,9 @@ public class ProjectApp extends Controller {
         }
     }
 
-    private static void addOrganizationNameToMentionList(List<Map<String, String>> users, Project project) {
-        Map<String, String> projectUserMap = new HashMap<>();
+    private static void addOrganizationNameToMentionList(List<ObjectNode> users, Project project) {
         if(project != null && project.organization != null){
+            ObjectNode projectUserMap = Json.newObject();
             projectUserMap.put("loginid", project.organization.name);
             projectUserMap.put("username", project.organization.name);
             projectUserMap.put("name", project.organization.name);
@@ -425,25 +461,6 @@ public class ProjectApp extends Controller {
         }
     }
 
-    private static void collectedIssuesToMap(List<Map<String, String>> mentionList,
-            List<Issue> issueList) {
-        for (Issue issue : issueList) {
-            Map<String, String> projectIssueMap = new HashMap<>();
-            projectIssueMap.put("name", issue.getNumber().toString() + issue.title);
-            projectIssueMap.put("issueNo", issue.getNumber().toString());
-            projectIssueMap.put("title", issue.title);
-            mentionList.add(projectIssueMap);
-        }
-    }
-
-    private static List<Issue> getMentionIssueList(Project project) {
-        return Issue.finder.where()
-                .eq("project.id", project.isForkedFromOrigin() ? project.originalProject.id : project.id)
-                .orderBy("createdDate desc")
-                .setMaxRows(ISSUE_MENTION_SHOW_LIMIT)
-                .findList();
-    }
-
     @IsAllowed(Operation.READ)
     public static Result mentionListAtCommitDiff(String ownerId, String projectName, String commitId, Long pullRequestId)
             throws IOException, UnsupportedOperationException, ServletException, SVNException {
@@ -465,14 +482,9 @@ public class ProjectApp extends Controller {
         addCodeCommenters(commitId, fromProject.id, userList);
         addProjectMemberList(project, userList);
         addGroupMemberList(project, userList);
-        userList.remove(UserApp.currentUser());
-        userList.add(UserApp.currentUser()); //send me last at list
-
-        Map<String, List<Map<String, String>>> result = new HashMap<>();
-        result.put("result", getUserList(project, userList));
-        result.put("issues", getIssueList(project));
 
-        return ok(toJson(result));
+        return ok(toMentionList(project, userList, Collections.<ObjectNode>emptyList(),
+                MentionIndex.get(project).getIssues()));
     }
 
     @IsAllowed(Operation.READ)
@@ -495,14 +507,8 @@ public class ProjectApp extends Controller {
             userList.add(contributor);
         }
 
-        userList.remove(UserApp.currentUser());
-        userList.add(UserApp.currentUser()); //send me last at list
-
-        Map<String, List<Map<String, String>>> result = new HashMap<>();
-        result.put("result", getUserList(project, userList));
-        result.put("issues", getIssueList(project));
-
-        return ok(toJson(result));
+        return ok(toMentionList(project, userList, Collections.<ObjectNode>emptyList(),
+                MentionIndex.get(project).getIssues()));
     }
 
     private static void addCommentAuthors(Long pullRequestId, List<User> userList) {
@@ -772,19 +778,6 @@ public class ProjectApp extends Controller {
         }
     }
 
-    private static void collectedUsersToMentionList(List<Map<String, String>> users, List<User> userList) {
-        for (User user: userList) {
-            Map<String, String> projectUserMap = new HashMap<>();
-            if (user != null && !user.loginId.equals(Constants.ADMIN_LOGIN_ID)) {
-                projectUserMap.put("loginid", user.loginId);
-                projectUserMap.put("username", user.name);
-                projectUserMap.put("name", user.name + user.loginId);
-                projectUserMap.put("image", user.avatarUrl());
-                users.add(projectUserMap);
-            }
-        }
-    }
-
     private static void addProjectMemberList(Project project, List<User> userList) {
         for (ProjectUser projectUser: project.projectUser) {
             if (!userList.contains(projectUser.user)) {
@@ -805,18 +798,6 @@ public class ProjectApp extends Controller {
         }
     }
 
-    private static void addProjectAuthorsAndWatchersList(Project project, List<User> userList) {
-        if(project == null){
-            return;
-        }
-
-        for (User user : findAuthorsAndWatchers(project)) {
-            if (!userList.contains(user)) {
-                userList.add(user);
-            }
-        }
-    }
-
     @Transactional
     @With(DefaultProjectCheckAction.class)
     @IsAllowed(Operation.UPDATE)
@@ -1157,9 +1138,11 @@ public class ProjectApp extends Controller {
             return notFound(ErrorViews.NotFound.render("error.notfound"));
         }
 
+        List<Webhook> webhooks = Webhook.findByProject(project.id);
         return ok(views.html.project.webhooks.render(
                 "project.webhook",
-                Webhook.findByProject(project.id),
+                webhooks,
+                WebhookDelivery.findLastByWebhooks(webhooks),
                 project));
     }
 
@@ -1210,35 +1193,4 @@ public class ProjectApp extends Controller {
         return ok();
     }
 
-    public static Set<User> findAuthorsAndWatchers(@Nonnull Project project) {
-        Set<User> allAuthors = new LinkedHashSet<>();
-
-        allAuthors.addAll(getIssueUsers(project));
-        allAuthors.addAll(getPostingUsers(project));
-        allAuthors.addAll(getPullRequestUsers(project));
-        allAuthors.addAll(getWatchedUsers(project));
-
-        return allAuthors;
-    }
-
-    private static Set<User> getPostingUsers(Project project) {
-        String postSql = "SELECT distinct author_id id FROM posting where project_id=" + project.id;
-        return User.find.setRawSql(RawSqlBuilder.parse(postSql).create()).findSet();
-    }
-
-    private static Set<User> getIssueUsers(Project project) {
-        String issueSql = "SELECT distinct author_id id FROM ISSUE where project_id=" + project.id;
-        return User.find.setRawSql(RawSqlBuilder.parse(issueSql).create()).findSet();
-    }
-
-    private static Set<User> getPullRequestUsers(Project project) {
-        String postSql = "SELECT distinct contributor_id id FROM pull_request where to_project_id=" + project.id;
-        return User.find.setRawSql(RawSqlBuilder.parse(postSql).create()).findSet();
-    }
-
-    private static Set<User> getWatchedUsers(Project project) {
-        String postSql = "SELECT distinct user_id id FROM watch where resource_type='PROJECT' and resource_id=" + project.id;
-        return User.find.setRawSql(RawSqlBuilder.parse(postSql).create()).findSet();
-    }
-
 }
@@ -28,6 +28,8 @@ import info.schleichardt.play2.mailplugin.Mailer;
 import models.*;
 import models.enumeration.State;
 import models.enumeration.UserState;
+import models.support.MentionIndex;
+import models.support.RenderedMarkdown;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.mail.EmailException;
 import org.apache.commons.mail.SimpleEmail;
@@ -40,6 +42,7 @@ import play.mvc.Controller;
 import play.mvc.Http;
 import play.mvc.Result;
 import play.mvc.With;
+import playRepository.hooks.PostReceivePipeline;
 import utils.*;
 import views.html.site.*;
 
@@ -60,6 +63,7 @@ public class SiteApp extends Controller {
     private static final int PROJECT_COUNT_PER_PAGE = 25;
     private static final int POSTING_COUNT_PER_PAGE = 30;
     private static final int ISSUE_COUNT_PER_PAGE = 30;
+    private static final int QUERY_SHAPE_COUNT = 50;
 
     /**
      * @return the result
@@ -286,7 +290,24 @@ public class SiteApp extends Controller {
      * @return
      */
     public static Result diagnose() {
-        return ok(diagnostic.render("title.siteSetting", Diagnostic.checkAll()));
+        Map<String, String> statistics = new LinkedHashMap<>();
+        statistics.putAll(WatcherIndex.getStatistics());
+        statistics.putAll(MentionIndex.getStatistics());
+        statistics.putAll(RenderedMarkdown.getStatistics());
+        statistics.putAll(PostReceivePipeline.getStatistics());
+        statistics.putAll(QueryStatistics.getStatistics());
+        return ok(diagnostic.render("title.siteSetting", Diagnostic.checkAll(), statistics));
+    }
+
+    /**
+     * Shows the queries which have taken the longest in total since Yona
+     * started.
+     *
+     * @return
+     */
+    public static Result queries() {
+        return ok(queries.render("title.siteSetting", QueryStatistics.isEnabled(),
+                QueryStatistics.getTopShapes(QUERY_SHAPE_COUNT)));
     }
 
     public static Result data() {
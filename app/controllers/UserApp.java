@@ -65,6 +65,7 @@ public class UserApp extends Controller {
     public static final int MAX_FETCH_USERS = 1000;
     private static final int HASH_ITERATIONS = 1024;
     public static final int DAYS_AGO = 7;
+    public static final int DASHBOARD_PAGE_SIZE = 50;
     public static final int UNDEFINED = 0;
     public static final String DAYS_AGO_COOKIE = "daysAgo";
     public static final String DEFAULT_GROUP = "own";
@@ -443,7 +444,7 @@ public class UserApp extends Controller {
     }
 
     @AnonymousCheck
-    public static Result userInfo(String loginId, String groups, int daysAgo, String selected) {
+    public static Result userInfo(String loginId, String groups, int daysAgo, String selected, int pageNum) {
         Organization org = Organization.findByName(loginId);
         if(org != null) {
             return redirect(routes.OrganizationApp.organization(org.name));
@@ -467,17 +468,45 @@ public class UserApp extends Controller {
         User user = User.findByLoginId(loginId);
         String[] groupNames = groups.trim().split(",");
 
-        List<Posting> postings = new ArrayList<>();
-        List<Issue> issues = new ArrayList<>();
-        List<PullRequest> pullRequests = new ArrayList<>();
-        List<Milestone> milestones = new ArrayList<>();
-
         List<Project> projects = collectProjects(loginId, user, groupNames);
-        collectDatum(projects, postings, issues, pullRequests, milestones, daysAgo);
-        sortDatum(postings, issues, pullRequests, milestones);
+
+        // collect all postings, issues, pullrequests and milestones that are contained in the readable projects.
+        // Each of them is found by a single query over all the projects, already sorted and paged.
+        // The selected tab shows the given page and the others show their first page. One more
+        // item than a page is found to tell whether there is a next page.
+        Set<Long> projectIds = AccessControl.findReadableProjectIds(UserApp.currentUser(), projects);
+        Set<String> tabsWithNextPage = new HashSet<>();
+        List<Posting> postings = pageOf("postings", tabsWithNextPage, Posting.findRecentlyCreatedByDaysAgo(
+                projectIds, daysAgo, firstRowOf("postings", selected, pageNum), DASHBOARD_PAGE_SIZE + 1));
+        List<Issue> issues = pageOf("issues", tabsWithNextPage, Issue.findRecentlyOpendIssuesByDaysAgo(
+                projectIds, daysAgo, firstRowOf("issues", selected, pageNum), DASHBOARD_PAGE_SIZE + 1));
+        List<PullRequest> pullRequests = pageOf("pullRequests", tabsWithNextPage, PullRequest.findOpendPullRequestsByDaysAgo(
+                projectIds, daysAgo, firstRowOf("pullRequests", selected, pageNum), DASHBOARD_PAGE_SIZE + 1));
+        List<Milestone> milestones = pageOf("milestones", tabsWithNextPage, Milestone.findOpenMilestones(
+                projectIds, firstRowOf("milestones", selected, pageNum), DASHBOARD_PAGE_SIZE + 1));
 
         sortByLastPushedDateAndName(projects);
-        return ok(view.render(user, groupNames, projects, postings, issues, pullRequests, milestones, daysAgo, selected));
+        return ok(view.render(user, groupNames, projects, postings, issues, pullRequests, milestones, daysAgo,
+                selected, pageNum, tabsWithNextPage));
+    }
+
+    private static int firstRowOf(String tab, String selected, int pageNum) {
+        if (!tab.equals(selected) || pageNum < 1) {
+            return 0;
+        }
+        return (pageNum - 1) * DASHBOARD_PAGE_SIZE;
+    }
+
+    /**
+     * Drops the item found beyond the page, which tells that the tab has a
+     * next page.
+     */
+    private static <T> List<T> pageOf(String tab, Set<String> tabsWithNextPage, List<T> items) {
+        if (items.size() > DASHBOARD_PAGE_SIZE) {
+            tabsWithNextPage.add(tab);
+            return items.subList(0, DASHBOARD_PAGE_SIZE);
+        }
+        return items;
     }
 
     private static void sortByLastPushedDateAndName(List<Project> projects) {
@@ -504,49 +533,6 @@ public class UserApp extends Controller {
         });
     }
 
-    private static void sortDatum(List<Posting> postings, List<Issue> issues, List<PullRequest> pullRequests, List<Milestone> milestones) {
-
-        Collections.sort(issues, new Comparator<Issue>() {
-            @Override
-            public int compare(Issue i1, Issue i2) {
-                return i2.createdDate.compareTo(i1.createdDate);
-            }
-        });
-
-        Collections.sort(postings, new Comparator<Posting>() {
-            @Override
-            public int compare(Posting p1, Posting p2) {
-                return p2.createdDate.compareTo(p1.createdDate);
-            }
-        });
-
-        Collections.sort(pullRequests, new Comparator<PullRequest>() {
-            @Override
-            public int compare(PullRequest p1, PullRequest p2) {
-                return p2.created.compareTo(p1.created);
-            }
-        });
-
-        Collections.sort(milestones, new Comparator<Milestone>() {
-            @Override
-            public int compare(Milestone m1, Milestone m2) {
-                return m2.title.compareTo(m1.title);
-            }
-        });
-    }
-
-    private static void collectDatum(List<Project> projects, List<Posting> postings, List<Issue> issues, List<PullRequest> pullRequests, List<Milestone> milestones, int daysAgo) {
-        // collect all postings, issues, pullrequests and milesotnes that are contained in the projects.
-        for (Project project : projects) {
-            if (AccessControl.isAllowed(UserApp.currentUser(), project.asResource(), Operation.READ)) {
-                postings.addAll(Posting.findRecentlyCreatedByDaysAgo(project, daysAgo));
-                issues.addAll(Issue.findRecentlyOpendIssuesByDaysAgo(project, daysAgo));
-                pullRequests.addAll(PullRequest.findOpendPullRequestsByDaysAgo(project, daysAgo));
-                milestones.addAll(Milestone.findOpenMilestones(project.id));
-            }
-        }
-    }
-
     private static List<Project> collectProjects(String loginId, User user, String[] groupNames) {
         List<Project> projectCollection = new ArrayList<>();
         // collect all projects that are included in the project groups.
@@ -681,13 +667,13 @@ public class UserApp extends Controller {
 
         Email.deleteOtherInvalidEmails(user.email);
         user.update();
-        return redirect(routes.UserApp.userInfo(user.loginId, DEFAULT_GROUP, DAYS_AGO, DEFAULT_SELECTED_TAB));
+        return redirect(routes.UserApp.userInfo(user.loginId, DEFAULT_GROUP, DAYS_AGO, DEFAULT_SELECTED_TAB, 1));
     }
 
     @Transactional
     public static Result leave(String userName, String projectName) {
         ProjectApp.deleteMember(userName, projectName, UserApp.currentUser().id);
-        return redirect(routes.UserApp.userInfo(UserApp.currentUser().loginId, DEFAULT_GROUP, DAYS_AGO, DEFAULT_SELECTED_TAB));
+        return redirect(routes.UserApp.userInfo(UserApp.currentUser().loginId, DEFAULT_GROUP, DAYS_AGO, DEFAULT_SELECTED_TAB, 1));
     }
 
     /**
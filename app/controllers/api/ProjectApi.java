@@ -6,80 +6,63 @@
 
 package controllers.api;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import controllers.MigrationApp;
-import controllers.annotation.AnonymousCheck;
 import controllers.annotation.IsAllowed;
-import models.*;
+import models.Project;
 import models.enumeration.Operation;
-import models.enumeration.ResourceType;
-import play.db.ebean.Model;
-import play.libs.Json;
+import models.support.ProjectExporter;
+import play.i18n.Messages;
 import play.mvc.Controller;
 import play.mvc.Result;
 
-import java.util.*;
-import java.util.stream.Collectors;
-
-import static controllers.MigrationApp.composePlainCommentsJson;
-import static controllers.MigrationApp.getAssginees;
-import static models.AbstractPosting.findByProject;
-import static play.libs.Json.toJson;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.concurrent.RejectedExecutionException;
 
 public class ProjectApi extends Controller {
 
+    /**
+     * Exports the issues, postings and milestones of a project as JSON,
+     * streamed while it is written.
+     *
+     * If {@code since} is given in milliseconds since the epoch, only the
+     * issues and postings created, updated or commented on since then are
+     * exported. An export tells its time as {@code exportedAt}, to be passed
+     * as {@code since} to the next one. Deleted issues and postings are not
+     * in such an export, so they are found only by exporting all of them.
+     *
+     * The JSON ends with {@code "status": "complete"}; without it, the
+     * export has failed on the way and is truncated.
+     *
+     * @param owner
+     * @param projectName
+     * @return
+     * @throws IOException
+     */
     @IsAllowed(Operation.DELETE)
-    public static Result exports(String owner, String projectName) {
+    public static Result exports(String owner, String projectName) throws IOException {
         Project project = Project.findByOwnerAndProjectName(owner, projectName);
 
-        ObjectNode json = Json.newObject();
-        json.put("owner", project.owner);
-        json.put("projectName", project.name);
-        json.put("assignees", toJson(getAssginees(project).toArray()));
-        json.put("memberCount", project.members().size());
-        json.put("issueCount", project.issues.size());
-        json.put("postCount", project.posts.size());
-        json.put("milestoneCount", project.milestones.size());
-        json.put("issues", composePosts(project, Issue.finder));
-        json.put("posts", composePosts(project, Posting.finder));
-        json.put("milestones", toJson(project.milestones.stream()
-                .map(MigrationApp::composeMilestoneJson).collect(Collectors.toList())));
-        return ok(json);
-    }
-
-    private static <T> JsonNode composePosts(Project project, Model.Finder<Long, T> finder) {
-        List<ObjectNode> result = findByProject(finder, project).stream()
-                .map(posting -> getResult((AbstractPosting) posting))
-                .collect(Collectors.toList());
-
-        return toJson(result);
-    }
-
-    private static ObjectNode getResult(AbstractPosting posting) {
-        ObjectNode json = Json.newObject();
-        json.put("id", posting.getNumber());
-        json.put("title", posting.title);
-        json.put("type", posting.asResource().getType().toString());
-        json.put("author", posting.authorLoginId);
-        json.put("authorName", posting.authorName);
-        json.put("created_at", posting.createdDate.getTime());
-        json.put("body", posting.body);
-
-        if(posting.asResource().getType() == ResourceType.ISSUE_POST){
-            Optional.ofNullable(((Issue)posting).assignee).ifPresent(assignee -> json.put("assignee", assignee.user.loginId));
-            Optional.ofNullable(((Issue)posting).milestone).ifPresent(milestone -> json.put("milestone", milestone.title));
-            Optional.ofNullable(((Issue)posting).milestone).ifPresent(milestone -> json.put("milestoneId", milestone.id));
-        }
-        List<Attachment> attachments = Attachment.findByContainer(posting.asResource());
-        if(attachments.size() > 0) {
-            json.put("attachments", toJson(attachments));
+        String since = request().getQueryString("since");
+        Date sinceDate = null;
+        if (since != null) {
+            try {
+                sinceDate = new Date(Long.parseLong(since));
+            } catch (NumberFormatException e) {
+                return badRequest("since must be a time in milliseconds");
+            }
+            if (sinceDate.getTime() < 0) {
+                return badRequest("since must be a time in milliseconds");
+            }
         }
 
-        List <ObjectNode> comments = composePlainCommentsJson(posting, ResourceType.NONISSUE_COMMENT);
-        if(comments.size() > 0){
-            json.put("comments", toJson(comments));
+        ProjectExporter exporter = new ProjectExporter(project, sinceDate);
+        InputStream json;
+        try {
+            json = exporter.stream();
+        } catch (RejectedExecutionException e) {
+            return status(SERVICE_UNAVAILABLE, Messages.get("error.tooManyExports"));
         }
-        return json;
+        return ok(json).as("application/json; charset=utf-8");
     }
 }
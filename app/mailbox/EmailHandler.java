@@ -44,13 +44,14 @@ import utils.Config;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import javax.mail.Address;
-import javax.mail.Message;
-import javax.mail.MessagingException;
+import javax.mail.*;
 import javax.mail.internet.InternetAddress;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -60,6 +61,25 @@ import java.util.regex.Pattern;
  * See {@link MailboxService} for more detailed rules to process the emails.
  */
 class EmailHandler {
+    /**
+     * The number of messages whose envelope, headers and body structure are
+     * fetched from the IMAP server at once.
+     */
+    private static final int FETCH_BATCH_SIZE = play.Configuration.root().getInt(
+            "application.mailbox.fetchBatchSize", 100);
+
+    /**
+     * The number of workers which process messages in parallel.
+     */
+    private static final int WORKERS = play.Configuration.root().getInt(
+            "application.mailbox.workers", 4);
+
+    private static OrderedWorkerPool workerPool;
+
+    private static final AtomicLong handledCount = new AtomicLong();
+    private static final AtomicLong failedCount = new AtomicLong();
+    private static final AtomicLong handlingMillis = new AtomicLong();
+
     /**
      * Fetches new emails from the given IMAP folder and process them.
      *
@@ -95,6 +115,45 @@ class EmailHandler {
         handleMessages(folder, Arrays.asList(messages));
     }
 
+    /**
+     * Stops the workers processing messages.
+     */
+    static synchronized void shutdown() {
+        if (workerPool != null) {
+            workerPool.shutdown();
+            workerPool = null;
+        }
+    }
+
+    private static synchronized OrderedWorkerPool getWorkerPool() {
+        if (workerPool == null) {
+            workerPool = new OrderedWorkerPool(WORKERS, "mailbox-worker");
+        }
+        return workerPool;
+    }
+
+    /**
+     * @return the number of messages processed since the start
+     */
+    static long getHandledCount() {
+        return handledCount.get();
+    }
+
+    /**
+     * @return the number of messages failed to be processed since the start
+     */
+    static long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return the average time in milliseconds to process a message
+     */
+    static long getAverageHandlingMillis() {
+        long count = handledCount.get();
+        return count == 0 ? 0 : handlingMillis.get() / count;
+    }
+
     private EmailHandler() {
         // You don't need to instantiate this class because this class is just
         // a set of static methods.
@@ -124,7 +183,17 @@ class EmailHandler {
         return result;
     }
 
-   private static void handleMessages(final IMAPFolder folder, List<Message> messages) {
+    private static void handleMessages(final IMAPFolder folder, List<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+
+        // Fetch what is needed to process the messages in a few round trips
+        // instead of fetching it lazily message by message.
+        prefetch(folder, messages);
+
         // Sort messages by uid; If they are not sorted, it is possible to miss
         // a email as a followed example:
         //
@@ -136,6 +205,10 @@ class EmailHandler {
         // 6. Yobi fetches messages with uid larger than 3, the value of the
         //    lastseenuid; It means that **the message with uid of 2 will be
         //    never handled!**
+        //
+        // For the same reason, messages handled in parallel advance the
+        // lastseenuid only up to the largest uid below which every message has
+        // been handled.
         Collections.sort(messages, new Comparator<Message>() {
             @Override
             public int compare(Message m1, Message m2) {
@@ -152,8 +225,144 @@ class EmailHandler {
             }
         });
 
+        final SortedSet<Long> pendingUIDs = new TreeSet<>();
+        final List<Long> uids = new ArrayList<>();
         for (Message msg : messages) {
-            handleMessage((IMAPMessage) msg);
+            long uid;
+            try {
+                uid = folder.getUID(msg);
+            } catch (MessagingException e) {
+                play.Logger.warn("Failed to get the uid of " + msg, e);
+                uid = -1;
+            }
+            uids.add(uid);
+            if (uid >= 0) {
+                pendingUIDs.add(uid);
+            }
+        }
+
+        // Messages of the same thread are handled in order by the same worker;
+        // e.g. a reply must not be handled before the email creating the issue.
+        OrderedWorkerPool pool = getWorkerPool();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            final IMAPMessage msg = (IMAPMessage) messages.get(i);
+            final long uid = uids.get(i);
+            futures.add(pool.submit(getThreadKey(msg), new Runnable() {
+                @Override
+                public void run() {
+                    long start = System.currentTimeMillis();
+                    try {
+                        handleMessage(msg);
+                    } finally {
+                        handledCount.incrementAndGet();
+                        handlingMillis.addAndGet(System.currentTimeMillis() - start);
+                        if (uid >= 0) {
+                            markHandled(pendingUIDs, uid);
+                        }
+                    }
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                play.Logger.warn("Interrupted while handling emails");
+                return;
+            } catch (ExecutionException e) {
+                play.Logger.error("Unexpected error occurs while handling an email", e.getCause());
+            }
+        }
+
+        long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+        Logger.of("mail.in").info(String.format(
+                "Handled %d emails in %dms (%.1f emails/s, %d workers);"
+                        + " total %d handled, %d failed, %dms per email on average",
+                messages.size(), elapsed, messages.size() * 1000.0 / elapsed, pool.size(),
+                getHandledCount(), getFailedCount(), getAverageHandlingMillis()));
+    }
+
+    /**
+     * Fetches the uid, envelope, headers and body structure of the given
+     * messages in batches.
+     *
+     * @param folder
+     * @param messages
+     */
+    private static void prefetch(IMAPFolder folder, List<Message> messages) {
+        FetchProfile profile = new FetchProfile();
+        profile.add(UIDFolder.FetchProfileItem.UID);
+        profile.add(FetchProfile.Item.ENVELOPE);
+        profile.add(FetchProfile.Item.CONTENT_INFO);
+        profile.add(IMAPFolder.FetchProfileItem.HEADERS);
+
+        for (int from = 0; from < messages.size(); from += FETCH_BATCH_SIZE) {
+            List<Message> batch = messages.subList(from,
+                    Math.min(from + FETCH_BATCH_SIZE, messages.size()));
+            try {
+                folder.fetch(batch.toArray(new Message[batch.size()]), profile);
+            } catch (MessagingException e) {
+                play.Logger.warn("Failed to prefetch emails; They will be fetched one by one", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the key of the thread to which the given message belongs: the
+     * first message-id of References or In-Reply-To header, or its own
+     * message-id if it starts a new thread.
+     *
+     * @param msg
+     * @return the key, or null if it cannot be determined
+     */
+    private static String getThreadKey(IMAPMessage msg) {
+        try {
+            for (String references : ArrayUtils.nullToEmpty(msg.getHeader("References"))) {
+                List<String> messageIds = parseMessageIds(references);
+                if (!messageIds.isEmpty()) {
+                    return messageIds.get(0);
+                }
+            }
+
+            String inReplyTo = msg.getInReplyTo();
+            if (inReplyTo != null) {
+                List<String> messageIds = parseMessageIds(inReplyTo);
+                if (!messageIds.isEmpty()) {
+                    return messageIds.get(0);
+                }
+            }
+
+            return msg.getMessageID();
+        } catch (MessagingException e) {
+            play.Logger.warn("Failed to find the thread of " + msg, e);
+            return null;
+        }
+    }
+
+    /**
+     * Marks the message of the given uid as handled, and updates the
+     * lastSeenUID to the largest handled uid which is smaller than the uids
+     * of all messages not handled yet.
+     */
+    private static void markHandled(SortedSet<Long> pendingUIDs, long uid) {
+        long lastSeenUID;
+
+        synchronized (pendingUIDs) {
+            boolean isSmallest = pendingUIDs.first() == uid;
+            pendingUIDs.remove(uid);
+            if (!isSmallest) {
+                return;
+            }
+            lastSeenUID = pendingUIDs.isEmpty() ? uid : pendingUIDs.first() - 1;
+        }
+
+        try {
+            MailboxService.updateLastSeenUID(lastSeenUID);
+        } catch (Exception e) {
+            play.Logger.warn("Failed to update the lastSeenUID", e);
         }
     }
 
@@ -246,16 +455,14 @@ class EmailHandler {
                 reply(msg, username, emailAddress, helpMessage);
             }
 
-            try {
-                log(msg, startTime, exception);
-            } catch (MessagingException e) {
-                play.Logger.warn("Failed to log mail request", e);
+            if (exception != null) {
+                failedCount.incrementAndGet();
             }
 
             try {
-                MailboxService.updateLastSeenUID(msg);
+                log(msg, startTime, exception);
             } catch (MessagingException e) {
-                play.Logger.warn("Failed to update the lastSeenUID", e);
+                play.Logger.warn("Failed to log mail request", e);
             }
         }
     }
@@ -22,7 +22,6 @@ package mailbox;
 
 import akka.actor.Cancellable;
 import com.sun.mail.imap.IMAPFolder;
-import com.sun.mail.imap.IMAPMessage;
 import com.sun.mail.imap.IMAPStore;
 import models.Property;
 import models.User;
@@ -137,6 +136,7 @@ public class MailboxService {
         }
 
         isStopping = true;
+        EmailHandler.shutdown();
 
         try {
             folder.close(true);
@@ -343,12 +343,9 @@ public class MailboxService {
      * lastSeenUID MUST be updated when a new email is processed so that
      * MailboxService fetches new emails correctly.
      *
-     * @param msg
-     * @throws MessagingException
+     * @param uid the uid of the processed email
      */
-    synchronized static void updateLastSeenUID(IMAPMessage msg) throws MessagingException {
-        long uid = folder.getUID(msg);
-
+    synchronized static void updateLastSeenUID(long uid) {
         // Do not update lastSeenUID if it is larger than the current uid.
         try {
             long lastSeenUID = Property.getLong(Property.Name.MAILBOX_LAST_SEEN_UID);
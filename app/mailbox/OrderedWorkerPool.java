@@ -0,0 +1,60 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package mailbox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * A bounded pool of workers which runs tasks with different keys in parallel
+ * and tasks with the same key one by one in the order they are submitted.
+ *
+ * Every key is bound to one of the workers, and each worker is a single
+ * thread, so the order of the tasks of a key is kept while the number of
+ * threads never exceeds the size of the pool.
+ */
+class OrderedWorkerPool {
+    private final List<ExecutorService> workers = new ArrayList<>();
+
+    OrderedWorkerPool(int size, final String name) {
+        for (int i = 0; i < Math.max(1, size); i++) {
+            final int index = i;
+            workers.add(Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, name + "-" + index);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }));
+        }
+    }
+
+    int size() {
+        return workers.size();
+    }
+
+    /**
+     * Submits the given task to run after all the tasks submitted with the
+     * same key.
+     *
+     * @param key
+     * @param task
+     * @return the future of the task
+     */
+    Future<?> submit(Object key, Runnable task) {
+        int index = (key == null) ? 0 : (key.hashCode() & Integer.MAX_VALUE) % workers.size();
+        return workers.get(index).submit(task);
+    }
+
+    void shutdown() {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+    }
+}
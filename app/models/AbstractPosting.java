@@ -5,6 +5,10 @@
  */
 package models;
 
+import com.avaje.ebean.Ebean;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.avaje.ebean.SqlRow;
+import com.avaje.ebean.TxRunnable;
 import models.enumeration.ResourceType;
 import models.resource.Resource;
 import models.resource.ResourceConvertible;
@@ -42,8 +46,23 @@ abstract public class AbstractPosting extends Model implements ResourceConvertib
     @Lob
     public String body;
 
+    /**
+     * The HTML rendered from {@link #body} at write time.
+     *
+     * @see models.support.RenderedMarkdown
+     */
     @Lob
-    public String history;
+    @JsonIgnore
+    public String renderedHtml;
+
+    @JsonIgnore
+    public Integer rendererVersion;
+
+    /**
+     * The SHA-1 digest of the source {@link #renderedHtml} was rendered from.
+     */
+    @JsonIgnore
+    public String renderedSourceDigest;
 
     @Constraints.Required
     @Formats.DateTime(pattern = "YYYY/MM/DD/hh/mm/ss")
@@ -69,6 +88,12 @@ abstract public class AbstractPosting extends Model implements ResourceConvertib
     // Ebean does NOT sort entities by transient field.
     public int numOfComments;
 
+    /**
+     * The number of {@link PostingRevision revisions} of the body, kept so
+     * that a view can tell whether there is a history without counting them.
+     */
+    public int numOfRevisions;
+
     abstract public int computeNumOfComments();
 
     public AbstractPosting() {
@@ -139,11 +164,36 @@ abstract public class AbstractPosting extends Model implements ResourceConvertib
         updateMention();
     }
 
+    /**
+     * Updates this posting and records a {@link PostingRevision} if its body
+     * has changed.
+     */
     @Transactional
     public void update() {
         numOfComments = computeNumOfComments();
+        Ebean.execute(new TxRunnable() {
+            @Override
+            public void run() {
+                updateWithRevision();
+            }
+        });
+    }
+
+    private void updateWithRevision() {
+        SqlRow stored = PostingRevision.lock(this);
+        String before = (stored != null) ? stored.getString("body") : null;
+        boolean isBodyChanged = stored != null
+                && !StringUtils.defaultString(before).equals(StringUtils.defaultString(body));
+        if (stored != null) {
+            numOfRevisions = stored.getInteger("num_of_revisions") + (isBodyChanged ? 1 : 0);
+        }
+
         super.update();
         updateMention();
+
+        if (isBodyChanged) {
+            PostingRevision.add(this, before, body, PostingRevision.editorOf(this));
+        }
     }
 
     /**
@@ -216,6 +266,7 @@ abstract public class AbstractPosting extends Model implements ResourceConvertib
         }
         Attachment.deleteAll(asResource());
         NotificationEvent.deleteBy(this.asResource());
+        PostingRevision.deleteBy(asResource());
         super.delete();
     }
 
@@ -248,12 +299,11 @@ abstract public class AbstractPosting extends Model implements ResourceConvertib
         actualWatchers.addAll(baseWatchers);
 
         actualWatchers.add(getAuthor());
+        Set<Long> commenterIds = new HashSet<>();
         for (Comment c : getComments()) {
-            User user = User.find.byId(c.authorId);
-            if (user != null) {
-                actualWatchers.add(user);
-            }
+            commenterIds.add(c.authorId);
         }
+        actualWatchers.addAll(User.findByIds(commenterIds));
 
         return Watch.findActualWatchers(actualWatchers, asResource(), allowedWatchersOnly);
     }
@@ -11,7 +11,6 @@ import models.enumeration.ResourceType;
 import models.resource.GlobalResource;
 import models.resource.Resource;
 import models.resource.ResourceConvertible;
-import org.apache.commons.io.FileUtils;
 import org.apache.tika.config.TikaConfig;
 import org.apache.tika.mime.MimeTypeException;
 import play.data.validation.Constraints;
@@ -25,8 +24,11 @@ import utils.JodaDateUtil;
 import javax.annotation.Nullable;
 import javax.persistence.*;
 import java.io.*;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
@@ -34,6 +36,7 @@ import java.util.Date;
 import java.util.Formatter;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 @Entity
 public class Attachment extends Model implements ResourceConvertible {
@@ -41,6 +44,8 @@ public class Attachment extends Model implements ResourceConvertible {
     public static final Finder<Long, Attachment> find = new Finder<>(Long.class, Attachment.class);
     public static final int NOTHING_TO_ATTACH = 0;
     private static String uploadDirectory = "uploads";
+    private static final String TEMPORARY_DIRECTORY = ".tmp";
+    private static final Pattern LEGACY_FILE_NAME = Pattern.compile("[0-9a-f]{40}");
     @Id
     public Long id;
 
@@ -198,40 +203,73 @@ public class Attachment extends Model implements ResourceConvertible {
      * This method is used to move a file stored in temporary directory by
      * PlayFramework to the Upload Directory managed by Yobi.
      *
+     * The file is renamed into the temporary directory of the Upload
+     * Directory and hashed there. If it cannot be renamed, e.g. because it
+     * is on another file system, it is hashed while it is copied, so the file
+     * is read only once either way.
+     *
      * @param file
-     * @return SHA1 hash of the file
+     * @return the stored file, whose name is the SHA1 hash of the file
      * @throws NoSuchAlgorithmException
      * @throws IOException
      */
     private static File moveFileIntoUploadDirectory(File file)
             throws NoSuchAlgorithmException, IOException {
-        // Compute sha1 checksum.
-        InputStream is = new FileInputStream(file);
-        byte buf[] = new byte[10240];
+        File tempFile = createTemporaryFile();
         MessageDigest algorithm = MessageDigest.getInstance("SHA1");
-        for (int readSize = 0; readSize >= 0; readSize = is.read(buf)) {
-            algorithm.update(buf, 0, readSize);
+
+        if (file.renameTo(tempFile)) {
+            try (InputStream is = new FileInputStream(tempFile)) {
+                digest(is, algorithm, null);
+            }
+        } else {
+            try (InputStream is = new FileInputStream(file);
+                 OutputStream os = new FileOutputStream(tempFile)) {
+                digest(is, algorithm, os);
+            }
+            file.delete();
         }
-        is.close();
-        String hash = toHex(algorithm.digest());
 
-        return moveFileIntoUploadDirectory(file, hash);
+        return moveFileIntoUploadDirectory(tempFile, toHex(algorithm.digest()));
     }
 
-    private static File moveFileIntoUploadDirectory(File file, String hash)
-            throws NoSuchAlgorithmException, IOException {
-        // Store the file.
-        File attachedFile = new File(createUploadDirectory(), hash);
-        boolean isMoved = file.renameTo(attachedFile);
+    /**
+     * Moves a file in the temporary directory of the Upload Directory to the
+     * place of the given hash. If a file with the same hash is already stored,
+     * the given file is just deleted.
+     */
+    private static File moveFileIntoUploadDirectory(File tempFile, String hash)
+            throws IOException {
+        File storedFile = getFile(hash);
+        if (storedFile.isFile()) {
+            Files.delete(tempFile.toPath());
+            return storedFile;
+        }
 
-        if(!isMoved){
-            FileUtils.copyFile(file, attachedFile);
-            file.delete();
+        File attachedFile = getShardedFile(hash);
+        File parent = attachedFile.getParentFile();
+        parent.mkdirs();
+        if (!parent.isDirectory()) {
+            throw new NotDirectoryException(
+                    "'" + parent.getAbsolutePath() + "' is not a directory.");
         }
+        Files.move(tempFile.toPath(), attachedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
 
         return attachedFile;
     }
 
+    private static void digest(InputStream is, MessageDigest algorithm,
+                               @Nullable OutputStream os) throws IOException {
+        byte buf[] = new byte[64 * 1024];
+        int readSize;
+        while ((readSize = is.read(buf)) != -1) {
+            algorithm.update(buf, 0, readSize);
+            if (os != null) {
+                os.write(buf, 0, readSize);
+            }
+        }
+    }
+
     /**
      * Attaches an uploaded file to the given container with the given name.
      *
@@ -267,7 +305,39 @@ public class Attachment extends Model implements ResourceConvertible {
      */
     @JsonIgnore
     public File getFile() {
-        return new File(getUploadDirectory(), this.hash);
+        return getFile(this.hash);
+    }
+
+    /**
+     * Files are stored in two levels of directories named by the first four
+     * characters of their hashes, e.g. "uploads/ab/cd/abcd1234...", so that
+     * no directory grows too large to list or back up.
+     *
+     * Files stored before the layout was introduced are stored directly in
+     * the Upload Directory until {@link #migrateToShardedLayout()} moves them.
+     *
+     * @param hash
+     * @return the file of the given hash, which may not exist
+     */
+    private static File getFile(String hash) {
+        File file = getShardedFile(hash);
+        if (file.isFile()) {
+            return file;
+        }
+        File legacyFile = getLegacyFile(hash);
+        return legacyFile.isFile() ? legacyFile : file;
+    }
+
+    private static File getShardedFile(String hash) {
+        if (hash.length() < 4) {
+            return getLegacyFile(hash);
+        }
+        File shard = new File(new File(getUploadDirectory(), hash.substring(0, 2)), hash.substring(2, 4));
+        return new File(shard, hash);
+    }
+
+    private static File getLegacyFile(String hash) {
+        return new File(getUploadDirectory(), hash);
     }
 
     public static File getUploadDirectory() {
@@ -294,7 +364,7 @@ public class Attachment extends Model implements ResourceConvertible {
      * @return true if the file exists
      */
     public static boolean fileExists(String hash) {
-        return new File(getUploadDirectory(), hash).isFile();
+        return getFile(hash).isFile();
     }
 
     /**
@@ -317,7 +387,8 @@ public class Attachment extends Model implements ResourceConvertible {
         boolean isSafelyDeleted;
         if (!exists(this.hash)) {
             try {
-                isSafelyDeleted = Files.deleteIfExists(getFile().toPath());
+                isSafelyDeleted = Files.deleteIfExists(getShardedFile(hash).toPath())
+                        | Files.deleteIfExists(getLegacyFile(hash).toPath());
                 if(!isSafelyDeleted){
                     play.Logger.error("tried to delete already deleted: " + this);
                 }
@@ -473,8 +544,64 @@ public class Attachment extends Model implements ResourceConvertible {
         );
     }
 
+    /**
+     * Moves the files stored directly in the Upload Directory, before the
+     * sharded layout was introduced, into their shards.
+     *
+     * The files are found by {@link #getFile()} wherever they are, so this
+     * runs in the background without blocking anything.
+     *
+     * @return the number of the moved files
+     */
+    static int migrateToShardedLayout() throws IOException {
+        File uploads = getUploadDirectory();
+        if (!uploads.isDirectory()) {
+            return 0;
+        }
+
+        int moved = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(uploads.toPath())) {
+            for (Path path : stream) {
+                String hash = path.getFileName().toString();
+                if (!LEGACY_FILE_NAME.matcher(hash).matches() || !Files.isRegularFile(path)) {
+                    continue;
+                }
+                File file = getShardedFile(hash);
+                if (file.isFile()) {
+                    Files.delete(path);
+                } else {
+                    file.getParentFile().mkdirs();
+                    Files.move(path, file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                }
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    private static void migrateToShardedLayoutWithSchedule() {
+        Akka.system().scheduler().scheduleOnce(
+                Duration.create(0, TimeUnit.SECONDS),
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            int moved = migrateToShardedLayout();
+                            if (moved > 0) {
+                                play.Logger.info(moved + " attachment files are moved into the sharded directories");
+                            }
+                        } catch (Exception e) {
+                            play.Logger.warn("Failed to move attachment files into the sharded directories", e);
+                        }
+                    }
+                },
+                Akka.system().dispatcher()
+        );
+    }
+
     public static void onStart() {
         cleanupTemporaryUploadFilesWithSchedule();
+        migrateToShardedLayoutWithSchedule();
     }
 
     @Override
@@ -494,27 +621,15 @@ public class Attachment extends Model implements ResourceConvertible {
     public boolean store(InputStream inputStream, @Nullable String fileName,
                          Resource container) throws
             IOException, NoSuchAlgorithmException {
-        byte buf[] = new byte[10240];
-
-        // Compute hash and store the stream as a temp file
+        // Compute hash while storing the stream as a temp file
         MessageDigest algorithm = MessageDigest.getInstance("SHA1");
-        String tempFileHash;
-        File tmpFile = File.createTempFile("yobi", null);
-        FileOutputStream fos = new FileOutputStream(tmpFile);
-        try {
-            int readSize;
-            while ((readSize = inputStream.read(buf)) != -1) {
-                algorithm.update(buf, 0, readSize);
-                fos.write(buf, 0, readSize);
-            }
-            tempFileHash = toHex(algorithm.digest());
-            fos.flush();
-        } finally {
-            fos.close();
+        File tmpFile = createTemporaryFile();
+        try (OutputStream os = new FileOutputStream(tmpFile)) {
+            digest(inputStream, algorithm, os);
         }
 
         // Save this attachment with metadata
-        return save(moveFileIntoUploadDirectory(tmpFile, tempFileHash), fileName, container);
+        return save(moveFileIntoUploadDirectory(tmpFile, toHex(algorithm.digest())), fileName, container);
     }
 
     /**
@@ -573,15 +688,16 @@ public class Attachment extends Model implements ResourceConvertible {
         return hex;
     }
 
-    // Create the upload directory if it doesn't exist.
-    private static File createUploadDirectory() throws NotDirectoryException {
-        File uploads = getUploadDirectory();
-        uploads.mkdirs();
-        if (!uploads.isDirectory()) {
+    // Create a temporary file in the upload directory, from which files are
+    // moved into their shards by renaming.
+    private static File createTemporaryFile() throws IOException {
+        File tmp = new File(getUploadDirectory(), TEMPORARY_DIRECTORY);
+        tmp.mkdirs();
+        if (!tmp.isDirectory()) {
             throw new NotDirectoryException(
-                    "'" + uploads.getAbsolutePath() + "' is not a directory.");
+                    "'" + tmp.getAbsolutePath() + "' is not a directory.");
         }
-        return uploads;
+        return File.createTempFile("yobi", null, tmp);
     }
 
 }
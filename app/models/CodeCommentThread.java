@@ -20,16 +20,31 @@
  */
 package models;
 
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.lib.Repository;
+import playRepository.DiffLine;
+import playRepository.FileDiff;
+import playRepository.GitRepository;
+import playRepository.Hunk;
+import playRepository.PlayRepository;
+import playRepository.RepositoryService;
 
+import javax.annotation.Nullable;
 import javax.persistence.*;
+import javax.servlet.ServletException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static models.CodeRange.Side;
 import static models.CodeRange.Side.A;
@@ -54,6 +69,11 @@ public class CodeCommentThread extends CommentThread {
     @Transient
     private Boolean _isOutdated;
 
+    private static final Cache<Long, Optional<Snippet>> snippets = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+
     @ManyToMany(cascade = CascadeType.ALL)
     public List<User> codeAuthors = new ArrayList<>();
 
@@ -73,6 +93,136 @@ public class CodeCommentThread extends CommentThread {
         return isOnChangesOfPullRequest() && StringUtils.isNotEmpty(prevCommitId);
     }
 
+    /**
+     * Returns the hunk around the commented line, quoted as a diff block of
+     * Markdown, e.g. to be shown in notification mails.
+     *
+     * Only the commented file is compared, and the snippet is cached because
+     * it is built again for every language of the receivers of a comment.
+     *
+     * @return the snippet, or null if the commented file is not found
+     * @throws IOException
+     */
+    @Nullable
+    public Snippet getSnippet() throws IOException {
+        if (id == null) {
+            return findSnippet();
+        }
+
+        try {
+            return snippets.get(id, new Callable<Optional<Snippet>>() {
+                @Override
+                public Optional<Snippet> call() throws IOException {
+                    return Optional.fromNullable(findSnippet());
+                }
+            }).orNull();
+        } catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private Snippet findSnippet() throws IOException {
+        PlayRepository repository;
+        try {
+            repository = RepositoryService.getRepository(project);
+        } catch (ServletException e) {
+            throw new IOException(e);
+        }
+
+        if (!(repository instanceof GitRepository)) {
+            return null;
+        }
+
+        List<FileDiff> diffs = ((GitRepository) repository).getDiffOfFile(
+                StringUtils.defaultIfEmpty(prevCommitId, null), commitId, codeRange.path);
+        if (diffs == null) {
+            return null;
+        }
+
+        for (FileDiff diff : diffs) {
+            if (!codeRange.isFor(diff)) {
+                continue;
+            }
+
+            diff.setInterestLine(codeRange.endLine);
+            diff.setInterestSide(codeRange.endSide);
+
+            return new Snippet(diff.getHunks(), codeRange);
+        }
+
+        return null;
+    }
+
+    /**
+     * The quoted hunk around a commented line, split at the line so that the
+     * comment can be put right below it.
+     */
+    public static class Snippet {
+        private final String beforeComment;
+        private final String afterComment;
+
+        Snippet(@Nullable FileDiff.Hunks hunks, CodeRange codeRange) {
+            if (hunks == null) {
+                beforeComment = null;
+                afterComment = null;
+                return;
+            }
+
+            StringBuilder before = new StringBuilder("```diff\n");
+            StringBuilder after = null;
+            for (Hunk hunk : hunks) {
+                StringBuilder current = (after != null) ? after : before;
+                current.append(String.format("> @@ -%d, %d +%d, %d @@\n",
+                        hunk.beginA + 1, (hunk.endA - hunk.beginA),
+                        hunk.beginB + 1, (hunk.endB - hunk.beginB)));
+                for (DiffLine line : hunk.lines) {
+                    current = (after != null) ? after : before;
+                    current.append("> ");
+                    switch (line.kind) {
+                        case CONTEXT:
+                            current.append(" ");
+                            break;
+                        case ADD:
+                            current.append("+");
+                            break;
+                        case REMOVE:
+                            current.append("-");
+                            break;
+                    }
+                    current.append(line.getContent()).append("\n");
+                    if (after == null && codeRange.endsWith(line)) {
+                        before.append("```\n");
+                        after = new StringBuilder("```diff\n");
+                    }
+                }
+            }
+
+            if (after == null) {
+                // The commented line is not in the hunk; put the comment below it.
+                before.append("```\n");
+                after = new StringBuilder();
+            } else {
+                after.append("```\n");
+            }
+
+            beforeComment = before.toString();
+            afterComment = after.toString();
+        }
+
+        public boolean hasHunks() {
+            return beforeComment != null;
+        }
+
+        public String getBeforeComment() {
+            return beforeComment;
+        }
+
+        public String getAfterComment() {
+            return afterComment;
+        }
+    }
+
     public boolean isOutdated() throws IOException, GitAPIException {
         if (codeRange.startLine == null || prevCommitId == null || commitId == null) {
             return false;
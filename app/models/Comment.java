@@ -21,6 +21,7 @@
 package models;
 
 import com.avaje.ebean.annotation.Transactional;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import models.resource.Resource;
 import models.resource.ResourceConvertible;
 import org.apache.commons.lang.StringUtils;
@@ -49,6 +50,24 @@ abstract public class Comment extends Model implements TimelineItem, ResourceCon
     @Lob @Constraints.Required
     public String contents;
 
+    /**
+     * The HTML rendered from {@link #contents} at write time.
+     *
+     * @see models.support.RenderedMarkdown
+     */
+    @Lob
+    @JsonIgnore
+    public String renderedHtml;
+
+    @JsonIgnore
+    public Integer rendererVersion;
+
+    /**
+     * The SHA-1 digest of the source {@link #renderedHtml} was rendered from.
+     */
+    @JsonIgnore
+    public String renderedSourceDigest;
+
     @Constraints.Required
     public Date createdDate;
 
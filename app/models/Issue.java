@@ -23,13 +23,6 @@ package models;
 import com.avaje.ebean.Ebean;
 import com.avaje.ebean.Page;
 import com.avaje.ebean.annotation.Formula;
-import jxl.Workbook;
-import jxl.format.Alignment;
-import jxl.format.Border;
-import jxl.format.BorderLineStyle;
-import jxl.format.Colour;
-import jxl.format.*;
-import jxl.write.*;
 import models.enumeration.ResourceType;
 import models.enumeration.State;
 import models.resource.Resource;
@@ -42,8 +35,6 @@ import play.i18n.Messages;
 import utils.JodaDateUtil;
 
 import javax.persistence.*;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.lang.Boolean;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -151,6 +142,7 @@ public class Issue extends AbstractPosting implements LabelOwner {
     public void update() {
         updateAssignee();
         super.update();
+        IssueSearchToken.index(this);
     }
 
     public void checkLabels() throws IssueLabel.IssueLabelException {
@@ -191,6 +183,7 @@ public class Issue extends AbstractPosting implements LabelOwner {
     public void save() {
         updateAssignee();
         super.save();
+        IssueSearchToken.index(this);
     }
 
     public static int countIssues(Long projectId, State state) {
@@ -220,69 +213,6 @@ public class Issue extends AbstractPosting implements LabelOwner {
         return cond.asExpressionList(organization).findRowCount();
     }
 
-    /**
-     * Generate a Microsoft Excel file in byte array from the given issue list,
-     * using JXL.
-     */
-    public static byte[] excelFrom(List<Issue> issueList) throws WriteException, IOException {
-        WritableWorkbook workbook;
-        WritableSheet sheet;
-
-        WritableFont wf1 = new WritableFont(WritableFont.TIMES, 13, WritableFont.BOLD, false,
-                UnderlineStyle.SINGLE, Colour.BLUE_GREY, ScriptStyle.NORMAL_SCRIPT);
-        WritableCellFormat cf1 = new WritableCellFormat(wf1);
-        cf1.setBorder(Border.ALL, BorderLineStyle.DOUBLE);
-        cf1.setAlignment(Alignment.CENTRE);
-
-        WritableFont wf2 = new WritableFont(WritableFont.TAHOMA, 11, WritableFont.NO_BOLD, false, UnderlineStyle.NO_UNDERLINE, Colour.BLACK, ScriptStyle.NORMAL_SCRIPT);
-        WritableCellFormat cf2 = new WritableCellFormat(wf2);
-        cf2.setShrinkToFit(true);
-        cf2.setBorder(Border.ALL, BorderLineStyle.THIN);
-        cf2.setAlignment(Alignment.CENTRE);
-
-        DateFormat valueFormatDate = new DateFormat("yyyy-MM-dd HH:mm:ss");
-        WritableCellFormat cfDate = new WritableCellFormat(valueFormatDate);
-        cfDate.setFont(wf2);
-        cfDate.setShrinkToFit(true);
-        cfDate.setBorder(Border.ALL, BorderLineStyle.THIN);
-        cfDate.setAlignment(Alignment.CENTRE);
-
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        workbook = Workbook.createWorkbook(bos);
-        sheet = workbook.createSheet(String.valueOf(JodaDateUtil.today().getTime()), 0);
-
-        String[] labalArr = {"ID", "STATE", "TITLE", "ASSIGNEE", "DATE"};
-
-        for (int i = 0; i < labalArr.length; i++) {
-            sheet.addCell(new jxl.write.Label(i, 0, labalArr[i], cf1));
-            sheet.setColumnView(i, 20);
-        }
-        for (int i = 1; i < issueList.size() + 1; i++) {
-            Issue issue = issueList.get(i - 1);
-            int colcnt = 0;
-            sheet.addCell(new jxl.write.Label(colcnt++, i, issue.id.toString(), cf2));
-            sheet.addCell(new jxl.write.Label(colcnt++, i, issue.state.toString(), cf2));
-            sheet.addCell(new jxl.write.Label(colcnt++, i, issue.title, cf2));
-            sheet.addCell(new jxl.write.Label(colcnt++, i, getAssigneeName(issue.assignee), cf2));
-            sheet.addCell(new jxl.write.DateTime(colcnt++, i, issue.createdDate, cfDate));
-        }
-        workbook.write();
-
-        try {
-            workbook.close();
-        } catch (WriteException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        return bos.toByteArray();
-    }
-
-    private static String getAssigneeName(Assignee assignee) {
-        return (assignee != null ? assignee.user.name : TO_BE_ASSIGNED);
-    }
-
     public boolean isOpen() {
         return this.state == State.OPEN;
     }
@@ -407,6 +337,29 @@ public class Issue extends AbstractPosting implements LabelOwner {
                 .ge("createdDate", JodaDateUtil.before(days)).order().desc("createdDate").findList();
     }
 
+    /**
+     * Find issues opened in the given projects within the given days.
+     *
+     * @param projectIds ids of the projects
+     * @param days days ago
+     * @param firstRow the number of the newest issues to skip
+     * @param maxRows the maximum number of issues to find
+     * @return
+     */
+    public static List<Issue> findRecentlyOpendIssuesByDaysAgo(Collection<Long> projectIds, int days,
+                                                               int firstRow, int maxRows) {
+        if (projectIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return finder.fetch("project").where()
+                .in("project.id", projectIds)
+                .eq("state", State.OPEN)
+                .ge("createdDate", JodaDateUtil.before(days)).order().desc("createdDate")
+                .setFirstRow(firstRow)
+                .setMaxRows(maxRows)
+                .findList();
+    }
+
     public static Page<Issue> findIssuesByState(int size, int pageNum, State state) {
         return finder.where().eq("state", state)
                 .order().desc("createdDate")
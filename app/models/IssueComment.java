@@ -48,6 +48,24 @@ public class IssueComment extends Comment {
         this.issue = issue;
     }
 
+    /**
+     * @see IssueSearchToken
+     */
+    @Override
+    public void save() {
+        super.save();
+        IssueSearchToken.index(this);
+    }
+
+    /**
+     * @see IssueSearchToken
+     */
+    @Override
+    public void update() {
+        super.update();
+        IssueSearchToken.index(this);
+    }
+
     /**
      * @see Comment#getParent()
      */
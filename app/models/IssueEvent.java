@@ -20,6 +20,8 @@
  */
 package models;
 
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.Transaction;
 import models.enumeration.EventType;
 import org.apache.commons.lang3.StringUtils;
 import org.joda.time.DateTime;
@@ -27,9 +29,7 @@ import play.Configuration;
 import play.db.ebean.Model;
 
 import javax.persistence.*;
-import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 import java.util.regex.Matcher;
 
 @Entity
@@ -59,6 +59,8 @@ public class IssueEvent extends Model implements TimelineItem {
     private static final int DRAFT_TIME_IN_MILLIS = Configuration.root()
         .getMilliseconds("application.issue-event.draft-time", 30 * 1000L).intValue();
 
+    private static final int BATCH_SIZE = 100;
+
     public static final Finder<Long, IssueEvent> find = new Finder<>(Long.class,
             IssueEvent.class);
 
@@ -120,6 +122,11 @@ public class IssueEvent extends Model implements TimelineItem {
      */
     public static void addFromNotificationEvent(NotificationEvent notiEvent, Issue updatedIssue,
                                                 String senderLoginId) {
+        add(fromNotificationEvent(notiEvent, updatedIssue, senderLoginId));
+    }
+
+    public static IssueEvent fromNotificationEvent(NotificationEvent notiEvent, Issue updatedIssue,
+                                                   String senderLoginId) {
         IssueEvent event = new IssueEvent();
         event.created = notiEvent.created;
         event.senderLoginId = senderLoginId;
@@ -127,7 +134,80 @@ public class IssueEvent extends Model implements TimelineItem {
         event.eventType = notiEvent.eventType;
         event.oldValue = notiEvent.oldValue;
         event.newValue = notiEvent.newValue;
-        add(event);
+        return event;
+    }
+
+    /**
+     * Adds the given events as {@link #add(IssueEvent)} does for each of
+     * them, e.g. when many issues are updated at once.
+     *
+     * The recent events of all the issues are looked up by a single query,
+     * and the events are inserted in JDBC batches.
+     *
+     * @param events
+     */
+    public static void addAll(List<IssueEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        Set<Long> issueIds = new HashSet<>();
+        for (IssueEvent event : events) {
+            issueIds.add(event.issue.id);
+        }
+        Date draftDate = DateTime.now().minusMillis(DRAFT_TIME_IN_MILLIS).toDate();
+        Map<Long, LinkedList<IssueEvent>> recentEvents = new HashMap<>();
+        for (IssueEvent event : IssueEvent.find.where()
+                .in("issue.id", issueIds)
+                .gt("created", draftDate)
+                .orderBy("id asc").findList()) {
+            recentEventsOf(recentEvents, event.issue.id).addFirst(event);
+        }
+
+        // The events which merge or cancel each other are resolved here
+        // before any of them is inserted.
+        List<IssueEvent> newEvents = new ArrayList<>();
+        for (IssueEvent event : events) {
+            LinkedList<IssueEvent> recent = recentEventsOf(recentEvents, event.issue.id);
+            IssueEvent lastEvent = recent.peekFirst();
+            if (lastEvent != null && lastEvent.eventType == event.eventType &&
+                    StringUtils.equals(event.senderLoginId, lastEvent.senderLoginId)) {
+                // A -> B, B -> C ==> A -> C
+                event.oldValue = lastEvent.oldValue;
+                recent.removeFirst();
+                if (!newEvents.remove(lastEvent)) {
+                    lastEvent.delete();
+                }
+
+                // A -> B, B -> A ==> remove all of them
+                if (StringUtils.equals(event.oldValue, event.newValue)) {
+                    continue;
+                }
+            }
+            recent.addFirst(event);
+            newEvents.add(event);
+        }
+
+        Transaction transaction = Ebean.currentTransaction();
+        if (transaction != null) {
+            transaction.setBatchMode(true);
+            transaction.setBatchSize(BATCH_SIZE);
+        }
+        Ebean.save(newEvents);
+        if (transaction != null) {
+            transaction.flushBatch();
+            transaction.setBatchMode(false);
+        }
+    }
+
+    private static LinkedList<IssueEvent> recentEventsOf(Map<Long, LinkedList<IssueEvent>> recentEvents,
+                                                        Long issueId) {
+        LinkedList<IssueEvent> recent = recentEvents.get(issueId);
+        if (recent == null) {
+            recent = new LinkedList<>();
+            recentEvents.put(issueId, recent);
+        }
+        return recent;
     }
 
     @Override
@@ -64,12 +64,24 @@ public class IssueLabel extends Model implements ResourceConvertible {
     @ManyToOne
     public Project project;
 
-    @ManyToMany(mappedBy="labels", fetch = FetchType.EAGER)
+    @ManyToMany(mappedBy="labels")
     public Set<Issue> issues;
 
-    @ManyToMany(mappedBy="labels", fetch = FetchType.EAGER)
+    @ManyToMany(mappedBy="labels")
     public Set<Posting> postings;
 
+    /**
+     * @see models.support.IssueCounters
+     */
+    @Column(insertable = false, updatable = false)
+    public int numOpenIssues;
+
+    /**
+     * @see models.support.IssueCounters
+     */
+    @Column(insertable = false, updatable = false)
+    public int numClosedIssues;
+
     public static List<IssueLabel> findByProject(Project project) {
         return finder.where()
                 .eq("project.id", project.id)
@@ -0,0 +1,266 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.ExpressionList;
+import play.db.ebean.Model;
+import play.libs.Akka;
+import scala.concurrent.duration.Duration;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A word of the title, the body or a comment of an issue.
+ *
+ * The issue list filters issues by these tokens instead of scanning the text
+ * of every issue and comment. A filter matches an issue if every word of the
+ * filter is a prefix of a token of the issue or its comments.
+ *
+ * Chinese, Japanese and Korean text is often written without spaces between
+ * words, so runs of these scripts are split into overlapping pairs of
+ * characters instead, with the last character on its own. A filter in these
+ * scripts is split the same way, so it matches wherever it appears in a run.
+ *
+ * The tokens of an issue are brought up to date whenever the issue is saved,
+ * and those of a comment whenever the comment is saved, by adding and
+ * deleting only the tokens which have changed. Tokens are deleted together
+ * with their issue or comment by the database.
+ */
+@Entity
+public class IssueSearchToken extends Model {
+    private static final long serialVersionUID = 1L;
+
+    public static final Finder<Long, IssueSearchToken> find = new Finder<>(Long.class, IssueSearchToken.class);
+
+    public static final int MAX_TOKEN_LENGTH = 64;
+    private static final int MAX_TOKENS_PER_TEXT = 5000;
+    private static final int BUILD_BATCH_SIZE = 500;
+    private static final Pattern CJK_RUN =
+            Pattern.compile("[\\p{IsHan}\\p{IsHangul}\\p{IsHiragana}\\p{IsKatakana}]+");
+
+    @Id
+    public Long id;
+
+    public Long issueId;
+
+    /**
+     * The comment which has this token, or null if the issue itself has it.
+     */
+    public Long commentId;
+
+    public String token;
+
+    public IssueSearchToken(Long issueId, Long commentId, String token) {
+        this.issueId = issueId;
+        this.commentId = commentId;
+        this.token = token;
+    }
+
+    /**
+     * Splits the given text into lower-cased words of letters and digits, and
+     * runs of CJK characters into pairs of characters and their last one.
+     *
+     * @param text
+     * @return the distinct tokens in the order of appearance
+     */
+    public static Set<String> tokenize(String text) {
+        return tokenize(text, false);
+    }
+
+    /**
+     * @param text
+     * @param query true to split a filter, which does not need the last
+     *              character of a CJK run as long as it has a pair
+     */
+    private static Set<String> tokenize(String text, boolean query) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            Matcher matcher = CJK_RUN.matcher(word);
+            int start = 0;
+            while (matcher.find()) {
+                addWord(tokens, word.substring(start, matcher.start()));
+                addPairs(tokens, matcher.group(), query);
+                start = matcher.end();
+            }
+            addWord(tokens, word.substring(start));
+            if (tokens.size() >= MAX_TOKENS_PER_TEXT) {
+                break;
+            }
+        }
+
+        return tokens;
+    }
+
+    private static void addWord(Set<String> tokens, String word) {
+        if (!word.isEmpty()) {
+            tokens.add(word.length() > MAX_TOKEN_LENGTH ? word.substring(0, MAX_TOKEN_LENGTH) : word);
+        }
+    }
+
+    private static void addPairs(Set<String> tokens, String run, boolean query) {
+        int length = run.codePointCount(0, run.length());
+        for (int i = 0; i + 1 < length; i++) {
+            int from = run.offsetByCodePoints(0, i);
+            tokens.add(run.substring(from, run.offsetByCodePoints(from, 2)));
+        }
+        if (!query || length == 1) {
+            tokens.add(run.substring(run.offsetByCodePoints(0, length - 1)));
+        }
+    }
+
+    /**
+     * Brings the tokens of the title and the body of the given issue up to
+     * date.
+     *
+     * @param issue
+     */
+    public static void index(Issue issue) {
+        Set<String> tokens = tokenize(issue.title);
+        tokens.addAll(tokenize(issue.body));
+        if (tokens.isEmpty()) {
+            // Mark the issue as indexed. An empty token matches no filter.
+            tokens.add("");
+        }
+        update(issue.id, null, tokens);
+    }
+
+    /**
+     * Brings the tokens of the given comment up to date.
+     *
+     * @param comment
+     */
+    public static void index(IssueComment comment) {
+        update(comment.issue.id, comment.id, tokenize(comment.contents));
+    }
+
+    /**
+     * Deletes the stored tokens which are not in the given ones, and adds the
+     * given ones which are not stored yet. Nothing is written if the text has
+     * not changed.
+     */
+    private static void update(Long issueId, Long commentId, Set<String> tokens) {
+        ExpressionList<IssueSearchToken> stored = find.where().eq("issueId", issueId);
+        if (commentId == null) {
+            stored.isNull("commentId");
+        } else {
+            stored.eq("commentId", commentId);
+        }
+
+        Set<String> added = new LinkedHashSet<>(tokens);
+        List<Long> removedIds = new ArrayList<>();
+        for (IssueSearchToken token : stored.select("id, token").findList()) {
+            if (!added.remove(token.token)) {
+                removedIds.add(token.id);
+            }
+        }
+
+        if (!removedIds.isEmpty()) {
+            Ebean.delete(IssueSearchToken.class, removedIds);
+        }
+        if (!added.isEmpty()) {
+            List<IssueSearchToken> searchTokens = new ArrayList<>();
+            for (String token : added) {
+                searchTokens.add(new IssueSearchToken(issueId, commentId, token));
+            }
+            Ebean.save(searchTokens);
+        }
+    }
+
+    /**
+     * Restricts the given issue query to issues matching every word of the
+     * given filter.
+     *
+     * @param el
+     * @param filter
+     */
+    public static void addFilter(ExpressionList<Issue> el, String filter) {
+        Set<String> tokens = tokenize(filter, true);
+        if (tokens.isEmpty()) {
+            // The filter has no word. Nothing can match it.
+            el.idEq(-1);
+            return;
+        }
+        for (String token : tokens) {
+            el.raw("id in (select st.issue_id from issue_search_token st "
+                    + "where st.token like ?)", token + "%");
+        }
+    }
+
+    /**
+     * Indexes issues which have not been indexed yet, such as the ones
+     * created before the index existed.
+     *
+     * @return the number of indexed issues
+     */
+    public static int buildMissing() {
+        int count = 0;
+        long lastId = 0;
+
+        while (true) {
+            // Issues are walked by id, so an issue which has no word to be
+            // indexed is not found again.
+            List<Issue> issues = Issue.finder.where()
+                    .gt("id", lastId)
+                    .raw("id not in (select st.issue_id from issue_search_token st "
+                            + "where st.comment_id is null)")
+                    .orderBy("id asc")
+                    .setMaxRows(BUILD_BATCH_SIZE)
+                    .findList();
+
+            for (Issue issue : issues) {
+                lastId = issue.id;
+                index(issue);
+                for (IssueComment comment : issue.comments) {
+                    index(comment);
+                }
+            }
+
+            count += issues.size();
+            if (issues.size() < BUILD_BATCH_SIZE) {
+                return count;
+            }
+            play.Logger.info("[IssueSearchToken] " + count + " issues have been indexed");
+        }
+    }
+
+    private static void scheduleBuild() {
+        Akka.system().scheduler().scheduleOnce(
+                Duration.create(10, TimeUnit.SECONDS),
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            int count = buildMissing();
+                            if (count > 0) {
+                                play.Logger.info("[IssueSearchToken] Finished indexing " + count + " issues");
+                            }
+                        } catch (Exception e) {
+                            play.Logger.warn("[IssueSearchToken] Failed to index issues", e);
+                        }
+                    }
+                },
+                Akka.system().dispatcher()
+        );
+    }
+
+    public static void onStart() {
+        scheduleBuild();
+    }
+}
@@ -0,0 +1,371 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models;
+
+import controllers.AttachmentApp;
+import controllers.UserApp;
+import models.enumeration.EventType;
+import models.enumeration.Operation;
+import com.avaje.ebean.ExpressionList;
+import models.enumeration.ResourceType;
+import utils.AccessControl;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * A page of the timeline of an issue, with everything needed to render it.
+ *
+ * Rendering the timeline needs the authors, avatars, attachments, voters and
+ * original emails of comments, the senders of events and the permissions of
+ * the current user. This class loads each of them for the whole page with a
+ * single query instead of looking them up item by item in the template.
+ *
+ * Long timelines are paged by time: only the last {@link #PAGE_SIZE} items are
+ * shown by default and earlier ones are loaded on demand, a page at a time.
+ * A page is found by querying at most a page of the latest comments and
+ * events, so the rest of the timeline is never loaded. Items at the same time
+ * as the earliest one of a page are shown in the page too, so the next page
+ * can start strictly before it.
+ */
+public class IssueTimeline {
+    public static final int PAGE_SIZE = play.Configuration.root().getInt(
+            "application.issue.timeline.pageSize", 100);
+
+    public final Issue issue;
+    public final User viewer;
+
+    private final List<TimelineItem> items;
+    private final Date from;
+    private final int earlierCount;
+    private final int commentCount;
+
+    private final Map<String, User> users = new HashMap<>();
+    private final Map<Long, String> avatarUrls = new HashMap<>();
+    private final Map<Long, Set<User>> voters = new HashMap<>();
+    private final Map<Long, List<Attachment>> attachments = new HashMap<>();
+    private final Set<String> commentIdsViaEmail = new HashSet<>();
+    private final Map<Long, PullRequest> pullRequests = new HashMap<>();
+    private final Map<String, Boolean> permissions = new HashMap<>();
+
+    /**
+     * Shows the last page of the timeline.
+     *
+     * @param issue
+     * @param viewer the user who sees the timeline
+     */
+    public IssueTimeline(Issue issue, User viewer) {
+        this(issue, viewer, null, null);
+    }
+
+    /**
+     * @param issue
+     * @param viewer the user who sees the timeline
+     * @param before the time to show the last page of the items before, or
+     *               {@code null} to show the last page of the timeline
+     * @param since  the time to show every item since, instead of a page, or
+     *               {@code null}
+     */
+    public IssueTimeline(Issue issue, User viewer, @Nullable Date before, @Nullable Date since) {
+        this.issue = issue;
+        this.viewer = viewer;
+
+        if (since == null) {
+            since = findStartOfPage(before);
+        }
+        List<TimelineItem> timeline = new ArrayList<>();
+        if (since != null) {
+            // The issue is shared, so that it is not loaded again for each item.
+            for (IssueComment comment : comments(before).ge("createdDate", since).findList()) {
+                comment.issue = issue;
+                timeline.add(comment);
+            }
+            for (IssueEvent event : events(before).ge("created", since).findList()) {
+                event.issue = issue;
+                timeline.add(event);
+            }
+            Collections.sort(timeline, TimelineItem.ASC);
+        }
+        this.items = timeline;
+        this.from = items.isEmpty() ? before : items.get(0).getDate();
+        this.earlierCount = (from == null) ? 0
+                : comments(from).findRowCount() + events(from).findRowCount();
+        this.commentCount = comments(null).findRowCount();
+
+        prefetch();
+    }
+
+    /**
+     * Finds the time of the earliest item of the last page before the given
+     * time, from at most a page of the latest comments and events.
+     *
+     * @return the time, or {@code null} if there is no item before it
+     */
+    private Date findStartOfPage(@Nullable Date before) {
+        List<Date> dates = new ArrayList<>();
+        for (IssueComment comment : comments(before).select("createdDate")
+                .orderBy("createdDate desc").setMaxRows(PAGE_SIZE).findList()) {
+            dates.add(comment.createdDate);
+        }
+        for (IssueEvent event : events(before).select("created")
+                .orderBy("created desc").setMaxRows(PAGE_SIZE).findList()) {
+            dates.add(event.created);
+        }
+        if (dates.isEmpty()) {
+            return null;
+        }
+        Collections.sort(dates, Collections.reverseOrder());
+        return dates.get(Math.min(PAGE_SIZE, dates.size()) - 1);
+    }
+
+    private ExpressionList<IssueComment> comments(@Nullable Date before) {
+        ExpressionList<IssueComment> el = IssueComment.find.where().eq("issue.id", issue.id);
+        return (before == null) ? el : el.lt("createdDate", before);
+    }
+
+    private ExpressionList<IssueEvent> events(@Nullable Date before) {
+        ExpressionList<IssueEvent> el = IssueEvent.find.where().eq("issue.id", issue.id);
+        return (before == null) ? el : el.lt("created", before);
+    }
+
+    private void prefetch() {
+        List<Long> commentIds = new ArrayList<>();
+        List<Long> pullRequestIds = new ArrayList<>();
+        Set<String> loginIds = new HashSet<>();
+
+        for (TimelineItem item : items) {
+            if (item instanceof IssueComment) {
+                IssueComment comment = (IssueComment) item;
+                commentIds.add(comment.id);
+                loginIds.add(comment.authorLoginId);
+            } else if (item instanceof IssueEvent) {
+                IssueEvent event = (IssueEvent) item;
+                loginIds.add(event.senderLoginId);
+                if (event.eventType == EventType.ISSUE_ASSIGNEE_CHANGED && event.newValue != null) {
+                    loginIds.add(event.newValue);
+                } else if (event.eventType == EventType.ISSUE_REFERRED_FROM_PULL_REQUEST) {
+                    pullRequestIds.add(Long.valueOf(event.newValue));
+                }
+            }
+        }
+
+        Set<Long> userIds = new HashSet<>();
+        prefetchVoters(commentIds, userIds);
+        prefetchUsers(loginIds, userIds);
+        prefetchAvatars(userIds);
+        prefetchAttachments(commentIds);
+        prefetchOriginalEmails(commentIds);
+        prefetchPullRequests(pullRequestIds);
+    }
+
+    private void prefetchVoters(List<Long> commentIds, Set<Long> userIds) {
+        if (commentIds.isEmpty()) {
+            return;
+        }
+
+        List<IssueComment> comments = IssueComment.find.fetch("voters")
+                .where().idIn(commentIds).findList();
+
+        for (IssueComment comment : comments) {
+            voters.put(comment.id, comment.voters);
+            for (User voter : comment.voters) {
+                userIds.add(voter.id);
+            }
+        }
+    }
+
+    private void prefetchUsers(Set<String> loginIds, Set<Long> userIds) {
+        loginIds.remove(null);
+        if (loginIds.isEmpty()) {
+            return;
+        }
+
+        for (User user : User.find.where().in("loginId", loginIds).findList()) {
+            users.put(user.loginId, user);
+            userIds.add(user.id);
+        }
+    }
+
+    private void prefetchAvatars(Set<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        List<String> containerIds = new ArrayList<>();
+        for (Long userId : userIds) {
+            containerIds.add(userId.toString());
+            avatarUrls.put(userId, UserApp.DEFAULT_AVATAR_URL);
+        }
+
+        // The last attached avatar is the current one.
+        List<Attachment> avatars = Attachment.find.where()
+                .eq("containerType", ResourceType.USER_AVATAR)
+                .in("containerId", containerIds)
+                .orderBy("id asc")
+                .findList();
+
+        for (Attachment avatar : avatars) {
+            avatarUrls.put(Long.valueOf(avatar.containerId),
+                    controllers.routes.AttachmentApp.getFile(avatar.id).url());
+        }
+    }
+
+    private void prefetchAttachments(List<Long> commentIds) {
+        if (commentIds.isEmpty()) {
+            return;
+        }
+
+        List<String> containerIds = new ArrayList<>();
+        for (Long commentId : commentIds) {
+            containerIds.add(commentId.toString());
+        }
+
+        List<Attachment> found = Attachment.find.where()
+                .eq("containerType", ResourceType.ISSUE_COMMENT)
+                .in("containerId", containerIds)
+                .orderBy("id asc")
+                .findList();
+
+        for (Attachment attachment : found) {
+            Long commentId = Long.valueOf(attachment.containerId);
+            List<Attachment> list = attachments.get(commentId);
+            if (list == null) {
+                list = new ArrayList<>();
+                attachments.put(commentId, list);
+            }
+            list.add(attachment);
+        }
+    }
+
+    private void prefetchOriginalEmails(List<Long> commentIds) {
+        if (commentIds.isEmpty()) {
+            return;
+        }
+
+        List<String> resourceIds = new ArrayList<>();
+        for (Long commentId : commentIds) {
+            resourceIds.add(commentId.toString());
+        }
+
+        List<OriginalEmail> emails = OriginalEmail.finder.where()
+                .eq("resourceType", ResourceType.ISSUE_COMMENT)
+                .in("resourceId", resourceIds)
+                .findList();
+
+        for (OriginalEmail email : emails) {
+            commentIdsViaEmail.add(email.resourceId);
+        }
+    }
+
+    private void prefetchPullRequests(List<Long> pullRequestIds) {
+        if (pullRequestIds.isEmpty()) {
+            return;
+        }
+
+        List<PullRequest> found = PullRequest.finder.fetch("toProject")
+                .where().idIn(pullRequestIds).findList();
+
+        for (PullRequest pullRequest : found) {
+            pullRequests.put(pullRequest.id, pullRequest);
+        }
+    }
+
+    public List<TimelineItem> getItems() {
+        return items;
+    }
+
+    /**
+     * @return the time of the first shown item, or {@code null} if no item is
+     *         shown
+     */
+    public Date getFrom() {
+        return from;
+    }
+
+    public boolean hasEarlierItems() {
+        return earlierCount > 0;
+    }
+
+    /**
+     * @return the number of all comments of the issue, shown or not
+     */
+    public int getCommentCount() {
+        return commentCount;
+    }
+
+    /**
+     * @return the number of the items before the shown ones
+     */
+    public int getEarlierCount() {
+        return earlierCount;
+    }
+
+    /**
+     * @param loginId
+     * @return the user of the given login id, or {@link User#anonymous}
+     */
+    public User getUser(String loginId) {
+        User user = users.get(loginId);
+        return user == null ? User.anonymous : user;
+    }
+
+    public String getAvatarUrl(String loginId) {
+        return getAvatarUrl(getUser(loginId));
+    }
+
+    public String getAvatarUrl(User user) {
+        String avatarUrl = avatarUrls.get(user.id);
+        return avatarUrl == null ? user.avatarUrl() : avatarUrl;
+    }
+
+    public Set<User> getVoters(IssueComment comment) {
+        Set<User> found = voters.get(comment.id);
+        return found == null ? comment.voters : found;
+    }
+
+    /**
+     * Returns the file list of the attachments of the given comment in the
+     * form of {@link AttachmentApp#getFileList(String, String)}.
+     *
+     * The attachments of a comment are readable if and only if the comment is,
+     * so the list is empty if the viewer cannot read the comment.
+     */
+    public Map<String, List<Map<String, String>>> getFileList(Comment comment) {
+        List<Attachment> found = attachments.get(comment.id);
+        if (found == null || !isAllowed(comment, Operation.READ)) {
+            found = new ArrayList<>();
+        }
+        return AttachmentApp.toFileList(found);
+    }
+
+    public boolean isViaEmail(Comment comment) {
+        return commentIdsViaEmail.contains(comment.id.toString());
+    }
+
+    public PullRequest getPullRequest(IssueEvent event) {
+        Long id = Long.valueOf(event.newValue);
+        PullRequest pullRequest = pullRequests.get(id);
+        return pullRequest == null ? PullRequest.findById(id) : pullRequest;
+    }
+
+    /**
+     * Checks if the viewer is allowed to do the given operation to the given
+     * comment.
+     *
+     * The permission to a comment of an issue depends only on its author and
+     * the viewer, so the answer is computed once per author and operation.
+     */
+    public boolean isAllowed(Comment comment, Operation operation) {
+        String key = operation + ":" + comment.authorId;
+        Boolean allowed = permissions.get(key);
+        if (allowed == null) {
+            allowed = AccessControl.isAllowed(viewer, comment.asResource(), operation);
+            permissions.put(key, allowed);
+        }
+        return allowed;
+    }
+}
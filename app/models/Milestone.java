@@ -72,6 +72,18 @@ public class Milestone extends Model implements ResourceConvertible {
     @OneToMany(mappedBy = "milestone")
     public Set<Issue> issues;
 
+    /**
+     * @see models.support.IssueCounters
+     */
+    @Column(insertable = false, updatable = false)
+    public int numOpenIssues;
+
+    /**
+     * @see models.support.IssueCounters
+     */
+    @Column(insertable = false, updatable = false)
+    public int numClosedIssues;
+
     public void delete() {
         // Set all issues' milestone to null.
         // I don't know why Ebean does not do this by itself.
@@ -88,11 +100,11 @@ public class Milestone extends Model implements ResourceConvertible {
     }
 
     public int getNumClosedIssues() {
-        return Issue.finder.where().eq("milestone", this).eq("state", State.CLOSED).findRowCount();
+        return numClosedIssues;
     }
 
     public int getNumOpenIssues() {
-        return Issue.finder.where().eq("milestone", this).eq("state", State.OPEN).findRowCount();
+        return numOpenIssues;
     }
 
     public List<Issue> sortedByNumberOfIssue(){
@@ -127,10 +139,13 @@ public class Milestone extends Model implements ResourceConvertible {
     }
 
     public int getNumTotalIssues() {
-        return issues.size();
+        return getNumOpenIssues() + getNumClosedIssues();
     }
 
     public int getCompletionRate() {
+        if (getNumTotalIssues() == 0) {
+            return 0;
+        }
         return (int) (((double) getNumClosedIssues() / (double) getNumTotalIssues()) * 100);
     }
 
@@ -150,6 +165,19 @@ public class Milestone extends Model implements ResourceConvertible {
         return Milestone.findMilestones(projectId, State.OPEN);
     }
 
+    public static List<Milestone> findOpenMilestones(Collection<Long> projectIds, int firstRow, int maxRows) {
+        if (projectIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return find.fetch("project").where()
+                .in("project.id", projectIds)
+                .eq("state", State.OPEN)
+                .order().desc("title")
+                .setFirstRow(firstRow)
+                .setMaxRows(maxRows)
+                .findList();
+    }
+
     /**
      * convert mildestone due date string into yyyy-MM-dd format
      *
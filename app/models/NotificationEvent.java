@@ -20,7 +20,12 @@
  */
 package models;
 
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.Query;
 import com.avaje.ebean.RawSqlBuilder;
+import com.avaje.ebean.SqlRow;
+import com.avaje.ebean.Transaction;
+import com.avaje.ebean.TxRunnable;
 import controllers.UserApp;
 import controllers.routes;
 import notification.INotificationEvent;
@@ -28,7 +33,6 @@ import models.enumeration.*;
 import models.resource.GlobalResource;
 import models.resource.Resource;
 import models.resource.ResourceConvertible;
-import models.Webhook;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.Predicate;
 import org.apache.commons.lang3.StringUtils;
@@ -42,8 +46,10 @@ import play.i18n.Messages;
 import play.libs.Akka;
 import playRepository.*;
 import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
 import utils.AccessControl;
 import utils.EventConstants;
+import utils.MaintenanceWindow;
 import utils.RouteUtil;
 
 import javax.naming.LimitExceededException;
@@ -52,10 +58,7 @@ import javax.servlet.ServletException;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.util.Date;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -71,6 +74,26 @@ public class NotificationEvent extends Model implements INotificationEvent {
 
     public static final Finder<Long, NotificationEvent> find = new Finder<>(Long.class, NotificationEvent.class);
 
+    private static final int BATCH_SIZE = 100;
+
+    /**
+     * The number of old notifications deleted at once.
+     */
+    private static final int PURGE_CHUNK_SIZE = play.Configuration.root().getInt(
+            "application.notification.purge.chunkSize", 1000);
+
+    /**
+     * The pause between deleting chunks of old notifications.
+     */
+    private static final long PURGE_PAUSE_MILLIS = play.Configuration.root().getMilliseconds(
+            "application.notification.purge.pause", 100L);
+
+    /**
+     * The daily time window in which old notifications are deleted.
+     */
+    private static final MaintenanceWindow PURGE_WINDOW = MaintenanceWindow.parse(
+            play.Configuration.root().getString("application.notification.purge.window"));
+
     public String title;
 
     public Long senderId;
@@ -224,13 +247,11 @@ public class NotificationEvent extends Model implements INotificationEvent {
      *     >       return 0;
      *     >   }
      *
-     * Note: This method has a performance issue. See the comment in the method
-     * body for the details.
-     *
      * @param reviewComment
      * @param lang
      * @return
      * @throws IOException
+     * @see CodeCommentThread#getSnippet()
      */
     private static String buildCommentedCodeMessage(ReviewComment reviewComment, Lang lang) throws
             IOException {
@@ -242,78 +263,33 @@ public class NotificationEvent extends Model implements INotificationEvent {
 
         CodeCommentThread thread = (CodeCommentThread) reviewComment.thread;
 
-        PlayRepository repo;
-
+        CodeCommentThread.Snippet snippet;
         try {
-            repo = RepositoryService.getRepository(thread.project);
+            snippet = thread.getSnippet();
         } catch (Exception e) {
-            play.Logger.error("Failed to get the repository", e);
+            play.Logger.error("Failed to get the commented code", e);
             return reviewComment.getContents();
         }
 
-        CodeRange codeRange = thread.codeRange;
-
-
-        List<FileDiff> diffs;
-        if (thread.prevCommitId == null) {
-            diffs = repo.getDiff(thread.commitId);
-        } else {
-            diffs = repo.getDiff(thread.prevCommitId, thread.commitId);
+        if (snippet == null) {
+            return reviewComment.getContents();
         }
 
-        for(FileDiff diff : diffs) {
-            if (!codeRange.isFor(diff)) continue;
-
-            StringBuilder message = new StringBuilder();
-
-            message.append(Messages.get(lang,
-                    "notification.reviewthread.inTheFile", codeRange.path));
-            message.append("\n");
-
-            diff.setInterestLine(codeRange.endLine);
-            diff.setInterestSide(codeRange.endSide);
-
-            // FIXME: Performance Issue: The hunks of this diffs were
-            // already computed but it was not necessary because they will
-            // and should be recomputed here.
-            FileDiff.Hunks hunks = diff.getHunks();
-            if (hunks != null) {
-                message.append("```diff\n");
-                for (Hunk hunk : hunks) {
-                    message.append(
-                            String.format("> @@ -%d, %d +%d, %d @@\n",
-                                    hunk.beginA + 1, (hunk.endA - hunk.beginA),
-                                    hunk.beginB + 1, (hunk.endB - hunk.beginB)));
-                    for (DiffLine line : hunk.lines) {
-                        message.append("> ");
-                        switch (line.kind) {
-                            case CONTEXT:
-                                message.append(" ");
-                                break;
-                            case ADD:
-                                message.append("+");
-                                break;
-                            case REMOVE:
-                                message.append("-");
-                                break;
-                        }
-                        message.append(line.content + "\n");
-                        if (codeRange.endsWith(line)) {
-                            message.append("```\n");
-                            message.append("\n" + reviewComment.getContents() + "\n\n");
-                            message.append("```diff\n");
-                        }
-                    }
-                }
-                message.append("```\n");
-            } else {
-                message.append(reviewComment.getContents());
-            }
+        StringBuilder message = new StringBuilder();
 
-            return message.toString();
+        message.append(Messages.get(lang,
+                "notification.reviewthread.inTheFile", thread.codeRange.path));
+        message.append("\n");
+
+        if (snippet.hasHunks()) {
+            message.append(snippet.getBeforeComment());
+            message.append("\n" + reviewComment.getContents() + "\n\n");
+            message.append(snippet.getAfterComment());
+        } else {
+            message.append(reviewComment.getContents());
         }
 
-        return reviewComment.getContents();
+        return message.toString();
     }
 
     public User getSender() {
@@ -393,40 +369,233 @@ public class NotificationEvent extends Model implements INotificationEvent {
         }
         event.save();
         event.saveManyToManyAssociations("receivers");
+
+        Ebean.createSqlUpdate("update n4user " +
+                "set unread_notification_count = unread_notification_count + 1 " +
+                "where id in (select n4user_id from notification_event_n4user " +
+                "where notification_event_id = :id)")
+                .setParameter("id", event.id)
+                .execute();
     }
 
+    /**
+     * Adds the given events as {@link #add(NotificationEvent)} does for each
+     * of them, e.g. when many issues are updated at once.
+     *
+     * The recent events of all the resources are looked up by a single query,
+     * the receivers of the events are inserted in JDBC batches, and the
+     * unread notification counts of all the receivers are increased by a
+     * single update.
+     *
+     * @param events
+     */
+    public static void addAll(List<NotificationEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        Set<String> resourceIds = new HashSet<>();
+        for (NotificationEvent event : events) {
+            resourceIds.add(event.resourceId);
+        }
+        Date draftDate = DateTime.now().minusMillis(EventConstants.DRAFT_TIME_IN_MILLIS).toDate();
+        Map<String, LinkedList<NotificationEvent>> recentEvents = new HashMap<>();
+        for (NotificationEvent event : NotificationEvent.find.where()
+                .in("resourceId", resourceIds)
+                .gt("created", draftDate)
+                .orderBy("id asc").findList()) {
+            recentEventsOf(recentEvents, event).addFirst(event);
+        }
+
+        // The events which merge or cancel each other are resolved here
+        // before any of them is inserted.
+        List<NotificationEvent> newEvents = new ArrayList<>();
+        for (NotificationEvent event : events) {
+            if (event.notificationMail == null) {
+                event.notificationMail = new NotificationMail();
+                event.notificationMail.notificationEvent = event;
+            }
+
+            LinkedList<NotificationEvent> recent = recentEventsOf(recentEvents, event);
+            NotificationEvent lastEvent = recent.peekFirst();
+            if (lastEvent != null && lastEvent.eventType == event.eventType &&
+                    event.senderId.equals(lastEvent.senderId)) {
+                event.oldValue = lastEvent.getOldValue();
+                recent.removeFirst();
+                if (!newEvents.remove(lastEvent)) {
+                    lastEvent.delete();
+                }
+                if (StringUtils.equals(event.oldValue, event.newValue)) {
+                    continue;
+                }
+            }
+
+            filterReceivers(event);
+            if (!event.receivers.isEmpty()) {
+                recent.addFirst(event);
+                newEvents.add(event);
+            }
+        }
+        if (newEvents.isEmpty()) {
+            return;
+        }
+
+        // The events are inserted one by one to get their ids, which the
+        // rows of their receivers need.
+        List<Long> eventIds = new ArrayList<>();
+        for (NotificationEvent event : newEvents) {
+            event.save();
+            eventIds.add(event.id);
+        }
+        Transaction transaction = Ebean.currentTransaction();
+        if (transaction != null) {
+            transaction.setBatchMode(true);
+            transaction.setBatchSize(BATCH_SIZE);
+        }
+        for (NotificationEvent event : newEvents) {
+            event.saveManyToManyAssociations("receivers");
+        }
+        if (transaction != null) {
+            transaction.flushBatch();
+            transaction.setBatchMode(false);
+        }
+
+        // The ids come from the database, so they are safe to be inlined.
+        String inEvents = "notification_event_id in (" + StringUtils.join(eventIds, ",") + ")";
+        Ebean.createSqlUpdate("update n4user " +
+                "set unread_notification_count = unread_notification_count + " +
+                "(select count(*) from notification_event_n4user " +
+                "where n4user_id = n4user.id and " + inEvents + ") " +
+                "where id in (select n4user_id from notification_event_n4user " +
+                "where " + inEvents + ")")
+                .execute();
+    }
+
+    private static LinkedList<NotificationEvent> recentEventsOf(
+            Map<String, LinkedList<NotificationEvent>> recentEvents, NotificationEvent event) {
+        String key = event.resourceType + ":" + event.resourceId;
+        LinkedList<NotificationEvent> recent = recentEvents.get(key);
+        if (recent == null) {
+            recent = new LinkedList<>();
+            recentEvents.put(key, recent);
+        }
+        return recent;
+    }
+
+    /**
+     * Removes the receivers who cannot read the resource of the event, and who
+     * watch the project but turned off the notification of this event type.
+     *
+     * The permissions, watches and notification settings of all receivers are
+     * looked up at once, so the number of queries does not grow with the
+     * number of receivers.
+     */
     private static void filterReceivers(final NotificationEvent event) {
         final Project project = event.getProject();
         if (project == null) {
             return;
         }
 
-        final Resource resource = project.asResource();
+        Set<User> candidates = new HashSet<>();
+        for (User receiver : event.receivers) {
+            if (receiver.loginId != null) {
+                candidates.add(receiver);
+            }
+        }
+
+        final Set<Long> readableIds = AccessControl.findReadableUserIds(candidates, event.getResource());
+        final Set<Long> mutedIds = UserProjectNotification.findDisabledUserIds(
+                project, event.eventType, readableIds);
+        mutedIds.retainAll(Watch.findWatchingUserIds(project.asResource(), mutedIds));
+
         CollectionUtils.filter(event.receivers, new Predicate() {
             @Override
             public boolean evaluate(Object obj) {
                 User receiver = (User) obj;
-                if(receiver.loginId == null) {
-                    return false;
-                }
-
-                if (!AccessControl.isAllowed(receiver, event.getResource(), Operation.READ)) {
-                    return false;
-                }
-
-                if (!Watch.isWatching(receiver, resource)) {
-                    return true;
-                }
-                return UserProjectNotification.isEnabledNotiType(receiver, project, event.eventType);
+                return receiver.loginId != null
+                        && readableIds.contains(receiver.id)
+                        && !mutedIds.contains(receiver.id);
             }
         });
     }
 
+    /**
+     * Deletes this event with its receivers and mail, and updates the unread
+     * counts of the receivers.
+     */
+    @Override
+    public void delete() {
+        deleteByIds(Collections.<Object>singletonList(id));
+    }
+
     public static void deleteBy(Resource resource) {
-        for (NotificationEvent event : NotificationEvent.find.where().where().eq("resourceType",
-                resource.getType()).eq("resourceId", resource.getId()).findList()) {
-            event.delete();
+        List<Object> ids = find.where()
+                .eq("resourceType", resource.getType())
+                .eq("resourceId", resource.getId())
+                .findIds();
+
+        for (int from = 0; from < ids.size(); from += PURGE_CHUNK_SIZE) {
+            deleteByIds(ids.subList(from, Math.min(from + PURGE_CHUNK_SIZE, ids.size())));
+        }
+    }
+
+    /**
+     * Deletes the events of the given ids with their receivers and mails by
+     * a few set-based deletes in a transaction, instead of deleting them one
+     * by one through cascades.
+     *
+     * @param ids
+     */
+    private static void deleteByIds(List<Object> ids) {
+        if (ids.isEmpty()) {
+            return;
         }
+
+        // The ids come from the database, so they are safe to be inlined.
+        final String idList = StringUtils.join(ids, ",");
+
+        // Joins the current transaction if there is one, e.g. deleting a posting.
+        Ebean.execute(new TxRunnable() {
+            @Override
+            public void run() {
+                // Unread events are no longer counted once they are deleted.
+                Ebean.createSqlUpdate("update n4user " +
+                        "set unread_notification_count = greatest(0, unread_notification_count - " +
+                        "(select count(*) from notification_event_n4user r " +
+                        "where r.n4user_id = n4user.id " +
+                        "and r.notification_event_id > n4user.last_read_notification_id " +
+                        "and r.notification_event_id in (" + idList + "))) " +
+                        "where id in (select n4user_id from notification_event_n4user " +
+                        "where notification_event_id in (" + idList + "))").execute();
+                Ebean.createSqlUpdate("delete from notification_event_n4user " +
+                        "where notification_event_id in (" + idList + ")").execute();
+                Ebean.createSqlUpdate("delete from notification_mail " +
+                        "where notification_event_id in (" + idList + ")").execute();
+                Ebean.createSqlUpdate("delete from notification_event " +
+                        "where id in (" + idList + ")").execute();
+            }
+        });
+    }
+
+    /**
+     * Deletes a chunk of events created before the given threshold whose ids
+     * are greater than {@code afterId}.
+     *
+     * @param threshold
+     * @param afterId
+     * @return the ids of the deleted events in ascending order
+     */
+    static List<Object> deleteOldChunk(Date threshold, long afterId) {
+        List<Object> ids = find.where()
+                .lt("created", threshold)
+                .gt("id", afterId)
+                .orderBy("id asc")
+                .setMaxRows(PURGE_CHUNK_SIZE)
+                .findIds();
+
+        deleteByIds(ids);
+
+        return ids;
     }
 
     /**
@@ -630,15 +799,20 @@ public class NotificationEvent extends Model implements INotificationEvent {
     }
 
     public static NotificationEvent afterStateChanged(State oldState, Issue issue) {
-        NotificationEvent notiEvent = createFromCurrentUser(issue);
+        NotificationEvent notiEvent = forStateChanged(oldState, issue, UserApp.currentUser());
+
+        NotificationEvent.add(notiEvent);
+
+        return notiEvent;
+    }
+
+    public static NotificationEvent forStateChanged(State oldState, Issue issue, User sender) {
+        NotificationEvent notiEvent = createFrom(sender, issue);
         notiEvent.title = formatReplyTitle(issue);
-        notiEvent.receivers = getReceivers(issue);
+        notiEvent.receivers = getReceivers(issue, sender);
         notiEvent.eventType = ISSUE_STATE_CHANGED;
         notiEvent.oldValue = oldState != null ? oldState.state() : null;
         notiEvent.newValue = issue.state.state();
-
-        NotificationEvent.add(notiEvent);
-
         return notiEvent;
     }
 
@@ -678,12 +852,20 @@ public class NotificationEvent extends Model implements INotificationEvent {
     }
 
     public static NotificationEvent afterAssigneeChanged(User oldAssignee, Issue issue) {
-        NotificationEvent notiEvent = createFromCurrentUser(issue);
+        NotificationEvent notiEvent = forAssigneeChanged(oldAssignee, issue, UserApp.currentUser());
+
+        NotificationEvent.add(notiEvent);
+
+        return notiEvent;
+    }
+
+    public static NotificationEvent forAssigneeChanged(User oldAssignee, Issue issue, User sender) {
+        NotificationEvent notiEvent = createFrom(sender, issue);
 
-        Set<User> receivers = getReceivers(issue);
+        Set<User> receivers = getReceivers(issue, sender);
         if(oldAssignee != null) {
             notiEvent.oldValue = oldAssignee.loginId;
-            if(!oldAssignee.loginId.equals(UserApp.currentUser().loginId)) {
+            if(!oldAssignee.loginId.equals(sender.loginId)) {
                 receivers.add(oldAssignee);
             }
         }
@@ -694,9 +876,6 @@ public class NotificationEvent extends Model implements INotificationEvent {
         notiEvent.title = formatReplyTitle(issue);
         notiEvent.receivers = receivers;
         notiEvent.eventType = ISSUE_ASSIGNEE_CHANGED;
-
-        NotificationEvent.add(notiEvent);
-
         return notiEvent;
     }
 
@@ -864,13 +1043,6 @@ public class NotificationEvent extends Model implements INotificationEvent {
         notiEvent.resourceType = project.asResource().getType();
         notiEvent.resourceId = project.asResource().getId();
         NotificationEvent.add(notiEvent);
-
-        List<Webhook> webhookList = Webhook.findByProject(project.id);
-        for (Webhook webhook : webhookList) {
-            // Send push event via webhook payload URLs.
-            String[] eventTypes = {"push"};
-            webhook.sendRequestToPayloadUrl(eventTypes, commits, refNames, sender, title);
-        }
     }
 
     public static NotificationEvent afterReviewed(PullRequest pullRequest, PullRequestReviewAction reviewAction) {
@@ -1139,19 +1311,21 @@ public class NotificationEvent extends Model implements INotificationEvent {
 
     public static void scheduleDeleteOldNotifications() {
         if (EventConstants.KEEP_TIME_IN_DAYS > 0) {
+            FiniteDuration initialDelay = PURGE_WINDOW.isAlways()
+                    ? Duration.create(1, TimeUnit.MINUTES)
+                    : Duration.create(PURGE_WINDOW.millisUntilOpen(DateTime.now()), TimeUnit.MILLISECONDS);
+
             Akka.system().scheduler().schedule(
-                Duration.create(1, TimeUnit.MINUTES),
+                initialDelay,
                 Duration.create(1, TimeUnit.DAYS),
                 new Runnable() {
                     @Override
                     public void run() {
                         Date threshold = DateTime.now()
                                 .minusDays(EventConstants.KEEP_TIME_IN_DAYS).toDate();
-                        List<NotificationEvent> olds = find.where().lt("created", threshold).findList();
-
-                        for (NotificationEvent old : olds) {
-                            old.delete();
-                        }
+                        play.Logger.info("Start deleting notifications created before "
+                                + threshold + " (maintenance window: " + PURGE_WINDOW + ")");
+                        purgeOldNotifications(threshold, 0, 0, System.currentTimeMillis());
                     }
                 },
                 Akka.system().dispatcher()
@@ -1159,44 +1333,127 @@ public class NotificationEvent extends Model implements INotificationEvent {
         }
     }
 
+    /**
+     * Deletes old notifications chunk by chunk. Each chunk is deleted by
+     * a separate task scheduled after {@link #PURGE_PAUSE_MILLIS} so that the
+     * purge neither holds the database nor a thread for a long time. It stops
+     * when the maintenance window closes and continues in the next window.
+     */
+    private static void purgeOldNotifications(final Date threshold, final long afterId,
+                                              final long deletedCount, final long startTime) {
+        if (!PURGE_WINDOW.contains(DateTime.now())) {
+            play.Logger.info("Stop deleting old notifications as the maintenance window "
+                    + PURGE_WINDOW + " is closed; " + deletedCount + " deleted in "
+                    + (System.currentTimeMillis() - startTime) + "ms");
+            return;
+        }
+
+        List<Object> ids;
+        try {
+            ids = deleteOldChunk(threshold, afterId);
+        } catch (Exception e) {
+            play.Logger.error("Failed to delete old notifications", e);
+            return;
+        }
+
+        final long deleted = deletedCount + ids.size();
+        if (ids.size() < PURGE_CHUNK_SIZE) {
+            play.Logger.info("Deleted " + deleted + " old notifications in "
+                    + (System.currentTimeMillis() - startTime) + "ms");
+            return;
+        }
+
+        final long lastId = (Long) ids.get(ids.size() - 1);
+        if (deleted % (PURGE_CHUNK_SIZE * 100L) == 0) {
+            play.Logger.info("Deleted " + deleted + " old notifications so far");
+        }
+
+        Akka.system().scheduler().scheduleOnce(
+            Duration.create(PURGE_PAUSE_MILLIS, TimeUnit.MILLISECONDS),
+            new Runnable() {
+                @Override
+                public void run() {
+                    purgeOldNotifications(threshold, lastId, deleted, startTime);
+                }
+            },
+            Akka.system().dispatcher()
+        );
+    }
+
     public static void onStart() {
         scheduleDeleteOldNotifications();
     }
 
     /**
-     * Finds NotificationEvents that are supposed to be shown to the {@code user}.
-     * Paginates it with {@code from} and {@code size}.
+     * Finds NotificationEvents that are supposed to be shown to the {@code user},
+     * the newest first.
+     *
+     * The feed is paginated by the id of the last event of the previous page
+     * instead of an offset, so a deep page is read from the index on
+     * (n4user_id, notification_event_id) without scanning the pages before
+     * it. Ids increase in the order the events are created.
      *
      * @param user
-     * @param from
+     * @param beforeId the id of the last event of the previous page, or 0 to
+     *                 find the first page
      * @param size
      * @return
      */
-    public static List<NotificationEvent> findByReceiver(User user, int from, int size) {
+    public static List<NotificationEvent> findByReceiver(User user, long beforeId, int size) {
         String sql = "select t1.id, t1.title, t1.sender_id, t1.created, t1.resource_type, t1.resource_id, t1.event_type, " +
                 "t1.old_value, t1.new_value " +
-                "from n4user t0 " +
-                "left outer join notification_event_n4user t1z_ on t1z_.n4user_id = t0.id " +
-                "left outer join notification_event t1 on t1.id = t1z_.notification_event_id " +
-                "left outer join notification_mail t2 on t2.notification_event_id = t1.id " +
-                "where t0.id = " + user.id + " and t1.id IS NOT NULL " +
-                "order by t1.created DESC";
-
-        return find.setRawSql(RawSqlBuilder.parse(sql).create())
-                .setFirstRow(from)
-                .setMaxRows(size)
-                .findList();
-    }
-
-    public static int getNotificationsCount(User user) {
-        String sql = "select t1.id " +
-                "from n4user t0 " +
-                "left outer join notification_event_n4user t1z_ on t1z_.n4user_id = t0.id " +
-                "left outer join notification_event t1 on t1.id = t1z_.notification_event_id " +
-                "left outer join notification_mail t2 on t2.notification_event_id = t1.id " +
-                "where t0.id = " + user.id + " and t1.id IS NOT NULL ";
-
-        return find.setRawSql(RawSqlBuilder.parse(sql).create()).findList().size();
+                "from notification_event_n4user t1z_ " +
+                "join notification_event t1 on t1.id = t1z_.notification_event_id " +
+                "where t1z_.n4user_id = :userId " +
+                (beforeId > 0 ? "and t1z_.notification_event_id < :beforeId " : "") +
+                "order by t1z_.notification_event_id desc";
+
+        Query<NotificationEvent> query = find.setRawSql(RawSqlBuilder.parse(sql).create())
+                .setParameter("userId", user.id);
+        if (beforeId > 0) {
+            query.setParameter("beforeId", beforeId);
+        }
+
+        return query.setMaxRows(size).findList();
+    }
+
+    /**
+     * Returns the number of the notifications the {@code user} has not read
+     * yet. It is maintained whenever a notification is added, read or
+     * deleted, so it costs a lookup by the primary key.
+     *
+     * @param user
+     * @return
+     */
+    public static int getUnreadCount(User user) {
+        if (user == null || user.isAnonymous()) {
+            return 0;
+        }
+
+        SqlRow row = Ebean.createSqlQuery(
+                "select unread_notification_count from n4user where id = :id")
+                .setParameter("id", user.id)
+                .findUnique();
+
+        return row == null ? 0 : row.getInteger("unread_notification_count");
+    }
+
+    /**
+     * Marks all the notifications of the {@code user} as read.
+     *
+     * @param user
+     */
+    public static void markAllAsRead(User user) {
+        if (user == null || user.isAnonymous()) {
+            return;
+        }
+
+        Ebean.createSqlUpdate("update n4user set unread_notification_count = 0, " +
+                "last_read_notification_id = (select coalesce(max(notification_event_id), 0) " +
+                "from notification_event_n4user where n4user_id = :id) " +
+                "where id = :id")
+                .setParameter("id", user.id)
+                .execute();
     }
 
     public static void afterCommentUpdated(Comment comment) {
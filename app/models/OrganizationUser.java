@@ -26,7 +26,10 @@ import play.db.ebean.Model;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.ManyToOne;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Entity
 public class OrganizationUser extends Model {
@@ -59,6 +62,54 @@ public class OrganizationUser extends Model {
                     .findList();
     }
 
+    /**
+     * Returns the ids of all organizations in which the given user has the
+     * given role.
+     *
+     * @param userId the user id
+     * @param roleType the role type
+     * @return the organization ids
+     */
+    public static Set<Long> findOrganizationIdsByUser(Long userId, RoleType roleType) {
+        Set<Long> organizationIds = new HashSet<>();
+        if (userId == null) {
+            return organizationIds;
+        }
+        List<OrganizationUser> organizationUsers = find.select("organization.id").where()
+                .eq("user.id", userId)
+                .eq("role.id", Role.findByRoleType(roleType).id)
+                .findList();
+        for (OrganizationUser organizationUser : organizationUsers) {
+            organizationIds.add(organizationUser.organization.id);
+        }
+        return organizationIds;
+    }
+
+    /**
+     * Returns the ids of the users among {@code userIds} who have the given
+     * role in the given organization.
+     *
+     * @param organizationId the organization id
+     * @param roleType the role type
+     * @param userIds the ids of the users to check
+     * @return the ids of the users having the role
+     */
+    public static Set<Long> findUserIds(Long organizationId, RoleType roleType, Collection<Long> userIds) {
+        Set<Long> found = new HashSet<>();
+        if (userIds.isEmpty()) {
+            return found;
+        }
+        List<OrganizationUser> organizationUsers = find.select("user.id").where()
+                .eq("organization.id", organizationId)
+                .eq("role.id", Role.findByRoleType(roleType).id)
+                .in("user.id", userIds)
+                .findList();
+        for (OrganizationUser organizationUser : organizationUsers) {
+            found.add(organizationUser.user.id);
+        }
+        return found;
+    }
+
     public static boolean isAdmin(Organization organization, User user) {
         return contains(organization, user, RoleType.ORG_ADMIN);
     }
@@ -9,6 +9,8 @@ import models.resource.Resource;
 import utils.JodaDateUtil;
 
 import javax.persistence.*;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -96,6 +98,19 @@ public class Posting extends AbstractPosting {
                 .ge("createdDate", JodaDateUtil.before(days)).order().desc("createdDate").findList();
     }
 
+    public static List<Posting> findRecentlyCreatedByDaysAgo(Collection<Long> projectIds, int days,
+                                                             int firstRow, int maxRows) {
+        if (projectIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Posting.finder.fetch("project").where()
+                .in("project.id", projectIds)
+                .ge("createdDate", JodaDateUtil.before(days)).order().desc("createdDate")
+                .setFirstRow(firstRow)
+                .setMaxRows(maxRows)
+                .findList();
+    }
+
     /**
      * @see models.AbstractPosting#getComments()
      */
@@ -0,0 +1,250 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.SqlRow;
+import controllers.UserApp;
+import models.enumeration.ResourceType;
+import models.resource.Resource;
+import org.apache.commons.lang3.StringUtils;
+import play.Logger;
+import play.db.ebean.Model;
+import play.mvc.Http;
+import utils.ZipUtil;
+import utils.diff_match_patch;
+
+import javax.persistence.*;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A revision of the body of an issue or a posting.
+ *
+ * Revisions are stored as reverse deltas: each revision keeps the compressed
+ * delta which turns the body after the edit back into the body before it.
+ * Starting from the current body, the bodies of the last revisions are
+ * restored by applying the deltas from the newest one, so showing the recent
+ * history needs only the recent rows.
+ *
+ * A revision is recorded by {@link AbstractPosting#update()} whenever the
+ * body changes. The row of the posting is locked while it is recorded, so
+ * concurrent edits are recorded one after another, each from the body the
+ * previous one has left.
+ *
+ * The history recorded before revisions were introduced is kept as
+ * {@link #legacyHistory}, the HTML it was rendered into, in revision 0.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"resource_type", "resource_id", "revision"}))
+public class PostingRevision extends Model {
+    private static final long serialVersionUID = -6049432711846309741L;
+
+    public static final Finder<Long, PostingRevision> find = new Finder<>(Long.class,
+            PostingRevision.class);
+
+    @Id
+    public Long id;
+
+    @Enumerated(EnumType.STRING)
+    public ResourceType resourceType;
+
+    public Long resourceId;
+
+    public int revision;
+
+    public Long authorId;
+    public String authorLoginId;
+    public String authorName;
+
+    public Date createdDate;
+
+    public int insertions;
+    public int deletions;
+
+    @Lob
+    public byte[] delta;
+
+    @Lob
+    public String legacyHistory;
+
+    /**
+     * The body before this revision, restored by {@link #findRecent}.
+     */
+    @Transient
+    public String before;
+
+    /**
+     * The body after this revision, restored by {@link #findRecent}.
+     */
+    @Transient
+    public String after;
+
+    public boolean isLegacy() {
+        return legacyHistory != null;
+    }
+
+    /**
+     * Locks the row of the given posting until the end of the current
+     * transaction, and returns its stored body and number of revisions.
+     *
+     * @param posting
+     * @return the row, or null if the posting is not stored
+     */
+    static SqlRow lock(AbstractPosting posting) {
+        return Ebean.createSqlQuery("select body, num_of_revisions from "
+                + tableOf(posting.asResource().getType()) + " where id = :id for update")
+                .setParameter("id", posting.id)
+                .findUnique();
+    }
+
+    private static String tableOf(ResourceType resourceType) {
+        switch (resourceType) {
+            case ISSUE_POST:
+                return "issue";
+            case BOARD_POST:
+                return "posting";
+            default:
+                throw new IllegalArgumentException("Unexpected resource type: " + resourceType);
+        }
+    }
+
+    /**
+     * @param posting
+     * @return the current user, or the author of the given posting if it is
+     *         changed outside of a request, such as by a mail
+     */
+    static User editorOf(AbstractPosting posting) {
+        if (Http.Context.current.get() != null) {
+            User user = UserApp.currentUser();
+            if (!user.isAnonymous()) {
+                return user;
+            }
+        }
+        return posting.getAuthor();
+    }
+
+    /**
+     * Records the change of the body of the given posting from {@code before}
+     * to {@code after} as a new revision. It should be called while the row
+     * of the posting is {@link #lock locked}.
+     *
+     * @param posting
+     * @param before the body before the change
+     * @param after the body after the change
+     * @param author the user who changed the body
+     * @return the new revision
+     */
+    static PostingRevision add(AbstractPosting posting, String before, String after, User author) {
+        before = StringUtils.defaultString(before);
+        after = StringUtils.defaultString(after);
+
+        diff_match_patch dmp = new diff_match_patch();
+        LinkedList<diff_match_patch.Diff> diffs = dmp.diff_main(after, before);
+        dmp.diff_cleanupSemanticLossless(diffs);
+
+        PostingRevision revision = new PostingRevision();
+        Resource resource = posting.asResource();
+        revision.resourceType = resource.getType();
+        revision.resourceId = posting.id;
+        revision.revision = nextRevision(resource);
+        revision.authorId = author.id;
+        revision.authorLoginId = author.loginId;
+        revision.authorName = author.name;
+        revision.createdDate = posting.updatedDate;
+        // The diffs go from the new body to the old one, so what was inserted
+        // by the edit is deleted by them and vice versa.
+        for (diff_match_patch.Diff diff : diffs) {
+            switch (diff.operation) {
+                case DELETE:
+                    revision.insertions++;
+                    break;
+                case INSERT:
+                    revision.deletions++;
+                    break;
+                default:
+                    break;
+            }
+        }
+        revision.delta = ZipUtil.compress(dmp.diff_toDelta(diffs));
+        revision.save();
+
+        return revision;
+    }
+
+    private static int nextRevision(Resource resource) {
+        PostingRevision last = find.select("revision").where()
+                .eq("resourceType", resource.getType())
+                .eq("resourceId", Long.valueOf(resource.getId()))
+                .orderBy("revision desc")
+                .setMaxRows(1)
+                .findUnique();
+
+        return last == null ? 1 : last.revision + 1;
+    }
+
+    /**
+     * Finds the last revisions of the given posting, the newest first, with
+     * their {@link #before} and {@link #after} bodies restored.
+     *
+     * The list ends with the legacy history if it is reached. If a delta
+     * cannot be applied, because the body was changed without recording a
+     * revision, the list ends before that revision.
+     *
+     * @param posting
+     * @param limit the maximum number of revisions to find
+     * @return the revisions
+     */
+    public static List<PostingRevision> findRecent(AbstractPosting posting, int limit) {
+        Resource resource = posting.asResource();
+        List<PostingRevision> found = find.where()
+                .eq("resourceType", resource.getType())
+                .eq("resourceId", posting.id)
+                .orderBy("revision desc")
+                .setMaxRows(limit)
+                .findList();
+
+        List<PostingRevision> revisions = new ArrayList<>();
+        diff_match_patch dmp = new diff_match_patch();
+        String current = StringUtils.defaultString(posting.body);
+
+        for (PostingRevision revision : found) {
+            if (revision.isLegacy()) {
+                revisions.add(revision);
+                break;
+            }
+
+            try {
+                revision.after = current;
+                revision.before = dmp.diff_text2(
+                        dmp.diff_fromDelta(current, ZipUtil.decompress(revision.delta)));
+            } catch (IllegalArgumentException e) {
+                Logger.warn("Failed to restore revision " + revision.revision + " of "
+                        + resource.getType() + " " + posting.id, e);
+                break;
+            }
+
+            revisions.add(revision);
+            current = revision.before;
+        }
+
+        return revisions;
+    }
+
+    public static void deleteBy(Resource resource) {
+        List<Object> ids = find.where()
+                .eq("resourceType", resource.getType())
+                .eq("resourceId", Long.valueOf(resource.getId()))
+                .findIds();
+
+        if (!ids.isEmpty()) {
+            Ebean.delete(PostingRevision.class, ids);
+        }
+    }
+}
@@ -26,9 +26,12 @@ import play.db.ebean.Model;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.ManyToOne;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Entity
 public class ProjectUser extends Model {
@@ -112,6 +115,46 @@ public class ProjectUser extends Model {
         return (findRowCount != 0);
     }
 
+    /**
+     * Returns the ids of all projects the given user is a member of.
+     *
+     * @param userId the user id
+     * @return the project ids
+     */
+    public static Set<Long> findProjectIdsByUser(Long userId) {
+        Set<Long> projectIds = new HashSet<>();
+        if (userId == null) {
+            return projectIds;
+        }
+        for (ProjectUser projectUser : find.select("project.id").where().eq("user.id", userId).findList()) {
+            projectIds.add(projectUser.project.id);
+        }
+        return projectIds;
+    }
+
+    /**
+     * Returns the ids of the users among {@code userIds} who are members of
+     * the given project.
+     *
+     * @param projectId the project id
+     * @param userIds the ids of the users to check
+     * @return the ids of the members
+     */
+    public static Set<Long> findMemberIds(Long projectId, Collection<Long> userIds) {
+        Set<Long> memberIds = new HashSet<>();
+        if (userIds.isEmpty()) {
+            return memberIds;
+        }
+        List<ProjectUser> projectUsers = find.select("user.id").where()
+                .eq("project.id", projectId)
+                .in("user.id", userIds)
+                .findList();
+        for (ProjectUser projectUser : projectUsers) {
+            memberIds.add(projectUser.user.id);
+        }
+        return memberIds;
+    }
+
     public static boolean isMember(Long userId, Long projectId) {
         if (userId == null) {
             return false;
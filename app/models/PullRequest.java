@@ -238,6 +238,21 @@ public class PullRequest extends Model implements ResourceConvertible {
                 .findList();
     }
 
+    public static List<PullRequest> findOpendPullRequestsByDaysAgo(Collection<Long> projectIds, int days,
+                                                                   int firstRow, int maxRows) {
+        if (projectIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return finder.fetch("toProject").where()
+                .in("toProject.id", projectIds)
+                .eq("state", State.OPEN)
+                .ge("created", JodaDateUtil.before(days))
+                .order().desc("created")
+                .setFirstRow(firstRow)
+                .setMaxRows(maxRows)
+                .findList();
+    }
+
     public static List<PullRequest> findClosedPullRequests(Project project) {
         return finder.where()
                 .eq("toProject", project)
@@ -590,14 +605,13 @@ public class PullRequest extends Model implements ResourceConvertible {
         Set<User> actualWatchers = new HashSet<>();
 
         actualWatchers.add(this.contributor);
+        Set<Long> commenterIds = new HashSet<>();
         for (CommentThread thread : commentThreads) {
             for (ReviewComment c : thread.reviewComments) {
-                User user = User.find.byId(c.author.id);
-                if (user != null) {
-                    actualWatchers.add(user);
-                }
+                commenterIds.add(c.author.id);
             }
         }
+        actualWatchers.addAll(User.findByIds(commenterIds));
 
         return Watch.findActualWatchers(actualWatchers, asResource(), allowedWatchersOnly);
     }
@@ -20,16 +20,22 @@
  */
 package models;
 
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.Transaction;
+import com.avaje.ebean.TxRunnable;
 import models.enumeration.State;
+import org.apache.commons.lang3.StringUtils;
 import playRepository.GitCommit;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 public class PullRequestMergeResult {
+    private static final int BATCH_SIZE = 500;
+
     private List<GitCommit> gitCommits;
     private List<PullRequestCommit> newCommits;
     private PullRequest pullRequest;
+    private List<PullRequestCommit> currentCommits;
 
     public List<GitCommit> getGitCommits() {
         return gitCommits;
@@ -55,26 +61,43 @@ public class PullRequestMergeResult {
         return newCommits;
     }
 
+    /**
+     * Finds the commits of the pull request which are not recorded as its
+     * current commits yet.
+     *
+     * The current commits are loaded only once, and the commit ids are
+     * looked up in a set of them. {@link #updatePriorCommits()} uses the same
+     * current commits.
+     *
+     * @return the new commits, not saved yet
+     */
     public List<PullRequestCommit> findNewCommits() {
-        List<PullRequestCommit> currentCommits = new ArrayList<>();
+        Set<String> existingCommitIds = new HashSet<>();
+        for (PullRequestCommit pullRequestCommit : getCurrentCommits()) {
+            existingCommitIds.add(pullRequestCommit.commitId);
+        }
+
+        List<PullRequestCommit> commits = new ArrayList<>();
         for (GitCommit commit: gitCommits) {
-            boolean existCommit = false;
-            List<PullRequestCommit> pullRequestCommits = PullRequestCommit.find.where()
-                                    .eq("pullRequest", pullRequest)
-                                    .eq("state", PullRequestCommit.State.CURRENT)
-                                    .findList();
-
-            for (PullRequestCommit pullRequestCommit: pullRequestCommits) {
-                if(commit.getId().equals(pullRequestCommit.commitId)) {
-                    existCommit = true;
-                    break;
-                }
+            if (existingCommitIds.add(commit.getId())) {
+                commits.add(PullRequestCommit.bindPullRequestCommit(commit, pullRequest));
             }
+        }
+        return commits;
+    }
 
-            if (!existCommit) {
-                PullRequestCommit pullRequestCommit = PullRequestCommit.bindPullRequestCommit(commit, pullRequest);
-                currentCommits.add(pullRequestCommit);
-            }
+    /**
+     * @return the current commits as they were when this was called first,
+     *         with only their ids and commit ids
+     */
+    private List<PullRequestCommit> getCurrentCommits() {
+        if (currentCommits == null) {
+            currentCommits = PullRequestCommit.find
+                    .select("id, commitId")
+                    .where()
+                    .eq("pullRequest", pullRequest)
+                    .eq("state", PullRequestCommit.State.CURRENT)
+                    .findList();
         }
         return currentCommits;
     }
@@ -89,33 +112,64 @@ public class PullRequestMergeResult {
         pullRequest.update();
     }
 
+    /**
+     * Records the commits of the pull request: the commits which are no
+     * longer in it become prior commits, and the new ones are inserted, in a
+     * single transaction.
+     */
     public void saveCommits() {
         newCommits = findNewCommits();
-        saveNewCommits();
-        updatePriorCommits();
+        Ebean.execute(new TxRunnable() {
+            @Override
+            public void run() {
+                updatePriorCommits();
+                saveNewCommits();
+            }
+        });
     }
 
     public void saveNewCommits() {
-        for (PullRequestCommit commit: newCommits) {
-            commit.save();
+        if (newCommits.isEmpty()) {
+            return;
+        }
+
+        // Send the inserts to the database in JDBC batches.
+        Transaction transaction = Ebean.currentTransaction();
+        if (transaction != null) {
+            transaction.setBatchMode(true);
+            transaction.setBatchSize(BATCH_SIZE);
+        }
+        Ebean.save(newCommits);
+        if (transaction != null) {
+            transaction.flushBatch();
         }
     }
 
+    /**
+     * Marks the current commits which are no longer in the pull request as
+     * prior commits, with a bulk update for each chunk of them.
+     */
     public void updatePriorCommits() {
-        for (PullRequestCommit pullRequestCommit: PullRequestCommit.find.where().eq("pullRequest", pullRequest).findList()) {
-            boolean existCommit = false;
-            for (GitCommit commit: gitCommits) {
-                if(commit.getId().equals(pullRequestCommit.commitId)) {
-                    existCommit = true;
-                    break;
-                }
-            }
+        Set<String> gitCommitIds = new HashSet<>();
+        for (GitCommit commit: gitCommits) {
+            gitCommitIds.add(commit.getId());
+        }
 
-            if (!existCommit) {
-                pullRequestCommit.state = PullRequestCommit.State.PRIOR;
-                pullRequestCommit.update();
+        List<Long> priorIds = new ArrayList<>();
+        for (PullRequestCommit pullRequestCommit : getCurrentCommits()) {
+            if (!gitCommitIds.contains(pullRequestCommit.commitId)) {
+                priorIds.add(pullRequestCommit.id);
             }
         }
+
+        for (int from = 0; from < priorIds.size(); from += BATCH_SIZE) {
+            List<Long> chunk = priorIds.subList(from, Math.min(from + BATCH_SIZE, priorIds.size()));
+            // The ids come from the database, so they are safe to be inlined.
+            Ebean.createSqlUpdate("update pull_request_commit set state = :state " +
+                    "where id in (" + StringUtils.join(chunk, ",") + ")")
+                    .setParameter("state", PullRequestCommit.State.PRIOR.name())
+                    .execute();
+        }
     }
 
     public void setConflictStateOfPullRequest() {
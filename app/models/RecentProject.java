@@ -1,21 +1,36 @@
 package models;
 
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.Transaction;
 import play.db.ebean.Model;
-import play.db.ebean.Transactional;
-import play.libs.F;
+import play.libs.Akka;
+import scala.concurrent.duration.Duration;
 
 import javax.annotation.Nonnull;
 import javax.persistence.*;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 @Entity
 @Table(uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "project_id"}))
 public class RecentProject extends Model {
     private static final long serialVersionUID = 7306890271871188281L;
     public static int MAX_RECENT_LIST_PER_USER = 10;
+    private static final int FLUSH_INTERVAL_IN_SECONDS = 10;
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+    private static final int BATCH_SIZE = 100;
+
+    /**
+     * Visits not yet written into the database, by user id. The projects of
+     * each user are ordered from the least recent to the most recent.
+     */
+    private static final Map<Long, LinkedHashMap<Long, RecentProject>> pendingVisits = new HashMap<>();
+
+    /**
+     * The number of the flushes which have failed in a row. Only the
+     * scheduler flushes, one at a time, except when Yona stops.
+     */
+    private static volatile int failedFlushes = 0;
 
     public static Finder<Long, RecentProject> find = new Finder<>(Long.class, RecentProject.class);
 
@@ -34,71 +49,215 @@ public class RecentProject extends Model {
         this.projectName = project.name;
     }
 
-    @Transactional
+    private RecentProject(RecentProject visit) {
+        this.userId = visit.userId;
+        this.owner = visit.owner;
+        this.projectId = visit.projectId;
+        this.projectName = visit.projectName;
+    }
+
+    /**
+     * Returns the projects recently visited by the user, the most recent first.
+     *
+     * Visits not yet flushed into the database are included. All projects are
+     * found by a single query.
+     *
+     * @param user
+     * @return the recently visited projects
+     */
     public static List<Project> getRecentProjects(@Nonnull User user){
+        List<Long> projectIds = new ArrayList<>();
+
+        synchronized (pendingVisits) {
+            LinkedHashMap<Long, RecentProject> pending = pendingVisits.get(user.id);
+            if (pending != null) {
+                projectIds.addAll(pending.keySet());
+                Collections.reverse(projectIds);
+            }
+        }
+
         List<RecentProject> recentProjects = find.where()
-                .eq("userId", user.id).findList();
+                .eq("userId", user.id)
+                .orderBy("id desc")
+                .findList();
 
-        List<Project> found = new ArrayList<>();
+        for (RecentProject rp : recentProjects) {
+            if (!projectIds.contains(rp.projectId)) {
+                projectIds.add(rp.projectId);
+            }
+        }
+
+        if (projectIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, Project> projects = new HashMap<>();
+        for (Project project : Project.find.where().idIn(projectIds).findList()) {
+            projects.put(project.id, project);
+        }
 
-        for(RecentProject rp: recentProjects){
-            Project byOwnerAndProjectName = Project.findByOwnerAndProjectName(rp.owner, rp.projectName);
-            if(byOwnerAndProjectName != null){
-                found.add(0, byOwnerAndProjectName);
+        List<Project> found = new ArrayList<>();
+        for (Long projectId : projectIds) {
+            Project project = projects.get(projectId);
+            if (project != null && found.size() < MAX_RECENT_LIST_PER_USER) {
+                found.add(project);
             }
         }
 
         return found;
     }
 
+    /**
+     * Records that the user visited the project.
+     *
+     * The visit is kept in memory and coalesced with the other visits of the
+     * user until the next {@link #flush()}.
+     *
+     * @param user
+     * @param project
+     */
     public static void addNew(final User user, final Project project){
-        F.Promise<Void> promise = F.Promise.promise(
-                new F.Function0<Void>() {
-                    public Void apply() {
-                        addVisitHistory(user, project);
-                        return null;
-                    }
-                }
-        );
-    }
-
-    @Transactional
-    private static void addVisitHistory(User user, Project project){
-        try {
-            deletePrevious(user, project);
+        synchronized (pendingVisits) {
+            LinkedHashMap<Long, RecentProject> pending = pendingVisits.get(user.id);
+            if (pending == null) {
+                pending = new LinkedHashMap<>();
+                pendingVisits.put(user.id, pending);
+            }
 
-            RecentProject recentProject = new RecentProject(user, project);
-            recentProject.save();
+            // Move the project to the end as the most recent one.
+            pending.remove(project.id);
+            pending.put(project.id, new RecentProject(user, project));
 
-            deleteOldestIfOverflow(user);
-        } catch (OptimisticLockException ole){
-            ole.printStackTrace();
+            if (pending.size() > MAX_RECENT_LIST_PER_USER) {
+                pending.remove(pending.keySet().iterator().next());
+            }
         }
     }
 
-    private static void deletePrevious(User user, Project project) {
-        RecentProject existed = find.where()
-                .eq("userId", user.id)
-                .eq("projectId", project.id).findUnique();
+    /**
+     * Writes all pending visits into the database in a single transaction.
+     *
+     * The previous rows of all the users are loaded by one query, and the
+     * rows to be replaced or pushed out are deleted by another, before the
+     * new rows are inserted in JDBC batches. If this fails, the visits are
+     * put back to be written by the next flush, unless it has failed
+     * {@link #MAX_FLUSH_ATTEMPTS} times in a row.
+     */
+    public static void flush() {
+        Map<Long, LinkedHashMap<Long, RecentProject>> visits;
 
-        if(existed != null){
-            existed.delete();
+        synchronized (pendingVisits) {
+            if (pendingVisits.isEmpty()) {
+                return;
+            }
+            visits = new HashMap<>(pendingVisits);
+            pendingVisits.clear();
         }
 
+        Ebean.beginTransaction();
+        try {
+            addVisitHistory(visits);
+            Ebean.commitTransaction();
+            failedFlushes = 0;
+        } catch (Exception e) {
+            if (++failedFlushes < MAX_FLUSH_ATTEMPTS) {
+                play.Logger.warn("Failed to save recently visited projects of " + visits.size()
+                        + " users; they will be saved again by the next flush", e);
+                putBack(visits);
+            } else {
+                play.Logger.error("Failed to save recently visited projects of " + visits.size()
+                        + " users " + failedFlushes + " times in a row; they are dropped", e);
+                failedFlushes = 0;
+            }
+        } finally {
+            Ebean.endTransaction();
+        }
     }
 
-    private static void deleteOldestIfOverflow(User user) {
-        List<RecentProject> recentProjects = find.where()
-                .eq("userId", user.id).findList();
-        while(recentProjects.size() > MAX_RECENT_LIST_PER_USER){
-            Comparator<RecentProject> comparator = new Comparator<RecentProject>() {
-                @Override
-                public int compare(RecentProject p1, RecentProject p2) {
-                    return Long.compare( p1.id, p2.id);
+    /**
+     * Puts the visits which have failed to be written back in front of the
+     * visits made since then.
+     */
+    private static void putBack(Map<Long, LinkedHashMap<Long, RecentProject>> visits) {
+        synchronized (pendingVisits) {
+            for (Map.Entry<Long, LinkedHashMap<Long, RecentProject>> entry : visits.entrySet()) {
+                // Copies are put back, because the failed ones may have been
+                // given ids.
+                LinkedHashMap<Long, RecentProject> merged = new LinkedHashMap<>();
+                for (RecentProject visit : entry.getValue().values()) {
+                    merged.put(visit.projectId, new RecentProject(visit));
+                }
+                LinkedHashMap<Long, RecentProject> newer = pendingVisits.get(entry.getKey());
+                if (newer != null) {
+                    for (Map.Entry<Long, RecentProject> visit : newer.entrySet()) {
+                        merged.remove(visit.getKey());
+                        merged.put(visit.getKey(), visit.getValue());
+                    }
                 }
-            };
-            RecentProject oldest = Collections.min(recentProjects, comparator);
-            oldest.delete();
+                while (merged.size() > MAX_RECENT_LIST_PER_USER) {
+                    merged.remove(merged.keySet().iterator().next());
+                }
+                pendingVisits.put(entry.getKey(), merged);
+            }
+        }
+    }
+
+    private static void addVisitHistory(Map<Long, LinkedHashMap<Long, RecentProject>> visits) {
+        List<RecentProject> existing = find.where()
+                .in("userId", visits.keySet())
+                .orderBy("id desc")
+                .findList();
+
+        // Each user keeps the new visits and as many of the previous ones,
+        // the most recent first, as fit in the list.
+        Map<Long, Integer> kept = new HashMap<>();
+        List<Object> deleted = new ArrayList<>();
+        for (RecentProject previous : existing) {
+            LinkedHashMap<Long, RecentProject> pending = visits.get(previous.userId);
+            Integer count = kept.get(previous.userId);
+            if (count == null) {
+                count = pending.size();
+            }
+            if (pending.containsKey(previous.projectId) || count >= MAX_RECENT_LIST_PER_USER) {
+                deleted.add(previous.id);
+            } else {
+                kept.put(previous.userId, count + 1);
+            }
         }
+        if (!deleted.isEmpty()) {
+            Ebean.delete(RecentProject.class, deleted);
+        }
+
+        List<RecentProject> inserted = new ArrayList<>();
+        for (LinkedHashMap<Long, RecentProject> pending : visits.values()) {
+            inserted.addAll(pending.values());
+        }
+        Transaction transaction = Ebean.currentTransaction();
+        transaction.setBatchMode(true);
+        transaction.setBatchSize(BATCH_SIZE);
+        Ebean.save(inserted);
+        transaction.flushBatch();
+    }
+
+    private static void scheduleFlush() {
+        Akka.system().scheduler().schedule(
+                Duration.create(FLUSH_INTERVAL_IN_SECONDS, TimeUnit.SECONDS),
+                Duration.create(FLUSH_INTERVAL_IN_SECONDS, TimeUnit.SECONDS),
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                },
+                Akka.system().dispatcher()
+        );
+    }
+
+    public static void onStart() {
+        scheduleFlush();
+    }
+
+    public static void onStop() {
+        flush();
     }
 }
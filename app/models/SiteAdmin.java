@@ -29,6 +29,9 @@ import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.OneToOne;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 
 @Entity
 public class SiteAdmin extends Model {
@@ -47,6 +50,20 @@ public class SiteAdmin extends Model {
         return user != null && find.where().eq("admin.id", user.id).findRowCount() > 0;
     }
 
+    /**
+     * Returns the ids of the site admins among the users of {@code userIds}.
+     */
+    public static Set<Long> findAdminIds(Collection<Long> userIds) {
+        Set<Long> adminIds = new HashSet<>();
+        if (userIds.isEmpty()) {
+            return adminIds;
+        }
+        for (SiteAdmin siteAdmin : find.select("admin.id").where().in("admin.id", userIds).findList()) {
+            adminIds.add(siteAdmin.admin.id);
+        }
+        return adminIds;
+    }
+
     public static User updateDefaultSiteAdmin(User user) {
         RandomNumberGenerator rng = new SecureRandomNumberGenerator();
         String passwordSalt = Arrays.toString(rng.nextBytes().getBytes());
@@ -31,6 +31,12 @@ public class Unwatch extends UserAction {
 
     public static final Finder<Long, Unwatch> find = new Finder<>(Long.class, Unwatch.class);
 
+    @Override
+    public void delete() {
+        super.delete();
+        WatcherIndex.onDelete(resourceType, resourceId);
+    }
+
     public static List<Unwatch> findBy(ResourceType resourceType, String resourceId) {
         return findBy(find, resourceType, resourceId);
     }
@@ -275,6 +275,21 @@ public class User extends Model implements ResourceConvertible {
         }
     }
 
+    /**
+     * Finds the users of the given ids with a single query.
+     *
+     * @param ids
+     * @return the users found; ids of no user are ignored
+     */
+    public static List<User> findByIds(Collection<Long> ids) {
+        Set<Long> existingIds = new HashSet<>(ids);
+        existingIds.remove(null);
+        if (existingIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return find.where().idIn(new ArrayList<Object>(existingIds)).findList();
+    }
+
     public static User findByUserToken(String token){
         User user = null;
         if(token != null) {
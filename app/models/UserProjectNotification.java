@@ -24,9 +24,12 @@ import models.enumeration.EventType;
 import play.db.ebean.Model;
 
 import javax.persistence.*;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User this class when someone want to know whether a user is receiving notification alarm from the project or not
@@ -118,6 +121,27 @@ public class UserProjectNotification extends Model {
         newOne.save();
     }
 
+    /**
+     * Returns the ids of the users among {@code userIds} who turned off the
+     * notification of the given type from the given project.
+     */
+    public static Set<Long> findDisabledUserIds(Project project, EventType eventType, Collection<Long> userIds) {
+        Set<Long> disabled = new HashSet<>();
+        if (userIds.isEmpty()) {
+            return disabled;
+        }
+        List<UserProjectNotification> list = find.select("user.id").where()
+                .eq("project.id", project.id)
+                .eq("notificationType", eventType)
+                .eq("allowed", false)
+                .in("user.id", userIds)
+                .findList();
+        for (UserProjectNotification noti : list) {
+            disabled.add(noti.user.id);
+        }
+        return disabled;
+    }
+
     /**
      *
      * Basically, if there is no information about {@code project}' {@code notiType}
@@ -20,9 +20,9 @@
  */
 package models;
 
-import com.avaje.ebean.annotation.Transactional;
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.TxRunnable;
 import controllers.UserApp;
-import models.enumeration.Operation;
 import models.enumeration.ResourceType;
 import models.resource.GlobalResource;
 import models.resource.Resource;
@@ -32,8 +32,11 @@ import utils.AccessControl;
 
 import javax.persistence.Entity;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Entity
@@ -42,6 +45,12 @@ public class Watch extends UserAction {
 
     public static final Finder<Long, Watch> find = new Finder<>(Long.class, Watch.class);
 
+    @Override
+    public void delete() {
+        super.delete();
+        WatcherIndex.onDelete(resourceType, resourceId);
+    }
+
     public static List<Watch> findBy(ResourceType resourceType, String resourceId) {
         return findBy(find, resourceType, resourceId);
     }
@@ -55,32 +64,39 @@ public class Watch extends UserAction {
     }
 
     public static int countBy(ResourceType type, String id) {
-        return countBy(find, type, id);
+        return WatcherIndex.get(type, id).countWatchers();
     }
 
     public static void watch(Resource resource) {
         watch(UserApp.currentUser(), resource);
     }
 
-    @Transactional
     public static void watch(User user, Resource resource) {
         watch(user, resource.getType(), resource.getId());
     }
 
-    public static void watch(User user, ResourceType resourceType, String resourceId) {
-        Watch watch = Watch.findBy(user, resourceType, resourceId);
-        if (watch == null) {
-            watch = new Watch();
-            watch.user = user;
-            watch.resourceId = resourceId;
-            watch.resourceType = resourceType;
-            watch.save();
-        }
+    public static void watch(final User user, final ResourceType resourceType,
+                             final String resourceId) {
+        Ebean.execute(new TxRunnable() {
+            @Override
+            public void run() {
+                Watch watch = Watch.findBy(user, resourceType, resourceId);
+                if (watch == null) {
+                    watch = new Watch();
+                    watch.user = user;
+                    watch.resourceId = resourceId;
+                    watch.resourceType = resourceType;
+                    watch.save();
+                }
 
-        Unwatch unwatch = Unwatch.findBy(user, resourceType, resourceId);
-        if (unwatch != null) {
-            unwatch.delete();
-        }
+                Unwatch unwatch = Unwatch.findBy(user, resourceType, resourceId);
+                if (unwatch != null) {
+                    unwatch.delete();
+                }
+            }
+        });
+
+        WatcherIndex.onWatch(user.id, resourceType, resourceId);
     }
 
     public static void unwatch(Resource resource) {
@@ -91,20 +107,28 @@ public class Watch extends UserAction {
         unwatch(user, resource.getType(), resource.getId());
     }
 
-    public static void unwatch(User user, ResourceType resourceType, String resourceId) {
-        Unwatch unwatch = Unwatch.findBy(user, resourceType, resourceId);
-        if (unwatch == null) {
-            unwatch = new Unwatch();
-            unwatch.user = user;
-            unwatch.resourceId = resourceId;
-            unwatch.resourceType = resourceType;
-            unwatch.save();
-        }
+    public static void unwatch(final User user, final ResourceType resourceType,
+                               final String resourceId) {
+        Ebean.execute(new TxRunnable() {
+            @Override
+            public void run() {
+                Unwatch unwatch = Unwatch.findBy(user, resourceType, resourceId);
+                if (unwatch == null) {
+                    unwatch = new Unwatch();
+                    unwatch.user = user;
+                    unwatch.resourceId = resourceId;
+                    unwatch.resourceType = resourceType;
+                    unwatch.save();
+                }
 
-        Watch watch = Watch.findBy(user, resourceType, resourceId);
-        if (watch != null) {
-            watch.delete();
-        }
+                Watch watch = Watch.findBy(user, resourceType, resourceId);
+                if (watch != null) {
+                    watch.delete();
+                }
+            }
+        });
+
+        WatcherIndex.onUnwatch(user.id, resourceType, resourceId);
     }
 
     public static Set<User> findWatchers(Resource target) {
@@ -112,11 +136,7 @@ public class Watch extends UserAction {
     }
 
     public static Set<User> findWatchers(ResourceType resourceType, String resourceId) {
-        HashSet<User> users = new HashSet<>();
-        for (Watch watch: Watch.findBy(resourceType, resourceId)) {
-            users.add(watch.user);
-        }
-        return users;
+        return findUsers(WatcherIndex.get(resourceType, resourceId).getWatcherIds());
     }
 
     public static Set<User> findUnwatchers(Resource target) {
@@ -124,11 +144,11 @@ public class Watch extends UserAction {
     }
 
     public static Set<User> findUnwatchers(ResourceType resourceType, String resourceId) {
-        HashSet<User> users = new HashSet<>();
-        for (Unwatch unwatch: Unwatch.findBy(resourceType, resourceId)) {
-            users.add(unwatch.user);
-        }
-        return users;
+        return findUsers(WatcherIndex.get(resourceType, resourceId).getUnwatcherIds());
+    }
+
+    private static Set<User> findUsers(Collection<Long> ids) {
+        return new HashSet<>(User.findByIds(ids));
     }
 
     public static List<String> findWatchedResourceIds(User user, ResourceType resourceType) {
@@ -143,10 +163,29 @@ public class Watch extends UserAction {
     }
 
     public static boolean isWatching(User user, ResourceType resourceType, String resourceId) {
-        Watch watch = Watch.findBy(user, resourceType, resourceId);
-        Unwatch unwatch = Unwatch.findBy(user, resourceType, resourceId);
+        if (user == null || user.id == null) {
+            return false;
+        }
+        return WatcherIndex.get(resourceType, resourceId).isWatching(user.id);
+    }
 
-        return watch != null && unwatch == null;
+    /**
+     * Returns the ids of the users among {@code userIds} who watch the given
+     * resource explicitly.
+     *
+     * @param resource
+     * @param userIds
+     * @return the ids of the users for whom {@link #isWatching(User, Resource)} is true
+     */
+    public static Set<Long> findWatchingUserIds(Resource resource, Collection<Long> userIds) {
+        WatcherIndex.Watchers watchers = WatcherIndex.get(resource.getType(), resource.getId());
+        Set<Long> watching = new HashSet<>();
+        for (Long userId : userIds) {
+            if (watchers.isWatching(userId)) {
+                watching.add(userId);
+            }
+        }
+        return watching;
     }
 
     public static boolean isWatching(User user, Resource resource) {
@@ -157,29 +196,64 @@ public class Watch extends UserAction {
         return isWatching(UserApp.currentUser(), resource.getType(), resource.getId());
     }
 
+    /**
+     * Returns the users who get notified of the given resource: the given
+     * base watchers and the watchers of its project, plus the explicit
+     * watchers of the resource itself, minus its explicit unwatchers.
+     *
+     * The watchers are resolved by user id from {@link WatcherIndex} and only
+     * the users not given as base watchers are loaded, with a single query.
+     *
+     * @param baseWatchers
+     * @param resource
+     * @param allowedWatchersOnly whether to exclude the users who cannot read the resource
+     * @return the watchers
+     */
     public static Set<User> findActualWatchers(
             final Set<User> baseWatchers,
             final Resource resource,
             boolean allowedWatchersOnly) {
-        Set<User> actualWatchers = new HashSet<>();
-        actualWatchers.addAll(baseWatchers);
+        Map<Long, User> users = new HashMap<>();
+        Set<Long> watcherIds = new HashSet<>();
+        for (User user : baseWatchers) {
+            if (user != null && user.id != null) {
+                users.put(user.id, user);
+                watcherIds.add(user.id);
+            }
+        }
 
         // Add every user who watches the project to which this resource belongs
         if (!(resource instanceof GlobalResource)) {
-            Project project = resource.getProject();
-            actualWatchers.addAll(findWatchers(project.asResource()));
+            Resource project = resource.getProject().asResource();
+            watcherIds.addAll(WatcherIndex.get(project.getType(), project.getId()).getWatcherIds());
         }
 
         // For this resource, add every user who watch explicitly and remove who unwatch explicitly.
-        actualWatchers.addAll(findWatchers(resource));
-        actualWatchers.removeAll(findUnwatchers(resource));
+        WatcherIndex.Watchers watchers = WatcherIndex.get(resource.getType(), resource.getId());
+        watcherIds.addAll(watchers.getWatcherIds());
+        watcherIds.removeAll(watchers.getUnwatcherIds());
+
+        Set<Long> missingIds = new HashSet<>(watcherIds);
+        missingIds.removeAll(users.keySet());
+        for (User user : findUsers(missingIds)) {
+            users.put(user.id, user);
+        }
+
+        Set<User> actualWatchers = new HashSet<>();
+        for (Long id : watcherIds) {
+            User user = users.get(id);
+            if (user != null) {
+                actualWatchers.add(user);
+            }
+        }
 
         // Filter the watchers who has no permission to read this resource.
         if (allowedWatchersOnly) {
+            final Set<Long> readableIds = AccessControl.findReadableUserIds(actualWatchers, resource);
             CollectionUtils.filter(actualWatchers, new Predicate() {
                 @Override
                 public boolean evaluate(Object watcher) {
-                    return AccessControl.isAllowed((User) watcher, resource, Operation.READ);
+                    return readableIds.contains(((User) watcher).id);
                 }
             });
         }
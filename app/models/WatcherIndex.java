@@ -0,0 +1,246 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models;
+
+import com.avaje.ebean.Ebean;
+import com.google.common.base.Function;
+import models.enumeration.ResourceType;
+import models.support.InMemoryIndex;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+
+/**
+ * An in-memory index of the users who watch or unwatch each resource
+ * explicitly.
+ *
+ * The ids of the users are kept in sorted arrays of primitive longs, so a
+ * resource with thousands of watchers costs a few kilobytes and finding out
+ * whether a user watches it is a binary search. Entries are loaded on demand
+ * and expire after a while to recover from changes made behind the index.
+ *
+ * A change is applied to the index only once it is committed: right away if
+ * no transaction is in progress, otherwise by
+ * {@link WatcherIndexPersistListener} after the commit.
+ */
+public class WatcherIndex {
+    private static final long[] EMPTY = new long[0];
+
+    private static final InMemoryIndex<String, Watchers> index =
+            new InMemoryIndex<>("application.watch.index", 10000);
+
+    /**
+     * The users who watch or unwatch a resource explicitly. Immutable.
+     */
+    public static class Watchers {
+        private final long[] watcherIds;
+        private final long[] unwatcherIds;
+
+        Watchers(long[] watcherIds, long[] unwatcherIds) {
+            this.watcherIds = watcherIds;
+            this.unwatcherIds = unwatcherIds;
+        }
+
+        public boolean isWatching(long userId) {
+            return Arrays.binarySearch(watcherIds, userId) >= 0
+                    && Arrays.binarySearch(unwatcherIds, userId) < 0;
+        }
+
+        public boolean isUnwatching(long userId) {
+            return Arrays.binarySearch(unwatcherIds, userId) >= 0;
+        }
+
+        public int countWatchers() {
+            return watcherIds.length;
+        }
+
+        public Set<Long> getWatcherIds() {
+            return toSet(watcherIds);
+        }
+
+        public Set<Long> getUnwatcherIds() {
+            return toSet(unwatcherIds);
+        }
+
+        Watchers watchedBy(long userId) {
+            return new Watchers(add(watcherIds, userId), remove(unwatcherIds, userId));
+        }
+
+        Watchers unwatchedBy(long userId) {
+            return new Watchers(remove(watcherIds, userId), add(unwatcherIds, userId));
+        }
+
+        long getEstimatedBytes() {
+            // Two array headers and the ids, plus the object itself.
+            return 16 + 2 * 16 + 8L * (watcherIds.length + unwatcherIds.length);
+        }
+    }
+
+    private WatcherIndex() {
+    }
+
+    /**
+     * @param resourceType
+     * @param resourceId
+     * @return the watchers of the given resource, loaded from the database
+     *         if they are not in the index
+     */
+    public static Watchers get(final ResourceType resourceType, final String resourceId) {
+        return index.get(key(resourceType, resourceId), new Callable<Watchers>() {
+            @Override
+            public Watchers call() {
+                return load(resourceType, resourceId);
+            }
+        });
+    }
+
+    private static Watchers load(ResourceType resourceType, String resourceId) {
+        return new Watchers(
+                findUserIds(Watch.find, resourceType, resourceId),
+                findUserIds(Unwatch.find, resourceType, resourceId));
+    }
+
+    private static <T extends UserAction> long[] findUserIds(
+            play.db.ebean.Model.Finder<Long, T> finder, ResourceType resourceType, String resourceId) {
+        List<T> actions = finder.select("user.id").where()
+                .eq("resourceType", resourceType)
+                .eq("resourceId", resourceId)
+                .findList();
+
+        long[] ids = new long[actions.size()];
+        int size = 0;
+        for (T action : actions) {
+            if (action.user != null && action.user.id != null) {
+                ids[size++] = action.user.id;
+            }
+        }
+        Arrays.sort(ids, 0, size);
+
+        // Drop duplicates, if any, so that removing an id removes it at all.
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || ids[distinct - 1] != ids[i]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, distinct);
+    }
+
+    static void onWatch(Long userId, ResourceType resourceType, String resourceId) {
+        if (isCommitted()) {
+            update(userId, resourceType, resourceId, true);
+        }
+    }
+
+    static void onUnwatch(Long userId, ResourceType resourceType, String resourceId) {
+        if (isCommitted()) {
+            update(userId, resourceType, resourceId, false);
+        }
+    }
+
+    static void onDelete(ResourceType resourceType, String resourceId) {
+        if (isCommitted()) {
+            invalidate(resourceType, resourceId);
+        }
+    }
+
+    /**
+     * A change made outside of a transaction has already been committed by
+     * the time it returns. One made inside a transaction is left to
+     * {@link WatcherIndexPersistListener}, as it may still be rolled back.
+     */
+    private static boolean isCommitted() {
+        return Ebean.currentTransaction() == null;
+    }
+
+    private static void update(final Long userId, ResourceType resourceType, String resourceId,
+                               final boolean watch) {
+        if (userId == null) {
+            return;
+        }
+
+        index.update(key(resourceType, resourceId), new Function<Watchers, Watchers>() {
+            @Override
+            public Watchers apply(Watchers watchers) {
+                return watch ? watchers.watchedBy(userId) : watchers.unwatchedBy(userId);
+            }
+        });
+    }
+
+    /**
+     * Removes the entry of the given resource, e.g. when it is deleted.
+     */
+    public static void invalidate(ResourceType resourceType, String resourceId) {
+        index.invalidate(key(resourceType, resourceId));
+    }
+
+    public static void invalidateAll() {
+        index.invalidateAll();
+    }
+
+    public static void onStart() {
+        invalidateAll();
+    }
+
+    /**
+     * @return the size, estimated memory usage and hit rate of the index
+     */
+    public static Map<String, String> getStatistics() {
+        long bytes = 0;
+        long ids = 0;
+        for (Watchers watchers : index.values()) {
+            bytes += watchers.getEstimatedBytes();
+            ids += watchers.watcherIds.length + watchers.unwatcherIds.length;
+        }
+
+        Map<String, String> statistics = new LinkedHashMap<>();
+        statistics.put("Watcher index: resources", index.getSizeStatistic());
+        statistics.put("Watcher index: user ids", String.valueOf(ids));
+        statistics.put("Watcher index: estimated memory", (bytes / 1024) + " KB");
+        statistics.put("Watcher index: hit rate", index.getHitRateStatistic());
+        return statistics;
+    }
+
+    private static String key(ResourceType resourceType, String resourceId) {
+        return resourceType.name() + ":" + resourceId;
+    }
+
+    private static long[] add(long[] ids, long id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index >= 0) {
+            return ids;
+        }
+        int insertion = -index - 1;
+        long[] result = new long[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, insertion);
+        result[insertion] = id;
+        System.arraycopy(ids, insertion, result, insertion + 1, ids.length - insertion);
+        return result;
+    }
+
+    private static long[] remove(long[] ids, long id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index < 0) {
+            return ids;
+        }
+        if (ids.length == 1) {
+            return EMPTY;
+        }
+        long[] result = new long[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, index);
+        System.arraycopy(ids, index + 1, result, index, ids.length - index - 1);
+        return result;
+    }
+
+    private static Set<Long> toSet(long[] ids) {
+        Set<Long> set = new HashSet<>(ids.length * 2);
+        for (long id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+}
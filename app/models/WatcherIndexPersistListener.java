@@ -0,0 +1,61 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models;
+
+import com.avaje.ebean.event.BeanPersistListener;
+
+import java.util.Set;
+
+/**
+ * Drops the {@link WatcherIndex} entry of a resource once a change to its
+ * {@link Watch}es or {@link Unwatch}es is committed. Nothing is done for a
+ * change that is rolled back, so the index never holds uncommitted state.
+ *
+ * @see com.avaje.ebean.event.BeanPersistListener
+ */
+public class WatcherIndexPersistListener implements BeanPersistListener<UserAction> {
+    @Override
+    public boolean isRegisterFor(Class<?> cls) {
+        return Watch.class.isAssignableFrom(cls) || Unwatch.class.isAssignableFrom(cls);
+    }
+
+    @Override
+    public boolean inserted(UserAction action) {
+        invalidate(action);
+        return false;
+    }
+
+    @Override
+    public boolean updated(UserAction action, Set<String> updatedProperties) {
+        invalidate(action);
+        return false;
+    }
+
+    @Override
+    public boolean deleted(UserAction action) {
+        invalidate(action);
+        return false;
+    }
+
+    @Override
+    public void remoteInsert(Object id) {
+    }
+
+    @Override
+    public void remoteUpdate(Object id) {
+    }
+
+    @Override
+    public void remoteDelete(Object id) {
+    }
+
+    private void invalidate(UserAction action) {
+        if (action.resourceType != null && action.resourceId != null) {
+            WatcherIndex.invalidate(action.resourceType, action.resourceId);
+        }
+    }
+}
@@ -28,14 +28,9 @@ import models.resource.GlobalResource;
 import models.resource.Resource;
 import models.resource.ResourceConvertible;
 import org.eclipse.jgit.revwalk.RevCommit;
-import play.Logger;
 import play.data.validation.Constraints.Required;
 import play.db.ebean.Model;
-import play.libs.F.Function;
 import play.libs.Json;
-import play.libs.ws.WS;
-import play.libs.ws.WSRequestHolder;
-import play.libs.ws.WSResponse;
 import playRepository.GitCommit;
 import utils.RouteUtil;
 
@@ -149,33 +144,21 @@ public class Webhook extends Model implements ResourceConvertible {
                 .findUnique();
     }
     
-    public void sendRequestToPayloadUrl(String[] eventTypes, List<RevCommit> commits, List<String> refNames, User sender, String title) {
-        String requestBodyString = buildRequestBody(eventTypes, commits, refNames, sender, title);
-
-        try {
-            WSRequestHolder requestHolder = WS.url(this.payloadUrl);
-            requestHolder
-                    .setHeader("Content-Type", "application/json")
-                    .setHeader("User-Agent", "Yobi-Hookshot")
-                    .post(requestBodyString)
-                    .map(
-                            new Function<WSResponse, Integer>() {
-                                public Integer apply(WSResponse response) {
-                                    int statusCode = response.getStatus();
-                                    String statusText = response.getStatusText();
-                                    if (statusCode < 200 || statusCode >= 300) {
-                                        // Unsuccessful status code - log some information in server.
-                                        Logger.info("[Webhook] Request responded code " + Integer.toString(statusCode) + ": " + statusText);
-                                        Logger.info("[Webhook] Request payload: " + requestBodyString);
-                                    }
-                                    return 0;
-                                }
-                            }
-                    );
-        } catch (Exception e) {
-            // Request failed (Dead end point or invalid payload URL) - log some information in server.
-            Logger.info("[Webhook] Request failed at given payload URL: " + this.payloadUrl);
+    /**
+     * Queues deliveries of the given push event to every webhook of the
+     * project. The payload is built once and shared by all deliveries.
+     *
+     * @see WebhookDelivery
+     */
+    public static void sendPushEvent(Project project, List<RevCommit> commits, List<String> refNames, User sender, String title) {
+        List<Webhook> webhooks = findByProject(project.id);
+        if (webhooks.isEmpty() || commits.isEmpty()) {
+            return;
         }
+
+        String[] eventTypes = {"push"};
+        String requestBodyString = webhooks.get(0).buildRequestBody(eventTypes, commits, refNames, sender, title);
+        WebhookDelivery.enqueue(webhooks, requestBodyString);
     }
 
     private String buildRequestBody(String[] eventTypes, List<RevCommit> commits, List<String> refNames, User sender, String title) {
@@ -0,0 +1,444 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models;
+
+import com.avaje.ebean.Ebean;
+import org.apache.commons.lang3.StringUtils;
+import play.Configuration;
+import play.db.ebean.Model;
+import play.libs.Akka;
+import play.libs.F.Callback;
+import play.libs.F.Promise;
+import play.libs.ws.WS;
+import play.libs.ws.WSResponse;
+import scala.concurrent.duration.Duration;
+
+import javax.persistence.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A payload waiting to be delivered, or already delivered, to the payload URL
+ * of a {@link Webhook}.
+ *
+ * Deliveries are stored before they are sent, so events are not lost when
+ * the receiver is slow or down. A scheduled dispatcher sends due deliveries,
+ * retries failed ones with exponential backoff and limits the number of
+ * requests in flight to each webhook. Every attempt is recorded as a
+ * {@link WebhookDeliveryAttempt}.
+ *
+ * The deliveries of an event to the webhooks of a project share one
+ * {@link WebhookPayload}. A dispatcher claims a delivery with a lease for the
+ * time it may take to send it, so that a delivery left being sent by a
+ * stopped or failed dispatcher is sent again by any server once its lease has
+ * expired. Finished deliveries and their payloads are deleted after
+ * {@code application.webhook.retention}.
+ */
+@Entity
+public class WebhookDelivery extends Model {
+    private static final long serialVersionUID = 1L;
+
+    public static final Finder<Long, WebhookDelivery> find = new Finder<>(Long.class, WebhookDelivery.class);
+
+    public enum State {
+        PENDING, SENDING, SUCCEEDED, FAILED
+    }
+
+    private static int maxAttempts = 8;
+    private static long initialBackoffMillis = 10 * 1000L;
+    private static long maxBackoffMillis = 60 * 60 * 1000L;
+    private static int timeoutMillis = 10 * 1000;
+    private static int concurrencyPerWebhook = 2;
+    private static int batchSize = 100;
+    private static long leaseMillis = 2 * 60 * 1000L;
+    private static long retentionMillis = 30 * 24 * 60 * 60 * 1000L;
+    private static final int PURGE_CHUNK_SIZE = 1000;
+
+    /**
+     * The number of requests in flight by webhook id.
+     */
+    private static final Map<Long, Integer> inFlight = new HashMap<>();
+
+    @Id
+    public Long id;
+
+    @ManyToOne
+    public Webhook webhook;
+
+    @ManyToOne
+    public WebhookPayload payload;
+
+    @Enumerated(EnumType.STRING)
+    public State state;
+
+    public int attempts;
+
+    public Date createdAt;
+
+    public Date nextAttemptAt;
+
+    public Integer lastStatusCode;
+
+    public Long lastLatencyMillis;
+
+    /**
+     * The time until which the dispatcher sending this delivery holds it.
+     */
+    public Date leaseUntil;
+
+    public WebhookDelivery(Webhook webhook, WebhookPayload payload) {
+        this.webhook = webhook;
+        this.payload = payload;
+        this.state = State.PENDING;
+        this.createdAt = new Date();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    /**
+     * Stores the given payload once and queues it for every given webhook in
+     * a single batch.
+     *
+     * @param webhooks
+     * @param payload
+     */
+    public static void enqueue(List<Webhook> webhooks, String payload) {
+        WebhookPayload shared = new WebhookPayload(payload);
+        shared.save();
+
+        List<WebhookDelivery> deliveries = new ArrayList<>();
+        for (Webhook webhook : webhooks) {
+            deliveries.add(new WebhookDelivery(webhook, shared));
+        }
+        Ebean.save(deliveries);
+    }
+
+    public static List<WebhookDelivery> findRecentByWebhook(Webhook webhook, int size) {
+        return find.where()
+                .eq("webhook.id", webhook.id)
+                .orderBy("id desc")
+                .setMaxRows(size)
+                .findList();
+    }
+
+    public static WebhookDelivery findLastByWebhook(Webhook webhook) {
+        List<WebhookDelivery> deliveries = findRecentByWebhook(webhook, 1);
+        return deliveries.isEmpty() ? null : deliveries.get(0);
+    }
+
+    /**
+     * Finds the last delivery to each of the given webhooks with a single
+     * query.
+     *
+     * @param webhooks
+     * @return the last deliveries by the ids of their webhooks; a webhook
+     *         which has no delivery yet is not in it
+     */
+    public static Map<Long, WebhookDelivery> findLastByWebhooks(List<Webhook> webhooks) {
+        Map<Long, WebhookDelivery> result = new HashMap<>();
+        if (webhooks.isEmpty()) {
+            return result;
+        }
+
+        List<Long> webhookIds = new ArrayList<>();
+        for (Webhook webhook : webhooks) {
+            webhookIds.add(webhook.id);
+        }
+        // The ids come from the database, so they are safe to be inlined.
+        for (WebhookDelivery delivery : find.where()
+                .raw("id in (select max(d.id) from webhook_delivery d where d.webhook_id in ("
+                        + StringUtils.join(webhookIds, ",") + ") group by d.webhook_id)")
+                .findList()) {
+            result.put(delivery.webhook.id, delivery);
+        }
+        return result;
+    }
+
+    /**
+     * Sends the deliveries whose next attempt is due, at most
+     * {@code application.webhook.batchSize} at a time.
+     *
+     * A delivery is skipped until the next run if its webhook already has
+     * {@code application.webhook.concurrencyPerWebhook} requests in flight.
+     */
+    public static synchronized void deliverDue() {
+        recoverExpiredLeases();
+
+        List<WebhookDelivery> due = find.fetch("webhook").fetch("payload").where()
+                .eq("state", State.PENDING)
+                .le("nextAttemptAt", new Date())
+                .orderBy("id asc")
+                .setMaxRows(batchSize)
+                .findList();
+
+        for (WebhookDelivery delivery : due) {
+            if (delivery.webhook == null || delivery.payload == null) {
+                continue;
+            }
+            if (!acquire(delivery.webhook.id)) {
+                continue;
+            }
+            if (!delivery.claim()) {
+                release(delivery.webhook.id);
+                continue;
+            }
+            delivery.send();
+        }
+    }
+
+    /**
+     * Marks this delivery as being sent with a lease, unless another
+     * dispatcher has already claimed it.
+     *
+     * @return true if this dispatcher claimed the delivery
+     */
+    private boolean claim() {
+        Date until = new Date(System.currentTimeMillis() + leaseMillis);
+        int updated = Ebean.createSqlUpdate("update webhook_delivery " +
+                "set state = :sending, lease_until = :leaseUntil " +
+                "where id = :id and state = :pending")
+                .setParameter("sending", State.SENDING.name())
+                .setParameter("leaseUntil", until)
+                .setParameter("pending", State.PENDING.name())
+                .setParameter("id", id)
+                .execute();
+        if (updated == 1) {
+            state = State.SENDING;
+            leaseUntil = until;
+            return true;
+        }
+        return false;
+    }
+
+    private void send() {
+        final Date attemptedAt = new Date();
+        final long start = System.currentTimeMillis();
+
+        Promise<WSResponse> promise;
+        try {
+            promise = WS.url(webhook.payloadUrl)
+                    .setTimeout(timeoutMillis)
+                    .setHeader("Content-Type", "application/json")
+                    .setHeader("User-Agent", "Yobi-Hookshot")
+                    .post(payload.body);
+        } catch (Exception e) {
+            // Invalid payload URL
+            complete(attemptedAt, 0, System.currentTimeMillis() - start, e.toString());
+            return;
+        }
+
+        promise.onRedeem(new Callback<WSResponse>() {
+            @Override
+            public void invoke(WSResponse response) {
+                complete(attemptedAt, response.getStatus(), System.currentTimeMillis() - start, null);
+            }
+        });
+        promise.onFailure(new Callback<Throwable>() {
+            @Override
+            public void invoke(Throwable t) {
+                // Dead end point or timeout
+                complete(attemptedAt, 0, System.currentTimeMillis() - start, t.toString());
+            }
+        });
+    }
+
+    /**
+     * Records the result of an attempt and decides what to do next: done,
+     * retry later, or give up.
+     */
+    private void complete(Date attemptedAt, int statusCode, long latencyMillis, String error) {
+        try {
+            WebhookDeliveryAttempt attempt =
+                    new WebhookDeliveryAttempt(this, attemptedAt, statusCode, latencyMillis, error);
+            attempt.save();
+
+            attempts++;
+            lastStatusCode = statusCode;
+            lastLatencyMillis = latencyMillis;
+
+            if (attempt.isSuccessful()) {
+                state = State.SUCCEEDED;
+            } else if (attempts >= maxAttempts) {
+                state = State.FAILED;
+                play.Logger.info("[Webhook] Gave up delivery " + id + " to " + webhook.payloadUrl
+                        + " after " + attempts + " attempts");
+            } else {
+                state = State.PENDING;
+                nextAttemptAt = new Date(System.currentTimeMillis() + backoffMillis(attempts));
+            }
+            leaseUntil = null;
+            update();
+        } catch (Exception e) {
+            play.Logger.warn("[Webhook] Failed to record the result of delivery " + id, e);
+            putBack();
+        } finally {
+            release(webhook.id);
+        }
+    }
+
+    /**
+     * Puts this delivery back to be retried after a backoff, when the result
+     * of an attempt could not be recorded. If even this fails, the delivery
+     * is recovered when its lease expires.
+     */
+    private void putBack() {
+        try {
+            Ebean.createSqlUpdate("update webhook_delivery set state = :pending, " +
+                    "attempts = attempts + 1, next_attempt_at = :nextAttemptAt, lease_until = null " +
+                    "where id = :id and state = :sending")
+                    .setParameter("pending", State.PENDING.name())
+                    .setParameter("nextAttemptAt",
+                            new Date(System.currentTimeMillis() + backoffMillis(attempts + 1)))
+                    .setParameter("id", id)
+                    .setParameter("sending", State.SENDING.name())
+                    .execute();
+        } catch (Exception e) {
+            play.Logger.warn("[Webhook] Failed to put back delivery " + id
+                    + "; it will be retried after its lease expires", e);
+        }
+    }
+
+    /**
+     * @param attempts the number of attempts made so far
+     * @return the delay before the next attempt
+     */
+    static long backoffMillis(int attempts) {
+        long backoff = initialBackoffMillis << Math.min(Math.max(attempts - 1, 0), 30);
+        return Math.min(backoff, maxBackoffMillis);
+    }
+
+    private static boolean acquire(Long webhookId) {
+        synchronized (inFlight) {
+            Integer count = inFlight.get(webhookId);
+            if (count == null) {
+                count = 0;
+            }
+            if (count >= concurrencyPerWebhook) {
+                return false;
+            }
+            inFlight.put(webhookId, count + 1);
+            return true;
+        }
+    }
+
+    private static void release(Long webhookId) {
+        synchronized (inFlight) {
+            Integer count = inFlight.get(webhookId);
+            if (count == null || count <= 1) {
+                inFlight.remove(webhookId);
+            } else {
+                inFlight.put(webhookId, count - 1);
+            }
+        }
+    }
+
+    /**
+     * Puts back the deliveries whose lease has expired, because the server
+     * sending them has stopped or failed to record the result.
+     *
+     * @return the number of the deliveries put back
+     */
+    static int recoverExpiredLeases() {
+        return Ebean.createSqlUpdate("update webhook_delivery set state = :pending, lease_until = null " +
+                "where state = :sending and lease_until < :now")
+                .setParameter("pending", State.PENDING.name())
+                .setParameter("sending", State.SENDING.name())
+                .setParameter("now", new Date())
+                .execute();
+    }
+
+    /**
+     * Deletes the finished deliveries created before the given threshold,
+     * {@link #PURGE_CHUNK_SIZE} at a time, with their attempts, and then the
+     * payloads no longer shared by any delivery.
+     *
+     * @param threshold
+     * @return the number of the deleted deliveries
+     */
+    static int purgeFinished(Date threshold) {
+        int deleted = 0;
+        List<Object> ids;
+        do {
+            ids = find.where()
+                    .in("state", State.SUCCEEDED, State.FAILED)
+                    .lt("createdAt", threshold)
+                    .orderBy("id asc")
+                    .setMaxRows(PURGE_CHUNK_SIZE)
+                    .findIds();
+            if (!ids.isEmpty()) {
+                // The attempts are deleted by the cascade of their foreign key.
+                Ebean.delete(WebhookDelivery.class, ids);
+                deleted += ids.size();
+            }
+        } while (ids.size() == PURGE_CHUNK_SIZE);
+
+        Ebean.createSqlUpdate("delete from webhook_payload where created_at < :threshold " +
+                "and not exists (select 1 from webhook_delivery " +
+                "where webhook_delivery.payload_id = webhook_payload.id)")
+                .setParameter("threshold", threshold)
+                .execute();
+
+        return deleted;
+    }
+
+    private static void schedulePurge() {
+        Akka.system().scheduler().schedule(
+                Duration.create(1, TimeUnit.MINUTES),
+                Duration.create(1, TimeUnit.DAYS),
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Date threshold = new Date(System.currentTimeMillis() - retentionMillis);
+                            int deleted = purgeFinished(threshold);
+                            play.Logger.info("[Webhook] Deleted " + deleted
+                                    + " deliveries finished before " + threshold);
+                        } catch (Exception e) {
+                            play.Logger.warn("[Webhook] Failed to delete old deliveries", e);
+                        }
+                    }
+                },
+                Akka.system().dispatcher()
+        );
+    }
+
+    private static void startSchedule() {
+        final Long interval = Configuration.root()
+                .getMilliseconds("application.webhook.interval", 5 * 1000L);
+
+        Akka.system().scheduler().schedule(
+                Duration.create(interval, TimeUnit.MILLISECONDS),
+                Duration.create(interval, TimeUnit.MILLISECONDS),
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            deliverDue();
+                        } catch (Exception e) {
+                            play.Logger.warn("[Webhook] Error occurred while delivering webhooks", e);
+                        }
+                    }
+                },
+                Akka.system().dispatcher()
+        );
+    }
+
+    public static void onStart() {
+        Configuration config = Configuration.root();
+        maxAttempts = config.getInt("application.webhook.maxAttempts", maxAttempts);
+        initialBackoffMillis = config.getMilliseconds("application.webhook.initialBackoff", initialBackoffMillis);
+        maxBackoffMillis = config.getMilliseconds("application.webhook.maxBackoff", maxBackoffMillis);
+        timeoutMillis = config.getMilliseconds("application.webhook.timeout", (long) timeoutMillis).intValue();
+        concurrencyPerWebhook = config.getInt("application.webhook.concurrencyPerWebhook", concurrencyPerWebhook);
+        batchSize = config.getInt("application.webhook.batchSize", batchSize);
+        leaseMillis = Math.max(config.getMilliseconds("application.webhook.lease", leaseMillis),
+                2L * timeoutMillis);
+        retentionMillis = config.getMilliseconds("application.webhook.retention", retentionMillis);
+
+        startSchedule();
+        schedulePurge();
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models;
+
+import org.apache.commons.lang3.StringUtils;
+import play.db.ebean.Model;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * An attempt to deliver a {@link WebhookDelivery} to its payload URL.
+ */
+@Entity
+public class WebhookDeliveryAttempt extends Model {
+    private static final long serialVersionUID = 1L;
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    public static final Finder<Long, WebhookDeliveryAttempt> find = new Finder<>(Long.class, WebhookDeliveryAttempt.class);
+
+    @Id
+    public Long id;
+
+    @ManyToOne
+    public WebhookDelivery delivery;
+
+    public Date attemptedAt;
+
+    /**
+     * HTTP status code of the response, or 0 if no response has been received.
+     */
+    public int statusCode;
+
+    public long latencyMillis;
+
+    public String error;
+
+    public WebhookDeliveryAttempt(WebhookDelivery delivery, Date attemptedAt, int statusCode,
+                                  long latencyMillis, String error) {
+        this.delivery = delivery;
+        this.attemptedAt = attemptedAt;
+        this.statusCode = statusCode;
+        this.latencyMillis = latencyMillis;
+        this.error = StringUtils.abbreviate(error, MAX_ERROR_LENGTH);
+    }
+
+    public boolean isSuccessful() {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    public static List<WebhookDeliveryAttempt> findByDelivery(WebhookDelivery delivery) {
+        return find.where().eq("delivery.id", delivery.id).orderBy("id asc").findList();
+    }
+}
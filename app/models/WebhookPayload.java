@@ -0,0 +1,39 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models;
+
+import play.db.ebean.Model;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import java.util.Date;
+
+/**
+ * The body of an event sent to webhooks, stored once and shared by the
+ * {@link WebhookDelivery deliveries} of the event to every webhook of a
+ * project.
+ */
+@Entity
+public class WebhookPayload extends Model {
+    private static final long serialVersionUID = 1L;
+
+    public static final Finder<Long, WebhookPayload> find = new Finder<>(Long.class, WebhookPayload.class);
+
+    @Id
+    public Long id;
+
+    @Lob
+    public String body;
+
+    public Date createdAt;
+
+    public WebhookPayload(String body) {
+        this.body = body;
+        this.createdAt = new Date();
+    }
+}
@@ -27,6 +27,7 @@ import com.avaje.ebean.event.BeanPersistAdapter;
 import com.avaje.ebean.event.BeanPersistRequest;
 import models.Unwatch;
 import models.Watch;
+import models.WatcherIndex;
 
 /**
  * @see com.avaje.ebean.event.BeanPersistController
@@ -54,6 +55,7 @@ public class ResourcePersistAdapter extends BeanPersistAdapter {
         // delete related objects
         deleteRelatedWatch(resource, server, transaction);
         deleteRelatedUnwatch(resource, server, transaction);
+        WatcherIndex.invalidate(resource.getType(), resource.getId());
     }
 
     private void deleteRelatedWatch(Resource resource, EbeanServer server, Transaction transaction) {
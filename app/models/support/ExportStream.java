@@ -0,0 +1,85 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models.support;
+
+import play.Logger;
+
+import java.io.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams an export, written by another thread while it is read.
+ *
+ * The writer blocks while the reader is behind, so only a small buffer is
+ * held in memory regardless of the size of the export. Exports are written by
+ * a bounded pool of workers shared by {@link IssueExporter} and
+ * {@link ProjectExporter}; if all of them are busy and the queue is full, an
+ * export is rejected instead of starting another thread.
+ *
+ * If writing fails, the error is logged and the stream just ends, because
+ * the response has already begun. Each format has to let the reader tell
+ * such a truncated export from a complete one.
+ */
+public class ExportStream {
+    private static final int WORKERS = play.Configuration.root().getInt(
+            "application.export.workers", 4);
+
+    private static final int QUEUE_SIZE = play.Configuration.root().getInt(
+            "application.export.queueSize", 16);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            WORKERS, WORKERS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(QUEUE_SIZE),
+            new ThreadFactory() {
+                private final AtomicLong count = new AtomicLong();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "exporter-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    public interface Writer {
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * @param name   what is exported, for the log
+     * @param writer
+     * @return the stream to read the export from
+     * @throws IOException
+     * @throws RejectedExecutionException if too many exports are running
+     */
+    public static InputStream open(final String name, final Writer writer) throws IOException {
+        final PipedOutputStream out = new PipedOutputStream();
+        PipedInputStream in = new PipedInputStream(out, BUFFER_SIZE);
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try (OutputStream buffered = new BufferedOutputStream(out)) {
+                    writer.write(buffered);
+                } catch (IOException e) {
+                    Logger.warn("Failed to export " + name + "; the download may have been canceled", e);
+                } catch (RuntimeException e) {
+                    Logger.error("Failed to export " + name + "; the download is truncated", e);
+                }
+            }
+        });
+
+        return in;
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models.support;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded in-memory index of immutable entries, loaded on demand.
+ *
+ * An entry is changed by replacing it with a changed copy, with
+ * compare-and-set, so readers never see it half-changed and concurrent
+ * changes are not lost. Entries expire after a while to recover from
+ * changes made behind the index.
+ *
+ * The size and the expiration are read from {@code <prefix>.maximumSize} and
+ * {@code <prefix>.expiration} of the configuration.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the entries, which must be immutable
+ */
+public class InMemoryIndex<K, V> {
+    private static final long DEFAULT_EXPIRATION_MILLIS = 60 * 60 * 1000L;
+
+    private final int maximumSize;
+    private final Cache<K, V> cache;
+
+    public InMemoryIndex(String configPrefix, int defaultMaximumSize) {
+        maximumSize = play.Configuration.root().getInt(
+                configPrefix + ".maximumSize", defaultMaximumSize);
+        long expirationMillis = play.Configuration.root().getMilliseconds(
+                configPrefix + ".expiration", DEFAULT_EXPIRATION_MILLIS);
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expirationMillis, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @param key
+     * @param loader loads the entry if it is not in the index
+     * @return the entry of the given key
+     */
+    public V get(K key, Callable<V> loader) {
+        try {
+            return cache.get(key, loader);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Changes the entry of the given key only if it is in the index;
+     * otherwise it will be loaded with the change when it is needed.
+     *
+     * @param key
+     * @param change returns a changed copy of an entry, or the entry itself
+     */
+    public void update(K key, Function<V, V> change) {
+        ConcurrentMap<K, V> map = cache.asMap();
+        V old;
+        do {
+            old = map.get(key);
+            if (old == null) {
+                return;
+            }
+        } while (!map.replace(key, old, change.apply(old)));
+    }
+
+    /**
+     * Changes every entry in the index which satisfies the given condition.
+     */
+    public void updateAll(Predicate<V> condition, Function<V, V> change) {
+        for (Map.Entry<K, V> entry : cache.asMap().entrySet()) {
+            if (condition.apply(entry.getValue())) {
+                update(entry.getKey(), change);
+            }
+        }
+    }
+
+    public void invalidate(K key) {
+        cache.invalidate(key);
+    }
+
+    /**
+     * Removes every entry in the index which satisfies the given condition.
+     */
+    public void invalidateAll(Predicate<V> condition) {
+        for (Map.Entry<K, V> entry : cache.asMap().entrySet()) {
+            if (condition.apply(entry.getValue())) {
+                cache.invalidate(entry.getKey());
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return the entries in the index, as a live view
+     */
+    public Collection<V> values() {
+        return cache.asMap().values();
+    }
+
+    /**
+     * @return the number of the entries and the maximum, e.g. "12 / 1000"
+     */
+    public String getSizeStatistic() {
+        return cache.size() + " / " + maximumSize;
+    }
+
+    /**
+     * @return the hit rate and the number of lookups, e.g. "98.5% of 200 lookups"
+     */
+    public String getHitRateStatistic() {
+        CacheStats stats = cache.stats();
+        return String.format("%.1f%% of %d lookups", stats.hitRate() * 100, stats.requestCount());
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models.support;
+
+import com.avaje.ebean.bean.BeanCollection;
+import com.avaje.ebean.event.BeanPersistAdapter;
+import com.avaje.ebean.event.BeanPersistRequest;
+import models.Issue;
+import models.IssueLabel;
+
+import java.util.*;
+
+/**
+ * Keeps the issue counters of milestones and issue labels up to date whenever
+ * an issue is persisted, within the transaction of the change.
+ *
+ * The state, milestone and labels of an issue are loaded before it is updated
+ * or deleted, and compared with what it has after the change. Ebean saves the
+ * labels of an issue after this adapter is notified, so the labels after the
+ * change are taken from the issue itself, unless they have not been loaded
+ * and therefore cannot have been changed.
+ *
+ * @see IssueCounters
+ * @see com.avaje.ebean.event.BeanPersistAdapter
+ */
+public class IssueCounterPersistAdapter extends BeanPersistAdapter {
+    private static final ThreadLocal<Map<Long, IssueCounters.Snapshot>> before =
+            new ThreadLocal<Map<Long, IssueCounters.Snapshot>>() {
+                @Override
+                protected Map<Long, IssueCounters.Snapshot> initialValue() {
+                    return new HashMap<>();
+                }
+            };
+
+    @Override
+    public boolean isRegisterFor(Class<?> cls) {
+        return Issue.class.isAssignableFrom(cls);
+    }
+
+    @Override
+    public void postInsert(BeanPersistRequest<?> request) {
+        Issue issue = (Issue) request.getBean();
+        Set<Long> labelIds = labelIdsOf(issue);
+        IssueCounters.Snapshot after = new IssueCounters.Snapshot(issue.state,
+                issue.milestone != null ? issue.milestone.id : null,
+                labelIds != null ? labelIds : Collections.<Long>emptySet());
+        new IssueCounters.Delta().add(after)
+                .execute(request.getEbeanServer(), request.getTransaction());
+    }
+
+    @Override
+    public boolean preUpdate(BeanPersistRequest<?> request) {
+        remember(request);
+        return true;
+    }
+
+    @Override
+    public void postUpdate(BeanPersistRequest<?> request) {
+        Issue issue = (Issue) request.getBean();
+        IssueCounters.Snapshot old = before.get().remove(issue.id);
+        IssueCounters.Snapshot after = find(request);
+        if (old == null || after == null) {
+            return;
+        }
+
+        Set<Long> labelIds = labelIdsOf(issue);
+        if (labelIds == null) {
+            labelIds = old.labelIds;
+        }
+        after = new IssueCounters.Snapshot(after.state, after.milestoneId, labelIds);
+        new IssueCounters.Delta().remove(old).add(after)
+                .execute(request.getEbeanServer(), request.getTransaction());
+    }
+
+    @Override
+    public boolean preDelete(BeanPersistRequest<?> request) {
+        remember(request);
+        return true;
+    }
+
+    @Override
+    public void postDelete(BeanPersistRequest<?> request) {
+        IssueCounters.Snapshot old = before.get().remove(((Issue) request.getBean()).id);
+        new IssueCounters.Delta().remove(old)
+                .execute(request.getEbeanServer(), request.getTransaction());
+    }
+
+    private void remember(BeanPersistRequest<?> request) {
+        Issue issue = (Issue) request.getBean();
+        IssueCounters.Snapshot snapshot = find(request);
+        if (snapshot != null) {
+            before.get().put(issue.id, snapshot);
+        }
+    }
+
+    private IssueCounters.Snapshot find(BeanPersistRequest<?> request) {
+        Long id = ((Issue) request.getBean()).id;
+        if (id == null) {
+            return null;
+        }
+        return IssueCounters.find(Collections.singleton(id),
+                request.getEbeanServer(), request.getTransaction()).get(id);
+    }
+
+    /**
+     * Returns the ids of the labels which Ebean will save with the issue, or
+     * {@code null} if they are not going to be saved.
+     */
+    private static Set<Long> labelIdsOf(Issue issue) {
+        if (issue.labels == null) {
+            return null;
+        }
+        if (issue.labels instanceof BeanCollection
+                && !((BeanCollection<?>) issue.labels).isPopulated()) {
+            return null;
+        }
+        Set<Long> ids = new HashSet<>();
+        for (IssueLabel label : issue.labels) {
+            if (label != null && label.id != null) {
+                ids.add(label.id);
+            }
+        }
+        return ids;
+    }
+}
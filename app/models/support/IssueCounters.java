@@ -0,0 +1,242 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models.support;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.EbeanServer;
+import com.avaje.ebean.SqlRow;
+import com.avaje.ebean.SqlUpdate;
+import com.avaje.ebean.Transaction;
+import models.enumeration.State;
+import org.apache.commons.lang3.StringUtils;
+import play.libs.Akka;
+import scala.concurrent.duration.Duration;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains the number of open and closed issues stored in each milestone and
+ * issue label, so that the milestone and label lists do not have to count
+ * issues on every view.
+ *
+ * When an issue is inserted, updated or deleted, its state, milestone and
+ * labels before and after the change are compared, and only the counters of
+ * the milestones and labels which it has left or joined are increased or
+ * decreased, in the same transaction. A scheduled repair job recomputes all
+ * of them once a day in case some issues have been changed outside of Ebean.
+ *
+ * @see IssueCounterPersistAdapter
+ */
+public class IssueCounters {
+    private static final String MILESTONE_COUNTERS_SQL = "update milestone set " +
+            "num_open_issues = (select count(*) from issue " +
+            "where issue.milestone_id = milestone.id and issue.state = :open), " +
+            "num_closed_issues = (select count(*) from issue " +
+            "where issue.milestone_id = milestone.id and issue.state = :closed)";
+
+    private static final String LABEL_COUNTERS_SQL = "update issue_label set " +
+            "num_open_issues = (select count(*) from issue_issue_label " +
+            "join issue on issue.id = issue_issue_label.issue_id " +
+            "where issue_issue_label.issue_label_id = issue_label.id and issue.state = :open), " +
+            "num_closed_issues = (select count(*) from issue_issue_label " +
+            "join issue on issue.id = issue_issue_label.issue_id " +
+            "where issue_issue_label.issue_label_id = issue_label.id and issue.state = :closed)";
+
+    private static final String DELTA_SQL = " set num_open_issues = num_open_issues + :open, " +
+            "num_closed_issues = num_closed_issues + :closed where id = :id";
+
+    /**
+     * The state, milestone and labels of an issue, which decide the counters
+     * it is counted in.
+     */
+    public static class Snapshot {
+        final State state;
+        final Long milestoneId;
+        final Set<Long> labelIds;
+
+        public Snapshot(State state, @Nullable Long milestoneId, Set<Long> labelIds) {
+            this.state = state;
+            this.milestoneId = milestoneId;
+            this.labelIds = labelIds;
+        }
+    }
+
+    /**
+     * The changes of the counters, to be added up before they are written.
+     */
+    public static class Delta {
+        private final Map<Long, int[]> milestones = new HashMap<>();
+        private final Map<Long, int[]> labels = new HashMap<>();
+
+        /**
+         * Counts the issue of the given snapshot out, as it was before a
+         * change.
+         */
+        public Delta remove(@Nullable Snapshot snapshot) {
+            return add(snapshot, -1);
+        }
+
+        /**
+         * Counts the issue of the given snapshot in, as it is after a change.
+         */
+        public Delta add(@Nullable Snapshot snapshot) {
+            return add(snapshot, 1);
+        }
+
+        private Delta add(@Nullable Snapshot snapshot, int sign) {
+            if (snapshot == null || !isCounted(snapshot.state)) {
+                return this;
+            }
+            int index = snapshot.state == State.OPEN ? 0 : 1;
+            if (snapshot.milestoneId != null) {
+                counterOf(milestones, snapshot.milestoneId)[index] += sign;
+            }
+            for (Long labelId : snapshot.labelIds) {
+                counterOf(labels, labelId)[index] += sign;
+            }
+            return this;
+        }
+
+        /**
+         * Writes the counters which have changed, with an update for each of
+         * their milestones and labels.
+         */
+        public void execute() {
+            execute(Ebean.getServer(null), null);
+        }
+
+        void execute(EbeanServer server, @Nullable Transaction transaction) {
+            execute(server, transaction, "milestone", milestones);
+            execute(server, transaction, "issue_label", labels);
+        }
+
+        private static void execute(EbeanServer server, @Nullable Transaction transaction,
+                                    String table, Map<Long, int[]> counters) {
+            for (Map.Entry<Long, int[]> entry : counters.entrySet()) {
+                int[] counter = entry.getValue();
+                if (counter[0] == 0 && counter[1] == 0) {
+                    continue;
+                }
+                SqlUpdate update = server.createSqlUpdate("update " + table + DELTA_SQL)
+                        .setParameter("open", counter[0])
+                        .setParameter("closed", counter[1])
+                        .setParameter("id", entry.getKey());
+                if (transaction != null) {
+                    server.execute(update, transaction);
+                } else {
+                    server.execute(update);
+                }
+            }
+        }
+
+        private static int[] counterOf(Map<Long, int[]> counters, Long id) {
+            int[] counter = counters.get(id);
+            if (counter == null) {
+                counter = new int[2];
+                counters.put(id, counter);
+            }
+            return counter;
+        }
+    }
+
+    private static boolean isCounted(State state) {
+        return state == State.OPEN || state == State.CLOSED;
+    }
+
+    /**
+     * Loads the snapshots of the given issues as they are in the database,
+     * with a query for the issues and another for their labels.
+     *
+     * @param issueIds
+     * @return the snapshots by the ids of the issues
+     */
+    public static Map<Long, Snapshot> find(Collection<Long> issueIds) {
+        return find(issueIds, Ebean.getServer(null), null);
+    }
+
+    static Map<Long, Snapshot> find(Collection<Long> issueIds, EbeanServer server,
+                                    @Nullable Transaction transaction) {
+        Map<Long, Snapshot> result = new HashMap<>();
+        if (issueIds.isEmpty()) {
+            return result;
+        }
+
+        // The ids come from the database, so they are safe to be inlined.
+        String ids = "(" + StringUtils.join(issueIds, ",") + ")";
+        Map<Long, Set<Long>> labelIds = new HashMap<>();
+        for (SqlRow row : findRows(server, transaction, "select issue_id, issue_label_id " +
+                "from issue_issue_label where issue_id in " + ids)) {
+            Long issueId = row.getLong("issue_id");
+            Set<Long> set = labelIds.get(issueId);
+            if (set == null) {
+                set = new HashSet<>();
+                labelIds.put(issueId, set);
+            }
+            set.add(row.getLong("issue_label_id"));
+        }
+
+        State[] states = State.values();
+        for (SqlRow row : findRows(server, transaction, "select id, state, milestone_id " +
+                "from issue where id in " + ids)) {
+            Long issueId = row.getLong("id");
+            Integer state = row.getInteger("state");
+            Set<Long> labels = labelIds.get(issueId);
+            result.put(issueId, new Snapshot(
+                    state != null ? states[state] : null,
+                    row.getLong("milestone_id"),
+                    labels != null ? labels : Collections.<Long>emptySet()));
+        }
+        return result;
+    }
+
+    private static List<SqlRow> findRows(EbeanServer server, @Nullable Transaction transaction,
+                                         String sql) {
+        if (transaction != null) {
+            return server.findList(server.createSqlQuery(sql), transaction);
+        }
+        return server.createSqlQuery(sql).findList();
+    }
+
+    /**
+     * Recomputes the counters of every milestone and issue label.
+     */
+    public static void refreshAll() {
+        Ebean.execute(countersUpdate(MILESTONE_COUNTERS_SQL));
+        Ebean.execute(countersUpdate(LABEL_COUNTERS_SQL));
+    }
+
+    private static SqlUpdate countersUpdate(String sql) {
+        return Ebean.createSqlUpdate(sql)
+                .setParameter("open", State.OPEN.ordinal())
+                .setParameter("closed", State.CLOSED.ordinal());
+    }
+
+    private static void scheduleRepair() {
+        Akka.system().scheduler().schedule(
+                Duration.create(1, TimeUnit.MINUTES),
+                Duration.create(1, TimeUnit.DAYS),
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            refreshAll();
+                            play.Logger.info("Issue counters of milestones and labels are repaired");
+                        } catch (Exception e) {
+                            play.Logger.warn("Failed to repair issue counters of milestones and labels", e);
+                        }
+                    }
+                },
+                Akka.system().dispatcher()
+        );
+    }
+
+    public static void onStart() {
+        scheduleRepair();
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models.support;
+
+import com.avaje.ebean.ExpressionList;
+import models.Issue;
+import models.IssueLabel;
+import org.apache.commons.lang3.StringUtils;
+import utils.XlsxWriter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Exports the issues matching a search condition as CSV or XLSX.
+ *
+ * Only the ids of the issues are loaded up front, in the order of the search.
+ * The issues are then loaded batch by batch with their assignees, milestones
+ * and labels, and written to the stream, so neither the whole list of issues
+ * nor the whole file is held in memory.
+ */
+public class IssueExporter {
+    public static final int BATCH_SIZE = play.Configuration.root().getInt(
+            "application.issue.export.batchSize", 500);
+
+    private static final String[] HEADER = {"ID", "STATE", "TITLE", "ASSIGNEE", "MILESTONE", "LABELS", "DATE"};
+
+    public enum Format {
+        CSV("csv", "text/csv; charset=utf-8"),
+        XLSX("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+        public final String extension;
+        public final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+    }
+
+    private final List<Object> ids;
+
+    public IssueExporter(ExpressionList<Issue> el) {
+        this.ids = el.findIds();
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Writes the issues in the given format to the given stream.
+     *
+     * @param format
+     * @param out
+     * @throws IOException
+     */
+    public void write(Format format, OutputStream out) throws IOException {
+        switch (format) {
+            case CSV:
+                writeCsv(out);
+                break;
+            case XLSX:
+                writeXlsx(out);
+                break;
+        }
+    }
+
+    /**
+     * Returns a stream of the exported file, written by another thread while
+     * it is read.
+     *
+     * @param format
+     * @return the stream to read the file from
+     * @throws IOException
+     * @throws RejectedExecutionException if too many exports are running
+     * @see ExportStream
+     */
+    public InputStream stream(final Format format) throws IOException {
+        return ExportStream.open("issues", new ExportStream.Writer() {
+            @Override
+            public void write(OutputStream out) throws IOException {
+                IssueExporter.this.write(format, out);
+            }
+        });
+    }
+
+    private void writeCsv(OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        // BOM for spreadsheet applications to detect UTF-8
+        writer.write('\uFEFF');
+        writeCsvRow(writer, (Object[]) HEADER);
+
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            for (Issue issue : findBatch(from)) {
+                Object[] row = toRow(issue);
+                row[row.length - 1] = issue.createdDate == null ? null : dateFormat.format(issue.createdDate);
+                writeCsvRow(writer, row);
+            }
+            writer.flush();
+        }
+        writer.flush();
+    }
+
+    private static void writeCsvRow(Writer writer, Object... cells) throws IOException {
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (cells[i] != null) {
+                String value = escapeFormula(cells[i]);
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Prefixes a text which a spreadsheet application would take as a formula
+     * with a quote, so that opening the file does not run it.
+     */
+    static String escapeFormula(Object cell) {
+        String value = cell.toString();
+        if (cell instanceof String && !value.isEmpty()
+                && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            return "'" + value;
+        }
+        return value;
+    }
+
+    private void writeXlsx(OutputStream out) throws IOException {
+        XlsxWriter writer = new XlsxWriter(out, "issues");
+        writer.writeRow((Object[]) HEADER);
+
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            for (Issue issue : findBatch(from)) {
+                writer.writeRow(toRow(issue));
+            }
+        }
+        writer.close();
+    }
+
+    private static Object[] toRow(Issue issue) {
+        List<String> labels = new ArrayList<>();
+        if (issue.labels != null) {
+            for (IssueLabel label : issue.labels) {
+                labels.add(label.name);
+            }
+            Collections.sort(labels);
+        }
+
+        return new Object[] {
+                issue.id,
+                issue.state == null ? null : issue.state.toString(),
+                issue.title,
+                (issue.assignee != null && issue.assignee.user != null)
+                        ? issue.assignee.user.name : Issue.TO_BE_ASSIGNED,
+                issue.milestone == null ? null : issue.milestone.title,
+                StringUtils.join(labels, ", "),
+                issue.createdDate
+        };
+    }
+
+    /**
+     * Loads the batch of the issues from the given index with what the rows
+     * need, in the order of the search.
+     */
+    private List<Issue> findBatch(int from) {
+        List<Object> batchIds = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+
+        List<Issue> found = Issue.finder
+                .fetch("assignee")
+                .fetch("assignee.user", "name")
+                .fetch("milestone", "title")
+                .fetch("labels", "name")
+                .where().idIn(batchIds)
+                .findList();
+
+        Map<Object, Issue> byId = new HashMap<>();
+        for (Issue issue : found) {
+            byId.put(issue.id, issue);
+        }
+
+        List<Issue> batch = new ArrayList<>(batchIds.size());
+        for (Object id : batchIds) {
+            Issue issue = byId.get(id);
+            if (issue != null) {
+                batch.add(issue);
+            }
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,306 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models.support;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.SqlUpdate;
+import com.avaje.ebean.TxRunnable;
+import models.*;
+import models.enumeration.Operation;
+import models.enumeration.State;
+import org.apache.commons.lang3.StringUtils;
+import utils.AccessControl;
+import utils.JodaDateUtil;
+
+import java.util.*;
+
+/**
+ * Applies an {@link IssueMassUpdate} to the issues selected in a project.
+ *
+ * The selected issues are loaded {@link #BATCH_SIZE} at a time with their
+ * assignees. Each batch is changed by a single update of the issues and a
+ * statement for each label attached or detached. The issue counters of the
+ * milestones and labels which the batch has left or joined are changed by
+ * the difference, and the notifications and the issue events of the issues
+ * whose state or assignee has changed are added together. All of this is
+ * done in one transaction, so a mass update is applied entirely or not at
+ * all.
+ *
+ * Deleted issues are still deleted one by one, because each of them takes its
+ * comments and attachments with it.
+ */
+public class IssueMassUpdater {
+    public static final int BATCH_SIZE = play.Configuration.root().getInt(
+            "application.issue.massUpdate.batchSize", 500);
+
+    private final Project project;
+    private final User user;
+    private final IssueMassUpdate massUpdate;
+
+    private Boolean allowedForAllIssues;
+    private Assignee newAssignee;
+
+    private int total;
+    private int deleted;
+    private int rejected;
+    private final List<Issue> updatedIssues = new ArrayList<>();
+
+    /**
+     * @param project    the project of the selected issues
+     * @param user       the user who updates them
+     * @param massUpdate
+     */
+    public IssueMassUpdater(Project project, User user, IssueMassUpdate massUpdate) {
+        this.project = project;
+        this.user = user;
+        this.massUpdate = massUpdate;
+    }
+
+    /**
+     * Updates or deletes the selected issues which the user is allowed to.
+     */
+    public void run() {
+        final List<Long> ids = findSelectedIds();
+        total = ids.size();
+
+        Ebean.execute(new TxRunnable() {
+            @Override
+            public void run() {
+                if (!massUpdate.delete && massUpdate.assignee != null
+                        && !massUpdate.assignee.isAnonymous()) {
+                    newAssignee = Assignee.add(massUpdate.assignee.id, project.id);
+                }
+
+                for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+                    List<Long> batch = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+                    List<Issue> issues = Issue.finder
+                            .fetch("assignee")
+                            .fetch("assignee.user")
+                            .where()
+                            .eq("project.id", project.id)
+                            .idIn(batch)
+                            .findList();
+                    // The issues which are not found in the project are not
+                    // allowed to be changed through it.
+                    rejected += batch.size() - issues.size();
+
+                    if (massUpdate.delete) {
+                        delete(issues);
+                    } else {
+                        update(issues);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the number of the selected issues
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    public int getUpdated() {
+        return updatedIssues.size();
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return the number of the selected issues which the user is not
+     *         allowed to update or delete
+     */
+    public int getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return the updated issues, as they have been updated
+     */
+    public List<Issue> getUpdatedIssues() {
+        return updatedIssues;
+    }
+
+    private List<Long> findSelectedIds() {
+        Set<Long> ids = new LinkedHashSet<>();
+        if (massUpdate.issues != null) {
+            for (Issue issue : massUpdate.issues) {
+                if (issue != null && issue.id != null) {
+                    ids.add(issue.id);
+                }
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private boolean isAllowed(Issue issue, Operation operation) {
+        if (allowedForAllIssues == null) {
+            allowedForAllIssues = AccessControl.isAllowedForAllIssues(user, project, operation);
+        }
+        return allowedForAllIssues || AccessControl.isAllowed(user, issue.asResource(), operation);
+    }
+
+    private void delete(List<Issue> issues) {
+        for (Issue issue : issues) {
+            if (isAllowed(issue, Operation.DELETE)) {
+                issue.delete();
+                deleted++;
+            } else {
+                rejected++;
+            }
+        }
+    }
+
+    private void update(List<Issue> issues) {
+        List<Issue> allowed = new ArrayList<>();
+        for (Issue issue : issues) {
+            if (isAllowed(issue, Operation.UPDATE)) {
+                allowed.add(issue);
+            } else {
+                rejected++;
+            }
+        }
+        if (allowed.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = new ArrayList<>();
+        for (Issue issue : allowed) {
+            ids.add(issue.id);
+        }
+        // The ids come from the database, so they are safe to be inlined.
+        String inIssues = "(" + StringUtils.join(ids, ",") + ")";
+        Date now = JodaDateUtil.now();
+        Date dueDate = JodaDateUtil.lastSecondOfDay(massUpdate.dueDate);
+        Map<Long, IssueCounters.Snapshot> before = IssueCounters.find(ids);
+        updateIssues(inIssues, now, dueDate);
+        updateLabels(inIssues);
+        updateCounters(before, IssueCounters.find(ids));
+
+        List<NotificationEvent> notiEvents = new ArrayList<>();
+        List<Issue> changedIssues = new ArrayList<>();
+        for (Issue issue : allowed) {
+            boolean assigneeChanged = massUpdate.assignee != null
+                    && !issue.assignedUserEquals(newAssignee);
+            User oldAssignee = issue.assignee != null ? issue.assignee.user : null;
+            boolean stateChanged = massUpdate.state != null && issue.state != massUpdate.state;
+            State oldState = issue.state;
+
+            // The loaded issue is changed as it has been, for the events.
+            if (massUpdate.assignee != null) {
+                issue.assignee = newAssignee;
+            }
+            if (massUpdate.state != null) {
+                issue.state = massUpdate.state;
+            }
+            if (massUpdate.milestone != null) {
+                issue.milestone = massUpdate.milestone.isNullMilestone() ? null : massUpdate.milestone;
+            }
+            if (massUpdate.isDueDateChanged) {
+                issue.dueDate = dueDate;
+            }
+            issue.updatedDate = now;
+            updatedIssues.add(issue);
+
+            if (assigneeChanged) {
+                notiEvents.add(NotificationEvent.forAssigneeChanged(oldAssignee, issue, user));
+                changedIssues.add(issue);
+            }
+            if (stateChanged) {
+                notiEvents.add(NotificationEvent.forStateChanged(oldState, issue, user));
+                changedIssues.add(issue);
+            }
+        }
+
+        NotificationEvent.addAll(notiEvents);
+        List<IssueEvent> issueEvents = new ArrayList<>();
+        for (int i = 0; i < notiEvents.size(); i++) {
+            issueEvents.add(IssueEvent.fromNotificationEvent(
+                    notiEvents.get(i), changedIssues.get(i), user.loginId));
+        }
+        IssueEvent.addAll(issueEvents);
+    }
+
+    private void updateIssues(String inIssues, Date now, Date dueDate) {
+        StringBuilder sql = new StringBuilder("update issue set updated_date = :now");
+        if (massUpdate.state != null) {
+            sql.append(", state = :state");
+        }
+        if (massUpdate.assignee != null) {
+            sql.append(newAssignee != null ? ", assignee_id = :assignee" : ", assignee_id = null");
+        }
+        boolean milestoneCleared = massUpdate.milestone != null && massUpdate.milestone.isNullMilestone();
+        if (massUpdate.milestone != null) {
+            sql.append(milestoneCleared ? ", milestone_id = null" : ", milestone_id = :milestone");
+        }
+        if (massUpdate.isDueDateChanged) {
+            sql.append(dueDate != null ? ", due_date = :dueDate" : ", due_date = null");
+        }
+        sql.append(" where id in ").append(inIssues);
+
+        SqlUpdate update = Ebean.createSqlUpdate(sql.toString()).setParameter("now", now);
+        if (massUpdate.state != null) {
+            update.setParameter("state", massUpdate.state.ordinal());
+        }
+        if (newAssignee != null) {
+            update.setParameter("assignee", newAssignee.id);
+        }
+        if (massUpdate.milestone != null && !milestoneCleared) {
+            update.setParameter("milestone", massUpdate.milestone.id);
+        }
+        if (massUpdate.isDueDateChanged && dueDate != null) {
+            update.setParameter("dueDate", dueDate);
+        }
+        update.execute();
+    }
+
+    private static void updateCounters(Map<Long, IssueCounters.Snapshot> before,
+                                       Map<Long, IssueCounters.Snapshot> after) {
+        IssueCounters.Delta delta = new IssueCounters.Delta();
+        for (IssueCounters.Snapshot snapshot : before.values()) {
+            delta.remove(snapshot);
+        }
+        for (IssueCounters.Snapshot snapshot : after.values()) {
+            delta.add(snapshot);
+        }
+        delta.execute();
+    }
+
+    private void updateLabels(String inIssues) {
+        for (Object labelId : findLabelIds(massUpdate.attachingLabelIds)) {
+            Ebean.createSqlUpdate("insert into issue_issue_label (issue_id, issue_label_id) "
+                    + "select id, " + labelId + " from issue where id in " + inIssues
+                    + " and id not in (select issue_id from issue_issue_label"
+                    + " where issue_label_id = " + labelId + ")")
+                    .execute();
+        }
+
+        List<Object> detachingLabelIds = findLabelIds(massUpdate.detachingLabelIds);
+        if (!detachingLabelIds.isEmpty()) {
+            Ebean.createSqlUpdate("delete from issue_issue_label"
+                    + " where issue_label_id in (" + StringUtils.join(detachingLabelIds, ",") + ")"
+                    + " and issue_id in " + inIssues)
+                    .execute();
+        }
+    }
+
+    /**
+     * Returns the ids of the given labels which are labels of the project.
+     */
+    private List<Object> findLabelIds(List<Long> labelIds) {
+        if (labelIds == null || labelIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return IssueLabel.finder.where()
+                .eq("project.id", project.id)
+                .idIn(labelIds)
+                .findIds();
+    }
+}
@@ -0,0 +1,405 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models.support;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.SqlRow;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import models.Issue;
+import models.Project;
+import models.User;
+import models.enumeration.ResourceType;
+import org.apache.commons.lang3.StringUtils;
+import play.libs.Json;
+import utils.Constants;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.Callable;
+
+/**
+ * The mention list of comment boxes for each project, kept as JSON: the
+ * members, authors and watchers of the project, and its latest issues, or
+ * those of its original project for a fork.
+ *
+ * {@link MentionIndexPersistAdapter} adds new users and issues to the lists
+ * in place, and drops a list when something is removed from it.
+ */
+public class MentionIndex {
+    public static final int ISSUE_LIMIT = 2000;
+
+    private static final int ID_CHUNK_SIZE = 1000;
+
+    private static final String AUTHORS_AND_WATCHERS_SQL =
+            "select author_id user_id from issue where project_id = :projectId " +
+            "union select author_id user_id from posting where project_id = :projectId " +
+            "union select contributor_id user_id from pull_request where to_project_id = :projectId " +
+            "union select user_id from watch where resource_type = :resourceType " +
+            "and resource_id = :resourceId";
+
+    private static final InMemoryIndex<Long, Candidates> index =
+            new InMemoryIndex<>("application.mention.index", 1000);
+
+    /**
+     * The users and issues which may be mentioned in a project. Immutable;
+     * the JSON nodes are shared by every response and must not be modified.
+     */
+    public static class Candidates {
+        private final Long issueProjectId;
+        private final Long organizationId;
+        private final Map<String, ObjectNode> users;
+        private final List<ObjectNode> issues;
+
+        Candidates(Long issueProjectId, @Nullable Long organizationId,
+                   Map<String, ObjectNode> users, List<ObjectNode> issues) {
+            this.issueProjectId = issueProjectId;
+            this.organizationId = organizationId;
+            this.users = Collections.unmodifiableMap(users);
+            this.issues = Collections.unmodifiableList(issues);
+        }
+
+        /**
+         * @return the users by their login ids, in the order to be shown
+         */
+        public Map<String, ObjectNode> getUsers() {
+            return users;
+        }
+
+        /**
+         * @return the issues, the latest first
+         */
+        public List<ObjectNode> getIssues() {
+            return issues;
+        }
+
+        Candidates withUser(User user) {
+            if (!isMentionable(user) || users.containsKey(user.loginId)) {
+                return this;
+            }
+            Map<String, ObjectNode> newUsers = new LinkedHashMap<>(users);
+            newUsers.put(user.loginId, toJson(user));
+            return new Candidates(issueProjectId, organizationId, newUsers, issues);
+        }
+
+        Candidates withNewIssue(Issue issue) {
+            List<ObjectNode> newIssues = new ArrayList<>(issues.size() + 1);
+            newIssues.add(toJson(issue));
+            for (ObjectNode node : issues) {
+                if (newIssues.size() >= ISSUE_LIMIT) {
+                    break;
+                }
+                if (!isIssue(node, issue.getNumber())) {
+                    newIssues.add(node);
+                }
+            }
+            return new Candidates(issueProjectId, organizationId, users, newIssues);
+        }
+
+        Candidates withUpdatedIssue(Issue issue) {
+            List<ObjectNode> newIssues = new ArrayList<>(issues);
+            for (int i = 0; i < newIssues.size(); i++) {
+                if (isIssue(newIssues.get(i), issue.getNumber())) {
+                    newIssues.set(i, toJson(issue));
+                    return new Candidates(issueProjectId, organizationId, users, newIssues);
+                }
+            }
+            return this;
+        }
+
+        Candidates withoutIssue(Long number) {
+            List<ObjectNode> newIssues = new ArrayList<>(issues);
+            for (Iterator<ObjectNode> it = newIssues.iterator(); it.hasNext(); ) {
+                if (isIssue(it.next(), number)) {
+                    it.remove();
+                    return new Candidates(issueProjectId, organizationId, users, newIssues);
+                }
+            }
+            return this;
+        }
+
+        private static boolean isIssue(ObjectNode node, Long number) {
+            return number != null && node.get("issueNo").asText().equals(number.toString());
+        }
+    }
+
+    private MentionIndex() {
+    }
+
+    /**
+     * @param project
+     * @return the candidates of the given project, loaded from the database
+     *         if they are not in the index
+     */
+    public static Candidates get(final Project project) {
+        return index.get(project.id, new Callable<Candidates>() {
+            @Override
+            public Candidates call() {
+                return load(project);
+            }
+        });
+    }
+
+    /**
+     * Filters the given candidates by the beginning of the login ids and the
+     * names of users, and of the numbers and the words of the titles of
+     * issues.
+     *
+     * @param nodes the users or the issues
+     * @param query
+     * @param limit the maximum number of the candidates to return
+     * @return the matching candidates, in the given order
+     */
+    public static List<ObjectNode> filter(Collection<ObjectNode> nodes, String query, int limit) {
+        List<ObjectNode> result = new ArrayList<>();
+        String prefix = query.toLowerCase();
+        for (ObjectNode node : nodes) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (matches(node, "loginid", prefix) || matches(node, "username", prefix)
+                    || matches(node, "issueNo", prefix) || matches(node, "title", prefix)) {
+                result.add(node);
+            }
+        }
+        return result;
+    }
+
+    private static boolean matches(ObjectNode node, String field, String prefix) {
+        if (!node.has(field)) {
+            return false;
+        }
+        for (String word : StringUtils.split(node.get(field).asText().toLowerCase())) {
+            if (word.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Candidates load(Project project) {
+        Project issueProject = project.isForkedFromOrigin() ? project.originalProject : project;
+        Long organizationId = project.organization != null ? project.organization.id : null;
+
+        Set<Long> userIds = new LinkedHashSet<>();
+        userIds.addAll(findUserIds("select user_id from project_user where project_id = :id",
+                project.id));
+        if (project.hasGroup()) {
+            userIds.addAll(findUserIds(
+                    "select user_id from organization_user where organization_id = :id",
+                    organizationId));
+        }
+        userIds.addAll(findAuthorAndWatcherIds(project));
+
+        Map<String, ObjectNode> users = new LinkedHashMap<>();
+        for (User user : findUsers(userIds)) {
+            if (isMentionable(user)) {
+                users.put(user.loginId, toJson(user));
+            }
+        }
+
+        List<ObjectNode> issues = new ArrayList<>();
+        for (Issue issue : Issue.finder.where()
+                .eq("project.id", issueProject.id)
+                .orderBy("createdDate desc")
+                .setMaxRows(ISSUE_LIMIT)
+                .findList()) {
+            issues.add(toJson(issue));
+        }
+
+        return new Candidates(issueProject.id, organizationId, users, issues);
+    }
+
+    private static List<Long> findUserIds(String sql, Long id) {
+        List<Long> ids = new ArrayList<>();
+        for (SqlRow row : Ebean.createSqlQuery(sql).setParameter("id", id).findList()) {
+            if (row.getLong("user_id") != null) {
+                ids.add(row.getLong("user_id"));
+            }
+        }
+        return ids;
+    }
+
+    private static List<Long> findAuthorAndWatcherIds(Project project) {
+        List<Long> ids = new ArrayList<>();
+        for (SqlRow row : Ebean.createSqlQuery(AUTHORS_AND_WATCHERS_SQL)
+                .setParameter("projectId", project.id)
+                .setParameter("resourceType", ResourceType.PROJECT.name())
+                .setParameter("resourceId", project.id.toString())
+                .findList()) {
+            if (row.getLong("user_id") != null) {
+                ids.add(row.getLong("user_id"));
+            }
+        }
+        return ids;
+    }
+
+    // Loads the users by chunks of ids, in the order of the given ids.
+    private static List<User> findUsers(Set<Long> ids) {
+        Map<Long, User> usersById = new HashMap<>();
+        List<Long> idList = new ArrayList<>(ids);
+        for (int from = 0; from < idList.size(); from += ID_CHUNK_SIZE) {
+            List<Long> chunk = idList.subList(from, Math.min(from + ID_CHUNK_SIZE, idList.size()));
+            for (User user : User.find.where().idIn(chunk).findList()) {
+                usersById.put(user.id, user);
+            }
+        }
+
+        List<User> users = new ArrayList<>();
+        for (Long id : idList) {
+            if (usersById.containsKey(id)) {
+                users.add(usersById.get(id));
+            }
+        }
+        return users;
+    }
+
+    /**
+     * @param user
+     * @return false for nobody, the anonymous and the site admin
+     */
+    public static boolean isMentionable(@Nullable User user) {
+        return user != null && !user.isAnonymous() && user.loginId != null
+                && !user.loginId.equals(Constants.ADMIN_LOGIN_ID);
+    }
+
+    /**
+     * @param user
+     * @return the user as an item of the mention list
+     */
+    public static ObjectNode toJson(User user) {
+        ObjectNode node = Json.newObject();
+        node.put("loginid", user.loginId);
+        node.put("username", user.name);
+        node.put("name", user.name + user.loginId);
+        node.put("image", user.avatarUrl());
+        return node;
+    }
+
+    private static ObjectNode toJson(Issue issue) {
+        ObjectNode node = Json.newObject();
+        node.put("name", issue.getNumber().toString() + issue.title);
+        node.put("issueNo", issue.getNumber().toString());
+        node.put("title", issue.title);
+        return node;
+    }
+
+    static void onUser(Long projectId, User user) {
+        if (projectId != null) {
+            index.update(projectId, withUser(user));
+        }
+    }
+
+    static void onGroupMember(Long organizationId, User user) {
+        index.updateAll(inGroup(organizationId), withUser(user));
+    }
+
+    static void onNewIssue(Long projectId, final Issue issue) {
+        updateIssues(projectId, new Function<Candidates, Candidates>() {
+            @Override
+            public Candidates apply(Candidates candidates) {
+                return candidates.withNewIssue(issue);
+            }
+        });
+    }
+
+    static void onUpdatedIssue(Long projectId, final Issue issue) {
+        updateIssues(projectId, new Function<Candidates, Candidates>() {
+            @Override
+            public Candidates apply(Candidates candidates) {
+                return candidates.withUpdatedIssue(issue);
+            }
+        });
+    }
+
+    static void onDeletedIssue(Long projectId, final Long number) {
+        updateIssues(projectId, new Function<Candidates, Candidates>() {
+            @Override
+            public Candidates apply(Candidates candidates) {
+                return candidates.withoutIssue(number);
+            }
+        });
+    }
+
+    private static Function<Candidates, Candidates> withUser(final User user) {
+        return new Function<Candidates, Candidates>() {
+            @Override
+            public Candidates apply(Candidates candidates) {
+                return candidates.withUser(user);
+            }
+        };
+    }
+
+    // The issues of a project are also the issues of its forks.
+    private static void updateIssues(final Long issueProjectId,
+                                     Function<Candidates, Candidates> change) {
+        if (issueProjectId == null) {
+            return;
+        }
+        index.updateAll(new Predicate<Candidates>() {
+            @Override
+            public boolean apply(Candidates candidates) {
+                return issueProjectId.equals(candidates.issueProjectId);
+            }
+        }, change);
+    }
+
+    private static Predicate<Candidates> inGroup(final Long organizationId) {
+        return new Predicate<Candidates>() {
+            @Override
+            public boolean apply(Candidates candidates) {
+                return organizationId.equals(candidates.organizationId);
+            }
+        };
+    }
+
+    /**
+     * Removes the entry of the given project, e.g. when one of its members
+     * leaves.
+     */
+    public static void invalidate(Long projectId) {
+        if (projectId != null) {
+            index.invalidate(projectId);
+        }
+    }
+
+    /**
+     * Removes the entries of the projects of the given group.
+     */
+    public static void invalidateGroup(Long organizationId) {
+        if (organizationId != null) {
+            index.invalidateAll(inGroup(organizationId));
+        }
+    }
+
+    public static void invalidateAll() {
+        index.invalidateAll();
+    }
+
+    public static void onStart() {
+        invalidateAll();
+    }
+
+    /**
+     * @return the size and hit rate of the index
+     */
+    public static Map<String, String> getStatistics() {
+        long users = 0;
+        long issues = 0;
+        for (Candidates candidates : index.values()) {
+            users += candidates.users.size();
+            issues += candidates.issues.size();
+        }
+
+        Map<String, String> statistics = new LinkedHashMap<>();
+        statistics.put("Mention index: projects", index.getSizeStatistic());
+        statistics.put("Mention index: users and issues", users + " and " + issues);
+        statistics.put("Mention index: hit rate", index.getHitRateStatistic());
+        return statistics;
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models.support;
+
+import com.avaje.ebean.event.BeanPersistAdapter;
+import com.avaje.ebean.event.BeanPersistRequest;
+import models.*;
+import models.enumeration.ResourceType;
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * Keeps {@link MentionIndex} up to date whenever a member, an issue, a
+ * posting, a pull request or a watch is persisted.
+ *
+ * @see com.avaje.ebean.event.BeanPersistAdapter
+ */
+public class MentionIndexPersistAdapter extends BeanPersistAdapter {
+    @Override
+    public boolean isRegisterFor(Class<?> cls) {
+        return ProjectUser.class.isAssignableFrom(cls)
+                || OrganizationUser.class.isAssignableFrom(cls)
+                || AbstractPosting.class.isAssignableFrom(cls)
+                || PullRequest.class.isAssignableFrom(cls)
+                || Watch.class.isAssignableFrom(cls);
+    }
+
+    @Override
+    public void postInsert(BeanPersistRequest<?> request) {
+        Object bean = request.getBean();
+        if (bean instanceof ProjectUser) {
+            ProjectUser projectUser = (ProjectUser) bean;
+            MentionIndex.onUser(idOf(projectUser.project), projectUser.user);
+        } else if (bean instanceof OrganizationUser) {
+            OrganizationUser organizationUser = (OrganizationUser) bean;
+            if (organizationUser.organization != null) {
+                MentionIndex.onGroupMember(organizationUser.organization.id,
+                        organizationUser.user);
+            }
+        } else if (bean instanceof AbstractPosting) {
+            AbstractPosting posting = (AbstractPosting) bean;
+            if (posting.authorId != null) {
+                MentionIndex.onUser(idOf(posting.project), User.find.byId(posting.authorId));
+            }
+            if (posting instanceof Issue) {
+                MentionIndex.onNewIssue(idOf(posting.project), (Issue) posting);
+            }
+        } else if (bean instanceof PullRequest) {
+            PullRequest pullRequest = (PullRequest) bean;
+            MentionIndex.onUser(idOf(pullRequest.toProject), pullRequest.contributor);
+        } else if (bean instanceof Watch) {
+            Watch watch = (Watch) bean;
+            if (isProject(watch)) {
+                MentionIndex.onUser(Long.valueOf(watch.resourceId), watch.user);
+            }
+        }
+    }
+
+    @Override
+    public void postUpdate(BeanPersistRequest<?> request) {
+        Object bean = request.getBean();
+        if (bean instanceof Issue) {
+            Issue issue = (Issue) bean;
+            if (issue.project != null && issue.getNumber() != null) {
+                MentionIndex.onUpdatedIssue(issue.project.id, issue);
+            }
+        } else if (bean instanceof ProjectUser || bean instanceof OrganizationUser) {
+            invalidate(bean);
+        }
+    }
+
+    @Override
+    public void postDelete(BeanPersistRequest<?> request) {
+        Object bean = request.getBean();
+        if (bean instanceof Issue) {
+            Issue issue = (Issue) bean;
+            if (issue.project != null) {
+                MentionIndex.onDeletedIssue(issue.project.id, issue.getNumber());
+            }
+        } else if (bean instanceof ProjectUser || bean instanceof OrganizationUser) {
+            invalidate(bean);
+        } else if (bean instanceof Watch) {
+            Watch watch = (Watch) bean;
+            if (isProject(watch)) {
+                MentionIndex.invalidate(Long.valueOf(watch.resourceId));
+            }
+        }
+    }
+
+    // A user who is no longer a member may still be an author or a watcher.
+    private void invalidate(Object bean) {
+        if (bean instanceof ProjectUser) {
+            MentionIndex.invalidate(idOf(((ProjectUser) bean).project));
+        } else {
+            OrganizationUser organizationUser = (OrganizationUser) bean;
+            if (organizationUser.organization != null) {
+                MentionIndex.invalidateGroup(organizationUser.organization.id);
+            }
+        }
+    }
+
+    private static boolean isProject(Watch watch) {
+        return watch.resourceType == ResourceType.PROJECT && NumberUtils.isDigits(watch.resourceId);
+    }
+
+    private static Long idOf(Project project) {
+        return project != null ? project.id : null;
+    }
+}
@@ -0,0 +1,281 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models.support;
+
+import com.avaje.ebean.ExpressionList;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import controllers.MigrationApp;
+import models.*;
+import models.enumeration.ResourceType;
+import models.resource.Resource;
+import play.db.ebean.Model;
+import play.libs.Json;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Exports the issues, postings and milestones of a project as JSON.
+ *
+ * The JSON is written incrementally while it is read, as
+ * {@link IssueExporter} does. Only the ids of the issues and the postings are
+ * loaded up front; they are then loaded batch by batch with their comments,
+ * assignees, milestones and labels, and the attachments of each batch are
+ * loaded at once.
+ *
+ * If a time is given, only the issues and the postings which have been
+ * created, updated or commented on since then are exported, so that a sync
+ * job can pass the {@code exportedAt} of its last export to get what has
+ * changed since. Such an export cannot tell which issues and postings have
+ * been deleted since then, because nothing is left of them; a sync job has
+ * to export the whole project now and then to find them.
+ *
+ * The last field of the JSON is {@code "status": "complete"}. If it is
+ * missing, the export has failed while being streamed and the JSON is
+ * truncated.
+ */
+public class ProjectExporter {
+    public static final int BATCH_SIZE = play.Configuration.root().getInt(
+            "application.project.export.batchSize", 200);
+
+    private final Project project;
+    private final Date since;
+
+    /**
+     * @param project
+     * @param since   the time since when the changed issues and postings are
+     *                exported, or {@code null} to export all of them
+     */
+    public ProjectExporter(Project project, @Nullable Date since) {
+        this.project = project;
+        this.since = since;
+    }
+
+    /**
+     * Writes the project as JSON to the given stream.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void write(OutputStream out) throws IOException {
+        long exportedAt = System.currentTimeMillis();
+        JsonGenerator generator = new ObjectMapper().getFactory().createGenerator(out, JsonEncoding.UTF8);
+
+        generator.writeStartObject();
+        generator.writeStringField("owner", project.owner);
+        generator.writeStringField("projectName", project.name);
+        generator.writeFieldName("assignees");
+        generator.writeTree(Json.toJson(MigrationApp.getAssginees(project)));
+        generator.writeNumberField("memberCount", project.members().size());
+        generator.writeNumberField("issueCount", byProject(Issue.finder).findRowCount());
+        generator.writeNumberField("postCount", byProject(Posting.finder).findRowCount());
+        generator.writeNumberField("milestoneCount", Milestone.find.where()
+                .eq("project.id", project.id).findRowCount());
+        generator.writeNumberField("exportedAt", exportedAt);
+        if (since != null) {
+            generator.writeNumberField("since", since.getTime());
+        }
+
+        generator.writeArrayFieldStart("issues");
+        List<Object> issueIds = findIds(Issue.finder);
+        for (int from = 0; from < issueIds.size(); from += BATCH_SIZE) {
+            writePostings(generator, Issue.finder
+                    .fetch("assignee")
+                    .fetch("assignee.user", "loginId")
+                    .fetch("milestone", "title")
+                    .fetch("labels", "name")
+                    .fetch("comments")
+                    .where().idIn(batchOf(issueIds, from)).orderBy("id asc")
+                    .findList());
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("posts");
+        List<Object> postingIds = findIds(Posting.finder);
+        for (int from = 0; from < postingIds.size(); from += BATCH_SIZE) {
+            writePostings(generator, Posting.finder
+                    .fetch("comments")
+                    .where().idIn(batchOf(postingIds, from)).orderBy("id asc")
+                    .findList());
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("milestones");
+        for (Milestone milestone : Milestone.find.where().eq("project.id", project.id)
+                .orderBy("id asc").findList()) {
+            generator.writeTree(MigrationApp.composeMilestoneJson(milestone));
+        }
+        generator.writeEndArray();
+
+        // Written last, so that a truncated export can be told.
+        generator.writeStringField("status", "complete");
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    /**
+     * Returns a stream of the exported JSON, written by another thread while
+     * it is read.
+     *
+     * @return the stream to read the JSON from
+     * @throws IOException
+     * @throws RejectedExecutionException if too many exports are running
+     * @see ExportStream
+     */
+    public InputStream stream() throws IOException {
+        return ExportStream.open(project.toString(), new ExportStream.Writer() {
+            @Override
+            public void write(OutputStream out) throws IOException {
+                ProjectExporter.this.write(out);
+            }
+        });
+    }
+
+    private <T> ExpressionList<T> byProject(Model.Finder<Long, T> finder) {
+        return finder.where().eq("project.id", project.id);
+    }
+
+    private <T> List<Object> findIds(Model.Finder<Long, T> finder) {
+        if (since == null) {
+            return byProject(finder).orderBy("id asc").findIds();
+        }
+
+        // The commented ones are found by another query, because a join with
+        // the comments would miss the ones without comments.
+        SortedSet<Long> ids = new TreeSet<>();
+        for (Object id : byProject(finder).disjunction()
+                .ge("createdDate", since)
+                .ge("updatedDate", since)
+                .endJunction().findIds()) {
+            ids.add((Long) id);
+        }
+        for (Object id : byProject(finder).ge("comments.createdDate", since).findIds()) {
+            ids.add((Long) id);
+        }
+        return new ArrayList<Object>(ids);
+    }
+
+    private static List<Object> batchOf(List<Object> ids, int from) {
+        return ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+    }
+
+    private static void writePostings(JsonGenerator generator,
+                                      List<? extends AbstractPosting> postings) throws IOException {
+        List<Resource> containers = new ArrayList<>();
+        for (AbstractPosting posting : postings) {
+            containers.add(posting.asResource());
+            for (Comment comment : posting.getComments()) {
+                containers.add(comment.asResource());
+            }
+        }
+        Map<String, List<Attachment>> attachments = findAttachments(containers);
+
+        for (AbstractPosting posting : postings) {
+            writePosting(generator, posting, attachments);
+        }
+        generator.flush();
+    }
+
+    private static void writePosting(JsonGenerator generator, AbstractPosting posting,
+                                     Map<String, List<Attachment>> attachments) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", posting.getNumber());
+        generator.writeStringField("title", posting.title);
+        generator.writeStringField("type", posting.asResource().getType().toString());
+        generator.writeStringField("author", posting.authorLoginId);
+        generator.writeStringField("authorName", posting.authorName);
+        generator.writeNumberField("created_at", posting.createdDate.getTime());
+        generator.writeStringField("body", posting.body);
+
+        if (posting instanceof Issue) {
+            Issue issue = (Issue) posting;
+            if (issue.assignee != null) {
+                generator.writeStringField("assignee", issue.assignee.user.loginId);
+            }
+            if (issue.milestone != null) {
+                generator.writeStringField("milestone", issue.milestone.title);
+                generator.writeNumberField("milestoneId", issue.milestone.id);
+            }
+            if (issue.labels != null && !issue.labels.isEmpty()) {
+                generator.writeArrayFieldStart("labels");
+                for (IssueLabel label : issue.labels) {
+                    generator.writeString(label.name);
+                }
+                generator.writeEndArray();
+            }
+        }
+        writeAttachments(generator, attachments.get(keyOf(posting.asResource())));
+
+        List<? extends Comment> comments = posting.getComments();
+        if (!comments.isEmpty()) {
+            generator.writeArrayFieldStart("comments");
+            for (Comment comment : comments) {
+                generator.writeStartObject();
+                generator.writeNumberField("id", comment.id);
+                generator.writeStringField("type", comment.asResource().getType().toString());
+                generator.writeStringField("authorId", comment.authorLoginId);
+                generator.writeStringField("authorName", comment.authorName);
+                generator.writeNumberField("created_at", comment.createdDate.getTime());
+                generator.writeStringField("body", comment.contents);
+                writeAttachments(generator, attachments.get(keyOf(comment.asResource())));
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeAttachments(JsonGenerator generator,
+                                         @Nullable List<Attachment> attachments) throws IOException {
+        if (attachments != null && !attachments.isEmpty()) {
+            generator.writeFieldName("attachments");
+            generator.writeTree(Json.toJson(attachments));
+        }
+    }
+
+    /**
+     * Loads the attachments of the given containers with a query for each
+     * type of them.
+     */
+    private static Map<String, List<Attachment>> findAttachments(List<Resource> containers) {
+        Map<ResourceType, List<String>> idsByType = new EnumMap<>(ResourceType.class);
+        for (Resource container : containers) {
+            List<String> ids = idsByType.get(container.getType());
+            if (ids == null) {
+                ids = new ArrayList<>();
+                idsByType.put(container.getType(), ids);
+            }
+            ids.add(container.getId());
+        }
+
+        Map<String, List<Attachment>> result = new HashMap<>();
+        for (Map.Entry<ResourceType, List<String>> entry : idsByType.entrySet()) {
+            for (Attachment attachment : Attachment.find.where()
+                    .eq("containerType", entry.getKey())
+                    .in("containerId", entry.getValue())
+                    .orderBy("id asc")
+                    .findList()) {
+                String key = attachment.containerType.name() + attachment.containerId;
+                List<Attachment> list = result.get(key);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    result.put(key, list);
+                }
+                list.add(attachment);
+            }
+        }
+        return result;
+    }
+
+    private static String keyOf(Resource container) {
+        return container.getType().name() + container.getId();
+    }
+}
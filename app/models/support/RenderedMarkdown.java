@@ -0,0 +1,286 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models.support;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.SqlRow;
+import com.google.common.hash.Hashing;
+import models.*;
+import play.Logger;
+import utils.Markdown;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the bodies of issues and postings and the contents of their comments
+ * rendered as HTML in the database, next to their Markdown source.
+ *
+ * Sources are rendered by a small pool of workers after they are written, and
+ * the most recently active ones which have not been rendered by the current
+ * {@link Markdown#RENDERER_VERSION} are rendered again when Yona starts. The
+ * stored HTML is that of {@link Markdown#renderWithoutLinks(String)}; the
+ * references in it are still linked when viewed, because their links depend
+ * on the current state of what they refer to.
+ *
+ * A view which finds no HTML rendered from the current source renders it by
+ * itself, as it did before, and has it stored by a worker.
+ *
+ * Whether the stored HTML is rendered from the current source is told by the
+ * SHA-1 digest of the source. HTML is stored only if the source has been
+ * rendered; if rendering fails, e.g. because it takes too long, the source is
+ * shown as preformatted text and rendered again next time.
+ *
+ * @see RenderedMarkdownPersistAdapter
+ */
+public class RenderedMarkdown {
+    private static final int WORKERS = play.Configuration.root().getInt(
+            "application.markdown.workers", 1);
+
+    private static final int QUEUE_SIZE = play.Configuration.root().getInt(
+            "application.markdown.queueSize", 1000);
+
+    private static final int WARM_UP_SIZE = play.Configuration.root().getInt(
+            "application.markdown.warmUpSize", 1000);
+
+    private static final String UPDATE_SQL = " set rendered_html = :html, " +
+            "renderer_version = :version, rendered_source_digest = :digest where id = :id";
+
+    private static final Table[] TABLES = {
+            new Table("issue", "body", "updated_date"),
+            new Table("posting", "body", "updated_date"),
+            new Table("issue_comment", "contents", "created_date"),
+            new Table("posting_comment", "contents", "created_date")
+    };
+
+    private static final AtomicLong renderedOnWrite = new AtomicLong();
+    private static final AtomicLong renderedOnView = new AtomicLong();
+    private static final AtomicLong discarded = new AtomicLong();
+    private static final AtomicLong failed = new AtomicLong();
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            WORKERS, WORKERS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(QUEUE_SIZE),
+            new ThreadFactory() {
+                private final AtomicLong count = new AtomicLong();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "markdown-renderer-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            },
+            new RejectedExecutionHandler() {
+                // The view renders what is discarded, as it did before.
+                @Override
+                public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+                    discarded.incrementAndGet();
+                }
+            });
+
+    private static class Table {
+        final String name;
+        final String sourceColumn;
+        final String activityColumn;
+
+        Table(String name, String sourceColumn, String activityColumn) {
+            this.name = name;
+            this.sourceColumn = sourceColumn;
+            this.activityColumn = activityColumn;
+        }
+    }
+
+    /**
+     * Renders the body of a posting as {@link Markdown#render(String, Project)}
+     * does, from the HTML stored in the database if it is up to date.
+     *
+     * @param posting an issue or a posting
+     * @param project the project where the references are linked
+     * @return
+     */
+    public static String render(AbstractPosting posting, Project project) {
+        return Markdown.link(htmlOf(tableOf(posting), posting.id, posting.body,
+                posting.renderedHtml, posting.rendererVersion, posting.renderedSourceDigest), project);
+    }
+
+    /**
+     * Renders the contents of a comment as
+     * {@link Markdown#render(String, Project)} does, from the HTML stored in
+     * the database if it is up to date.
+     *
+     * @param comment a comment on an issue or a posting
+     * @param project the project where the references are linked
+     * @return
+     */
+    public static String render(Comment comment, Project project) {
+        return Markdown.link(htmlOf(tableOf(comment), comment.id, comment.contents,
+                comment.renderedHtml, comment.rendererVersion, comment.renderedSourceDigest), project);
+    }
+
+    static void onWrite(AbstractPosting posting) {
+        submit(tableOf(posting), posting.id, posting.body,
+                posting.renderedHtml, posting.rendererVersion, posting.renderedSourceDigest);
+    }
+
+    static void onWrite(Comment comment) {
+        submit(tableOf(comment), comment.id, comment.contents,
+                comment.renderedHtml, comment.rendererVersion, comment.renderedSourceDigest);
+    }
+
+    static String digestOf(String source) {
+        return Hashing.sha1().hashString(source, StandardCharsets.UTF_8).toString();
+    }
+
+    private static boolean isUpToDate(String source, String html, Integer version, String digest) {
+        return html != null
+                && version != null && version == Markdown.RENDERER_VERSION
+                && digest != null && digest.equals(digestOf(source));
+    }
+
+    private static String htmlOf(final String table, final Long id, final String source,
+                                 String html, Integer version, String digest) {
+        if (isUpToDate(source, html, version, digest)) {
+            return html;
+        }
+        final String rendered = Markdown.renderWithoutLinks(source);
+        if (rendered == null) {
+            failed.incrementAndGet();
+            return Markdown.preformatted(source);
+        }
+        renderedOnView.incrementAndGet();
+        if (table != null && id != null) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    store(table, id, source, rendered);
+                }
+            });
+        }
+        return rendered;
+    }
+
+    private static void submit(final String table, final Long id, final String source,
+                               String html, Integer version, String digest) {
+        if (table == null || id == null || source == null
+                || isUpToDate(source, html, version, digest)) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                renderAndStore(table, id, source);
+            }
+        });
+    }
+
+    /**
+     * Renders the given source and stores the HTML, unless rendering fails.
+     */
+    private static void renderAndStore(String table, Long id, String source) {
+        String html = Markdown.renderWithoutLinks(source);
+        if (html == null) {
+            failed.incrementAndGet();
+            return;
+        }
+        store(table, id, source, html);
+        renderedOnWrite.incrementAndGet();
+    }
+
+    // If this runs before the transaction which has written the source is
+    // committed, nothing may be updated; the first view renders it again.
+    private static void store(String table, Long id, String source, String html) {
+        try {
+            Ebean.createSqlUpdate("update " + table + UPDATE_SQL)
+                    .setParameter("html", html)
+                    .setParameter("version", Markdown.RENDERER_VERSION)
+                    .setParameter("digest", digestOf(source))
+                    .setParameter("id", id)
+                    .execute();
+        } catch (Exception e) {
+            Logger.warn("Failed to store the rendered markdown of " + table + " " + id, e);
+        }
+    }
+
+    private static String tableOf(AbstractPosting posting) {
+        if (posting instanceof Issue) {
+            return "issue";
+        } else if (posting instanceof Posting) {
+            return "posting";
+        } else {
+            return null;
+        }
+    }
+
+    private static String tableOf(Comment comment) {
+        if (comment instanceof IssueComment) {
+            return "issue_comment";
+        } else if (comment instanceof PostingComment) {
+            return "posting_comment";
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Renders the most recently active sources which have not been rendered
+     * by the current renderer, in a thread of its own so that the workers are
+     * left to the sources being written.
+     */
+    public static void onStart() {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (Table table : TABLES) {
+                    try {
+                        warmUp(table);
+                    } catch (Exception e) {
+                        Logger.warn("Failed to render the markdown of " + table.name, e);
+                    }
+                }
+            }
+        }, "markdown-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void warmUp(Table table) {
+        List<SqlRow> rows = Ebean.createSqlQuery("select id, " + table.sourceColumn + " as source"
+                + " from " + table.name
+                + " where renderer_version is null or renderer_version <> :version"
+                + " order by " + table.activityColumn + " desc")
+                .setParameter("version", Markdown.RENDERER_VERSION)
+                .setMaxRows(WARM_UP_SIZE)
+                .findList();
+        for (SqlRow row : rows) {
+            String source = row.getString("source");
+            if (source != null) {
+                renderAndStore(table.name, row.getLong("id"), source);
+            }
+        }
+    }
+
+    /**
+     * @return how many sources have been rendered in the background and when
+     *         viewed
+     */
+    public static Map<String, String> getStatistics() {
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put("Rendered markdown: queued", executor.getQueue().size() + " / " + QUEUE_SIZE);
+        result.put("Rendered markdown: rendered in the background",
+                Long.toString(renderedOnWrite.get()));
+        result.put("Rendered markdown: rendered when viewed",
+                Long.toString(renderedOnView.get()));
+        result.put("Rendered markdown: discarded", Long.toString(discarded.get()));
+        result.put("Rendered markdown: failed", Long.toString(failed.get()));
+        return result;
+    }
+}
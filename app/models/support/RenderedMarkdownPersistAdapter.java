@@ -0,0 +1,44 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models.support;
+
+import com.avaje.ebean.event.BeanPersistAdapter;
+import com.avaje.ebean.event.BeanPersistRequest;
+import models.AbstractPosting;
+import models.Comment;
+
+/**
+ * Has the markdown of an issue, a posting or a comment rendered by
+ * {@link RenderedMarkdown} whenever it is written.
+ *
+ * @see com.avaje.ebean.event.BeanPersistAdapter
+ */
+public class RenderedMarkdownPersistAdapter extends BeanPersistAdapter {
+    @Override
+    public boolean isRegisterFor(Class<?> cls) {
+        return AbstractPosting.class.isAssignableFrom(cls)
+                || Comment.class.isAssignableFrom(cls);
+    }
+
+    @Override
+    public void postInsert(BeanPersistRequest<?> request) {
+        onWrite(request.getBean());
+    }
+
+    @Override
+    public void postUpdate(BeanPersistRequest<?> request) {
+        onWrite(request.getBean());
+    }
+
+    private void onWrite(Object bean) {
+        if (bean instanceof AbstractPosting) {
+            RenderedMarkdown.onWrite((AbstractPosting) bean);
+        } else if (bean instanceof Comment) {
+            RenderedMarkdown.onWrite((Comment) bean);
+        }
+    }
+}
@@ -21,7 +21,6 @@
 package models.support;
 
 import com.avaje.ebean.ExpressionList;
-import com.avaje.ebean.Junction;
 import controllers.AbstractPostingApp;
 import controllers.UserApp;
 import models.*;
@@ -208,17 +207,13 @@ public class SearchCondition extends AbstractPostingApp.SearchCondition implemen
         }
     }
 
+    /**
+     * Filters issues whose title, body or comments contain every word of the
+     * filter as a prefix of a word, using {@link IssueSearchToken}.
+     */
     private void setFilteredStringIfExist(ExpressionList<Issue> el) {
         if (StringUtils.isNotBlank(filter)) {
-            Junction<Issue> junction = el.disjunction();
-            junction.icontains("title", filter)
-                    .icontains("body", filter);
-            List<Object> ids = Issue.finder.where()
-                    .icontains("comments.contents", filter).findIds();
-            if (!ids.isEmpty()) {
-                junction.idIn(ids);
-            }
-            junction.endJunction();
+            IssueSearchToken.addFilter(el, filter);
         }
     }
 
@@ -228,19 +223,12 @@ public class SearchCondition extends AbstractPostingApp.SearchCondition implemen
         }
     }
 
-    private void setCommenterIfExist(ExpressionList<Issue> el, Project project) {
+    private void setCommenterIfExist(ExpressionList<Issue> el) {
         // TODO: access control
         if (commenterId != null) {
             User commenter = User.find.byId(commenterId);
             if(!commenter.isAnonymous()) {
-                List<Long> ids = getCommentedIssueIds(commenter, project);
-
-                if (ids.isEmpty()) {
-                    // No need to progress because the query matches nothing.
-                    el.idEq(-1);
-                } else {
-                    el.idIn(ids);
-                }
+                el.raw("id in (select ic.issue_id from issue_comment ic where ic.author_id = ?)", commenter.id);
             }
         }
     }
@@ -277,7 +265,7 @@ public class SearchCondition extends AbstractPostingApp.SearchCondition implemen
 
         setAssigneeIfExists(el);
         setAuthorIfExist(el);
-        setCommenterIfExist(el, null);
+        setCommenterIfExist(el);
         setMentionedIssuesIfExist(el);
         setFilteredStringIfExist(el);
 
@@ -303,81 +291,23 @@ public class SearchCondition extends AbstractPostingApp.SearchCondition implemen
         }
     }
 
+    /**
+     * Restricts the given issue query to issues which mention the user in
+     * their bodies or in their comments, by subqueries on the indexed user
+     * id of mentions.
+     */
     private void setMentionedIssuesIfExist(ExpressionList<Issue> el) {
-        // TODO: access control
         if (mentionId != null) {
             User mentionUser = User.find.byId(mentionId);
             if(!mentionUser.isAnonymous()) {
-                List<Long> ids = getMentioningIssueIds(mentionUser);
-
-                if (ids.isEmpty()) {
-                    // No need to progress because the query matches nothing.
-                    el.idEq(-1);
-                } else {
-                    el.idIn(ids);
-                }
-            }
-        }
-    }
-
-    private List<Long> getCommentedIssueIds(User commenter, Project project) {
-        Set<Long> issueIds = new HashSet<>();
-
-        for (Comment comment : IssueComment.find.where()
-                .eq("authorId", commenter.id)
-                .findList()) {
-
-            switch (comment.asResource().getType()) {
-                case ISSUE_COMMENT:
-                    if(project == null) {
-                        issueIds.add(comment.getParent().id);
-                        break;
-                    } else {
-                        if(comment.getParent().project.id.equals(project.id)){
-                            issueIds.add(comment.getParent().id);
-                        }
-                    }
-                    break;
-                default:
-                    play.Logger.warn("'" + comment.asResource().getType() + "' is not supported.");
-                    break;
-            }
-        }
-
-        return new ArrayList<>(issueIds);
-    }
-
-    private List<Long> getMentioningIssueIds(User mentionUser) {
-        Set<Long> ids = new HashSet<>();
-        Set<Long> commentIds = new HashSet<>();
-
-        for (Mention mention : Mention.find.where()
-                .eq("user", mentionUser)
-                .in("resourceType", ISSUE_POST, ISSUE_COMMENT)
-                .findList()) {
-
-            switch (mention.resourceType) {
-                case ISSUE_POST:
-                    ids.add(Long.valueOf(mention.resourceId));
-                    break;
-                case ISSUE_COMMENT:
-                    commentIds.add(Long.valueOf(mention.resourceId));
-                    break;
-                default:
-                    play.Logger.warn("'" + mention.resourceType + "' is not supported.");
-                    break;
-            }
-        }
-
-        if (!commentIds.isEmpty()) {
-            for (IssueComment comment : IssueComment.find.where()
-                    .idIn(new ArrayList<>(commentIds))
-                    .findList()) {
-                ids.add(comment.issue.id);
+                el.raw("(id in (select m.resource_id from mention m"
+                        + " where m.user_id = ? and m.resource_type = ?)"
+                        + " or id in (select ic.issue_id from mention m"
+                        + " join issue_comment ic on ic.id = m.resource_id"
+                        + " where m.user_id = ? and m.resource_type = ?))",
+                        new Object[]{mentionUser.id, ISSUE_POST.name(), mentionUser.id, ISSUE_COMMENT.name()});
             }
         }
-
-        return new ArrayList<>(ids);
     }
 
     public ExpressionList<Issue> asExpressionList(Project project) {
@@ -385,24 +315,7 @@ public class SearchCondition extends AbstractPostingApp.SearchCondition implemen
         if( project != null ){
             el.eq("project.id", project.id);
         }
-        if (StringUtils.isNotBlank(filter)) {
-            Junction<Issue> junction = el.disjunction();
-            junction.icontains("title", filter)
-            .icontains("body", filter);
-            List<Object> ids;
-            if( project == null){
-                ids = Issue.finder.where()
-                        .icontains("comments.contents", filter).findIds();
-            } else {
-                ids = Issue.finder.where()
-                        .eq("project.id", project.id)
-                        .icontains("comments.contents", filter).findIds();
-            }
-            if (!ids.isEmpty()) {
-                junction.idIn(ids);
-            }
-            junction.endJunction();
-        }
+        setFilteredStringIfExist(el);
 
         if (authorId != null) {
             if (authorId.equals(User.anonymous.id)) {
@@ -421,7 +334,7 @@ public class SearchCondition extends AbstractPostingApp.SearchCondition implemen
             }
         }
 
-        setCommenterIfExist(el, project);
+        setCommenterIfExist(el);
 
         if (milestoneId != null) {
             if (milestoneId.equals(Milestone.NULL_MILESTONE_ID)) {
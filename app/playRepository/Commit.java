@@ -61,23 +61,21 @@ public abstract class Commit {
                     .eq("project.id", project.id)
                     .eq("commitId", getId())
                     .eq("pullRequest.id", null).findList();
+            Set<Long> commenterIds = new HashSet<>();
             for (CommentThread thread : threads) {
                 for (ReviewComment comment : thread.reviewComments) {
-                    User user = User.find.byId(comment.author.id);
-                    if (user != null) {
-                        actualWatchers.add(user);
-                    }
+                    commenterIds.add(comment.author.id);
                 }
             }
+            actualWatchers.addAll(User.findByIds(commenterIds));
         } else {
             List<CommitComment> comments = CommitComment.find.where()
                     .eq("project.id", project.id).eq("commitId", getId()).findList();
+            Set<Long> commenterIds = new HashSet<>();
             for (CommitComment c : comments) {
-                User user = User.find.byId(c.authorId);
-                if (user != null) {
-                    actualWatchers.add(user);
-                }
+                commenterIds.add(c.authorId);
             }
+            actualWatchers.addAll(User.findByIds(commenterIds));
         }
 
         return Watch.findActualWatchers(actualWatchers, asResource(project), allowedWatchersOnly);
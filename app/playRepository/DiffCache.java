@@ -0,0 +1,111 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package playRepository;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import models.Project;
+import org.eclipse.jgit.lib.ObjectId;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Keeps the differences between commits, which never change, so that a
+ * commit or a comparison of commits which is viewed again is not diffed
+ * again.
+ *
+ * Only revisions given as commit ids are cached, because a branch or a tag
+ * may move. The differences do not depend on who reads them, so they are
+ * shared by every user allowed to read the code. For the same reason the
+ * returned {@link FileDiff}s must not be modified.
+ *
+ * The size of the cache is limited by the total length of the texts the
+ * differences hold, in megabytes of characters.
+ */
+public class DiffCache {
+    private static final long MAX_WEIGHT = play.Configuration.root().getInt(
+            "application.diff.cacheSize", 32) * 1024L * 1024L;
+
+    private static final Cache<String, List<FileDiff>> diffs = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_WEIGHT)
+            .weigher(new Weigher<String, List<FileDiff>>() {
+                @Override
+                public int weigh(String key, List<FileDiff> value) {
+                    return weightOf(value);
+                }
+            })
+            .build();
+
+    /**
+     * Returns the differences a commit has made.
+     *
+     * @see PlayRepository#getDiff(String)
+     */
+    public static List<FileDiff> getDiff(Project project, PlayRepository repository,
+                                         String commitId) throws IOException {
+        return getDiff(project, repository, null, commitId);
+    }
+
+    /**
+     * Returns the differences between two revisions, or the differences
+     * {@code revB} has made if {@code revA} is null.
+     *
+     * @param project
+     * @param repository the repository of the project
+     * @param revA
+     * @param revB
+     * @return the differences, or null if any of the revisions does not exist
+     * @throws IOException
+     * @see PlayRepository#getDiff(String, String)
+     */
+    public static List<FileDiff> getDiff(Project project, PlayRepository repository,
+                                         @Nullable String revA, String revB) throws IOException {
+        if (!ObjectId.isId(revB) || (revA != null && !ObjectId.isId(revA))) {
+            return diff(repository, revA, revB);
+        }
+
+        String key = project.id + ":" + revA + ".." + revB;
+        List<FileDiff> result = diffs.getIfPresent(key);
+        if (result == null) {
+            result = diff(repository, revA, revB);
+            if (result != null) {
+                prepare(result);
+                diffs.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    private static List<FileDiff> diff(PlayRepository repository, @Nullable String revA,
+                                       String revB) throws IOException {
+        return (revA == null) ? repository.getDiff(revB) : repository.getDiff(revA, revB);
+    }
+
+    // Computes what FileDiff computes lazily, before the differences are
+    // shared between threads.
+    private static void prepare(List<FileDiff> fileDiffs) {
+        for (FileDiff fileDiff : fileDiffs) {
+            fileDiff.hasError();
+        }
+    }
+
+    private static int weightOf(List<FileDiff> fileDiffs) {
+        long weight = 0;
+        for (FileDiff fileDiff : fileDiffs) {
+            if (fileDiff.a != null) {
+                weight += FileDiff.getRawTextSize(fileDiff.a);
+            }
+            if (fileDiff.b != null) {
+                weight += FileDiff.getRawTextSize(fileDiff.b);
+            }
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+}
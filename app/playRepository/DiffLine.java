@@ -24,7 +24,7 @@ public class DiffLine {
     public final DiffLineType kind;
     public final Integer numA;
     public final Integer numB;
-    public final String content;
+    private String content;
     public FileDiff file;
 
     public DiffLine(FileDiff file, DiffLineType type, Integer lineNumA, Integer lineNumB,
@@ -36,6 +36,32 @@ public class DiffLine {
         this.content = content;
     }
 
+    /**
+     * Creates a line whose content is decoded from the raw text of the given
+     * file only when it is read.
+     */
+    DiffLine(FileDiff file, DiffLineType type, Integer lineNumA, Integer lineNumB) {
+        this(file, type, lineNumA, lineNumB, null);
+    }
+
+    public String getContent() {
+        if (content == null) {
+            content = (kind == DiffLineType.ADD) ? file.b.getString(numB) : file.a.getString(numA);
+        }
+        return content;
+    }
+
+    /**
+     * @return the number of characters of the content, counted without
+     *         decoding it if it has not been read yet
+     */
+    public int length() {
+        if (content != null) {
+            return content.length();
+        }
+        return (kind == DiffLineType.ADD) ? file.lengthOfLineB(numB) : file.lengthOfLineA(numA);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -43,7 +69,7 @@ public class DiffLine {
 
         DiffLine diffLine = (DiffLine) o;
 
-        if (content != null ? !content.equals(diffLine.content) : diffLine.content != null)
+        if (getContent() != null ? !getContent().equals(diffLine.getContent()) : diffLine.getContent() != null)
             return false;
         if (file != null ? !file.equals(diffLine.file) : diffLine.file != null) return false;
         if (kind != diffLine.kind) return false;
@@ -58,7 +84,7 @@ public class DiffLine {
         int result = kind != null ? kind.hashCode() : 0;
         result = 31 * result + (numA != null ? numA.hashCode() : 0);
         result = 31 * result + (numB != null ? numB.hashCode() : 0);
-        result = 31 * result + (content != null ? content.hashCode() : 0);
+        result = 31 * result + (getContent() != null ? getContent().hashCode() : 0);
         result = 31 * result + (file != null ? file.hashCode() : 0);
         return result;
     }
@@ -0,0 +1,107 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package playRepository;
+
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.util.RawParseUtils;
+
+/**
+ * A {@link RawText} which can tell the length of its lines without decoding
+ * them, so that the size of a diff can be checked before any line of it is
+ * turned into a string.
+ *
+ * The length is the number of UTF-16 chars of a line without its line feed,
+ * i.e. the length of the string {@link RawText#getString(int)} would return.
+ * It is counted from the bytes if they are valid UTF-8; otherwise the bytes
+ * are decoded as RawText does, with its fallback to other charsets.
+ */
+class DiffRawText extends RawText {
+    DiffRawText(byte[] input) {
+        super(input);
+    }
+
+    /**
+     * @param line the line number, starting from 0
+     * @return the length of the line
+     */
+    int length(int line) {
+        return countChars(lines.get(line + 1), lines.get(line + 2));
+    }
+
+    /**
+     * @return the length of the whole text, without line feeds
+     */
+    int length() {
+        return countChars(0, content.length);
+    }
+
+    private int countChars(int start, int end) {
+        int count = 0;
+        int i = start;
+        while (i < end) {
+            int b = content[i] & 0xFF;
+            int size = sequenceSize(b, i + 1 < end ? content[i + 1] & 0xFF : -1);
+            if (size == 0 || i + size > end || !hasContinuationBytes(i + 1, i + size)) {
+                return countDecodedChars(start, end);
+            }
+            if (b != '\n') {
+                // A code point outside the BMP is a surrogate pair in UTF-16.
+                count += size == 4 ? 2 : 1;
+            }
+            i += size;
+        }
+        return count;
+    }
+
+    /**
+     * @param lead the first byte of a UTF-8 sequence
+     * @param second the second byte, or -1 if there is none
+     * @return the number of bytes of the sequence, or 0 if it is not valid
+     *         UTF-8, e.g. overlong or a surrogate
+     */
+    private static int sequenceSize(int lead, int second) {
+        if (lead < 0x80) {
+            return 1;
+        } else if (lead < 0xC2) {
+            return 0;
+        } else if (lead < 0xE0) {
+            return 2;
+        } else if (lead < 0xF0) {
+            if ((lead == 0xE0 && second < 0xA0) || (lead == 0xED && second >= 0xA0)) {
+                return 0;
+            }
+            return 3;
+        } else if (lead < 0xF5) {
+            if ((lead == 0xF0 && second < 0x90) || (lead == 0xF4 && second >= 0x90)) {
+                return 0;
+            }
+            return 4;
+        } else {
+            return 0;
+        }
+    }
+
+    private boolean hasContinuationBytes(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if ((content[i] & 0xC0) != 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int countDecodedChars(int start, int end) {
+        String decoded = RawParseUtils.decode(content, start, end);
+        int count = decoded.length();
+        for (int i = 0; i < decoded.length(); i++) {
+            if (decoded.charAt(i) == '\n') {
+                count--;
+            }
+        }
+        return count;
+    }
+}
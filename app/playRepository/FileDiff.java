@@ -90,6 +90,10 @@ public class FileDiff {
     }
 
     public static int getRawTextSize(RawText rawText) {
+        if (rawText instanceof DiffRawText) {
+            return ((DiffRawText) rawText).length();
+        }
+
         int size = 0;
         for(int i = 0; i < rawText.size(); i++) {
             size += rawText.getString(i).length();
@@ -97,8 +101,26 @@ public class FileDiff {
         return size;
     }
 
+    int lengthOfLineA(int line) {
+        return lengthOfLine(a, line);
+    }
+
+    int lengthOfLineB(int line) {
+        return lengthOfLine(b, line);
+    }
+
+    private static int lengthOfLine(RawText rawText, int line) {
+        if (rawText instanceof DiffRawText) {
+            return ((DiffRawText) rawText).length(line);
+        }
+        return rawText.getString(line).length();
+    }
+
     /**
      * Get list of hunks
+     *
+     * The lines of the hunks refer to the lines of {@link #a} and {@link #b}
+     * by their numbers, and are decoded only when their contents are read.
      */
     public Hunks getHunks() {
         if (hunks != null) {
@@ -116,6 +138,8 @@ public class FileDiff {
 
         for (int curIdx = 0; curIdx < editList.size();) {
             Hunk hunk = new Hunk();
+            Hunk.Lines hunkLines = new Hunk.Lines(this);
+            hunk.lines = hunkLines;
             Edit curEdit = editList.get(curIdx);
             final int endIdx = findCombinedEnd(editList, curIdx);
             final Edit endEdit = editList.get(endIdx);
@@ -132,17 +156,14 @@ public class FileDiff {
 
             while (aCur < aEnd || bCur < bEnd) {
                 if (aCur < curEdit.getBeginA() || endIdx + 1 < curIdx) {
-                    hunk.lines.add(new DiffLine(this, DiffLineType.CONTEXT, aCur, bCur,
-                            a.getString(aCur)));
+                    hunkLines.addContext(aCur, bCur);
                     aCur++;
                     bCur++;
                 } else if (aCur < curEdit.getEndA()) {
-                    hunk.lines.add(new DiffLine(this, DiffLineType.REMOVE, aCur, null,
-                            a.getString(aCur)));
+                    hunkLines.addRemove(aCur);
                     aCur++;
                 } else if (bCur < curEdit.getEndB()) {
-                    hunk.lines.add(new DiffLine(this, DiffLineType.ADD, null, bCur,
-                            b.getString(bCur)));
+                    hunkLines.addAdd(bCur);
                     bCur++;
                 }
 
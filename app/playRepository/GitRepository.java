@@ -51,6 +51,7 @@ import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.lib.*;
 import org.eclipse.jgit.lib.RefUpdate.Result;
+import org.eclipse.jgit.revwalk.FollowFilter;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevTree;
@@ -62,6 +63,7 @@ import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.EmptyTreeIterator;
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.eclipse.jgit.util.FileUtils;
 import org.eclipse.jgit.util.io.NullOutputStream;
 import org.tmatesoft.svn.core.SVNException;
@@ -72,6 +74,7 @@ import utils.ChunkedOutputStream;
 import utils.FileUtil;
 import utils.GravatarUtil;
 
+import javax.annotation.Nullable;
 import javax.naming.LimitExceededException;
 import java.io.*;
 import java.nio.file.*;
@@ -829,6 +832,45 @@ public class GitRepository implements PlayRepository {
         return new GitCommit(new RevWalk(repository).parseCommit(commitId));
     }
 
+    /**
+     * Finds the commits of the given full or abbreviated object ids, reading
+     * all of them through a single object reader.
+     *
+     * Ids which don't exist, are ambiguous or don't point a commit are left
+     * out of the result.
+     *
+     * @param ids full or abbreviated object ids
+     * @return the commits mapped by the given ids
+     * @throws IOException
+     */
+    public Map<String, Commit> getCommitsByIds(Collection<String> ids) throws IOException {
+        Map<String, Commit> commits = new HashMap<>();
+
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk revWalk = new RevWalk(reader)) {
+            for (String id : ids) {
+                if (!AbbreviatedObjectId.isId(id)) {
+                    continue;
+                }
+
+                Collection<ObjectId> candidates =
+                        reader.resolve(AbbreviatedObjectId.fromString(id));
+                if (candidates.size() != 1) {
+                    continue;
+                }
+
+                try {
+                    commits.put(id, new GitCommit(
+                            revWalk.parseCommit(candidates.iterator().next())));
+                } catch (IncorrectObjectTypeException | MissingObjectException e) {
+                    // Not a commit
+                }
+            }
+        }
+
+        return commits;
+    }
+
     /**
      * Check if the given ref name is under a well-known namespace.
      *
@@ -1464,7 +1506,53 @@ public class GitRepository implements PlayRepository {
         return getFileDiffs(repositoryA, repositoryB, commitA, commitB);
     }
 
+    /**
+     * Returns the differences of the file at the given path, without
+     * computing the differences of any other file.
+     *
+     * If the file has been renamed or copied from another path, the
+     * difference from the original file is returned.
+     *
+     * @param revA the old revision, or null to compare with the first parent
+     *             of {@code revB}
+     * @param revB the new revision
+     * @param path the path of the file in either revision
+     * @return the differences of the file, or null if {@code revB} does not
+     *         exist
+     * @throws IOException
+     */
+    public List<FileDiff> getDiffOfFile(@Nullable String revA, String revB, String path)
+            throws IOException {
+        ObjectId commitB = repository.resolve(revB);
+        if (commitB == null) {
+            return null;
+        }
+
+        ObjectId commitA = null;
+        if (revA != null) {
+            commitA = repository.resolve(revA);
+        } else {
+            try (RevWalk revWalk = new RevWalk(repository)) {
+                RevCommit commit = revWalk.parseCommit(commitB);
+                if (commit.getParentCount() > 0) {
+                    commitA = commit.getParent(0).getId();
+                }
+            }
+        }
+
+        TreeFilter pathFilter = FollowFilter.create(StringUtils.removeStart(path, "/"),
+                repository.getConfig().get(DiffConfig.KEY));
+
+        return getFileDiffs(repository, repository, commitA, commitB, pathFilter);
+    }
+
     private static List<FileDiff> getFileDiffs(final Repository repositoryA, Repository repositoryB, ObjectId commitA, ObjectId commitB) throws IOException {
+        return getFileDiffs(repositoryA, repositoryB, commitA, commitB, null);
+    }
+
+    private static List<FileDiff> getFileDiffs(final Repository repositoryA, Repository repositoryB,
+                                               ObjectId commitA, ObjectId commitB,
+                                               @Nullable TreeFilter pathFilter) throws IOException {
         class MultipleRepositoryObjectReader extends ObjectReader {
             Collection<ObjectReader> readers = new HashSet<>();
 
@@ -1600,6 +1688,9 @@ public class GitRepository implements PlayRepository {
         DiffFormatter formatter = new DiffFormatter(NullOutputStream.INSTANCE);
         formatter.setRepository(fakeRepo);
         formatter.setDetectRenames(true);
+        if (pathFilter != null) {
+            formatter.setPathFilter(pathFilter);
+        }
 
         AbstractTreeIterator treeParserA, treeParserB;
         RevTree treeA = null, treeB = null;
@@ -1647,7 +1738,7 @@ public class GitRepository implements PlayRepository {
                 try {
                     rawA = repositoryA.open(blobA).getBytes();
                     fileDiff.isBinaryA = RawText.isBinary(rawA);
-                    fileDiff.a = fileDiff.isBinaryA ? null : new RawText(rawA);
+                    fileDiff.a = fileDiff.isBinaryA ? null : new DiffRawText(rawA);
                 } catch (org.eclipse.jgit.errors.LargeObjectException e) {
                     fileDiff.addError(FileDiff.Error.A_SIZE_EXCEEDED);
                 }
@@ -1663,7 +1754,7 @@ public class GitRepository implements PlayRepository {
                 try {
                     rawB = repositoryB.open(blobB).getBytes();
                     fileDiff.isBinaryB = RawText.isBinary(rawB);
-                    fileDiff.b = fileDiff.isBinaryB ? null : new RawText(rawB);
+                    fileDiff.b = fileDiff.isBinaryB ? null : new DiffRawText(rawB);
                 } catch (org.eclipse.jgit.errors.LargeObjectException e) {
                     fileDiff.addError(FileDiff.Error.B_SIZE_EXCEEDED);
                 }
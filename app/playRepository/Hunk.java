@@ -20,8 +20,9 @@
  */
 package playRepository;
 
-import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.util.IntList;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -35,7 +36,7 @@ public class Hunk {
     public int size() {
         int length = 0;
         for (DiffLine line : lines) {
-            length += line.content.length();
+            length += line.length();
         }
         return length;
     }
@@ -65,4 +66,54 @@ public class Hunk {
         result = 31 * result + (lines != null ? lines.hashCode() : 0);
         return result;
     }
+
+    /**
+     * The lines of a hunk, kept only as their numbers in the raw texts of the
+     * file. A {@link DiffLine} is made when a line is read, and its content
+     * is decoded when it is written.
+     */
+    static class Lines extends AbstractList<DiffLine> {
+        private static final int NONE = -1;
+
+        private final FileDiff file;
+        private final IntList numsA = new IntList();
+        private final IntList numsB = new IntList();
+
+        Lines(FileDiff file) {
+            this.file = file;
+        }
+
+        void addContext(int numA, int numB) {
+            numsA.add(numA);
+            numsB.add(numB);
+        }
+
+        void addRemove(int numA) {
+            numsA.add(numA);
+            numsB.add(NONE);
+        }
+
+        void addAdd(int numB) {
+            numsA.add(NONE);
+            numsB.add(numB);
+        }
+
+        @Override
+        public DiffLine get(int index) {
+            int numA = numsA.get(index);
+            int numB = numsB.get(index);
+            if (numA == NONE) {
+                return new DiffLine(file, DiffLineType.ADD, null, numB);
+            } else if (numB == NONE) {
+                return new DiffLine(file, DiffLineType.REMOVE, numA, null);
+            } else {
+                return new DiffLine(file, DiffLineType.CONTEXT, numA, numB);
+            }
+        }
+
+        @Override
+        public int size() {
+            return numsA.size();
+        }
+    }
 }
@@ -235,7 +235,7 @@ public class RepositoryService {
                 case "git-receive-pack":
                     repository = GitRepository.buildGitRepository(project, false);
                     PreReceiveHook preReceiveHook = createPreReceiveHook();
-                    PostReceiveHook postReceiveHook = createPostReceiveHook(UserApp.currentUser(), project, request);
+                    PostReceiveHook postReceiveHook = createPostReceiveHook(UserApp.currentUser(), project);
                     receivePack(requestStream, repository, new PipedOutputStream(responseStream),
                             preReceiveHook, postReceiveHook);
                     // receivePack.setEchoCommandFailures(true);
@@ -263,13 +263,11 @@ public class RepositoryService {
     }
 
     private static PostReceiveHook createPostReceiveHook(
-            final User currentUser, final Project project, final Request request) {
+            final User currentUser, final Project project) {
         List<PostReceiveHook> hooks = new ArrayList<>();
         hooks.add(new UpdateLastPushedDate(project));
         hooks.add(new UpdateRecentlyPushedBranch(project));
-        hooks.add(new IssueReferredFromCommitEvent(project, currentUser));
-        hooks.add(new PullRequestCheck(currentUser, request, project));
-        hooks.add(new NotifyPushedCommits(project, currentUser));
+        hooks.add(new PostReceivePipeline(project, currentUser));
         return PostReceiveHookChain.newChain(hooks);
     }
 
@@ -20,33 +20,45 @@
  */
 package playRepository.hooks;
 
-import java.util.Collection;
+import java.util.Date;
+import java.util.Set;
 
-import models.PostReceiveMessage;
+import models.Issue;
+import models.IssueEvent;
 import models.Project;
 import models.User;
+import models.enumeration.EventType;
 
-import org.eclipse.jgit.transport.PostReceiveHook;
-import org.eclipse.jgit.transport.ReceiveCommand;
-import org.eclipse.jgit.transport.ReceivePack;
+import org.eclipse.jgit.revwalk.RevCommit;
 
-import actors.IssueReferredFromCommitEventActor;
-import akka.actor.Props;
+import playRepository.GitCommit;
 
-import play.libs.Akka;
-
-public class IssueReferredFromCommitEvent implements PostReceiveHook {
-    private Project project;
-    private User user;
-
-    public IssueReferredFromCommitEvent(Project project, User user) {
-        this.project = project;
-        this.user = user;
+/**
+ * Creates new events to tell that an issue is referred from a commit.
+ */
+public class IssueReferredFromCommitEvent implements PushEventConsumer {
+    @Override
+    public void accept(PushEvent event) {
+        for (RevCommit commit : event.getCommits()) {
+            addIssueEvent(commit, event.getProject(), event.getPusher());
+        }
     }
 
-    @Override
-    public void onPostReceive(ReceivePack receivePack, Collection<ReceiveCommand> commands) {
-        PostReceiveMessage message = new PostReceiveMessage(commands, project, user);
-        Akka.system().actorOf(Props.create(IssueReferredFromCommitEventActor.class)).tell(message, null);
+    private void addIssueEvent(RevCommit commit, Project project, User user) {
+        GitCommit gitCommit = new GitCommit(commit);
+        String fullMessage = gitCommit.getMessage();
+        Set<Issue> referredIssues = IssueEvent.findReferredIssue(fullMessage, project);
+        String newValue = gitCommit.getId();
+
+        for (Issue issue : referredIssues) {
+            IssueEvent issueEvent = new IssueEvent();
+            issueEvent.issue = issue;
+            issueEvent.senderLoginId = user.loginId;
+            issueEvent.senderEmail = user.email;
+            issueEvent.newValue = newValue;
+            issueEvent.created = new Date();
+            issueEvent.eventType = EventType.ISSUE_REFERRED_FROM_COMMIT;
+            issueEvent.save();
+        }
     }
 }
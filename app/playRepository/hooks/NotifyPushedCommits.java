@@ -20,33 +20,41 @@
  */
 package playRepository.hooks;
 
-import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
-import models.PostReceiveMessage;
+import models.NotificationEvent;
 import models.Project;
 import models.User;
+import models.Watch;
 
-import org.eclipse.jgit.transport.PostReceiveHook;
-import org.eclipse.jgit.transport.ReceiveCommand;
-import org.eclipse.jgit.transport.ReceivePack;
+import play.i18n.Messages;
 
-import actors.CommitsNotificationActor;
-import akka.actor.Props;
-
-import play.libs.Akka;
+/**
+ * Creates new commit notifications.
+ */
+public class NotifyPushedCommits implements PushEventConsumer {
+    @Override
+    public void accept(PushEvent event) {
+        Project project = event.getProject();
+        User sender = event.getPusher();
 
-public class NotifyPushedCommits implements PostReceiveHook {
-    private Project project;
-    private User user;
+        Set<User> watchers = Watch.findWatchers(project.asResource());
+        watchers.remove(sender);
 
-    public NotifyPushedCommits(Project project, User user) {
-        this.project = project;
-        this.user = user;
+        NotificationEvent.afterNewCommits(event.getCommits(), event.getRefNames(), project, sender,
+                titleOf(event), watchers);
     }
 
-    @Override
-    public void onPostReceive(ReceivePack receivePack, Collection<ReceiveCommand> commands) {
-        PostReceiveMessage message = new PostReceiveMessage(commands, project, user);
-        Akka.system().actorOf(Props.create(CommitsNotificationActor.class)).tell(message, null);
+    static String titleOf(PushEvent event) {
+        String projectName = event.getProject().name;
+        int numOfCommits = event.getCommits().size();
+        List<String> refNames = event.getRefNames();
+
+        if (refNames.size() == 1) {
+            return Messages.get("notification.pushed.commits.to", projectName, numOfCommits, refNames.get(0));
+        } else {
+            return Messages.get("notification.pushed.commits", projectName, numOfCommits);
+        }
     }
 }
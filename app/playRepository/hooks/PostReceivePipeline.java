@@ -0,0 +1,156 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package playRepository.hooks;
+
+import models.Project;
+import models.User;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.PostReceiveHook;
+import org.eclipse.jgit.transport.ReceiveCommand;
+import org.eclipse.jgit.transport.ReceivePack;
+import play.Logger;
+import playRepository.GitRepository;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the jobs to be done after a push.
+ *
+ * The commits a push has brought are walked only once, into a
+ * {@link PushEvent}, which is then passed to every registered
+ * {@link PushEventConsumer} in turn. Pushes are handled by a bounded pool of
+ * workers; if all of them are busy and the queue is full, the pushing thread
+ * handles its push by itself, which slows down pushes rather than piling
+ * them up. A consumer which fails is logged and does not stop the others.
+ */
+public class PostReceivePipeline implements PostReceiveHook {
+    private static final int WORKERS = play.Configuration.root().getInt(
+            "application.push.workers", 2);
+
+    private static final int QUEUE_SIZE = play.Configuration.root().getInt(
+            "application.push.queueSize", 100);
+
+    private static final List<PushEventConsumer> consumers = new CopyOnWriteArrayList<>();
+
+    private static final Map<String, ConsumerStatistics> statistics = new ConcurrentHashMap<>();
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            WORKERS, WORKERS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(QUEUE_SIZE),
+            new ThreadFactory() {
+                private final AtomicLong count = new AtomicLong();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "post-receive-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    static {
+        register(new IssueReferredFromCommitEvent());
+        register(new NotifyPushedCommits());
+        register(new SendPushWebhooks());
+        register(new PullRequestCheck());
+    }
+
+    private final Project project;
+    private final User pusher;
+
+    public PostReceivePipeline(Project project, User pusher) {
+        this.project = project;
+        this.pusher = pusher;
+    }
+
+    /**
+     * Adds a consumer to be run after every push, after the consumers added
+     * before.
+     *
+     * @param consumer
+     */
+    public static void register(PushEventConsumer consumer) {
+        consumers.add(consumer);
+        statistics.put(nameOf(consumer), new ConsumerStatistics());
+    }
+
+    @Override
+    public void onPostReceive(ReceivePack receivePack, Collection<ReceiveCommand> commands) {
+        final List<ReceiveCommand> received = new ArrayList<>(commands);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                PushEvent event;
+                try (Repository repository = GitRepository.buildGitRepository(project)) {
+                    event = PushEvent.walk(repository, project, pusher, received);
+                } catch (Exception e) {
+                    Logger.error("Failed to walk the commits pushed to " + project, e);
+                    return;
+                }
+                dispatch(event);
+            }
+        });
+    }
+
+    static void dispatch(PushEvent event) {
+        for (PushEventConsumer consumer : consumers) {
+            ConsumerStatistics stats = statistics.get(nameOf(consumer));
+            long start = System.nanoTime();
+            try {
+                consumer.accept(event);
+            } catch (Exception e) {
+                stats.failures.incrementAndGet();
+                Logger.error(nameOf(consumer) + " failed to handle a push to " + event.getProject(), e);
+            } finally {
+                stats.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * @return the number of handled pushes and the latency of each consumer
+     */
+    public static Map<String, String> getStatistics() {
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put("Post-receive pipeline: queued pushes",
+                executor.getQueue().size() + " / " + QUEUE_SIZE);
+        for (PushEventConsumer consumer : consumers) {
+            String name = nameOf(consumer);
+            ConsumerStatistics stats = statistics.get(name);
+            long count = stats.count.get();
+            result.put("Post-receive pipeline: " + name, String.format(
+                    "%d pushes, %d failures, %.1f ms on average, %.1f ms at most",
+                    count, stats.failures.get(),
+                    count == 0 ? 0.0 : stats.totalNanos.get() / 1e6 / count,
+                    stats.maxNanos.get() / 1e6));
+        }
+        return result;
+    }
+
+    private static String nameOf(PushEventConsumer consumer) {
+        return consumer.getClass().getSimpleName();
+    }
+
+    private static class ConsumerStatistics {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max;
+            do {
+                max = maxNanos.get();
+            } while (nanos > max && !maxNanos.compareAndSet(max, nanos));
+        }
+    }
+}
@@ -20,46 +20,26 @@
  */
 package playRepository.hooks;
 
-import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 
-import models.Project;
 import models.PullRequest;
 import models.PullRequestEventMessage;
-import models.User;
-
-import org.eclipse.jgit.transport.PostReceiveHook;
-import org.eclipse.jgit.transport.ReceiveCommand;
-import org.eclipse.jgit.transport.ReceivePack;
 
 import play.libs.Akka;
-import play.mvc.Http.Request;
 import actors.RelatedPullRequestMergingActor;
 import akka.actor.Props;
 
-public class PullRequestCheck implements PostReceiveHook {
-    private User user;
-    private Request request;
-    private Project project;
-
-    public PullRequestCheck(User user, Request request, Project project) {
-        this.user = user;
-        this.request = request;
-        this.project = project;
-    }
-
+public class PullRequestCheck implements PushEventConsumer {
     @Override
-    public void onPostReceive(ReceivePack receivePack, Collection<ReceiveCommand> commands) {
-        Set<String> branches = ReceiveCommandUtil.getUpdatedBranches(commands);
-        for (String branch : branches) {
-            PullRequestEventMessage message = new PullRequestEventMessage(user, request, project, branch);
+    public void accept(PushEvent event) {
+        for (String branch : event.getUpdatedBranches()) {
+            PullRequestEventMessage message = new PullRequestEventMessage(
+                    event.getPusher(), null, event.getProject(), branch);
             Akka.system().actorOf(Props.create(RelatedPullRequestMergingActor.class)).tell(message, null);
         }
 
-        Set<String> deletedBranches = ReceiveCommandUtil.getDeletedBranches(commands);
-        for (String branch : deletedBranches) {
-            List<PullRequest> pullRequests = PullRequest.findRelatedPullRequests(project, branch);
+        for (String branch : event.getDeletedBranches()) {
+            List<PullRequest> pullRequests = PullRequest.findRelatedPullRequests(event.getProject(), branch);
             for (PullRequest pullRequest : pullRequests) {
                 pullRequest.delete();
             }
@@ -0,0 +1,152 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package playRepository.hooks;
+
+import models.Project;
+import models.User;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.ReceiveCommand;
+import org.eclipse.jgit.transport.ReceiveCommand.Type;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * What a push has changed in a repository: the commands it has run and the
+ * commits it has brought. Immutable, so it is shared by all
+ * {@link PushEventConsumer}s.
+ */
+public class PushEvent {
+    private final Project project;
+    private final User pusher;
+    private final List<ReceiveCommand> commands;
+    private final List<RevCommit> commits;
+    private final List<String> refNames;
+
+    PushEvent(Project project, User pusher, Collection<ReceiveCommand> commands,
+              List<RevCommit> commits) {
+        this.project = project;
+        this.pusher = pusher;
+        this.commands = Collections.unmodifiableList(new ArrayList<>(commands));
+        this.commits = Collections.unmodifiableList(new ArrayList<>(commits));
+
+        List<String> refNames = new ArrayList<>();
+        for (ReceiveCommand command : commands) {
+            if (isNewOrUpdateCommand(command)) {
+                refNames.add(command.getRefName());
+            }
+        }
+        this.refNames = Collections.unmodifiableList(refNames);
+    }
+
+    /**
+     * Walks the commits the given commands have brought to the repository,
+     * all at once.
+     *
+     * The new tips of the updated refs are walked until the commits which
+     * were already reachable from their old tips, so a commit pushed to
+     * several branches appears only once. For a created ref, which may be a
+     * tag or an orphan branch, only its tip is taken.
+     *
+     * @param repository
+     * @param project
+     * @param pusher
+     * @param commands
+     * @return the event
+     * @throws IOException
+     */
+    static PushEvent walk(Repository repository, Project project, User pusher,
+                          Collection<ReceiveCommand> commands) throws IOException {
+        Set<RevCommit> commits = new LinkedHashSet<>();
+
+        try (RevWalk rw = new RevWalk(repository)) {
+            List<RevCommit> createdTips = new ArrayList<>();
+            boolean hasStart = false;
+
+            for (ReceiveCommand command : commands) {
+                if (!isNewOrUpdateCommand(command)) {
+                    continue;
+                }
+                RevCommit newTip = parseCommit(rw, command.getNewId());
+                if (newTip == null) {
+                    continue;
+                }
+                if (command.getOldId().equals(ObjectId.zeroId())) {
+                    createdTips.add(newTip);
+                    continue;
+                }
+                rw.markStart(newTip);
+                hasStart = true;
+                RevCommit oldTip = parseCommit(rw, command.getOldId());
+                if (oldTip != null) {
+                    rw.markUninteresting(oldTip);
+                }
+            }
+
+            if (hasStart) {
+                for (RevCommit commit : rw) {
+                    commits.add(commit);
+                }
+            }
+            commits.addAll(createdTips);
+        }
+
+        return new PushEvent(project, pusher, commands, new ArrayList<>(commits));
+    }
+
+    // The id may refer to a non-commit object, e.g. an annotated tag of a tree.
+    private static RevCommit parseCommit(RevWalk rw, ObjectId id) throws IOException {
+        try {
+            return rw.parseCommit(id);
+        } catch (IncorrectObjectTypeException e) {
+            return null;
+        }
+    }
+
+    static boolean isNewOrUpdateCommand(ReceiveCommand command) {
+        return ReceiveCommandUtil.isTypeMatching(command,
+                Type.CREATE, Type.UPDATE, Type.UPDATE_NONFASTFORWARD);
+    }
+
+    public Project getProject() {
+        return project;
+    }
+
+    public User getPusher() {
+        return pusher;
+    }
+
+    public List<ReceiveCommand> getCommands() {
+        return commands;
+    }
+
+    /**
+     * @return the commits the push has brought, each only once
+     */
+    public List<RevCommit> getCommits() {
+        return commits;
+    }
+
+    /**
+     * @return the names of the refs the push has created or updated
+     */
+    public List<String> getRefNames() {
+        return refNames;
+    }
+
+    public Set<String> getUpdatedBranches() {
+        return ReceiveCommandUtil.getUpdatedBranches(commands);
+    }
+
+    public Set<String> getDeletedBranches() {
+        return ReceiveCommandUtil.getDeletedBranches(commands);
+    }
+}
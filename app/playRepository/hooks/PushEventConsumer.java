@@ -0,0 +1,18 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package playRepository.hooks;
+
+/**
+ * A job to be done after a push, registered in {@link PostReceivePipeline}.
+ *
+ * Consumers run one after another on a worker of the pipeline, so a
+ * consumer must not block for long; hand slow work over to a queue of its
+ * own, as the webhooks do.
+ */
+public interface PushEventConsumer {
+    void accept(PushEvent event);
+}
@@ -0,0 +1,20 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package playRepository.hooks;
+
+import models.Webhook;
+
+/**
+ * Sends the push events to the webhooks of the project.
+ */
+public class SendPushWebhooks implements PushEventConsumer {
+    @Override
+    public void accept(PushEvent event) {
+        Webhook.sendPushEvent(event.getProject(), event.getCommits(), event.getRefNames(),
+                event.getPusher(), NotifyPushedCommits.titleOf(event));
+    }
+}
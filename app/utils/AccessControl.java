@@ -23,10 +23,15 @@ package utils;
 import models.*;
 import models.enumeration.Operation;
 import models.enumeration.ResourceType;
+import models.enumeration.RoleType;
 import models.resource.GlobalResource;
 import models.resource.Resource;
 import org.apache.commons.lang.BooleanUtils;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
 import static models.OrganizationUser.isAdmin;
 import static models.OrganizationUser.isMember;
 
@@ -344,6 +349,159 @@ public class AccessControl {
         }
     }
 
+    /**
+     * Returns true if the given user can update or delete every issue of the
+     * given project, whoever its author and assignee are.
+     *
+     * This lets many issues be checked at once. If this returns false, the
+     * user may still be allowed for some of them, e.g. as their author, so
+     * {@link #isAllowed} should be called for each of them.
+     *
+     * @param user
+     * @param project
+     * @param operation {@link Operation#UPDATE} or {@link Operation#DELETE}
+     * @return true if the user has the permission for every issue
+     */
+    public static boolean isAllowedForAllIssues(User user, Project project, Operation operation) {
+        if (isAnonymousNotAllowed() && user.isAnonymous()) {
+            return false;
+        }
+
+        if (user.isSiteManager()
+                || OrganizationUser.isAdmin(project.organization, user)
+                || user.isManagerOf(project)) {
+            return true;
+        }
+
+        switch (operation) {
+        case UPDATE:
+        case DELETE:
+            return user.isMemberOf(project)
+                    || isAllowedIfGroupMember(project, user);
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Returns the ids of the given projects which the given user can read.
+     *
+     * This gives the same answer as calling {@link #isAllowed} with
+     * {@link Operation#READ} for each project, but the memberships of the user
+     * are loaded at once instead of querying them for every project.
+     *
+     * @param user
+     * @param projects
+     * @return the ids of the readable projects
+     */
+    public static Set<Long> findReadableProjectIds(User user, Collection<Project> projects) {
+        Set<Long> readableProjectIds = new HashSet<>();
+
+        if (isAnonymousNotAllowed() && user.isAnonymous()) {
+            return readableProjectIds;
+        }
+
+        if (user.isSiteManager()) {
+            for (Project project : projects) {
+                readableProjectIds.add(project.id);
+            }
+            return readableProjectIds;
+        }
+
+        Set<Long> memberProjectIds = ProjectUser.findProjectIdsByUser(user.id);
+        Set<Long> adminOrganizationIds = user.isAnonymous() ? new HashSet<Long>()
+                : OrganizationUser.findOrganizationIdsByUser(user.id, RoleType.ORG_ADMIN);
+        Set<Long> memberOrganizationIds = user.isAnonymous() ? new HashSet<Long>()
+                : OrganizationUser.findOrganizationIdsByUser(user.id, RoleType.ORG_MEMBER);
+
+        for (Project project : projects) {
+            Long organizationId = project.hasGroup() ? project.organization.id : null;
+            if (project.isPublic()
+                    || memberProjectIds.contains(project.id)
+                    || adminOrganizationIds.contains(organizationId)
+                    || (project.isProtected() && memberOrganizationIds.contains(organizationId))) {
+                readableProjectIds.add(project.id);
+            }
+        }
+
+        return readableProjectIds;
+    }
+
+    /**
+     * Returns the ids of the users among {@code users} who are allowed to read
+     * the given resource.
+     *
+     * The answer is the same as {@link #isAllowed(User, Resource, Operation)}
+     * for each user, but the roles of all the users are looked up with a few
+     * queries. Only the users who are not allowed by any role, e.g. authors
+     * or assignees of a private project's resource, are checked one by one.
+     *
+     * @param users
+     * @param resource
+     * @return the ids of the users allowed to read the resource
+     */
+    public static Set<Long> findReadableUserIds(Collection<User> users, Resource resource) {
+        Set<Long> readableUserIds = new HashSet<>();
+
+        Project project = (resource instanceof GlobalResource) ? null : resource.getProject();
+        if (project == null || !isReadableByRole(resource.getType())) {
+            for (User user : users) {
+                if (isAllowed(user, resource, Operation.READ)) {
+                    readableUserIds.add(user.id);
+                }
+            }
+            return readableUserIds;
+        }
+
+        Set<Long> userIds = new HashSet<>();
+        for (User user : users) {
+            if (!user.isAnonymous()) {
+                userIds.add(user.id);
+            }
+        }
+
+        // Anyone can read public project's resource.
+        if (project.isPublic()) {
+            readableUserIds.addAll(userIds);
+        } else {
+            readableUserIds.addAll(SiteAdmin.findAdminIds(userIds));
+            readableUserIds.addAll(ProjectUser.findMemberIds(project.id, userIds));
+            if (project.hasGroup()) {
+                readableUserIds.addAll(OrganizationUser.findUserIds(
+                        project.organization.id, RoleType.ORG_ADMIN, userIds));
+                if (project.isProtected()) {
+                    readableUserIds.addAll(OrganizationUser.findUserIds(
+                            project.organization.id, RoleType.ORG_MEMBER, userIds));
+                }
+            }
+        }
+
+        for (User user : users) {
+            if (!readableUserIds.contains(user.id) && isAllowed(user, resource, Operation.READ)) {
+                readableUserIds.add(user.id);
+            }
+        }
+
+        return readableUserIds;
+    }
+
+    /**
+     * Whether the permission to read a resource of the given type depends
+     * only on the roles in its project.
+     */
+    private static boolean isReadableByRole(ResourceType resourceType) {
+        switch (resourceType) {
+            case PROJECT_TRANSFER:
+            case ISSUE_STATE:
+            case ISSUE_ASSIGNEE:
+            case ISSUE_MILESTONE:
+            case ATTACHMENT:
+                return false;
+            default:
+                return true;
+        }
+    }
+
     public static void onStart() {
         allowsAnonymousAccess = BooleanUtils.toBoolean(
                 play.Configuration.root().getBoolean("application.allowsAnonymousAccess", true));
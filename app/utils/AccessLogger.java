@@ -61,6 +61,18 @@ public class AccessLogger {
         }
     }
 
+    /**
+     * Log a message for an HTTP request, without the queries run to serve it.
+     *
+     * @param request an HTTP request
+     * @param startTimeMillis the time in milliseconds when the request is received
+     * @see #log(play.mvc.Http.Request, play.libs.F.Promise, Long, QueryStatistics.Usage)
+     */
+    public static void log(final Http.Request request, final Promise<Result> promise,
+            final Long startTimeMillis) {
+        log(request, promise, startTimeMillis, null);
+    }
+
     /**
      * Log a message for an HTTP request.
      *
@@ -76,24 +88,28 @@ public class AccessLogger {
      *    end of log entry.
      * 3. The ident field and size of response in bytes is always empty with "-",
      *    because of functional limitation of Yobi.
+     * 4. The number of queries run to serve the request and the time they have
+     *    taken are added at the end of log entry, or "-" if queries are not
+     *    instrumented by {@link InstrumentedDriver}.
      *
      * Here is an example:
      *
-     * 127.0.0.1 - eungjun [16/Oct/2013:18:31:31 +0900] "GET /messages.js HTTP/1.1" 200 - "http://yobi:9000/" "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/28.0.1500.95 Safari/537.36" 18ms
+     * 127.0.0.1 - eungjun [16/Oct/2013:18:31:31 +0900] "GET /messages.js HTTP/1.1" 200 - "http://yobi:9000/" "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/28.0.1500.95 Safari/537.36" 18ms 12q/7ms
      *
      * @param request an HTTP request
      * @param startTimeMillis the time in milliseconds when the request is received
+     * @param queries the queries run to serve the request, or {@code null}
      * @see <a href="http://httpd.apache.org/docs/2.2/en/logs.html#combined">Combined Log Format - Apache HTTP Server</a>
      * @see <a href="http://httpd.apache.org/docs/2.2/mod/mod_log_config.html#formats">Custom Log Formats - Apache HTTP Server</a>
      */
     public static void log(final Http.Request request, final Promise<Result> promise,
-            final Long startTimeMillis) {
+            final Long startTimeMillis, final QueryStatistics.Usage queries) {
         final String username = UserApp.currentUser().loginId;
         promise.onRedeem(new Callback<Result>() {
             @Override
             public void invoke(final Result result) throws Throwable {
                 log(request, username, result.toScala().header().status(),
-                        startTimeMillis);
+                        startTimeMillis, queries);
             }
         });
     }
@@ -118,7 +134,7 @@ public class AccessLogger {
      * @see <a href="http://httpd.apache.org/docs/2.2/logs.html">Log Files - Apache HTTP Server</a>
      */
     public static void log(Http.RequestHeader request, String username, int status) {
-        log(request, username, status, null);
+        log(request, username, status, null, null);
     }
 
     /**
@@ -132,10 +148,11 @@ public class AccessLogger {
      * @param username an username of HTTP request from {@link play.mvc.Http.Request#username()}
      * @param status HTTP status code
      * @param startTimeMillis the time in milliseconds when the request is received
+     * @param queries the queries run to serve the request
      * @see <a href="http://httpd.apache.org/docs/2.2/logs.html">Log Files - Apache HTTP Server</a>
      */
     private static void log(Http.RequestHeader request, String username, int status,
-                            Long startTimeMillis) {
+                            Long startTimeMillis, QueryStatistics.Usage queries) {
         if (request == null) {
             return;
         }
@@ -146,13 +163,13 @@ public class AccessLogger {
                 ((System.currentTimeMillis() - startTimeMillis) + "ms") : "-";
 
         String uri = request.uri();
-        String entry = String.format("%s - %s [%s] \"%s %s %s\" %d - %s %s %s",
+        String entry = String.format("%s - %s [%s] \"%s %s %s\" %d - %s %s %s %s",
                 request.remoteAddress(), orHyphen(username),
                 format.format(new Date()), request.method(), request.uri(),
                 request.version(), status,
                 quotedOrHyphen(request.getHeader("Referer")),
                 quotedOrHyphen(request.getHeader("User-Agent")),
-                time);
+                time, (queries != null) ? queries.toString() : "-");
 
         play.Logger.of("access." + uri).info(entry);
     }
@@ -20,11 +20,17 @@
  */
 package utils;
 
+import com.avaje.ebean.Expr;
+import com.avaje.ebean.Junction;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
 import controllers.UserApp;
+import models.Attachment;
 import models.Issue;
 import models.Organization;
 import models.Project;
 import models.User;
+import models.enumeration.ResourceType;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.StringEscapeUtils;
@@ -32,15 +38,12 @@ import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.nodes.TextNode;
-import org.jsoup.select.Elements;
-import org.tmatesoft.svn.core.SVNException;
+import play.Logger;
 import playRepository.Commit;
-import playRepository.PlayRepository;
-import playRepository.RepositoryService;
+import playRepository.GitRepository;
 
-import javax.servlet.ServletException;
 import java.io.IOException;
-import java.util.List;
+import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -60,6 +63,12 @@ import java.util.regex.Pattern;
  * {@literal @}User: {@code <a href="The link to specific user">@User</a>}
  * {@literal @}User/Project: {@code <a href="The link to specific project">@User/Project</a>}
  * </pre>
+ *
+ * <p>Rendering is done in two phases. The text is scanned once to collect every
+ * candidate reference, and the candidates are resolved in bulk: one query per
+ * kind of entity and one object reader per repository for commits. The linked
+ * HTML is cached with a key made of the source and the state of every resolved
+ * reference, so an edited, renamed or deleted target changes the key.</p>
  */
 public class AutoLinkRenderer {
     private static final String PATH_PATTERN_STR = "[a-zA-Z0-9-_.가-힣/]+";
@@ -112,164 +121,246 @@ public class AutoLinkRenderer {
         }
     }
 
-    private static interface ToLink {
-        public Link toLink(Matcher matcher);
-    }
+    /**
+     * A pattern of references, which knows how to collect the candidates of a
+     * match and how to make a link from it once the candidates are resolved.
+     */
+    private static abstract class LinkPattern {
+        private final Pattern pattern;
 
-    public String body;
-    public Project project;
+        LinkPattern(Pattern pattern) {
+            this.pattern = pattern;
+        }
 
-    public AutoLinkRenderer(String body, Project project) {
-        this.body = body;
-        this.project = project;
-    }
+        abstract void collect(Matcher matcher, References references);
 
-    public String render() {
-        this.parse(PATH_WITH_ISSUE_PATTERN, new ToLink() {
-            @Override
-            public Link toLink(Matcher matcher) {
-                String path = matcher.group(1);
-                String issueNumber = matcher.group(2);
+        abstract Link toLink(Matcher matcher, References references);
 
-                Project project = getProjectFromPath(path);
-                return toValidIssueLink(path, project, issueNumber);
-            }
-        });
+        void collectAll(String text, References references) {
+            Matcher matcher = pattern.matcher(text);
 
-        parse(ISSUE_PATTERN, new ToLink() {
-            @Override
-            public Link toLink(Matcher matcher) {
-                return toValidIssueLink(project, matcher.group(1));
+            while (matcher.find()) {
+                if (!isWrappedNonCharacter(text, matcher)) {
+                    collect(matcher, references);
+                }
             }
-        });
+        }
 
-        parse(PATH_WITH_SHA_PATTERN, new ToLink() {
-            @Override
-            public Link toLink(Matcher matcher) {
-                String path = matcher.group(1);
-                String SHA = matcher.group(2);
+        /**
+         * Splits the given text into texts and links made from the valid
+         * references in it.
+         */
+        List<Object> split(String text, References references) {
+            List<Object> segments = new ArrayList<>();
+            Matcher matcher = pattern.matcher(text);
+            int last = 0;
+
+            while (matcher.find()) {
+                if (isWrappedNonCharacter(text, matcher)) {
+                    continue;
+                }
+
+                Link link = toLink(matcher, references);
 
-                Project project = getProjectFromPath(path);
-                return toValidSHALink(path, project, SHA);
+                if (link.isValid()) {
+                    if (matcher.start() > last) {
+                        segments.add(text.substring(last, matcher.start()));
+                    }
+                    segments.add(link);
+                    last = matcher.end();
+                }
             }
-        });
 
-        parse(SHA_PATTERN, new ToLink() {
-            @Override
-            public Link toLink(Matcher matcher) {
-                return toValidSHALink(project, matcher.group(1));
+            if (last < text.length()) {
+                segments.add(text.substring(last));
             }
-        });
 
-        parse(LOGIN_ID_PATTERN_ALLOW_FORWARD_SLASH_PATTERN, new ToLink() {
-            @Override
-            public Link toLink(Matcher matcher) {
-                String path = matcher.group(1);
+            return segments;
+        }
+    }
 
-                int slashIndex = path.indexOf("/");
+    /**
+     * The patterns in the order they are applied. A text which is turned into a
+     * link by a pattern is not looked at by the following ones.
+     */
+    private static final List<LinkPattern> LINK_PATTERNS = Arrays.asList(
+            new LinkPattern(PATH_WITH_ISSUE_PATTERN) {
+                @Override
+                void collect(Matcher matcher, References references) {
+                    references.addIssue(matcher.group(1), matcher.group(2));
+                }
 
-                if (slashIndex > -1) {
-                    return toValidProjectLink(path.substring(0, slashIndex), path.substring(slashIndex + 1));
-                } else {
-                    return toValidUserLink(path);
+                @Override
+                Link toLink(Matcher matcher, References references) {
+                    String path = matcher.group(1);
+                    return toValidIssueLink(path, references.getProject(path), matcher.group(2), references);
+                }
+            },
+            new LinkPattern(ISSUE_PATTERN) {
+                @Override
+                void collect(Matcher matcher, References references) {
+                    references.addIssue(null, matcher.group(1));
+                }
+
+                @Override
+                Link toLink(Matcher matcher, References references) {
+                    return toValidIssueLink(StringUtils.EMPTY, references.project, matcher.group(1), references);
+                }
+            },
+            new LinkPattern(PATH_WITH_SHA_PATTERN) {
+                @Override
+                void collect(Matcher matcher, References references) {
+                    references.addCommit(matcher.group(1), matcher.group(2));
+                }
+
+                @Override
+                Link toLink(Matcher matcher, References references) {
+                    String path = matcher.group(1);
+                    return toValidSHALink(path, references.getProject(path), matcher.group(2), references);
+                }
+            },
+            new LinkPattern(SHA_PATTERN) {
+                @Override
+                void collect(Matcher matcher, References references) {
+                    references.addCommit(null, matcher.group(1));
+                }
+
+                @Override
+                Link toLink(Matcher matcher, References references) {
+                    return toValidSHALink(StringUtils.EMPTY, references.project, matcher.group(1), references);
+                }
+            },
+            new LinkPattern(LOGIN_ID_PATTERN_ALLOW_FORWARD_SLASH_PATTERN) {
+                @Override
+                void collect(Matcher matcher, References references) {
+                    String path = matcher.group(1);
+
+                    if (path.contains("/")) {
+                        references.addProject(path);
+                    } else {
+                        references.addLoginId(path);
+                    }
+                }
+
+                @Override
+                Link toLink(Matcher matcher, References references) {
+                    String path = matcher.group(1);
+
+                    if (path.contains("/")) {
+                        return toValidProjectLink(references.getProject(path));
+                    } else {
+                        return toValidUserLink(path, references);
+                    }
                 }
             }
-        });
+    );
 
-        return this.body;
+    public String body;
+    public Project project;
+
+    public AutoLinkRenderer(String body, Project project) {
+        this.body = body;
+        this.project = project;
     }
 
-    private AutoLinkRenderer parse(Pattern pattern, ToLink toLink) {
+    public String render() {
         Document doc = Jsoup.parse(body);
 
         Document.OutputSettings settings = doc.outputSettings();
         settings.prettyPrint(false);
 
-        Elements elements = doc.getElementsMatchingOwnText(pattern);
+        List<TextNode> textNodes = new ArrayList<>();
+        for (Element el : doc.getAllElements()) {
+            if (!isIgnoreElement(el)) {
+                textNodes.addAll(el.textNodes());
+            }
+        }
 
-        for (Element el : elements) {
-            if (isIgnoreElement(el)) {
-                continue;
+        References references = new References(project);
+        for (TextNode node : textNodes) {
+            String text = node.toString();
+            for (LinkPattern linkPattern : LINK_PATTERNS) {
+                linkPattern.collectAll(text, references);
             }
+        }
+        references.resolve();
 
-            List<TextNode> textNodeList = el.textNodes();
+        String cacheKey = references.getCacheKey(body);
+        byte[] cached = CacheStore.autoLinkedHtml.getIfPresent(cacheKey);
+        if (cached != null) {
+            this.body = ZipUtil.decompress(cached);
+            return this.body;
+        }
 
-            for (TextNode node : textNodeList) {
-                String result = convertLink(node.toString(), pattern, toLink);
+        for (TextNode node : textNodes) {
+            String text = node.toString();
+            String result = convertLink(text, references);
+
+            if (!result.equals(text)) {
                 node.text(StringUtils.EMPTY);
                 node.after(result);
             }
         }
 
         this.body = doc.body().html();
-        return this;
+
+        if (references.isComplete()) {
+            CacheStore.autoLinkedHtml.put(cacheKey, ZipUtil.compress(this.body));
+        }
+
+        return this.body;
     }
 
     /**
      * Using patterns, certain reference into auto-link, using pattern
      *
-     * @param pattern
-     * @param toLink
+     * @param text
+     * @param references
      * @return
      */
-    private String convertLink(String text, Pattern pattern, ToLink toLink) {
-        Matcher matcher = pattern.matcher(text);
+    private static String convertLink(String text, References references) {
+        List<Object> segments = new ArrayList<>();
+        segments.add(text);
 
-        StringBuffer sb = new StringBuffer();
+        for (LinkPattern linkPattern : LINK_PATTERNS) {
+            List<Object> result = new ArrayList<>();
 
-        while (matcher.find()) {
-            if (isWrappedNonCharacter(text, matcher)) {
-                continue;
+            for (Object segment : segments) {
+                if (segment instanceof String) {
+                    result.addAll(linkPattern.split((String) segment, references));
+                } else {
+                    result.add(segment);
+                }
             }
-            Link link = toLink.toLink(matcher);
 
-            if (link.isValid()) {
-                matcher.appendReplacement(sb, link.toString());
-            }
+            segments = result;
         }
 
-        matcher.appendTail(sb);
-        return sb.toString();
-    }
-
-    /**
-     * Get a project from a path consisting of owner and project's name
-     *
-     * @param path
-     * @return
-     */
-    private Project getProjectFromPath(String path) {
-        int slashIndex = path.indexOf("/");
-
-        /**
-         * If owner has same named project, the project name can be skipped
-         * See https://help.github.com/articles/writing-on-github/#references
-         */
-        if (slashIndex > -1) {
-            return Project.findByOwnerAndProjectName(path.substring(0, slashIndex), path.substring(slashIndex + 1));
-        } else {
-
-            return Project.findByOwnerAndProjectName(path, project.name);
+        StringBuilder sb = new StringBuilder();
+        for (Object segment : segments) {
+            sb.append(segment);
         }
-    }
 
-    private Link toValidIssueLink(Project project, String issueNumber) {
-        return toValidIssueLink(StringUtils.EMPTY, project, issueNumber);
+        return sb.toString();
     }
 
-    private Link toValidIssueLink(String prefix, Project project, String issueNumber) {
+    private static Link toValidIssueLink(String prefix, Project project, String issueNumber,
+                                         References references) {
         if (project != null) {
-            Issue issue = Issue.findByNumber(project, Long.parseLong(issueNumber));
+            Issue issue = references.getIssue(project, issueNumber);
 
             if (issue != null) {
+                String url = controllers.routes.IssueApp.issue(
+                        project.owner, project.name, issue.getNumber()).url();
+
                 /**
                  * CSS class name of a link to specific issue is 'issueLink'.
                  * CSS class name can enable to show the quick view of issue.
                  */
                 if (StringUtils.isEmpty(prefix)) {
-                    return new Link(RouteUtil.getUrl(issue), "issueLink", "#" + issueNumber);
+                    return new Link(url, "issueLink", "#" + issueNumber);
                 } else {
-                    return new Link(RouteUtil.getUrl(issue), "issueLink", prefix + "#" + issueNumber);
+                    return new Link(url, "issueLink", prefix + "#" + issueNumber);
                 }
             }
         }
@@ -277,68 +368,55 @@ public class AutoLinkRenderer {
         return Link.EMPTY_LINK;
     }
 
-    private Link toValidSHALink(Project project, String SHA) {
-        return toValidSHALink(StringUtils.EMPTY, project, SHA);
-    }
-
-    private Link toValidSHALink(String prefix, Project project, String sha) {
+    private static Link toValidSHALink(String prefix, Project project, String sha,
+                                       References references) {
         if (project != null) {
-            try {
-                if (!project.isCodeAvailable() || !project.isGit()) {
-                    return Link.EMPTY_LINK;
-                }
-
-                PlayRepository repository = RepositoryService.getRepository(project);
-
-                if (repository != null) {
-                    Commit commit = repository.getCommit(sha);
+            Commit commit = references.getCommit(project, sha);
 
-                    if (commit != null) {
-                        if (StringUtils.isEmpty(prefix)) {
-                            return new Link(RouteUtil.getUrl(commit, project), commit.getShortId());
-                        } else {
-                            return new Link(RouteUtil.getUrl(commit, project), prefix + "@" + commit.getShortId());
-                        }
-                    }
+            if (commit != null) {
+                if (StringUtils.isEmpty(prefix)) {
+                    return new Link(RouteUtil.getUrl(commit, project), commit.getShortId());
+                } else {
+                    return new Link(RouteUtil.getUrl(commit, project), prefix + "@" + commit.getShortId());
                 }
-            } catch (SVNException svnException) {
-                return Link.EMPTY_LINK;
-            } catch (IOException ioException) {
-                return Link.EMPTY_LINK;
-            } catch (ServletException servletException) {
-                return Link.EMPTY_LINK;
             }
         }
 
         return Link.EMPTY_LINK;
     }
 
-    private static Link toValidUserLink(String userId) {
-        User user = User.findByLoginId(userId);
-        Organization org = Organization.findByName(userId);
+    private static Link toValidUserLink(String userId, References references) {
+        Organization org = references.getOrganization(userId);
 
         if(org != null) {
-            return new Link(RouteUtil.getUrl(org), "@" + org.name);
+            return new Link(controllers.routes.OrganizationApp.organization(org.name).url(), "@" + org.name);
         }
 
+        User user = references.getUser(userId);
+
         if (user.isAnonymous() ) {
             return Link.EMPTY_LINK;
         } else {
             String avatarImage;
-            if( user.avatarUrl().equals(UserApp.DEFAULT_AVATAR_URL) ){
+            String avatarUrl = references.getAvatarUrl(user);
+            if( avatarUrl.equals(UserApp.DEFAULT_AVATAR_URL) ){
                 avatarImage = "";
             } else {
-                avatarImage = "<img src='" + user.avatarUrl() + "' class='avatar-wrap smaller no-margin-no-padding vertical-top' alt='@" + user.loginId + "'> ";
+                avatarImage = "<img src='" + avatarUrl + "' class='avatar-wrap smaller no-margin-no-padding vertical-top' alt='@" + user.loginId + "'> ";
             }
-            return new Link(RouteUtil.getUrl(user), "no-text-decoration", "<span data-toggle='popover' data-placement='top' data-trigger='hover' data-html='true' data-content=\"" + StringEscapeUtils.escapeHtml4(avatarImage + user.name) + "\">@" + user.loginId + "</span>");
+            String url = controllers.routes.UserApp.userInfo(user.loginId,
+                    controllers.routes.UserApp.userInfo$default$2(),
+                    controllers.routes.UserApp.userInfo$default$3(),
+                    controllers.routes.UserApp.userInfo$default$4(),
+                    controllers.routes.UserApp.userInfo$default$5()).url();
+            return new Link(url, "no-text-decoration", "<span data-toggle='popover' data-placement='top' data-trigger='hover' data-html='true' data-content=\"" + StringEscapeUtils.escapeHtml4(avatarImage + user.name) + "\">@" + user.loginId + "</span>");
         }
     }
 
-    private static Link toValidProjectLink(String ownerName, String projectName) {
-        Project project = Project.findByOwnerAndProjectName(ownerName, projectName);
-
+    private static Link toValidProjectLink(Project project) {
         if (project != null) {
-            return new Link(RouteUtil.getUrl(project), "@" + project.toString());
+            return new Link(controllers.routes.ProjectApp.project(project.owner, project.name).url(),
+                    "@" + project.toString());
         } else {
             return Link.EMPTY_LINK;
         }
@@ -349,7 +427,7 @@ public class AutoLinkRenderer {
      * @param el
      * @return
      */
-    private boolean isIgnoreElement(Element el) {
+    private static boolean isIgnoreElement(Element el) {
         return ArrayUtils.contains(IGNORE_TAGNAME, el.tagName().toUpperCase());
     }
 
@@ -364,4 +442,382 @@ public class AutoLinkRenderer {
         return (matcher.start() != 0 && WORD_PATTERN.matcher(body.substring(matcher.start() - 1, matcher.start())).find()) ||
                 (matcher.end() != body.length() && WORD_PATTERN.matcher(body.substring(matcher.end(), matcher.end() + 1)).find());
     }
+
+    /**
+     * The references found in a text and the entities they point.
+     *
+     * References are collected first and resolved at once by {@link #resolve()}.
+     * A reference which was not collected is still looked up on demand, but then
+     * the result is not {@link #isComplete() complete} and must not be cached
+     * because the cache key does not cover it.
+     */
+    private static class References {
+        private final Project project;
+
+        private final Map<String, Project> projects = new HashMap<>();
+        private final Map<String, Issue> issues = new HashMap<>();
+        private final Map<String, Commit> commits = new HashMap<>();
+        private final Map<String, User> users = new HashMap<>();
+        private final Map<String, Organization> organizations = new HashMap<>();
+        private final Map<Long, Long> avatarIds = new HashMap<>();
+        private final Set<Long> avatarResolvedUserIds = new HashSet<>();
+
+        private final Map<String, Set<Long>> issueNumbers = new HashMap<>();
+        private final Map<String, Set<String>> shas = new HashMap<>();
+        private final Set<String> loginIds = new HashSet<>();
+
+        private boolean complete = true;
+
+        References(Project project) {
+            this.project = project;
+            if (project != null) {
+                projects.put(projectKey(project.owner, project.name), project);
+            }
+        }
+
+        /**
+         * Returns the key of the project the given path points. If the owner
+         * has a project with the same name as the current project, the project
+         * name can be skipped.
+         *
+         * See https://help.github.com/articles/writing-on-github/#references
+         */
+        private String projectKeyOf(String path) {
+            if (path == null) {
+                return project == null ? null : projectKey(project.owner, project.name);
+            }
+
+            int slashIndex = path.indexOf("/");
+
+            if (slashIndex > -1) {
+                return projectKey(path.substring(0, slashIndex), path.substring(slashIndex + 1));
+            } else {
+                return project == null ? null : projectKey(path, project.name);
+            }
+        }
+
+        private static String projectKey(String owner, String name) {
+            return (owner + "/" + name).toLowerCase();
+        }
+
+        void addProject(String path) {
+            String key = projectKeyOf(path);
+            if (key != null && !projects.containsKey(key)) {
+                projects.put(key, null);
+            }
+        }
+
+        void addIssue(String path, String number) {
+            addProject(path);
+            String key = projectKeyOf(path);
+            if (key != null && number.length() < 19) {
+                getOrCreate(issueNumbers, key).add(Long.parseLong(number));
+            }
+        }
+
+        void addCommit(String path, String sha) {
+            addProject(path);
+            String key = projectKeyOf(path);
+            if (key != null) {
+                getOrCreate(shas, key).add(sha);
+            }
+        }
+
+        void addLoginId(String loginId) {
+            loginIds.add(loginId);
+        }
+
+        private static <T> Set<T> getOrCreate(Map<String, Set<T>> map, String key) {
+            Set<T> set = map.get(key);
+            if (set == null) {
+                set = new HashSet<>();
+                map.put(key, set);
+            }
+            return set;
+        }
+
+        void resolve() {
+            resolveProjects();
+            resolveIssues();
+            resolveCommits();
+            resolveUsers();
+        }
+
+        private void resolveProjects() {
+            List<String[]> paths = new ArrayList<>();
+            for (Map.Entry<String, Project> entry : projects.entrySet()) {
+                if (entry.getValue() == null) {
+                    paths.add(entry.getKey().split("/", 2));
+                }
+            }
+
+            if (paths.isEmpty()) {
+                return;
+            }
+
+            Junction<Project> junction = Project.find.fetch("menuSetting").where().disjunction();
+            for (String[] path : paths) {
+                junction.add(Expr.and(Expr.ieq("owner", path[0]), Expr.ieq("name", path[1])));
+            }
+
+            for (Project found : junction.endJunction().findList()) {
+                projects.put(projectKey(found.owner, found.name), found);
+            }
+        }
+
+        private void resolveIssues() {
+            Map<Long, String> projectKeys = new HashMap<>();
+            Set<Long> numbers = new HashSet<>();
+
+            for (Map.Entry<String, Set<Long>> entry : issueNumbers.entrySet()) {
+                Project target = projects.get(entry.getKey());
+                if (target != null) {
+                    projectKeys.put(target.id, entry.getKey());
+                    numbers.addAll(entry.getValue());
+                    for (Long number : entry.getValue()) {
+                        issues.put(issueKey(target, number), null);
+                    }
+                }
+            }
+
+            if (projectKeys.isEmpty()) {
+                return;
+            }
+
+            List<Issue> found = Issue.finder.where()
+                    .in("project.id", projectKeys.keySet())
+                    .in("number", numbers)
+                    .findList();
+
+            for (Issue issue : found) {
+                String key = issue.project.id + "#" + issue.getNumber();
+                if (issues.containsKey(key)) {
+                    issues.put(key, issue);
+                }
+            }
+        }
+
+        private void resolveCommits() {
+            for (Map.Entry<String, Set<String>> entry : shas.entrySet()) {
+                Project target = projects.get(entry.getKey());
+                if (target == null) {
+                    continue;
+                }
+
+                for (String sha : entry.getValue()) {
+                    commits.put(commitKey(target, sha), null);
+                }
+
+                if (!target.isCodeAvailable() || !target.isGit()) {
+                    continue;
+                }
+
+                GitRepository repository = null;
+                try {
+                    repository = new GitRepository(target.owner, target.name);
+                    for (Map.Entry<String, Commit> found
+                            : repository.getCommitsByIds(entry.getValue()).entrySet()) {
+                        commits.put(commitKey(target, found.getKey()), found.getValue());
+                    }
+                } catch (IOException e) {
+                    Logger.warn("Failed to find commits referred in " + target, e);
+                } finally {
+                    if (repository != null) {
+                        repository.close();
+                    }
+                }
+            }
+        }
+
+        private void resolveUsers() {
+            if (loginIds.isEmpty()) {
+                return;
+            }
+
+            for (String loginId : loginIds) {
+                users.put(loginId, User.anonymous);
+                organizations.put(loginId.toLowerCase(), null);
+            }
+
+            List<Long> userIds = new ArrayList<>();
+            for (User user : User.find.where().in("loginId", loginIds).findList()) {
+                users.put(user.loginId, user);
+                userIds.add(user.id);
+            }
+
+            Junction<Organization> junction = Organization.find.where().disjunction();
+            for (String loginId : loginIds) {
+                junction.ieq("name", loginId);
+            }
+            for (Organization org : junction.endJunction().findList()) {
+                organizations.put(org.name.toLowerCase(), org);
+            }
+
+            resolveAvatars(userIds);
+        }
+
+        private void resolveAvatars(Collection<Long> userIds) {
+            if (userIds.isEmpty()) {
+                return;
+            }
+
+            avatarResolvedUserIds.addAll(userIds);
+
+            List<String> containerIds = new ArrayList<>();
+            for (Long userId : userIds) {
+                containerIds.add(userId.toString());
+            }
+
+            // The last attached avatar is the current one.
+            List<Attachment> attachments = Attachment.find.where()
+                    .eq("containerType", ResourceType.USER_AVATAR)
+                    .in("containerId", containerIds)
+                    .orderBy("id asc")
+                    .findList();
+
+            for (Attachment attachment : attachments) {
+                avatarIds.put(Long.valueOf(attachment.containerId), attachment.id);
+            }
+        }
+
+        private static String issueKey(Project project, Long number) {
+            return project.id + "#" + number;
+        }
+
+        private static String commitKey(Project project, String sha) {
+            return project.id + "@" + sha;
+        }
+
+        Project getProject(String path) {
+            String key = projectKeyOf(path);
+            if (key == null) {
+                return null;
+            }
+
+            if (!projects.containsKey(key)) {
+                complete = false;
+                String[] ownerAndName = key.split("/", 2);
+                projects.put(key, Project.findByOwnerAndProjectName(ownerAndName[0], ownerAndName[1]));
+            }
+
+            return projects.get(key);
+        }
+
+        Issue getIssue(Project project, String number) {
+            if (number.length() >= 19) {
+                return null;
+            }
+
+            String key = issueKey(project, Long.parseLong(number));
+
+            if (!issues.containsKey(key)) {
+                complete = false;
+                issues.put(key, Issue.findByNumber(project, Long.parseLong(number)));
+            }
+
+            return issues.get(key);
+        }
+
+        Commit getCommit(Project project, String sha) {
+            String key = commitKey(project, sha);
+
+            if (!commits.containsKey(key)) {
+                complete = false;
+                Commit commit = null;
+                if (project.isCodeAvailable() && project.isGit()) {
+                    GitRepository repository = null;
+                    try {
+                        repository = new GitRepository(project.owner, project.name);
+                        commit = repository.getCommitsByIds(Collections.singleton(sha)).get(sha);
+                    } catch (IOException e) {
+                        Logger.warn("Failed to find a commit referred in " + project, e);
+                    } finally {
+                        if (repository != null) {
+                            repository.close();
+                        }
+                    }
+                }
+                commits.put(key, commit);
+            }
+
+            return commits.get(key);
+        }
+
+        User getUser(String loginId) {
+            if (!users.containsKey(loginId)) {
+                complete = false;
+                users.put(loginId, User.findByLoginId(loginId));
+            }
+
+            return users.get(loginId);
+        }
+
+        Organization getOrganization(String name) {
+            String key = name.toLowerCase();
+
+            if (!organizations.containsKey(key)) {
+                complete = false;
+                organizations.put(key, Organization.findByName(name));
+            }
+
+            return organizations.get(key);
+        }
+
+        String getAvatarUrl(User user) {
+            if (!avatarResolvedUserIds.contains(user.id)) {
+                complete = false;
+                return user.avatarUrl();
+            }
+
+            Long avatarId = avatarIds.get(user.id);
+            if (avatarId == null) {
+                return UserApp.DEFAULT_AVATAR_URL;
+            } else {
+                return controllers.routes.AttachmentApp.getFile(avatarId).url();
+            }
+        }
+
+        boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * Returns a cache key of the given source and every resolved reference,
+         * including the parts of the referred entities which appear in links.
+         */
+        String getCacheKey(String source) {
+            StringBuilder sb = new StringBuilder();
+
+            for (Map.Entry<String, Project> entry : new TreeMap<>(projects).entrySet()) {
+                Project p = entry.getValue();
+                sb.append(entry.getKey()).append('=')
+                        .append(p == null ? "" : p.id + "/" + p.owner + "/" + p.name + "/"
+                                + p.isCodeAvailable() + "/" + p.vcs).append('\n');
+            }
+            for (Map.Entry<String, Issue> entry : new TreeMap<>(issues).entrySet()) {
+                sb.append(entry.getKey()).append('=')
+                        .append(entry.getValue() == null ? "" : entry.getValue().id).append('\n');
+            }
+            for (Map.Entry<String, Commit> entry : new TreeMap<>(commits).entrySet()) {
+                sb.append(entry.getKey()).append('=')
+                        .append(entry.getValue() == null ? "" : entry.getValue().getId()).append('\n');
+            }
+            for (Map.Entry<String, User> entry : new TreeMap<>(users).entrySet()) {
+                User user = entry.getValue();
+                sb.append(entry.getKey()).append('=')
+                        .append(user.isAnonymous() ? "" : user.id + "/" + user.name + "/" + avatarIds.get(user.id))
+                        .append('\n');
+            }
+            for (Map.Entry<String, Organization> entry : new TreeMap<>(organizations).entrySet()) {
+                Organization org = entry.getValue();
+                sb.append(entry.getKey()).append('=')
+                        .append(org == null ? "" : org.id + "/" + org.name).append('\n');
+            }
+
+            return (project == null ? "" : project.id) + ":" + Hashing.murmur3_128().newHasher()
+                    .putString(source, Charsets.UTF_8)
+                    .putString(sb, Charsets.UTF_8)
+                    .hash();
+        }
+    }
 }
@@ -0,0 +1,114 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package utils;
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+import javax.annotation.Nullable;
+
+/**
+ * A single byte range of a representation, requested by the Range header.
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc7233">RFC 7233</a>
+ */
+public class ByteRange {
+    private static final String BYTES_UNIT = "bytes=";
+
+    public final long start;
+    public final long end;
+    public final long completeLength;
+
+    private ByteRange(long start, long end, long completeLength) {
+        this.start = start;
+        this.end = end;
+        this.completeLength = completeLength;
+    }
+
+    /**
+     * Parses the value of a Range header for a representation of the given
+     * length.
+     *
+     * Only a single range is supported. A server may ignore the Range header,
+     * so this method returns null for multiple ranges, other units and
+     * malformed values, for which the whole representation should be sent.
+     *
+     * @param value the value of the Range header
+     * @param completeLength the length of the whole representation
+     * @return the range, which may not be satisfiable, or null if the header
+     *         should be ignored
+     */
+    @Nullable
+    public static ByteRange parse(@Nullable String value, long completeLength) {
+        if (value == null || !value.trim().startsWith(BYTES_UNIT)) {
+            return null;
+        }
+
+        String spec = value.trim().substring(BYTES_UNIT.length()).trim();
+        if (spec.contains(",")) {
+            return null;
+        }
+
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+
+        if (first.isEmpty()) {
+            // suffix-byte-range-spec: the last N bytes
+            if (!NumberUtils.isDigits(last)) {
+                return null;
+            }
+            long suffixLength = parseLength(last);
+            return new ByteRange(Math.max(0, completeLength - suffixLength),
+                    suffixLength == 0 ? -1 : completeLength - 1, completeLength);
+        }
+
+        if (!NumberUtils.isDigits(first) || !(last.isEmpty() || NumberUtils.isDigits(last))) {
+            return null;
+        }
+        long start = parseLength(first);
+        long end = last.isEmpty() ? completeLength - 1 : parseLength(last);
+        if (end < start) {
+            return null;
+        }
+        return new ByteRange(start, Math.min(end, completeLength - 1), completeLength);
+    }
+
+    // Positions beyond Long.MAX_VALUE are beyond any file anyway.
+    private static long parseLength(String digits) {
+        try {
+            return Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @return false if no byte of the range is in the representation, for
+     *         which 416 Range Not Satisfiable should be sent
+     */
+    public boolean isSatisfiable() {
+        return start < completeLength && start <= end;
+    }
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    /**
+     * @return the value of the Content-Range header for this range
+     */
+    public String toContentRange() {
+        if (!isSatisfiable()) {
+            return "bytes */" + completeLength;
+        }
+        return "bytes " + start + "-" + end + "/" + completeLength;
+    }
+}
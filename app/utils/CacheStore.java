@@ -24,6 +24,14 @@ public class CacheStore {
             .maximumSize(MAXIMUM_CACHED_MARKDOWN_ENTRY)
             .build();
 
+    /**
+     * HTML linked by {@link utils.AutoLinkRenderer}, keyed by the source and the
+     * state of the issues, projects, users and commits it refers.
+     */
+    public static Cache<String, byte[]> autoLinkedHtml = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_CACHED_MARKDOWN_ENTRY)
+            .build();
+
 
     public static void refreshProjectMap(){
         for (Map.Entry<String, Long> entry: projectMap.entrySet()) {
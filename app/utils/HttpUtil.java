@@ -29,6 +29,13 @@ import java.net.*;
 import java.util.*;
 
 public class HttpUtil {
+    /**
+     * The value of Cache-Control for a response which never changes, e.g. a
+     * file at a commit id. It is private because the permission to read it
+     * may differ between users.
+     */
+    public static final String CACHE_CONTROL_IMMUTABLE = "private, max-age=31536000, immutable";
+
     /**
      * Finds the first value by given the key from the given query.
      *
@@ -218,4 +225,33 @@ public class HttpUtil {
             return targetStr;
         }
     }
+
+    /**
+     * Checks whether the client already has the representation with the
+     * given entity tag, by the If-None-Match header of the request.
+     *
+     * @param request
+     * @param eTag the strong entity tag of the representation, quoted
+     * @return true if the request should be answered with 304 Not Modified
+     * @see <a href="https://tools.ietf.org/html/rfc7232#section-3.2">RFC 7232, 3.2. If-None-Match</a>
+     */
+    public static boolean isNotModified(Http.Request request, String eTag) {
+        return isNotModified(request.getHeader("If-None-Match"), eTag);
+    }
+
+    static boolean isNotModified(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            // If-None-Match uses the weak comparison.
+            if (tag.equals("*") || StringUtils.removeStart(tag, "W/").equals(eTag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
 }
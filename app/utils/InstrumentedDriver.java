@@ -0,0 +1,139 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * A JDBC driver which times every statement run through the driver of the
+ * wrapped url, and records it in {@link QueryStatistics}.
+ *
+ * To use it, set {@code db.default.driver} to {@code utils.InstrumentedDriver}
+ * and prefix {@code db.default.url} with {@code "jdbc:instrumented:"} instead
+ * of {@code "jdbc:"}, e.g. {@code "jdbc:instrumented:mariadb://127.0.0.1/yona"}.
+ * The connections are still pooled by the connection pool of Play, which only
+ * sees the wrapped connections.
+ */
+public class InstrumentedDriver implements Driver {
+    public static final String PREFIX = "jdbc:instrumented:";
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        Connection connection = DriverManager.getConnection(unwrap(url), info);
+        QueryStatistics.enable();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    @Override
+    public boolean acceptsURL(String url) throws SQLException {
+        return url != null && url.startsWith(PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) throws SQLException {
+        return DriverManager.getDriver(unwrap(url)).getPropertyInfo(unwrap(url), info);
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    private static String unwrap(String url) {
+        return "jdbc:" + url.substring(PREFIX.length());
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Wraps the statements created by a connection, remembering the sql of
+     * prepared ones.
+     */
+    private static class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = InstrumentedDriver.invoke(connection, method, args);
+            Class<?> type = method.getReturnType();
+            if (result == null || !Statement.class.isAssignableFrom(type)) {
+                return result;
+            }
+            String sql = (args != null && args.length > 0 && args[0] instanceof String)
+                    ? (String) args[0] : null;
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                    new StatementHandler((Statement) result, sql));
+        }
+    }
+
+    /**
+     * Times the {@code execute*} methods of a statement.
+     */
+    private static class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private String sql;
+
+        StatementHandler(Statement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("addBatch") && args != null && args.length == 1) {
+                sql = (String) args[0];
+            }
+            if (!name.startsWith("execute")) {
+                return InstrumentedDriver.invoke(statement, method, args);
+            }
+            String executed = (args != null && args.length > 0 && args[0] instanceof String)
+                    ? (String) args[0] : sql;
+            long start = System.nanoTime();
+            try {
+                return InstrumentedDriver.invoke(statement, method, args);
+            } finally {
+                QueryStatistics.record(executed, System.nanoTime() - start);
+            }
+        }
+    }
+}
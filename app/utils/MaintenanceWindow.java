@@ -0,0 +1,90 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package utils;
+
+import org.apache.commons.lang3.StringUtils;
+import org.joda.time.DateTime;
+import org.joda.time.LocalTime;
+
+import javax.annotation.Nullable;
+
+/**
+ * A daily time window in which maintenance jobs such as purging old data are
+ * allowed to run, e.g. "02:00-05:00". A window may span midnight, e.g.
+ * "23:00-03:00".
+ *
+ * A window without a definition is always open.
+ */
+public class MaintenanceWindow {
+    public static final MaintenanceWindow ALWAYS = new MaintenanceWindow(null, null);
+
+    private final LocalTime start;
+    private final LocalTime end;
+
+    private MaintenanceWindow(LocalTime start, LocalTime end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Parses a window in the form of "HH:mm-HH:mm".
+     *
+     * @param value
+     * @return the window, or {@link #ALWAYS} if the value is empty
+     * @throws IllegalArgumentException if the value is malformed
+     */
+    public static MaintenanceWindow parse(@Nullable String value) {
+        if (StringUtils.isBlank(value)) {
+            return ALWAYS;
+        }
+
+        String[] times = value.trim().split("\\s*-\\s*");
+        if (times.length != 2) {
+            throw new IllegalArgumentException("Invalid maintenance window: " + value);
+        }
+
+        return new MaintenanceWindow(LocalTime.parse(times[0]), LocalTime.parse(times[1]));
+    }
+
+    public boolean isAlways() {
+        return start == null;
+    }
+
+    public boolean contains(DateTime time) {
+        if (isAlways()) {
+            return true;
+        }
+
+        LocalTime localTime = time.toLocalTime();
+        if (start.isBefore(end)) {
+            return !localTime.isBefore(start) && localTime.isBefore(end);
+        } else {
+            return !localTime.isBefore(start) || localTime.isBefore(end);
+        }
+    }
+
+    /**
+     * @param now
+     * @return the milliseconds until the window opens, or 0 if it is open
+     */
+    public long millisUntilOpen(DateTime now) {
+        if (contains(now)) {
+            return 0;
+        }
+
+        DateTime next = now.withTime(start.getHourOfDay(), start.getMinuteOfHour(), 0, 0);
+        if (!next.isAfter(now)) {
+            next = next.plusDays(1);
+        }
+        return next.getMillis() - now.getMillis();
+    }
+
+    @Override
+    public String toString() {
+        return isAlways() ? "always" : start.toString("HH:mm") + "-" + end.toString("HH:mm");
+    }
+}
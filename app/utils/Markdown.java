@@ -42,6 +42,14 @@ public class Markdown {
     private static final String XSS_JS_FILE = "public/javascripts/lib/xss.js";
     private static final String MARKED_JS_FILE = "public/javascripts/lib/marked.js";
     private static final String HIGHLIGHT_JS_FILE = "public/javascripts/lib/highlight/highlight.pack.js";
+
+    /**
+     * The version of the HTML rendered by {@link #renderWithoutLinks(String)}.
+     * Increase it whenever the scripts or the options to render it change, so
+     * that HTML rendered and stored by an older version is rendered again.
+     */
+    public static final int RENDERER_VERSION = 1;
+
     private static ScriptEngine engine = buildEngine();
 
     private static ScriptEngine buildEngine() {
@@ -131,6 +139,14 @@ public class Markdown {
     }
 
     private static String renderWithHighlight(String source, boolean breaks) {
+        String rendered = renderWithHighlightOrNull(source, breaks);
+        return rendered != null ? rendered : preformatted(source);
+    }
+
+    /**
+     * @return the rendered HTML, or null if the source could not be rendered
+     */
+    private static String renderWithHighlightOrNull(String source, boolean breaks) {
         int sourceHashCode = source.hashCode();
         byte [] cached = CacheStore.renderedMarkdown.getIfPresent(sourceHashCode);
         if(cached != null){
@@ -143,6 +159,10 @@ public class Markdown {
                     "if(sLang) { try { return hljs.highlight(sLang.toLowerCase(), sCode).value;" +
                     " } catch(oException) { return sCode; } } }});");
             String rendered = renderByMarked(source, options);
+            if (rendered == null) {
+                // Not cached, so that it is rendered again next time.
+                return null;
+            }
             rendered = removeJavascriptInHref(rendered);
             rendered = checkReferrer(rendered);
             String sanitized = sanitize(rendered);
@@ -158,7 +178,7 @@ public class Markdown {
      *
      * @param source
      * @param options
-     * @return the rendered result or the source if timeout occurs
+     * @return the rendered result, or null if the script fails or times out
      */
     private static String renderByMarked(@Nonnull final String source, final Object options) throws InterruptedException {
         if (source.isEmpty()) {
@@ -185,12 +205,21 @@ public class Markdown {
         if (rendered[0] == null) {
             // This is the only way to stop the script engine. Thread.interrupt does not work.
             marked.stop();
-            return "<pre>" + StringEscapeUtils.escapeHtml(source) + "</pre>";
+            return null;
         } else {
             return rendered[0];
         }
     }
 
+    /**
+     * @param source
+     * @return the source as preformatted text, shown when it cannot be
+     *         rendered
+     */
+    public static String preformatted(@Nonnull String source) {
+        return "<pre>" + StringEscapeUtils.escapeHtml(source) + "</pre>";
+    }
+
     public static String render(@Nonnull String source) {
         int sourceHashCode = source.hashCode();
         byte [] cached = CacheStore.renderedMarkdown.getIfPresent(sourceHashCode);
@@ -200,7 +229,11 @@ public class Markdown {
         try {
             Object options = engine.eval("new Object({gfm: true, tables: true, breaks: true, " +
                     "pedantic: false, sanitize: false, smartLists: true});");
-            String sanitized = sanitize(renderByMarked(source, options));
+            String rendered = renderByMarked(source, options);
+            if (rendered == null) {
+                return preformatted(source);
+            }
+            String sanitized = sanitize(rendered);
             CacheStore.renderedMarkdown.put(sourceHashCode, ZipUtil.compress(sanitized));
             return sanitized;
         } catch (Exception ex) {
@@ -216,4 +249,31 @@ public class Markdown {
     public static String render(@Nonnull String source, Project project) {
         return render(source, project, true);
     }
+
+    /**
+     * Renders the source as {@link #render(String, Project)} does, except
+     * linking the references to issues, users and commits, which depend on
+     * their current state.
+     *
+     * @param source
+     * @return the HTML to be passed to {@link #link(String, Project)}, or
+     *         null if the source could not be rendered, e.g. because it took
+     *         too long
+     * @see models.support.RenderedMarkdown
+     */
+    public static String renderWithoutLinks(@Nonnull String source) {
+        return renderWithHighlightOrNull(source, true);
+    }
+
+    /**
+     * Links the references in HTML rendered by
+     * {@link #renderWithoutLinks(String)}.
+     *
+     * @param html
+     * @param project
+     * @return
+     */
+    public static String link(@Nonnull String html, Project project) {
+        return new AutoLinkRenderer(html, project).render();
+    }
 }
@@ -0,0 +1,350 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package utils;
+
+import com.jolbox.bonecp.BoneCP;
+import com.jolbox.bonecp.BoneCPDataSource;
+import com.jolbox.bonecp.Statistics;
+import play.db.DB;
+import play.libs.Akka;
+import scala.concurrent.duration.Duration;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+
+/**
+ * Collects the queries run through {@link InstrumentedDriver}.
+ *
+ * Queries are counted per HTTP request, between {@link #begin(String)} and
+ * {@link #end()} on the thread serving it, and per shape, which is the sql
+ * with its literals replaced by {@code ?}. A query which takes longer than
+ * {@code application.db.slowQuery} is logged with the action which ran it.
+ *
+ * The connection pool is sampled every second while its statistics are
+ * enabled with {@code db.default.statisticsEnabled}: the pool only tells the
+ * total time spent waiting for connections, so each second's connections are
+ * counted in the histogram by the average wait of that second.
+ */
+public class QueryStatistics {
+    private static final long SLOW_QUERY_MILLIS = play.Configuration.root().getMilliseconds(
+            "application.db.slowQuery", 1000L);
+
+    // Shapes beyond this many are counted together, in case the sql of some
+    // query is built with its values.
+    private static final int MAX_SHAPES = 1000;
+
+    static final String OTHER_SHAPES = "(other)";
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\?(?:\\s*,\\s*\\?)+\\)");
+
+    private static final ThreadLocal<Usage> current = new ThreadLocal<>();
+
+    private static final ConcurrentMap<String, Shape> shapes = new ConcurrentHashMap<>();
+
+    private static final Histogram queryTimes = new Histogram();
+
+    private static final Histogram poolWaits = new Histogram();
+
+    private static final AtomicLong saturatedSeconds = new AtomicLong();
+
+    private static final AtomicLong peakLeased = new AtomicLong();
+
+    private static volatile boolean enabled = false;
+
+    private static long lastRequested;
+
+    private static long lastWaitMillis;
+
+    /**
+     * The queries run while serving a request.
+     */
+    public static class Usage {
+        private final String action;
+        private int count;
+        private long nanos;
+
+        Usage(String action) {
+            this.action = action;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+
+        @Override
+        public String toString() {
+            return count + "q/" + getMillis() + "ms";
+        }
+    }
+
+    /**
+     * A query and how long it has taken.
+     */
+    public static class Shape {
+        private final String sql;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        Shape(String sql) {
+            this.sql = sql;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public double getTotalMillis() {
+            return totalNanos.get() / 1e6;
+        }
+
+        public double getAverageMillis() {
+            long count = getCount();
+            return count == 0 ? 0.0 : getTotalMillis() / count;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max;
+            do {
+                max = maxNanos.get();
+            } while (nanos > max && !maxNanos.compareAndSet(max, nanos));
+        }
+    }
+
+    /**
+     * Counts by durations, in buckets bounded by powers of ten milliseconds.
+     */
+    static class Histogram {
+        private static final long[] BOUNDS_MILLIS = {1, 10, 100, 1000};
+
+        private final AtomicLongArray counts = new AtomicLongArray(BOUNDS_MILLIS.length + 1);
+
+        void record(double millis, long count) {
+            int i = 0;
+            while (i < BOUNDS_MILLIS.length && millis >= BOUNDS_MILLIS[i]) {
+                i++;
+            }
+            counts.addAndGet(i, count);
+        }
+
+        long get(int bucket) {
+            return counts.get(bucket);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < counts.length(); i++) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                if (i < BOUNDS_MILLIS.length) {
+                    builder.append("< ").append(BOUNDS_MILLIS[i]).append(" ms: ");
+                } else {
+                    builder.append(">= ").append(BOUNDS_MILLIS[i - 1]).append(" ms: ");
+                }
+                builder.append(counts.get(i));
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Called by {@link InstrumentedDriver} when it makes a connection.
+     */
+    static void enable() {
+        enabled = true;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts counting the queries run on this thread.
+     *
+     * @param action the controller action serving the request
+     */
+    public static void begin(String action) {
+        current.set(new Usage(action));
+    }
+
+    /**
+     * Stops counting the queries run on this thread.
+     *
+     * @return the queries run since {@link #begin(String)}, or {@code null} if
+     *         queries are not instrumented
+     */
+    public static Usage end() {
+        Usage usage = current.get();
+        current.remove();
+        return enabled ? usage : null;
+    }
+
+    static void record(String sql, long nanos) {
+        Usage usage = current.get();
+        if (usage != null) {
+            usage.count++;
+            usage.nanos += nanos;
+        }
+
+        double millis = nanos / 1e6;
+        queryTimes.record(millis, 1);
+        shapeOf(sql).record(nanos);
+
+        if (millis >= SLOW_QUERY_MILLIS) {
+            play.Logger.warn(String.format("Slow query (%.0f ms) in %s: %s", millis,
+                    usage != null ? usage.action : "-", sql));
+        }
+    }
+
+    private static Shape shapeOf(String sql) {
+        String shape = normalize(sql);
+        Shape result = shapes.get(shape);
+        if (result == null) {
+            if (shapes.size() >= MAX_SHAPES) {
+                shape = OTHER_SHAPES;
+            }
+            shapes.putIfAbsent(shape, new Shape(shape));
+            result = shapes.get(shape);
+        }
+        return result;
+    }
+
+    static String normalize(String sql) {
+        if (sql == null) {
+            return OTHER_SHAPES;
+        }
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = WHITESPACES.matcher(shape).replaceAll(" ").trim();
+        return PARAMETER_LIST.matcher(shape).replaceAll("(?...)");
+    }
+
+    /**
+     * @param size
+     * @return the shapes of queries which have taken the longest in total,
+     *         longest first
+     */
+    public static List<Shape> getTopShapes(int size) {
+        List<Shape> result = new ArrayList<>(shapes.values());
+        Collections.sort(result, new Comparator<Shape>() {
+            @Override
+            public int compare(Shape a, Shape b) {
+                return Double.compare(b.getTotalMillis(), a.getTotalMillis());
+            }
+        });
+        return result.size() > size ? result.subList(0, size) : result;
+    }
+
+    public static void onStart() {
+        shapes.clear();
+        Akka.system().scheduler().schedule(
+                Duration.create(1, TimeUnit.SECONDS),
+                Duration.create(1, TimeUnit.SECONDS),
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            samplePool();
+                        } catch (Exception e) {
+                            play.Logger.warn("Failed to sample the connection pool", e);
+                        }
+                    }
+                },
+                Akka.system().dispatcher()
+        );
+    }
+
+    private static BoneCP getPool() {
+        DataSource dataSource = DB.getDataSource();
+        if (!(dataSource instanceof BoneCPDataSource)) {
+            return null;
+        }
+        BoneCP pool = ((BoneCPDataSource) dataSource).getPool();
+        if (pool == null || !pool.getConfig().isStatisticsEnabled()) {
+            return null;
+        }
+        return pool;
+    }
+
+    private static synchronized void samplePool() {
+        BoneCP pool = getPool();
+        if (pool == null) {
+            return;
+        }
+        Statistics statistics = pool.getStatistics();
+        long requested = statistics.getConnectionsRequested();
+        long waitMillis = statistics.getCumulativeConnectionWaitTime();
+        long acquired = requested - lastRequested;
+        if (acquired > 0) {
+            poolWaits.record((double) (waitMillis - lastWaitMillis) / acquired, acquired);
+        }
+        lastRequested = requested;
+        lastWaitMillis = waitMillis;
+
+        int leased = pool.getTotalLeased();
+        if (leased >= maxConnections(pool)) {
+            saturatedSeconds.incrementAndGet();
+        }
+        long peak;
+        do {
+            peak = peakLeased.get();
+        } while (leased > peak && !peakLeased.compareAndSet(peak, leased));
+    }
+
+    private static int maxConnections(BoneCP pool) {
+        return pool.getConfig().getPartitionCount() * pool.getConfig().getMaxConnectionsPerPartition();
+    }
+
+    /**
+     * @return the durations of queries and the waits for connections
+     */
+    public static Map<String, String> getStatistics() {
+        Map<String, String> result = new LinkedHashMap<>();
+        if (!enabled) {
+            result.put("Queries", "not instrumented; see db.default.driver in application.conf");
+        } else {
+            result.put("Queries: durations", queryTimes.toString());
+            result.put("Queries: shapes", Integer.toString(shapes.size()));
+        }
+
+        BoneCP pool = getPool();
+        if (pool == null) {
+            result.put("Connection pool", "no statistics; see db.default.statisticsEnabled in application.conf");
+        } else {
+            result.put("Connection pool: leased", String.format("%d now, %d at most, of %d",
+                    pool.getTotalLeased(), peakLeased.get(), maxConnections(pool)));
+            result.put("Connection pool: seconds all leased", Long.toString(saturatedSeconds.get()));
+            result.put("Connection pool: waits", poolWaits.toString());
+        }
+        return result;
+    }
+}
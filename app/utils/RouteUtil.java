@@ -77,7 +77,8 @@ public class RouteUtil {
                 user.loginId,
                 controllers.routes.UserApp.userInfo$default$2(),
                 controllers.routes.UserApp.userInfo$default$3(),
-                controllers.routes.UserApp.userInfo$default$4()
+                controllers.routes.UserApp.userInfo$default$4(),
+                controllers.routes.UserApp.userInfo$default$5()
         ).url();
     }
 
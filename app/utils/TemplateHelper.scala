@@ -312,7 +312,7 @@ object TemplateHelper {
     }
 
     def renderWordDiff(lineA: DiffLine, lineB: DiffLine, comments: Map[String, List[_ <: CodeCommentThread]]) = {
-      val lines = wordDiffLinesInHtml((new DiffMatchPatch()).diffMain(lineA.content, lineB.content).toList)
+      val lines = wordDiffLinesInHtml((new DiffMatchPatch()).diffMain(lineA.getContent, lineB.getContent).toList)
       writeHtmlLine(lineA.kind.toString.toLowerCase, "-", null, lineA.numA + 1, lines(0), threadsOrEmpty(comments, threadKey(lineA.file.pathA, "remove", lineA.numA + 1))) + writeHtmlLine(lineB.kind.toString.toLowerCase, "+", lineB.numB + 1, null, lines(1), threadsOrEmpty(comments, threadKey(lineB.file.pathB, "add", lineB.numB + 1)))
     }
     */
@@ -359,7 +359,7 @@ object TemplateHelper {
 
     def renderLine(line: DiffLine, num: Integer, numA: Integer, numB: Integer,
                    threads: List[CodeCommentThread], isEndOfLineMissing: DiffLine => Boolean) =
-      partial_diff_line(line.kind.toString.toLowerCase, indicator(line), num, numA, numB, line.content, isEndOfLineMissing(line)) +
+      partial_diff_line(line.kind.toString.toLowerCase, indicator(line), num, numA, numB, line.getContent, isEndOfLineMissing(line)) +
       partial_diff_comment_on_line(threads).body.trim
 
     def renderLine(line: DiffLine, threads: Map[String, List[CodeCommentThread]], isEndOfLineMissing: DiffLine => Boolean): String =
@@ -372,15 +372,19 @@ object TemplateHelper {
           renderLine(line, line.numB + 1, line.numA + 1, line.numB + 1, threadsOnContextLine(line, threads), isEndOfLineMissing)
       }
 
-    @tailrec def _renderLines(progress: String, lines: List[DiffLine], comments: Map[String, List[CodeCommentThread]], isEndOfLineMissing: DiffLine => Boolean): String =
-      lines match {
-        case Nil => progress
-        case first::Nil => progress + renderLine(first, comments, isEndOfLineMissing)
-        case first::second::tail => _renderLines(progress + renderTwoLines(first, second, comments, isEndOfLineMissing), tail, comments, isEndOfLineMissing)
+    def renderLines(lines: java.util.List[DiffLine], comments: Map[String, List[CodeCommentThread]], isEndOfLineMissing: DiffLine => Boolean): String = {
+      val builder = new java.lang.StringBuilder
+      val iterator = lines.iterator
+      while (iterator.hasNext) {
+        val first = iterator.next
+        if (iterator.hasNext) {
+          builder.append(renderTwoLines(first, iterator.next, comments, isEndOfLineMissing))
+        } else {
+          builder.append(renderLine(first, comments, isEndOfLineMissing))
+        }
       }
-
-    def renderLines(lines: List[DiffLine], comments: Map[String, List[CodeCommentThread]], isEndOfLineMissing: DiffLine => Boolean): String =
-      _renderLines("", lines, comments, isEndOfLineMissing)
+      builder.toString
+    }
 
     def isAuthorComment(commentId: String) = if(commentId == UserApp.currentUser().loginId) "author"
 
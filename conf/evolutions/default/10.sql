@@ -0,0 +1,49 @@
+# --- !Ups
+create table webhook_payload (
+  id                        bigint auto_increment not null,
+  body                      longtext,
+  created_at                datetime,
+  constraint pk_webhook_payload primary key (id))
+  row_format=compressed, key_block_size=8
+;
+
+create table webhook_delivery (
+  id                        bigint auto_increment not null,
+  webhook_id                bigint,
+  payload_id                bigint,
+  state                     varchar(20),
+  attempts                  integer default 0,
+  created_at                datetime,
+  next_attempt_at           datetime,
+  lease_until               datetime,
+  last_status_code          integer,
+  last_latency_millis       bigint,
+  constraint ck_webhook_delivery_state check (state in ('PENDING','SENDING','SUCCEEDED','FAILED')),
+  constraint pk_webhook_delivery primary key (id))
+  row_format=compressed, key_block_size=8
+;
+
+create table webhook_delivery_attempt (
+  id                        bigint auto_increment not null,
+  delivery_id               bigint,
+  attempted_at              datetime,
+  status_code               integer,
+  latency_millis            bigint,
+  error                     varchar(2000),
+  constraint pk_webhook_delivery_attempt primary key (id))
+  row_format=compressed, key_block_size=8
+;
+
+alter table webhook_delivery add constraint fk_webhook_delivery_webhook_1 foreign key (webhook_id) references webhook (id) on delete CASCADE on update CASCADE;
+create index ix_webhook_delivery_webhook_1 on webhook_delivery (webhook_id);
+alter table webhook_delivery add constraint fk_webhook_delivery_payload_2 foreign key (payload_id) references webhook_payload (id) on delete restrict on update restrict;
+create index ix_webhook_delivery_payload_2 on webhook_delivery (payload_id);
+create index ix_webhook_delivery_state_next_attempt_at on webhook_delivery (state, next_attempt_at);
+create index ix_webhook_payload_created_at on webhook_payload (created_at);
+alter table webhook_delivery_attempt add constraint fk_webhook_delivery_attempt_delivery_1 foreign key (delivery_id) references webhook_delivery (id) on delete CASCADE on update CASCADE;
+create index ix_webhook_delivery_attempt_delivery_1 on webhook_delivery_attempt (delivery_id);
+
+# --- !Downs
+drop table if exists webhook_delivery_attempt;
+drop table if exists webhook_delivery;
+drop table if exists webhook_payload;
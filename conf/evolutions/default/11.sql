@@ -0,0 +1,20 @@
+# --- !Ups
+create table issue_search_token (
+  id                        bigint auto_increment not null,
+  issue_id                  bigint not null,
+  comment_id                bigint,
+  token                     varchar(64) not null,
+  constraint pk_issue_search_token primary key (id))
+  row_format=compressed, key_block_size=8
+;
+
+alter table issue_search_token add constraint fk_issue_search_token_issue_1 foreign key (issue_id) references issue (id) on delete CASCADE on update CASCADE;
+alter table issue_search_token add constraint fk_issue_search_token_comment_2 foreign key (comment_id) references issue_comment (id) on delete CASCADE on update CASCADE;
+create index ix_issue_search_token_token on issue_search_token (token, issue_id);
+create index ix_issue_search_token_issue on issue_search_token (issue_id, comment_id);
+create index ix_issue_search_token_comment on issue_search_token (comment_id);
+create index ix_issue_comment_author_id on issue_comment (author_id);
+
+# --- !Downs
+drop index if exists ix_issue_comment_author_id;
+drop table if exists issue_search_token;
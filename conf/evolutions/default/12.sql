@@ -0,0 +1,47 @@
+# --- !Ups
+create table posting_revision (
+  id                        bigint auto_increment not null,
+  resource_type             varchar(20) not null,
+  resource_id               bigint not null,
+  revision                  integer not null,
+  author_id                 bigint,
+  author_login_id           varchar(255),
+  author_name               varchar(255),
+  created_date              datetime,
+  insertions                integer default 0,
+  deletions                 integer default 0,
+  delta                     longblob,
+  legacy_history            longtext,
+  constraint pk_posting_revision primary key (id),
+  constraint uq_posting_revision_1 unique (resource_type, resource_id, revision))
+  row_format=compressed, key_block_size=8
+;
+
+insert into posting_revision (resource_type, resource_id, revision, created_date, legacy_history)
+  select 'ISSUE_POST', id, 0, updated_date, history from issue where history is not null;
+insert into posting_revision (resource_type, resource_id, revision, created_date, legacy_history)
+  select 'BOARD_POST', id, 0, updated_date, history from posting where history is not null;
+
+alter table issue drop column history;
+alter table posting drop column history;
+
+alter table issue add column num_of_revisions integer default 0 not null;
+alter table posting add column num_of_revisions integer default 0 not null;
+update issue set num_of_revisions = (select count(*) from posting_revision r
+  where r.resource_type = 'ISSUE_POST' and r.resource_id = issue.id);
+update posting set num_of_revisions = (select count(*) from posting_revision r
+  where r.resource_type = 'BOARD_POST' and r.resource_id = posting.id);
+
+# --- !Downs
+alter table posting drop column num_of_revisions;
+alter table issue drop column num_of_revisions;
+
+alter table issue add column history longtext;
+alter table posting add column history longtext;
+
+update issue set history = (select r.legacy_history from posting_revision r
+  where r.resource_type = 'ISSUE_POST' and r.resource_id = issue.id and r.revision = 0);
+update posting set history = (select r.legacy_history from posting_revision r
+  where r.resource_type = 'BOARD_POST' and r.resource_id = posting.id and r.revision = 0);
+
+drop table if exists posting_revision;
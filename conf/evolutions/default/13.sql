@@ -0,0 +1,10 @@
+# --- !Ups
+alter table n4user add column unread_notification_count integer default 0 not null;
+alter table n4user add column last_read_notification_id bigint default 0 not null;
+update n4user set last_read_notification_id = (select coalesce(max(id), 0) from notification_event);
+create index ix_notification_event_n4user_feed on notification_event_n4user (n4user_id, notification_event_id);
+
+# --- !Downs
+drop index if exists ix_notification_event_n4user_feed;
+alter table n4user drop column last_read_notification_id;
+alter table n4user drop column unread_notification_count;
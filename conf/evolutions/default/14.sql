@@ -0,0 +1,27 @@
+# --- !Ups
+alter table issue add column rendered_html longtext;
+alter table issue add column renderer_version integer;
+alter table issue add column rendered_source_digest varchar(40);
+alter table posting add column rendered_html longtext;
+alter table posting add column renderer_version integer;
+alter table posting add column rendered_source_digest varchar(40);
+alter table issue_comment add column rendered_html longtext;
+alter table issue_comment add column renderer_version integer;
+alter table issue_comment add column rendered_source_digest varchar(40);
+alter table posting_comment add column rendered_html longtext;
+alter table posting_comment add column renderer_version integer;
+alter table posting_comment add column rendered_source_digest varchar(40);
+
+# --- !Downs
+alter table posting_comment drop column rendered_source_digest;
+alter table posting_comment drop column renderer_version;
+alter table posting_comment drop column rendered_html;
+alter table issue_comment drop column rendered_source_digest;
+alter table issue_comment drop column renderer_version;
+alter table issue_comment drop column rendered_html;
+alter table posting drop column rendered_source_digest;
+alter table posting drop column renderer_version;
+alter table posting drop column rendered_html;
+alter table issue drop column rendered_source_digest;
+alter table issue drop column renderer_version;
+alter table issue drop column rendered_html;
@@ -0,0 +1,20 @@
+# --- !Ups
+ALTER TABLE milestone ADD COLUMN num_open_issues integer default 0;
+ALTER TABLE milestone ADD COLUMN num_closed_issues integer default 0;
+ALTER TABLE issue_label ADD COLUMN num_open_issues integer default 0;
+ALTER TABLE issue_label ADD COLUMN num_closed_issues integer default 0;
+create index ix_issue_issue_label_issue_label_id on issue_issue_label (issue_label_id);
+
+UPDATE milestone SET
+  num_open_issues = (SELECT COUNT(*) FROM issue WHERE issue.milestone_id = milestone.id AND issue.state = 1),
+  num_closed_issues = (SELECT COUNT(*) FROM issue WHERE issue.milestone_id = milestone.id AND issue.state = 2);
+UPDATE issue_label SET
+  num_open_issues = (SELECT COUNT(*) FROM issue_issue_label JOIN issue ON issue.id = issue_issue_label.issue_id WHERE issue_issue_label.issue_label_id = issue_label.id AND issue.state = 1),
+  num_closed_issues = (SELECT COUNT(*) FROM issue_issue_label JOIN issue ON issue.id = issue_issue_label.issue_id WHERE issue_issue_label.issue_label_id = issue_label.id AND issue.state = 2);
+
+# --- !Downs
+drop index if exists ix_issue_issue_label_issue_label_id;
+ALTER TABLE issue_label DROP COLUMN num_closed_issues;
+ALTER TABLE issue_label DROP COLUMN num_open_issues;
+ALTER TABLE milestone DROP COLUMN num_closed_issues;
+ALTER TABLE milestone DROP COLUMN num_open_issues;
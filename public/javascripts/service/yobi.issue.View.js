@@ -40,6 +40,7 @@
             _initFileUploader();
             _initFileDownloader();
             _initCommentAndCloseButton();
+            _loadTimelineOfLinkedItem();
 
             //_setTimelineUpdateTimer();
             _affixIssueInfoWrap();
@@ -85,6 +86,7 @@
             vars.timelineUpdatePeriod = options.timelineUpdatePeriod || 60000; // 60000ms = 60s = 1m
             vars.timelineHTML = elements.timelineList.html();
             vars.timelineItems = _countTimelineItems();
+            vars.timelineSince = null; // the last page of the timeline by default
 
             // for comment-and-close
             vars.nextState = options.nextState;
@@ -100,6 +102,9 @@
             // Vote button on comment
             elements.timelineWrap.on("click", '[data-request-type="comment-vote"]', _onClickCommentVote);
 
+            // Load earlier items of the timeline
+            elements.timelineWrap.on("click", '[data-toggle="timeline-more"]', _onClickTimelineMore);
+
             // Update issue info
             elements.issueInfoWrap.on("change", "[data-toggle=select2]", _onChangeIssueInfo);
             elements.issueInfoWrap.on("change", "[data-toggle=calendar]", _onChangeDueDate);
@@ -112,6 +117,45 @@
             });
         }
 
+        /**
+         * Load the page of the timeline before the shown items
+         * and insert it in place of the button
+         *
+         * @private
+         */
+        function _onClickTimelineMore(){
+            var button = $(this);
+
+            button.prop("disabled", true);
+
+            $.get(vars.urls.timeline, {"before": button.data("before")}, function(resultHTML){
+                var earlierPage = _getRenderedTimeline(resultHTML).find("ul.comments");
+
+                button.closest(".timeline-more").replaceWith(earlierPage.children());
+                vars.timelineSince = earlierPage.data("since");
+                vars.timelineItems = _countTimelineItems();
+            }).fail(function(){
+                button.prop("disabled", false);
+            });
+        }
+
+        /**
+         * Load the whole timeline if the item linked by location.hash
+         * is not in the shown page of the timeline
+         *
+         * @private
+         */
+        function _loadTimelineOfLinkedItem(){
+            var hash = location.hash;
+
+            if(/^#(comment|event)-\d+$/.test(hash) && $(hash).length === 0
+                && elements.timelineWrap.find('[data-toggle="timeline-more"]').length > 0){
+                vars.timelineSince = 0;
+                vars.scrollToHash = hash;
+                _updateTimeline();
+            }
+        }
+
         function _onClickCommentVote(){
             $.ajax($(this).data("requestUri"), {
                 "method"  : "post",
@@ -356,7 +400,9 @@
 
             vars.isTimelineUpdating = true;
 
-            $.get(vars.urls.timeline, _onLoadTimeline)
+            var params = (vars.timelineSince === null) ? {} : {"since": vars.timelineSince};
+
+            $.get(vars.urls.timeline, params, _onLoadTimeline)
              .always(function(){
                  vars.isTimelineUpdating = false;
              });
@@ -393,6 +439,11 @@
                 if(isTimelineChangedOnTyping){
                     $(document).scrollTop(elements.textarea.offset().top - scrollGap);
                 }
+
+                if(vars.scrollToHash && $(vars.scrollToHash).length > 0){
+                    $(document).scrollTop($(vars.scrollToHash).offset().top);
+                    vars.scrollToHash = null;
+                }
             }, 500);
         }
 
@@ -0,0 +1,78 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package mailbox;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class OrderedWorkerPoolTest {
+    private OrderedWorkerPool pool;
+
+    @Before
+    public void before() {
+        pool = new OrderedWorkerPool(4, "test-worker");
+    }
+
+    @After
+    public void after() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void tasksOfTheSameKeyRunInOrder() throws Exception {
+        // Given
+        final Map<String, List<Integer>> done = new ConcurrentHashMap<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            final String key = "thread-" + (i % 7);
+            final int seq = i;
+            futures.add(pool.submit(key, new Runnable() {
+                @Override
+                public void run() {
+                    List<Integer> list = done.get(key);
+                    if (list == null) {
+                        list = Collections.synchronizedList(new ArrayList<Integer>());
+                        done.put(key, list);
+                    }
+                    list.add(seq);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        // Then
+        assertThat(done).hasSize(7);
+        for (List<Integer> list : done.values()) {
+            List<Integer> sorted = new ArrayList<>(list);
+            Collections.sort(sorted);
+            assertThat(list).isEqualTo(sorted);
+        }
+    }
+
+    @Test
+    public void sizeIsAtLeastOne() {
+        // Given
+        OrderedWorkerPool single = new OrderedWorkerPool(0, "test-single");
+
+        // Then
+        assertThat(single.size()).isEqualTo(1);
+        assertThat(pool.size()).isEqualTo(4);
+
+        single.shutdown();
+    }
+}
@@ -25,6 +25,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.security.NoSuchAlgorithmException;
 import java.util.List;
 
@@ -84,6 +85,45 @@ public class AttachmentTest extends ModelTest<Attachment> {
         assertThat(unattachedFiles.size()).isEqualTo(1);
     }
 
+    @Test
+    public void storeInShardedDirectory() throws IOException, NoSuchAlgorithmException {
+        // Given
+        File file = createFileWithContents("foo.txt", "Sharded".getBytes());
+
+        // When
+        Attachment attach = new Attachment();
+        attach.store(file, "foo.txt", User.find.byId(1L).asResource());
+
+        // Then
+        File stored = attach.getFile();
+        assertThat(stored.getName()).isEqualTo(attach.hash);
+        assertThat(stored.getParentFile().getName()).isEqualTo(attach.hash.substring(2, 4));
+        assertThat(stored.getParentFile().getParentFile().getName()).isEqualTo(attach.hash.substring(0, 2));
+        assertThat(Attachment.fileExists(attach.hash)).isTrue();
+        assertThat(file.exists()).isFalse();
+    }
+
+    @Test
+    public void migrateToShardedLayout() throws IOException, NoSuchAlgorithmException {
+        // Given
+        Attachment attach = new Attachment();
+        attach.store(createFileWithContents("foo.txt", "Legacy".getBytes()), "foo.txt",
+                User.find.byId(1L).asResource());
+        File sharded = attach.getFile();
+        File legacy = new File(Attachment.getUploadDirectory(), attach.hash);
+        Files.move(sharded.toPath(), legacy.toPath());
+        assertThat(attach.getFile()).isEqualTo(legacy);
+
+        // When
+        int moved = Attachment.migrateToShardedLayout();
+
+        // Then
+        assertThat(moved).isGreaterThanOrEqualTo(1);
+        assertThat(legacy.exists()).isFalse();
+        assertThat(attach.getFile()).isEqualTo(sharded);
+        assertThat(sharded.isFile()).isTrue();
+    }
+
     public void testAttachFiles() throws IOException, NoSuchAlgorithmException {
         // Given
         File foo = createFileWithContents("foo.txt", "Hello".getBytes());
@@ -66,4 +66,41 @@ public class FileDiffTest {
         assertThat(hunks).describedAs("Test FileDiff.hunks").isEqualTo(expectedHunks);
     }
 
+    @Test
+    public void getHunksOfLargeFile() throws IOException {
+        // given
+        int lineCount = 50000;
+        StringBuilder textA = new StringBuilder();
+        StringBuilder textB = new StringBuilder();
+        for (int i = 0; i < lineCount; i++) {
+            textA.append("line ").append(i).append("\n");
+            textB.append(i % 100 == 0 ? "changed " : "line ").append(i).append("\n");
+        }
+        FileDiff fileDiff = new FileDiff();
+        fileDiff.a = new RawText(textA.toString().getBytes());
+        fileDiff.b = new RawText(textB.toString().getBytes());
+        DiffAlgorithm diffAlgorithm =
+                DiffAlgorithm.getAlgorithm(DiffAlgorithm.SupportedAlgorithm.HISTOGRAM);
+        fileDiff.editList = diffAlgorithm.diff(RawTextComparator.DEFAULT, fileDiff.a,
+                fileDiff.b);
+
+        // when
+        long start = System.currentTimeMillis();
+        FileDiff.Hunks hunks = fileDiff.getHunks();
+        int length = 0;
+        for (Hunk hunk : hunks) {
+            for (DiffLine line : hunk.lines) {
+                length += line.getContent().length();
+            }
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        // then
+        play.Logger.info("Built and read " + hunks.lines + " lines of hunks in " + elapsed + "ms");
+        assertThat(hunks).hasSize(lineCount / 100);
+        assertThat(hunks.size).isEqualTo(length);
+        assertThat(hunks.get(1).lines.get(3).getContent()).isEqualTo("line 100");
+        assertThat(hunks.get(1).lines.get(4).getContent()).isEqualTo("changed 100");
+    }
+
 }
@@ -0,0 +1,108 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models;
+
+import models.enumeration.Operation;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class IssueTimelineTest extends ModelTest<IssueTimeline> {
+    private Issue issue;
+    private User author;
+    private User commenter;
+
+    @Before
+    public void before() {
+        Project project = Project.findByOwnerAndProjectName("yobi", "projectYobi");
+        author = User.findByLoginId("yobi");
+        commenter = User.findByLoginId("laziel");
+
+        issue = new Issue(project, author, "title", "body");
+        issue.save();
+
+        // A second apart, as datetime columns may keep no more than seconds.
+        long start = System.currentTimeMillis() / 1000 * 1000 - (IssueTimeline.PAGE_SIZE + 10) * 1000L;
+        for (int i = 0; i < IssueTimeline.PAGE_SIZE + 10; i++) {
+            IssueComment comment = new IssueComment(issue, commenter, "comment " + i);
+            comment.createdDate = new Date(start + i * 1000L);
+            comment.save();
+        }
+        issue.refresh();
+    }
+
+    @Test
+    public void showLastPage() {
+        // When
+        IssueTimeline timeline = new IssueTimeline(issue, author);
+
+        // Then
+        assertThat(timeline.getCommentCount()).isEqualTo(IssueTimeline.PAGE_SIZE + 10);
+        assertThat(timeline.getItems().size()).isEqualTo(IssueTimeline.PAGE_SIZE);
+        assertThat(((IssueComment) timeline.getItems().get(0)).contents).isEqualTo("comment 10");
+        assertThat(timeline.hasEarlierItems()).isTrue();
+        assertThat(timeline.getEarlierCount()).isEqualTo(10);
+    }
+
+    @Test
+    public void showSince() {
+        // When
+        IssueTimeline timeline = new IssueTimeline(issue, author, null, new Date(0));
+
+        // Then
+        assertThat(timeline.getItems().size()).isEqualTo(IssueTimeline.PAGE_SIZE + 10);
+        assertThat(timeline.hasEarlierItems()).isFalse();
+    }
+
+    @Test
+    public void showEarlierPage() {
+        // Given
+        IssueTimeline lastPage = new IssueTimeline(issue, author);
+
+        // When
+        IssueTimeline timeline = new IssueTimeline(issue, author, lastPage.getFrom(), null);
+
+        // Then
+        assertThat(timeline.getItems().size()).isEqualTo(10);
+        assertThat(((IssueComment) timeline.getItems().get(9)).contents).isEqualTo("comment 9");
+        assertThat(timeline.hasEarlierItems()).isFalse();
+    }
+
+    @Test
+    public void showItemsAtTheSameTimeInOnePage() {
+        // Given
+        IssueComment first = (IssueComment) new IssueTimeline(issue, author).getItems().get(0);
+        IssueComment sameTime = new IssueComment(issue, commenter, "at the same time");
+        sameTime.createdDate = first.createdDate;
+        sameTime.save();
+
+        // When
+        IssueTimeline timeline = new IssueTimeline(issue, author);
+
+        // Then
+        assertThat(timeline.getItems().size()).isEqualTo(IssueTimeline.PAGE_SIZE + 1);
+        assertThat(timeline.getEarlierCount()).isEqualTo(10);
+    }
+
+    @Test
+    public void prefetchUsersAndPermissions() {
+        // Given
+        IssueTimeline timeline = new IssueTimeline(issue, commenter);
+        IssueComment comment = (IssueComment) timeline.getItems().get(0);
+
+        // Then
+        assertThat(timeline.getUser("laziel").id).isEqualTo(commenter.id);
+        assertThat(timeline.getUser("nobody-at-all").isAnonymous()).isTrue();
+        assertThat(timeline.getAvatarUrl("laziel")).isEqualTo(commenter.avatarUrl());
+        assertThat(timeline.isAllowed(comment, Operation.UPDATE)).isTrue();
+        assertThat(timeline.isViaEmail(comment)).isFalse();
+        assertThat(timeline.getFileList(comment).get("attachments")).isEmpty();
+    }
+}
@@ -22,6 +22,7 @@ package models;
 
 import com.avaje.ebean.Ebean;
 import models.enumeration.State;
+import models.support.IssueCounters;
 
 import org.apache.commons.lang3.time.DateUtils;
 import org.junit.After;
@@ -284,6 +285,40 @@ public class MilestoneTest extends ModelTest<Milestone> {
         assertThat(m5.getCompletionRate()).isEqualTo(100);
     }
 
+    @Test
+    public void closeIssue() throws Exception {
+        //Given
+        Issue issue = Issue.finder.byId(7l);
+        Milestone m5 = issue.milestone;
+        assertThat(m5.getNumOpenIssues()).isEqualTo(1);
+        assertThat(m5.getNumClosedIssues()).isEqualTo(1);
+
+        //When
+        issue.state = State.CLOSED;
+        issue.update();
+
+        //Then
+        m5 = Milestone.find.byId(m5.id);
+        assertThat(m5.getNumOpenIssues()).isEqualTo(0);
+        assertThat(m5.getNumClosedIssues()).isEqualTo(2);
+    }
+
+    @Test
+    public void repairIssueCounters() throws Exception {
+        //Given
+        Ebean.createSqlUpdate("update milestone set num_open_issues = 0, num_closed_issues = 0").execute();
+        assertThat(Milestone.findById(1l).getNumTotalIssues()).isEqualTo(0);
+
+        //When
+        IssueCounters.refreshAll();
+
+        //Then
+        Milestone m1 = Milestone.findById(1l);
+        assertThat(m1.getNumOpenIssues()).isEqualTo(2);
+        assertThat(m1.getNumClosedIssues()).isEqualTo(2);
+        assertThat(m1.getCompletionRate()).isEqualTo(50);
+    }
+
     @Test
     public void isUniqueProjectIdAndTitle() {
         //Given
@@ -22,10 +22,14 @@ package models;
 
 import models.enumeration.EventType;
 import models.enumeration.ResourceType;
+import org.joda.time.DateTime;
 import org.junit.Test;
 
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -81,6 +85,99 @@ public class NotificationEventTest extends ModelTest<NotificationEvent> {
         assertThat(NotificationMail.find.byId(event.notificationMail.id)).isNull();
     }
 
+    @Test
+    public void deleteBy() {
+        // Given
+        NotificationEvent event = getNotificationEvent();
+        NotificationEvent.add(event);
+        Issue issue = Issue.finder.byId(1L);
+
+        // When
+        NotificationEvent.deleteBy(issue.asResource());
+
+        // Then
+        assertThat(NotificationEvent.find.byId(event.id)).isNull();
+        assertThat(NotificationMail.find.byId(event.notificationMail.id)).isNull();
+    }
+
+    @Test
+    public void deleteOldChunk() {
+        // Given
+        NotificationEvent old = getNotificationEvent();
+        NotificationEvent.add(old);
+        old.created = DateTime.now().minusDays(10).toDate();
+        old.update();
+
+        NotificationEvent recent = getNotificationEvent();
+        recent.resourceId = "2";
+        NotificationEvent.add(recent);
+        recent.created = new Date();
+        recent.update();
+
+        // When
+        List<Object> deleted = NotificationEvent.deleteOldChunk(
+                DateTime.now().minusDays(1).toDate(), 0);
+
+        // Then
+        assertThat(deleted).contains(old.id);
+        assertThat(NotificationEvent.find.byId(old.id)).isNull();
+        assertThat(NotificationMail.find.byId(old.notificationMail.id)).isNull();
+        assertThat(NotificationEvent.find.byId(recent.id)).isNotNull();
+    }
+
+    @Test
+    public void unreadCount() {
+        // Given
+        User yobi = User.findByLoginId("yobi");
+        NotificationEvent.markAllAsRead(yobi);
+
+        // When
+        NotificationEvent first = getNotificationEvent();
+        NotificationEvent.add(first);
+        NotificationEvent second = getNotificationEvent();
+        second.resourceId = "2";
+        NotificationEvent.add(second);
+
+        // Then
+        assertThat(NotificationEvent.getUnreadCount(yobi)).isEqualTo(2);
+
+        // When
+        second.delete();
+
+        // Then
+        assertThat(NotificationEvent.getUnreadCount(yobi)).isEqualTo(1);
+
+        // When
+        NotificationEvent.markAllAsRead(yobi);
+        first.delete();
+
+        // Then
+        assertThat(NotificationEvent.getUnreadCount(yobi)).isEqualTo(0);
+    }
+
+    @Test
+    public void findByReceiver() {
+        // Given
+        User yobi = User.findByLoginId("yobi");
+        List<Long> ids = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            NotificationEvent event = getNotificationEvent();
+            event.resourceId = String.valueOf(i);
+            NotificationEvent.add(event);
+            ids.add(event.id);
+        }
+
+        // When
+        List<NotificationEvent> firstPage = NotificationEvent.findByReceiver(yobi, 0, 2);
+        List<NotificationEvent> secondPage = NotificationEvent.findByReceiver(yobi,
+                firstPage.get(1).id, 2);
+
+        // Then
+        assertThat(firstPage.get(0).id).isEqualTo(ids.get(2));
+        assertThat(firstPage.get(1).id).isEqualTo(ids.get(1));
+        assertThat(secondPage.get(0).id).isEqualTo(ids.get(0));
+    }
+
     @Test
     public void add_with_filter() {
         // Given
@@ -0,0 +1,134 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models;
+
+import com.avaje.ebean.Ebean;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class PostingRevisionTest extends ModelTest<PostingRevision> {
+    private Issue issue;
+    private User author;
+
+    @Before
+    public void before() {
+        Project project = Project.findByOwnerAndProjectName("yobi", "projectYobi");
+        author = User.findByLoginId("yobi");
+        issue = new Issue(project, author, "title", "first body");
+        issue.save();
+    }
+
+    private void edit(String body) {
+        issue.body = body;
+        issue.update();
+    }
+
+    @Test
+    public void findRecent() {
+        // Given
+        edit("second body\nwith a new line");
+        edit("third body\nwith a new line");
+
+        // When
+        List<PostingRevision> revisions = PostingRevision.findRecent(issue, 10);
+
+        // Then
+        assertThat(revisions.size()).isEqualTo(2);
+        assertThat(revisions.get(0).revision).isEqualTo(2);
+        assertThat(revisions.get(0).before).isEqualTo("second body\nwith a new line");
+        assertThat(revisions.get(0).after).isEqualTo("third body\nwith a new line");
+        assertThat(revisions.get(1).before).isEqualTo("first body");
+        assertThat(revisions.get(1).after).isEqualTo("second body\nwith a new line");
+        assertThat(revisions.get(1).authorLoginId).isEqualTo("yobi");
+    }
+
+    @Test
+    public void findRecentWithLimit() {
+        // Given
+        edit("second body");
+        edit("third body");
+        edit("fourth body");
+
+        // When
+        List<PostingRevision> revisions = PostingRevision.findRecent(issue, 1);
+
+        // Then
+        assertThat(revisions.size()).isEqualTo(1);
+        assertThat(revisions.get(0).before).isEqualTo("third body");
+        assertThat(Issue.finder.byId(issue.id).numOfRevisions).isEqualTo(3);
+    }
+
+    @Test
+    public void recordOnlyChangesOfBody() {
+        // Given
+        edit("second body");
+
+        // When
+        issue.title = "new title";
+        issue.update();
+
+        // Then
+        assertThat(PostingRevision.findRecent(issue, 10).size()).isEqualTo(1);
+        assertThat(Issue.finder.byId(issue.id).numOfRevisions).isEqualTo(1);
+    }
+
+    @Test
+    public void recordEditOfUnloadedPosting() {
+        // Given
+        Issue edited = new Issue(issue.project, author, "title", "edited body");
+        edited.id = issue.id;
+        edited.setNumber(issue.getNumber());
+
+        // When
+        edited.update();
+
+        // Then
+        List<PostingRevision> revisions = PostingRevision.findRecent(edited, 10);
+        assertThat(revisions.size()).isEqualTo(1);
+        assertThat(revisions.get(0).revision).isEqualTo(1);
+        assertThat(revisions.get(0).before).isEqualTo("first body");
+    }
+
+    @Test
+    public void findRecentStopsAtLegacyHistory() {
+        // Given
+        PostingRevision legacy = new PostingRevision();
+        legacy.resourceType = issue.asResource().getType();
+        legacy.resourceId = issue.id;
+        legacy.revision = 0;
+        legacy.legacyHistory = "<div>old history</div>";
+        legacy.save();
+        Ebean.createSqlUpdate("update issue set num_of_revisions = 1 where id = :id")
+                .setParameter("id", issue.id).execute();
+        edit("second body");
+
+        // When
+        List<PostingRevision> revisions = PostingRevision.findRecent(issue, 10);
+
+        // Then
+        assertThat(revisions.size()).isEqualTo(2);
+        assertThat(revisions.get(0).before).isEqualTo("first body");
+        assertThat(revisions.get(1).isLegacy()).isTrue();
+    }
+
+    @Test
+    public void deleteWithPosting() {
+        // Given
+        edit("second body");
+        assertThat(PostingRevision.findRecent(issue, 10)).isNotEmpty();
+
+        // When
+        issue.delete();
+
+        // Then
+        assertThat(PostingRevision.findRecent(issue, 10)).isEmpty();
+    }
+}
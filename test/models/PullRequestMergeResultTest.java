@@ -0,0 +1,107 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import playRepository.GitCommit;
+import utils.FileUtil;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class PullRequestMergeResultTest extends ModelTest<PullRequestMergeResult> {
+    private static final int LARGE_RANGE = 2000;
+
+    private File directory;
+    private Git git;
+    private PullRequest pullRequest;
+
+    @Before
+    public void before() throws Exception {
+        directory = Files.createTempDirectory("pull-request-merge-result").toFile();
+        git = Git.init().setDirectory(directory).call();
+        pullRequest = PullRequest.finder.byId(1L);
+        for (PullRequestCommit commit : PullRequestCommit.find.where().eq("pullRequest", pullRequest).findList()) {
+            commit.delete();
+        }
+    }
+
+    @After
+    public void after() throws Exception {
+        git.close();
+        FileUtil.rm_rf(directory);
+    }
+
+    @Test
+    public void saveCommits() throws Exception {
+        // Given
+        List<GitCommit> commits = commit(3);
+        save(commits.subList(0, 2));
+        PullRequestCommit removed = PullRequestCommit.bindPullRequestCommit(commit(1).get(0), pullRequest);
+        removed.save();
+
+        // When
+        PullRequestMergeResult result = mergeResult(commits);
+        result.saveCommits();
+
+        // Then
+        assertThat(result.getNewCommits()).hasSize(1);
+        assertThat(result.getNewCommits().get(0).commitId).isEqualTo(commits.get(2).getId());
+        assertThat(PullRequestCommit.getCurrentCommits(pullRequest)).hasSize(3);
+        assertThat(PullRequestCommit.getPriorCommits(pullRequest)).hasSize(1);
+        assertThat(PullRequestCommit.getStateByCommitId(pullRequest, removed.commitId))
+                .isEqualTo(PullRequestCommit.State.PRIOR);
+    }
+
+    @Test
+    public void saveCommitsOfLargeRange() throws Exception {
+        // Given
+        List<GitCommit> commits = commit(LARGE_RANGE);
+        save(commits.subList(0, LARGE_RANGE / 2));
+        List<GitCommit> pushedAgain = commits.subList(LARGE_RANGE / 4, LARGE_RANGE);
+
+        // When
+        long start = System.currentTimeMillis();
+        PullRequestMergeResult result = mergeResult(pushedAgain);
+        result.saveCommits();
+        long elapsed = System.currentTimeMillis() - start;
+
+        // Then
+        play.Logger.info("Reconciled " + pushedAgain.size() + " commits in " + elapsed + "ms");
+        assertThat(result.getNewCommits()).hasSize(LARGE_RANGE / 2);
+        assertThat(PullRequestCommit.getCurrentCommits(pullRequest)).hasSize(pushedAgain.size());
+        assertThat(PullRequestCommit.getPriorCommits(pullRequest)).hasSize(LARGE_RANGE / 4);
+    }
+
+    private PullRequestMergeResult mergeResult(List<GitCommit> commits) {
+        PullRequestMergeResult result = new PullRequestMergeResult();
+        result.setPullRequest(pullRequest);
+        result.setGitCommits(new ArrayList<>(commits));
+        return result;
+    }
+
+    private List<GitCommit> commit(int count) throws Exception {
+        List<GitCommit> commits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            commits.add(new GitCommit(git.commit().setMessage("commit " + i).call()));
+        }
+        return commits;
+    }
+
+    private void save(List<GitCommit> commits) {
+        for (GitCommit commit : commits) {
+            PullRequestCommit.bindPullRequestCommit(commit, pullRequest).save();
+        }
+    }
+}
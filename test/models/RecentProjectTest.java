@@ -0,0 +1,63 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RecentProjectTest extends ModelTest<RecentProject> {
+    private User doortts;
+    private User nori;
+    private Project yobi;
+    private Project cubrid;
+
+    @Before
+    public void before() {
+        doortts = User.findByLoginId("doortts");
+        nori = User.findByLoginId("nori");
+        yobi = Project.findByOwnerAndProjectName("yobi", "projectYobi");
+        cubrid = Project.findByOwnerAndProjectName("doortts", "CUBRID");
+    }
+
+    @Test
+    public void flushVisitsOfUsers() {
+        // Given
+        RecentProject.addNew(doortts, yobi);
+        RecentProject.addNew(doortts, cubrid);
+        RecentProject.addNew(nori, yobi);
+
+        // When
+        RecentProject.flush();
+
+        // Then
+        assertThat(RecentProject.find.where().eq("userId", doortts.id).findRowCount()).isEqualTo(2);
+        assertThat(RecentProject.find.where().eq("userId", nori.id).findRowCount()).isEqualTo(1);
+        assertThat(RecentProject.getRecentProjects(doortts).get(0)).isEqualTo(cubrid);
+    }
+
+    @Test
+    public void revisitReplacesPreviousVisit() {
+        // Given
+        RecentProject.addNew(doortts, yobi);
+        RecentProject.addNew(doortts, cubrid);
+        RecentProject.flush();
+
+        // When
+        RecentProject.addNew(doortts, yobi);
+        RecentProject.flush();
+
+        // Then
+        List<Project> projects = RecentProject.getRecentProjects(doortts);
+        assertThat(RecentProject.find.where().eq("userId", doortts.id).findRowCount()).isEqualTo(2);
+        assertThat(projects.get(0)).isEqualTo(yobi);
+        assertThat(projects.get(1)).isEqualTo(cubrid);
+    }
+}
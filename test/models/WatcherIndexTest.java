@@ -0,0 +1,118 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models;
+
+import com.avaje.ebean.Ebean;
+import models.resource.Resource;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class WatcherIndexTest extends ModelTest<Watch> {
+
+    @Before
+    public void setup() {
+        for (Watch watch : Watch.find.all()) {
+            watch.delete();
+        }
+
+        for (Unwatch unwatch : Unwatch.find.all()) {
+            unwatch.delete();
+        }
+    }
+
+    @Test
+    public void get() {
+        // Given
+        Resource resource = Issue.finder.byId(1L).asResource();
+        User watcher = User.find.byId(2L);
+        User unwatcher = User.find.byId(3L);
+        Watch.watch(watcher, resource);
+        Watch.unwatch(unwatcher, resource);
+
+        // When
+        WatcherIndex.Watchers watchers = WatcherIndex.get(resource.getType(), resource.getId());
+
+        // Then
+        assertThat(watchers.getWatcherIds()).containsOnly(watcher.id);
+        assertThat(watchers.getUnwatcherIds()).containsOnly(unwatcher.id);
+        assertThat(watchers.isWatching(watcher.id)).isTrue();
+        assertThat(watchers.isWatching(unwatcher.id)).isFalse();
+        assertThat(watchers.countWatchers()).isEqualTo(1);
+    }
+
+    @Test
+    public void keptUpToDateByWatchAndUnwatch() {
+        // Given
+        Resource resource = Issue.finder.byId(1L).asResource();
+        User user = User.find.byId(2L);
+        assertThat(WatcherIndex.get(resource.getType(), resource.getId()).countWatchers()).isEqualTo(0);
+
+        // When
+        Watch.watch(user, resource);
+
+        // Then
+        assertThat(WatcherIndex.get(resource.getType(), resource.getId()).isWatching(user.id)).isTrue();
+
+        // When
+        Watch.unwatch(user, resource);
+
+        // Then
+        WatcherIndex.Watchers watchers = WatcherIndex.get(resource.getType(), resource.getId());
+        assertThat(watchers.isWatching(user.id)).isFalse();
+        assertThat(watchers.isUnwatching(user.id)).isTrue();
+        assertThat(watchers.countWatchers()).isEqualTo(0);
+    }
+
+    @Test
+    public void invalidatedWhenWatchIsDeleted() {
+        // Given
+        Resource resource = Issue.finder.byId(1L).asResource();
+        User user = User.find.byId(2L);
+        Watch.watch(user, resource);
+        assertThat(WatcherIndex.get(resource.getType(), resource.getId()).isWatching(user.id)).isTrue();
+
+        // When
+        Watch.findBy(user, resource.getType(), resource.getId()).delete();
+
+        // Then
+        assertThat(WatcherIndex.get(resource.getType(), resource.getId()).isWatching(user.id)).isFalse();
+    }
+
+    @Test
+    public void notUpdatedByRolledBackWatch() {
+        // Given
+        Resource resource = Issue.finder.byId(1L).asResource();
+        User user = User.find.byId(2L);
+        assertThat(WatcherIndex.get(resource.getType(), resource.getId()).isWatching(user.id)).isFalse();
+
+        // When
+        Ebean.beginTransaction();
+        try {
+            Watch.watch(user, resource);
+        } finally {
+            Ebean.rollbackTransaction();
+        }
+
+        // Then
+        assertThat(WatcherIndex.get(resource.getType(), resource.getId()).isWatching(user.id)).isFalse();
+    }
+
+    @Test
+    public void getStatistics() {
+        // Given
+        Resource resource = Issue.finder.byId(1L).asResource();
+        WatcherIndex.get(resource.getType(), resource.getId());
+
+        // When
+        java.util.Map<String, String> statistics = WatcherIndex.getStatistics();
+
+        // Then
+        assertThat(statistics).isNotEmpty();
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class WebhookDeliveryTest extends ModelTest<WebhookDelivery> {
+    private HttpServer stubServer;
+    private final List<String> receivedPayloads = Collections.synchronizedList(new ArrayList<String>());
+    private volatile int responseStatus = 200;
+    private Webhook webhook;
+
+    @Before
+    public void setup() throws IOException {
+        stubServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stubServer.createContext("/hook", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                receivedPayloads.add(IOUtils.toString(exchange.getRequestBody(), "UTF-8"));
+                exchange.sendResponseHeaders(responseStatus, -1);
+                exchange.close();
+            }
+        });
+        stubServer.start();
+
+        webhook = new Webhook(getTestProject().id,
+                "http://127.0.0.1:" + stubServer.getAddress().getPort() + "/hook", "");
+        webhook.save();
+    }
+
+    @After
+    public void after() {
+        stubServer.stop(0);
+        webhook.delete();
+    }
+
+    @Test
+    public void deliver() throws Exception {
+        // Given
+        WebhookDelivery.enqueue(Collections.singletonList(webhook), "{\"ref\":[]}");
+
+        // When
+        WebhookDelivery.deliverDue();
+
+        // Then
+        WebhookDelivery delivery = waitForAttempt(1);
+        assertThat(delivery.state).isEqualTo(WebhookDelivery.State.SUCCEEDED);
+        assertThat(delivery.lastStatusCode).isEqualTo(200);
+        assertThat(receivedPayloads).containsExactly("{\"ref\":[]}");
+
+        List<WebhookDeliveryAttempt> attempts = WebhookDeliveryAttempt.findByDelivery(delivery);
+        assertThat(attempts).hasSize(1);
+        assertThat(attempts.get(0).latencyMillis).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    public void retryLaterIfFailed() throws Exception {
+        // Given
+        responseStatus = 500;
+        WebhookDelivery.enqueue(Collections.singletonList(webhook), "{}");
+
+        // When
+        WebhookDelivery.deliverDue();
+
+        // Then
+        WebhookDelivery delivery = waitForAttempt(1);
+        assertThat(delivery.state).isEqualTo(WebhookDelivery.State.PENDING);
+        assertThat(delivery.lastStatusCode).isEqualTo(500);
+        assertThat(delivery.nextAttemptAt.after(new Date())).isTrue();
+
+        // When
+        WebhookDelivery.deliverDue();
+
+        // Then
+        assertThat(receivedPayloads).hasSize(1);
+    }
+
+    @Test
+    public void shareOnePayload() {
+        // Given
+        Webhook another = new Webhook(getTestProject().id, webhook.payloadUrl + "/another", "");
+        another.save();
+
+        // When
+        WebhookDelivery.enqueue(Arrays.asList(webhook, another), "{}");
+
+        // Then
+        WebhookDelivery first = WebhookDelivery.findLastByWebhook(webhook);
+        WebhookDelivery second = WebhookDelivery.findLastByWebhook(another);
+        assertThat(first.payload.id).isEqualTo(second.payload.id);
+        another.delete();
+    }
+
+    @Test
+    public void findLastByWebhooks() {
+        // Given
+        Webhook another = new Webhook(getTestProject().id, webhook.payloadUrl + "/another", "");
+        another.save();
+        WebhookDelivery.enqueue(Collections.singletonList(webhook), "{\"first\":true}");
+        WebhookDelivery.enqueue(Arrays.asList(webhook, another), "{}");
+
+        // When
+        Map<Long, WebhookDelivery> lastDeliveries = WebhookDelivery.findLastByWebhooks(Arrays.asList(webhook, another));
+
+        // Then
+        assertThat(lastDeliveries).hasSize(2);
+        assertThat(lastDeliveries.get(webhook.id).id).isEqualTo(WebhookDelivery.findLastByWebhook(webhook).id);
+        assertThat(lastDeliveries.get(another.id).id).isEqualTo(WebhookDelivery.findLastByWebhook(another).id);
+        another.delete();
+    }
+
+    @Test
+    public void recoverExpiredLeases() {
+        // Given
+        WebhookDelivery.enqueue(Collections.singletonList(webhook), "{}");
+        WebhookDelivery delivery = WebhookDelivery.findLastByWebhook(webhook);
+        delivery.state = WebhookDelivery.State.SENDING;
+        delivery.leaseUntil = new Date(System.currentTimeMillis() - 1000);
+        delivery.update();
+
+        // When
+        int recovered = WebhookDelivery.recoverExpiredLeases();
+
+        // Then
+        assertThat(recovered).isEqualTo(1);
+        assertThat(WebhookDelivery.find.byId(delivery.id).state).isEqualTo(WebhookDelivery.State.PENDING);
+    }
+
+    @Test
+    public void keepUnexpiredLeases() {
+        // Given
+        WebhookDelivery.enqueue(Collections.singletonList(webhook), "{}");
+        WebhookDelivery delivery = WebhookDelivery.findLastByWebhook(webhook);
+        delivery.state = WebhookDelivery.State.SENDING;
+        delivery.leaseUntil = new Date(System.currentTimeMillis() + 60 * 1000);
+        delivery.update();
+
+        // When
+        int recovered = WebhookDelivery.recoverExpiredLeases();
+
+        // Then
+        assertThat(recovered).isEqualTo(0);
+        assertThat(WebhookDelivery.find.byId(delivery.id).state).isEqualTo(WebhookDelivery.State.SENDING);
+    }
+
+    @Test
+    public void purgeFinished() {
+        // Given
+        WebhookDelivery.enqueue(Collections.singletonList(webhook), "{}");
+        WebhookDelivery finished = WebhookDelivery.findLastByWebhook(webhook);
+        finished.state = WebhookDelivery.State.SUCCEEDED;
+        finished.update();
+        WebhookDelivery.enqueue(Collections.singletonList(webhook), "{}");
+        WebhookDelivery pending = WebhookDelivery.findLastByWebhook(webhook);
+
+        // When
+        int deleted = WebhookDelivery.purgeFinished(new Date(System.currentTimeMillis() + 1000));
+
+        // Then
+        assertThat(deleted).isEqualTo(1);
+        assertThat(WebhookDelivery.find.byId(finished.id)).isNull();
+        assertThat(WebhookPayload.find.byId(finished.payload.id)).isNull();
+        assertThat(WebhookDelivery.find.byId(pending.id)).isNotNull();
+        assertThat(WebhookPayload.find.byId(pending.payload.id)).isNotNull();
+    }
+
+    @Test
+    public void backoff() {
+        assertThat(WebhookDelivery.backoffMillis(2)).isEqualTo(WebhookDelivery.backoffMillis(1) * 2);
+        assertThat(WebhookDelivery.backoffMillis(3)).isEqualTo(WebhookDelivery.backoffMillis(1) * 4);
+        assertThat(WebhookDelivery.backoffMillis(100)).isEqualTo(WebhookDelivery.backoffMillis(101));
+    }
+
+    private WebhookDelivery waitForAttempt(int attempts) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            WebhookDelivery delivery = WebhookDelivery.findLastByWebhook(webhook);
+            if (delivery.attempts >= attempts) {
+                return delivery;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("The delivery has not been attempted");
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models.support;
+
+import models.ModelTest;
+import models.Project;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ExportStreamTest extends ModelTest<Project> {
+    @Test
+    public void streamWhatIsWritten() throws Exception {
+        // When
+        InputStream in = ExportStream.open("test", new ExportStream.Writer() {
+            @Override
+            public void write(OutputStream out) throws IOException {
+                out.write("exported".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+
+        // Then
+        assertThat(IOUtils.toString(in, "UTF-8")).isEqualTo("exported");
+    }
+
+    @Test
+    public void endStreamOnRuntimeException() throws Exception {
+        // When
+        InputStream in = ExportStream.open("test", new ExportStream.Writer() {
+            @Override
+            public void write(OutputStream out) throws IOException {
+                out.write("{\"issues\": [".getBytes(StandardCharsets.UTF_8));
+                throw new IllegalStateException("failed to load");
+            }
+        });
+
+        // Then
+        assertThat(IOUtils.toString(in, "UTF-8")).isEqualTo("{\"issues\": [");
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models.support;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class IssueExporterTest {
+    @Test
+    public void escapeFormula() {
+        assertThat(IssueExporter.escapeFormula("=HYPERLINK(\"http://example.com\")"))
+                .isEqualTo("'=HYPERLINK(\"http://example.com\")");
+        assertThat(IssueExporter.escapeFormula("+1")).isEqualTo("'+1");
+        assertThat(IssueExporter.escapeFormula("-1")).isEqualTo("'-1");
+        assertThat(IssueExporter.escapeFormula("@SUM(A1)")).isEqualTo("'@SUM(A1)");
+        assertThat(IssueExporter.escapeFormula("A title")).isEqualTo("A title");
+        assertThat(IssueExporter.escapeFormula(-1L)).isEqualTo("-1");
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models.support;
+
+import com.avaje.ebean.Ebean;
+import models.*;
+import models.enumeration.EventType;
+import models.enumeration.State;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class IssueMassUpdaterTest extends ModelTest<Issue> {
+    private Project project;
+    private User manager;
+    private User author;
+    private List<Issue> issues;
+    private IssueLabel label;
+
+    @Before
+    public void before() {
+        project = Project.findByOwnerAndProjectName("yobi", "projectYobi");
+        manager = User.findByLoginId("yobi");
+        author = User.findByLoginId("nori");
+
+        issues = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Issue issue = new Issue();
+            issue.setProject(project);
+            issue.setTitle("mass update " + i);
+            issue.setBody("mass update");
+            issue.setAuthor(author);
+            issue.state = State.OPEN;
+            issue.save();
+            issues.add(issue);
+        }
+
+        IssueLabelCategory category = new IssueLabelCategory();
+        category.project = project;
+        category.name = "mass update";
+        category.save();
+        label = new IssueLabel();
+        label.project = project;
+        label.category = category;
+        label.name = "triaged";
+        label.color = "#ff0000";
+        label.save();
+    }
+
+    @Test
+    public void updateStateAndLabels() {
+        // Given
+        IssueMassUpdate massUpdate = massUpdateOf(issues);
+        massUpdate.state = State.CLOSED;
+        massUpdate.attachingLabelIds = Arrays.asList(label.id);
+
+        // When
+        IssueMassUpdater updater = new IssueMassUpdater(project, manager, massUpdate);
+        updater.run();
+
+        // Then
+        assertThat(updater.getTotal()).isEqualTo(3);
+        assertThat(updater.getUpdated()).isEqualTo(3);
+        assertThat(updater.getRejected()).isEqualTo(0);
+        for (Issue issue : issues) {
+            assertThat(Issue.finder.byId(issue.id).state).isEqualTo(State.CLOSED);
+            assertThat(IssueEvent.find.where()
+                    .eq("issue.id", issue.id)
+                    .eq("eventType", EventType.ISSUE_STATE_CHANGED)
+                    .findRowCount()).isEqualTo(1);
+        }
+        assertThat(Ebean.createSqlQuery("select count(*) as cnt from issue_issue_label "
+                + "where issue_label_id = :label")
+                .setParameter("label", label.id)
+                .findUnique().getInteger("cnt")).isEqualTo(3);
+    }
+
+    @Test
+    public void labelAttachedTwiceIsKept() {
+        // Given
+        IssueMassUpdate massUpdate = massUpdateOf(issues);
+        massUpdate.attachingLabelIds = Arrays.asList(label.id);
+        new IssueMassUpdater(project, manager, massUpdate).run();
+
+        // When
+        new IssueMassUpdater(project, manager, massUpdate).run();
+
+        // Then
+        assertThat(Ebean.createSqlQuery("select count(*) as cnt from issue_issue_label "
+                + "where issue_label_id = :label")
+                .setParameter("label", label.id)
+                .findUnique().getInteger("cnt")).isEqualTo(3);
+    }
+
+    @Test
+    public void rejectIssuesNotAllowed() {
+        // Given
+        User nonmember = User.findByLoginId("doortts");
+        IssueMassUpdate massUpdate = massUpdateOf(issues);
+        massUpdate.state = State.CLOSED;
+
+        // When
+        IssueMassUpdater updater = new IssueMassUpdater(project, nonmember, massUpdate);
+        updater.run();
+
+        // Then
+        assertThat(updater.getUpdated()).isEqualTo(0);
+        assertThat(updater.getRejected()).isEqualTo(3);
+        for (Issue issue : issues) {
+            assertThat(Issue.finder.byId(issue.id).state).isEqualTo(State.OPEN);
+        }
+    }
+
+    @Test
+    public void authorIsAllowedForOwnIssues() {
+        // Given
+        IssueMassUpdate massUpdate = massUpdateOf(issues);
+        massUpdate.state = State.CLOSED;
+
+        // When
+        IssueMassUpdater updater = new IssueMassUpdater(project, author, massUpdate);
+        updater.run();
+
+        // Then
+        assertThat(updater.getUpdated()).isEqualTo(3);
+        assertThat(updater.getRejected()).isEqualTo(0);
+    }
+
+    private static IssueMassUpdate massUpdateOf(List<Issue> issues) {
+        IssueMassUpdate massUpdate = new IssueMassUpdate();
+        massUpdate.issues = new ArrayList<>();
+        for (Issue issue : issues) {
+            Issue selected = new Issue();
+            selected.id = issue.id;
+            massUpdate.issues.add(selected);
+        }
+        return massUpdate;
+    }
+}
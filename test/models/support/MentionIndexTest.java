@@ -0,0 +1,106 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models.support;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import models.*;
+import models.enumeration.RoleType;
+import models.enumeration.State;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MentionIndexTest extends ModelTest<Project> {
+    private Project project;
+
+    @Before
+    public void before() {
+        project = Project.findByOwnerAndProjectName("yobi", "projectYobi");
+        MentionIndex.invalidateAll();
+    }
+
+    @Test
+    public void get() {
+        // When
+        MentionIndex.Candidates candidates = MentionIndex.get(project);
+
+        // Then
+        for (ProjectUser projectUser : ProjectUser.findMemberListByProject(project.id)) {
+            if (MentionIndex.isMentionable(projectUser.user)) {
+                assertThat(candidates.getUsers().get(projectUser.user.loginId))
+                        .isEqualTo(MentionIndex.toJson(projectUser.user));
+            }
+        }
+        assertThat(candidates.getUsers().containsKey("admin")).isFalse();
+        assertThat(candidates.getIssues().size()).isEqualTo(
+                Issue.finder.where().eq("project.id", project.id).findRowCount());
+    }
+
+    @Test
+    public void keptUpToDateByNewIssue() {
+        // Given
+        User author = User.findByLoginId("doortts");
+        MentionIndex.get(project);
+
+        // When
+        Issue issue = new Issue();
+        issue.setProject(project);
+        issue.setTitle("mention index");
+        issue.setBody("new issue");
+        issue.setAuthor(author);
+        issue.state = State.OPEN;
+        issue.save();
+
+        // Then
+        MentionIndex.Candidates candidates = MentionIndex.get(project);
+        assertThat(candidates.getIssues().get(0).get("issueNo").asText())
+                .isEqualTo(issue.getNumber().toString());
+        assertThat(candidates.getUsers().containsKey(author.loginId)).isTrue();
+
+        // When
+        issue.title = "renamed";
+        issue.update();
+
+        // Then
+        assertThat(MentionIndex.get(project).getIssues().get(0).get("title").asText())
+                .isEqualTo("renamed");
+    }
+
+    @Test
+    public void invalidatedWhenMemberLeaves() {
+        // Given
+        User user = User.findByLoginId("doortts");
+        ProjectUser.assignRole(user.id, project.id, RoleType.MEMBER);
+        MentionIndex.Candidates before = MentionIndex.get(project);
+
+        // When
+        ProjectUser.delete(user.id, project.id);
+
+        // Then
+        assertThat(MentionIndex.get(project)).isNotSameAs(before);
+    }
+
+    @Test
+    public void filter() {
+        // Given
+        MentionIndex.Candidates candidates = MentionIndex.get(project);
+
+        // When
+        List<ObjectNode> users = MentionIndex.filter(candidates.getUsers().values(), "YO", 10);
+
+        // Then
+        assertThat(users).isNotEmpty();
+        for (ObjectNode user : users) {
+            assertThat(user.get("loginid").asText().toLowerCase().startsWith("yo")
+                    || user.get("username").asText().toLowerCase().contains("yo")).isTrue();
+        }
+        assertThat(MentionIndex.filter(candidates.getUsers().values(), "yo", 1)).hasSize(1);
+    }
+}
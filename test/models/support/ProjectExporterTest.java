@@ -0,0 +1,70 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models.support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import models.*;
+import org.junit.Before;
+import org.junit.Test;
+import play.libs.Json;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ProjectExporterTest extends ModelTest<Project> {
+    private Project project;
+
+    @Before
+    public void before() {
+        project = Project.findByOwnerAndProjectName("yobi", "projectYobi");
+    }
+
+    @Test
+    public void write() throws Exception {
+        // When
+        JsonNode json = export(null);
+
+        // Then
+        assertThat(json.get("owner").asText()).isEqualTo(project.owner);
+        assertThat(json.get("issues").size()).isEqualTo(json.get("issueCount").asInt());
+        assertThat(json.get("posts").size()).isEqualTo(json.get("postCount").asInt());
+        assertThat(json.get("milestones").size()).isEqualTo(json.get("milestoneCount").asInt());
+        assertThat(json.get("status").asText()).isEqualTo("complete");
+        for (JsonNode issue : json.get("issues")) {
+            Issue found = Issue.findByNumber(project, issue.get("id").asLong());
+            assertThat(issue.get("title").asText()).isEqualTo(found.title);
+            int comments = issue.has("comments") ? issue.get("comments").size() : 0;
+            assertThat(comments).isEqualTo(found.comments.size());
+        }
+    }
+
+    @Test
+    public void writeSince() throws Exception {
+        // Given
+        Date since = new Date();
+        Issue issue = Issue.finder.where().eq("project.id", project.id).findList().get(0);
+        IssueComment comment = new IssueComment(issue, User.findByLoginId("doortts"), "exported");
+        comment.save();
+
+        // When
+        JsonNode json = export(since);
+
+        // Then
+        assertThat(json.get("since").asLong()).isEqualTo(since.getTime());
+        assertThat(json.get("issues").size()).isEqualTo(1);
+        assertThat(json.get("issues").get(0).get("id").asLong()).isEqualTo(issue.getNumber());
+        assertThat(json.get("posts").size()).isEqualTo(0);
+    }
+
+    private JsonNode export(Date since) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ProjectExporter(project, since).write(out);
+        return Json.parse(out.toString("UTF-8"));
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models.support;
+
+import com.avaje.ebean.Ebean;
+import models.Issue;
+import models.ModelTest;
+import org.junit.Before;
+import org.junit.Test;
+import play.libs.Json;
+import utils.Markdown;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RenderedMarkdownTest extends ModelTest<Issue> {
+    private Issue issue;
+
+    @Before
+    public void before() {
+        issue = Issue.finder.all().get(0);
+        issue.body = "**rendered** markdown";
+        issue.update();
+    }
+
+    @Test
+    public void renderedOnWrite() throws Exception {
+        // When
+        Issue stored = waitUntilRendered(issue.id);
+
+        // Then
+        assertThat(stored.renderedHtml).isEqualTo(Markdown.renderWithoutLinks(issue.body));
+        assertThat(RenderedMarkdown.render(stored, stored.project))
+                .isEqualTo(Markdown.render(issue.body, stored.project));
+    }
+
+    @Test
+    public void storedHtmlIsUsed() {
+        // Given
+        store(issue, "<p>stored</p>", RenderedMarkdown.digestOf(issue.body));
+
+        // When
+        String html = RenderedMarkdown.render(Issue.finder.byId(issue.id), issue.project);
+
+        // Then
+        assertThat(html).isEqualTo("<p>stored</p>");
+    }
+
+    @Test
+    public void storedHtmlOfOtherSourceIsIgnored() {
+        // Given
+        store(issue, "<p>stored</p>", RenderedMarkdown.digestOf("old body"));
+
+        // When
+        String html = RenderedMarkdown.render(Issue.finder.byId(issue.id), issue.project);
+
+        // Then
+        assertThat(html).isEqualTo(Markdown.render(issue.body, issue.project));
+    }
+
+    @Test
+    public void renderedHtmlIsNotInJson() {
+        // Given
+        Issue stored = waitUntilRendered(issue.id);
+
+        // When
+        String json = Json.toJson(stored).toString();
+
+        // Then
+        assertThat(json).doesNotContain("renderedHtml");
+        assertThat(json).doesNotContain("rendererVersion");
+        assertThat(json).doesNotContain("renderedSourceDigest");
+    }
+
+    private void store(Issue issue, String html, String digest) {
+        waitUntilRendered(issue.id);
+        Ebean.createSqlUpdate("update issue set rendered_html = :html, renderer_version = :version, "
+                + "rendered_source_digest = :digest where id = :id")
+                .setParameter("html", html)
+                .setParameter("version", Markdown.RENDERER_VERSION)
+                .setParameter("digest", digest)
+                .setParameter("id", issue.id)
+                .execute();
+    }
+
+    private Issue waitUntilRendered(Long id) {
+        Issue stored = Issue.finder.byId(id);
+        for (int i = 0; i < 100 && !isRendered(stored); i++) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                break;
+            }
+            stored = Issue.finder.byId(id);
+        }
+        assertThat(isRendered(stored)).isTrue();
+        return stored;
+    }
+
+    private boolean isRendered(Issue stored) {
+        return stored.rendererVersion != null
+                && RenderedMarkdown.digestOf(stored.body).equals(stored.renderedSourceDigest);
+    }
+}
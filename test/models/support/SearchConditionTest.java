@@ -0,0 +1,147 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package models.support;
+
+import models.*;
+import models.enumeration.State;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * The class to test {@link models.support.SearchCondition}
+ */
+public class SearchConditionTest extends ModelTest<SearchCondition> {
+    private Project project;
+    private User author;
+    private Issue issue;
+    private IssueComment comment;
+
+    @Before
+    public void before() {
+        project = Project.findByOwnerAndProjectName("yobi", "projectYobi");
+        author = User.findByLoginId("nori");
+
+        issue = new Issue(project, author, "Tokenized title", "Searchable body");
+        issue.save();
+
+        comment = new IssueComment(issue, User.findByLoginId("laziel"), "A needle in the haystack");
+        comment.save();
+    }
+
+    @After
+    public void after() {
+        comment.delete();
+        issue.delete();
+    }
+
+    @Test
+    public void tokenize() {
+        assertThat(IssueSearchToken.tokenize("Hello, World! hello")).containsOnly("hello", "world");
+        assertThat(IssueSearchToken.tokenize("한글검색 v2버전")).containsOnly("한글", "글검", "검색", "색", "v2", "버전", "전");
+        assertThat(IssueSearchToken.tokenize(null)).isEmpty();
+    }
+
+    @Test
+    public void filterByWordInCjkSentence() {
+        // given
+        Issue korean = new Issue(project, author, "로그인이 안되는 문제", "비밀번호를변경한후에발생합니다");
+        korean.save();
+
+        // when
+        List<Issue> found = findIssues("변경");
+
+        // then
+        assertThat(found).contains(korean);
+        assertThat(findIssues("안되")).contains(korean);
+        assertThat(findIssues("생")).contains(korean);
+        assertThat(findIssues("변환")).excludes(korean);
+        korean.delete();
+    }
+
+    @Test
+    public void filterByTitleAndBody() {
+        assertThat(findIssues("tokeniz")).contains(issue);
+        assertThat(findIssues("searchable TITLE")).contains(issue);
+        assertThat(findIssues("title unknownword")).excludes(issue);
+    }
+
+    @Test
+    public void filterByComment() {
+        // when
+        List<Issue> found = findIssues("hay");
+
+        // then
+        assertThat(found).contains(issue);
+
+        // when
+        comment.contents = "Nothing here";
+        comment.update();
+
+        // then
+        assertThat(findIssues("hay")).excludes(issue);
+    }
+
+    @Test
+    public void filterByCommenter() {
+        // given
+        SearchCondition cond = new SearchCondition();
+        cond.state = State.ALL.state();
+        cond.commenterId = User.findByLoginId("laziel").id;
+
+        // when
+        List<Issue> found = cond.asExpressionList(project).findList();
+
+        // then
+        assertThat(found).contains(issue);
+    }
+
+    @Test
+    public void filterMatchesBeginningOfWords() {
+        // A filter is not matched as an arbitrary substring any more.
+        assertThat(findIssues("kenized")).excludes(issue);
+        assertThat(findIssues("needle")).contains(issue);
+    }
+
+    @Test
+    public void filterWithoutWordMatchesNothing() {
+        assertThat(findIssues("!? ...")).isEmpty();
+    }
+
+    @Test
+    public void filterByMentioned() {
+        // given
+        User mentioned = User.findByLoginId("doortts");
+        Issue other = new Issue(project, author, "Not mentioning", "Nobody");
+        other.save();
+        Mention.update(comment.asResource(), Collections.singleton(mentioned));
+
+        SearchCondition cond = new SearchCondition();
+        cond.state = State.ALL.state();
+        cond.mentionId = mentioned.id;
+
+        // when
+        List<Issue> found = cond.asExpressionList(project).findList();
+
+        // then
+        assertThat(found).contains(issue);
+        assertThat(found).excludes(other);
+        other.delete();
+    }
+
+    private List<Issue> findIssues(String filter) {
+        SearchCondition cond = new SearchCondition();
+        cond.state = State.ALL.state();
+        cond.filter = filter;
+        return cond.asExpressionList(project).findList();
+    }
+}
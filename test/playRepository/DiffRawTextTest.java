@@ -0,0 +1,56 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package playRepository;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class DiffRawTextTest {
+    @Test
+    public void length() {
+        // Given
+        DiffRawText text = new DiffRawText(
+                "hello\n안녕하세요\n\nno newline".getBytes(StandardCharsets.UTF_8));
+
+        // When // Then
+        assertLengthsOfDecodedLines(text);
+    }
+
+    @Test
+    public void lengthOfCharactersOutsideBmp() {
+        // Given
+        DiffRawText text = new DiffRawText(
+                "smile \uD83D\uDE00\n\uD842\uDFB7\n".getBytes(StandardCharsets.UTF_8));
+
+        // When // Then
+        assertThat(text.length(0)).isEqualTo(8);
+        assertLengthsOfDecodedLines(text);
+    }
+
+    @Test
+    public void lengthOfNonUtf8Text() {
+        // Given
+        DiffRawText text = new DiffRawText(
+                "caf\u00e9\n\u00e0 la\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        // When // Then
+        assertThat(text.length(0)).isEqualTo(4);
+        assertLengthsOfDecodedLines(text);
+    }
+
+    private void assertLengthsOfDecodedLines(DiffRawText text) {
+        int total = 0;
+        for (int i = 0; i < text.size(); i++) {
+            assertThat(text.length(i)).isEqualTo(text.getString(i).length());
+            total += text.getString(i).length();
+        }
+        assertThat(text.length()).isEqualTo(total);
+    }
+}
@@ -619,4 +619,72 @@ public class GitRepositoryTest {
         assertThat(diff.hasError(FileDiff.Error.OTHERS_SIZE_EXCEEDED))
             .describedAs("The others exceeds the size limit.").isTrue();
     }
+
+    @Test
+    public void getDiffOfFile() throws IOException, GitAPIException {
+        // given
+        String userName = "yobi";
+        String projectName = "testProject";
+        String wcPath = GitRepository.getRepoPrefix() + userName + "/" + projectName;
+
+        String repoPath = wcPath + "/.git";
+        File repoDir = new File(repoPath);
+        Repository repo = new RepositoryBuilder().setGitDir(repoDir).build();
+        repo.create(false);
+
+        Git git = new Git(repo);
+        FileUtils.write(new File(wcPath + "/readme.txt"), "hello 1\nhello 2\nhello 3\n");
+        FileUtils.write(new File(wcPath + "/other.txt"), "other 1\n");
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("commit 1").call();
+
+        FileUtils.write(new File(wcPath + "/readme.txt"), "hello 1\nhello two\nhello 3\n");
+        FileUtils.write(new File(wcPath + "/other.txt"), "other 2\n");
+        git.add().addFilepattern(".").call();
+        RevCommit commit = git.commit().setMessage("commit 2").call();
+
+        GitRepository gitRepo = new GitRepository(userName, projectName + "/");
+
+        // when
+        List<FileDiff> diffs = gitRepo.getDiffOfFile(null, commit.getName(), "readme.txt");
+
+        // then
+        assertThat(diffs).hasSize(1);
+        assertThat(diffs.get(0).pathB).isEqualTo("readme.txt");
+        assertThat(diffs.get(0).getHunks()).hasSize(1);
+    }
+
+    @Test
+    public void getDiffOfFile_renamed() throws IOException, GitAPIException {
+        // given
+        String userName = "yobi";
+        String projectName = "testProject";
+        String wcPath = GitRepository.getRepoPrefix() + userName + "/" + projectName;
+
+        String repoPath = wcPath + "/.git";
+        File repoDir = new File(repoPath);
+        Repository repo = new RepositoryBuilder().setGitDir(repoDir).build();
+        repo.create(false);
+
+        Git git = new Git(repo);
+        FileUtils.write(new File(wcPath + "/old.txt"), "hello 1\nhello 2\nhello 3\nhello 4\n");
+        git.add().addFilepattern(".").call();
+        RevCommit first = git.commit().setMessage("commit 1").call();
+
+        FileUtils.moveFile(new File(wcPath + "/old.txt"), new File(wcPath + "/new.txt"));
+        git.add().addFilepattern(".").call();
+        git.rm().addFilepattern("old.txt").call();
+        RevCommit second = git.commit().setMessage("commit 2").call();
+
+        GitRepository gitRepo = new GitRepository(userName, projectName + "/");
+
+        // when
+        List<FileDiff> diffs = gitRepo.getDiffOfFile(
+                first.getName(), second.getName(), "/new.txt");
+
+        // then
+        assertThat(diffs).hasSize(1);
+        assertThat(diffs.get(0).pathA).isEqualTo("old.txt");
+        assertThat(diffs.get(0).pathB).isEqualTo("new.txt");
+    }
 }
@@ -0,0 +1,81 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package playRepository.hooks;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.transport.ReceiveCommand;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import utils.FileUtil;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class PushEventTest {
+    private File directory;
+    private Git git;
+
+    @Before
+    public void before() throws Exception {
+        directory = Files.createTempDirectory("push-event").toFile();
+        git = Git.init().setDirectory(directory).call();
+    }
+
+    @After
+    public void after() throws Exception {
+        git.close();
+        FileUtil.rm_rf(directory);
+    }
+
+    @Test
+    public void walkOnce() throws Exception {
+        // Given
+        RevCommit first = git.commit().setMessage("first").call();
+        RevCommit second = git.commit().setMessage("second").call();
+        RevCommit third = git.commit().setMessage("third").call();
+
+        List<ReceiveCommand> commands = new ArrayList<>();
+        commands.add(new ReceiveCommand(first, third, "refs/heads/master"));
+        commands.add(new ReceiveCommand(first, third, "refs/heads/copy"));
+        commands.add(new ReceiveCommand(ObjectId.zeroId(), second, "refs/heads/new"));
+        commands.add(new ReceiveCommand(first, ObjectId.zeroId(), "refs/heads/deleted"));
+
+        // When
+        PushEvent event = PushEvent.walk(git.getRepository(), null, null, commands);
+
+        // Then
+        assertThat(event.getCommits()).containsOnly(third, second);
+        assertThat(event.getRefNames()).isEqualTo(Arrays.asList(
+                "refs/heads/master", "refs/heads/copy", "refs/heads/new"));
+        assertThat(event.getUpdatedBranches()).containsOnly("refs/heads/master", "refs/heads/copy");
+        assertThat(event.getDeletedBranches()).containsOnly("refs/heads/deleted");
+    }
+
+    @Test
+    public void walkCreatedRefOnly() throws Exception {
+        // Given
+        git.commit().setMessage("first").call();
+        RevCommit second = git.commit().setMessage("second").call();
+
+        List<ReceiveCommand> commands = new ArrayList<>();
+        commands.add(new ReceiveCommand(ObjectId.zeroId(), second, "refs/heads/master"));
+
+        // When
+        PushEvent event = PushEvent.walk(git.getRepository(), null, null, commands);
+
+        // Then
+        assertThat(event.getCommits()).containsOnly(second);
+    }
+}
@@ -31,6 +31,10 @@ import org.junit.Assert;
 
 import play.test.Helpers;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
 import static org.fest.assertions.Assertions.assertThat;
 
 public class AccessControlTest extends ModelTest<Role>{
@@ -192,6 +196,31 @@ public class AccessControlTest extends ModelTest<Role>{
         assertThat(AccessControl.isAllowed(laziel, publicIssue.asResource(), Operation.DELETE)).describedAs("laziel cann't delete publicIssue").isFalse();
     }
 
+    @Test
+    public void findReadableUserIds() {
+        // Given
+        User admin = User.findByLoginId("admin");
+        User doortts = User.findByLoginId("doortts"); // a member of the organization
+        User nori = User.findByLoginId("nori"); // the author of the issue
+        User laziel = User.findByLoginId("laziel");
+        Organization organization = createOrganization("TestOrganization");
+        OrganizationUser.assignRole(doortts.id, organization.id, RoleType.ORG_MEMBER.roleType());
+        Project protectedProject = createProject("protectedProject", ProjectScope.PROTECTED, organization);
+        Issue protectedIssue = createIssue(protectedProject, nori);
+        List<User> users = Arrays.asList(admin, doortts, nori, laziel);
+
+        // When
+        Set<Long> readableUserIds = AccessControl.findReadableUserIds(users, protectedIssue.asResource());
+
+        // Then
+        assertThat(readableUserIds).containsOnly(admin.id, doortts.id, nori.id);
+        for (User user : users) {
+            assertThat(readableUserIds.contains(user.id))
+                    .describedAs(user.loginId)
+                    .isEqualTo(AccessControl.isAllowed(user, protectedIssue.asResource(), Operation.READ));
+        }
+    }
+
     private Organization createOrganization(String name) {
         Organization organization = new Organization();
         organization.name = name;
@@ -0,0 +1,72 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package utils;
+
+import models.Issue;
+import models.ModelTest;
+import models.Project;
+import models.User;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AutoLinkRendererTest extends ModelTest<Issue> {
+    private Project project;
+    private Issue issue;
+
+    @Before
+    public void before() {
+        project = Project.findByOwnerAndProjectName("yobi", "projectYobi");
+        issue = new Issue(project, User.findByLoginId("yobi"), "Referred issue", "body");
+        issue.save();
+    }
+
+    @Test
+    public void renderIssueAndUserLinks() {
+        // Given
+        String url = controllers.routes.IssueApp.issue("yobi", "projectYobi", issue.getNumber()).url();
+        String body = "<p>See #" + issue.getNumber() + ", yobi/projectYobi#" + issue.getNumber()
+                + " and @laziel</p><p><code>#" + issue.getNumber() + "</code></p>";
+
+        // When
+        String result = new AutoLinkRenderer(body, project).render();
+
+        // Then
+        assertThat(result).contains("<a href='" + url + "' class='issueLink'>#" + issue.getNumber() + "</a>");
+        assertThat(result).contains("class='issueLink'>yobi/projectYobi#" + issue.getNumber() + "</a>");
+        assertThat(result).contains("@laziel</span></a>");
+        assertThat(result).contains("<code>#" + issue.getNumber() + "</code>");
+    }
+
+    @Test
+    public void renderAgainAfterReferredIssueIsDeleted() {
+        // Given
+        String body = "<p>See #" + issue.getNumber() + "</p>";
+        String linked = new AutoLinkRenderer(body, project).render();
+        assertThat(linked).contains("issueLink");
+        assertThat(new AutoLinkRenderer(body, project).render()).isEqualTo(linked);
+
+        // When
+        issue.delete();
+
+        // Then
+        assertThat(new AutoLinkRenderer(body, project).render()).isEqualTo(body);
+    }
+
+    @Test
+    public void leaveUnknownReferences() {
+        // Given
+        String body = "<p>See #987654 and @nobody-at-all</p>";
+
+        // When
+        String result = new AutoLinkRenderer(body, project).render();
+
+        // Then
+        assertThat(result).isEqualTo(body);
+    }
+}
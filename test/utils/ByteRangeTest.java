@@ -0,0 +1,70 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package utils;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ByteRangeTest {
+    @Test
+    public void parse() {
+        // When
+        ByteRange range = ByteRange.parse("bytes=100-199", 1000);
+
+        // Then
+        assertThat(range.isSatisfiable()).isTrue();
+        assertThat(range.start).isEqualTo(100);
+        assertThat(range.end).isEqualTo(199);
+        assertThat(range.length()).isEqualTo(100);
+        assertThat(range.toContentRange()).isEqualTo("bytes 100-199/1000");
+    }
+
+    @Test
+    public void parseOpenEnded() {
+        // When
+        ByteRange range = ByteRange.parse("bytes=900-", 1000);
+        ByteRange beyond = ByteRange.parse("bytes=900-5000", 1000);
+
+        // Then
+        assertThat(range.toContentRange()).isEqualTo("bytes 900-999/1000");
+        assertThat(beyond.toContentRange()).isEqualTo("bytes 900-999/1000");
+    }
+
+    @Test
+    public void parseSuffix() {
+        // When
+        ByteRange range = ByteRange.parse("bytes=-100", 1000);
+        ByteRange whole = ByteRange.parse("bytes=-5000", 1000);
+
+        // Then
+        assertThat(range.toContentRange()).isEqualTo("bytes 900-999/1000");
+        assertThat(whole.toContentRange()).isEqualTo("bytes 0-999/1000");
+    }
+
+    @Test
+    public void unsatisfiable() {
+        // When
+        ByteRange range = ByteRange.parse("bytes=1000-", 1000);
+        ByteRange empty = ByteRange.parse("bytes=-0", 1000);
+
+        // Then
+        assertThat(range.isSatisfiable()).isFalse();
+        assertThat(range.toContentRange()).isEqualTo("bytes */1000");
+        assertThat(empty.isSatisfiable()).isFalse();
+    }
+
+    @Test
+    public void ignored() {
+        assertThat(ByteRange.parse(null, 1000)).isNull();
+        assertThat(ByteRange.parse("items=0-9", 1000)).isNull();
+        assertThat(ByteRange.parse("bytes=0-9,20-29", 1000)).isNull();
+        assertThat(ByteRange.parse("bytes=9-0", 1000)).isNull();
+        assertThat(ByteRange.parse("bytes=a-b", 1000)).isNull();
+        assertThat(ByteRange.parse("bytes=-", 1000)).isNull();
+    }
+}
@@ -70,4 +70,15 @@ public class HttpUtilTest {
         }
     }
 
+    @Test
+    public void isNotModified() {
+        String eTag = "\"0123456789abcdef\"";
+
+        assertThat(HttpUtil.isNotModified((String) null, eTag)).isFalse();
+        assertThat(HttpUtil.isNotModified("\"other\"", eTag)).isFalse();
+        assertThat(HttpUtil.isNotModified(eTag, eTag)).isTrue();
+        assertThat(HttpUtil.isNotModified("W/" + eTag, eTag)).isTrue();
+        assertThat(HttpUtil.isNotModified("\"other\", " + eTag, eTag)).isTrue();
+        assertThat(HttpUtil.isNotModified("*", eTag)).isTrue();
+    }
 }
@@ -0,0 +1,69 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package utils;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MaintenanceWindowTest {
+    private static final DateTime TODAY = new DateTime(2016, 11, 1, 0, 0);
+
+    @Test
+    public void always() {
+        // Given
+        MaintenanceWindow window = MaintenanceWindow.parse(null);
+
+        // Then
+        assertThat(window.isAlways()).isTrue();
+        assertThat(window.contains(TODAY.withHourOfDay(13))).isTrue();
+        assertThat(window.millisUntilOpen(TODAY.withHourOfDay(13))).isEqualTo(0);
+    }
+
+    @Test
+    public void contains() {
+        // Given
+        MaintenanceWindow window = MaintenanceWindow.parse("02:00-05:00");
+
+        // Then
+        assertThat(window.contains(TODAY.withHourOfDay(1))).isFalse();
+        assertThat(window.contains(TODAY.withHourOfDay(2))).isTrue();
+        assertThat(window.contains(TODAY.withHourOfDay(4).withMinuteOfHour(59))).isTrue();
+        assertThat(window.contains(TODAY.withHourOfDay(5))).isFalse();
+    }
+
+    @Test
+    public void containsOverMidnight() {
+        // Given
+        MaintenanceWindow window = MaintenanceWindow.parse("23:00 - 03:00");
+
+        // Then
+        assertThat(window.contains(TODAY.withHourOfDay(23).withMinuteOfHour(30))).isTrue();
+        assertThat(window.contains(TODAY.withHourOfDay(1))).isTrue();
+        assertThat(window.contains(TODAY.withHourOfDay(3))).isFalse();
+        assertThat(window.contains(TODAY.withHourOfDay(12))).isFalse();
+    }
+
+    @Test
+    public void millisUntilOpen() {
+        // Given
+        MaintenanceWindow window = MaintenanceWindow.parse("02:00-05:00");
+
+        // Then
+        assertThat(window.millisUntilOpen(TODAY.withHourOfDay(1)))
+                .isEqualTo(60 * 60 * 1000L);
+        assertThat(window.millisUntilOpen(TODAY.withHourOfDay(6)))
+                .isEqualTo(20 * 60 * 60 * 1000L);
+        assertThat(window.millisUntilOpen(TODAY.withHourOfDay(3))).isEqualTo(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseMalformed() {
+        MaintenanceWindow.parse("02:00");
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import play.test.FakeApplication;
+import play.test.Helpers;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class QueryStatisticsTest {
+    private FakeApplication app;
+
+    @Before
+    public void before() {
+        app = support.Helpers.makeTestApplication();
+        Helpers.start(app);
+    }
+
+    @After
+    public void after() {
+        Helpers.stop(app);
+    }
+
+    @Test
+    public void normalize() {
+        assertThat(QueryStatistics.normalize("select t0.id from issue t0 where t0.number = 12"))
+                .isEqualTo("select t0.id from issue t0 where t0.number = ?");
+        assertThat(QueryStatistics.normalize("select *\n  from n4user where login_id = 'it''s me'"))
+                .isEqualTo("select * from n4user where login_id = ?");
+        assertThat(QueryStatistics.normalize("select * from issue where id in (?, ?,?)"))
+                .isEqualTo(QueryStatistics.normalize("select * from issue where id in (1, 2)"));
+        assertThat(QueryStatistics.normalize(null)).isEqualTo(QueryStatistics.OTHER_SHAPES);
+    }
+
+    @Test
+    public void countQueriesOfRequest() throws Exception {
+        // Given
+        Connection connection = new InstrumentedDriver().connect(
+                "jdbc:instrumented:h2:mem:query-statistics", new Properties());
+
+        // When
+        QueryStatistics.begin("QueryStatisticsTest.countQueriesOfRequest");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table query_statistics_test (id bigint)");
+        }
+        for (int i = 0; i < 3; i++) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "select id from query_statistics_test where id = ?")) {
+                statement.setLong(1, i);
+                statement.executeQuery().close();
+            }
+        }
+        QueryStatistics.Usage usage = QueryStatistics.end();
+        connection.close();
+
+        // Then
+        assertThat(usage.getCount()).isEqualTo(4);
+        assertThat(QueryStatistics.isEnabled()).isTrue();
+        boolean found = false;
+        for (QueryStatistics.Shape shape : QueryStatistics.getTopShapes(Integer.MAX_VALUE)) {
+            if (shape.getSql().equals("select id from query_statistics_test where id = ?")) {
+                assertThat(shape.getCount()).isEqualTo(3);
+                found = true;
+            }
+        }
+        assertThat(found).isTrue();
+    }
+
+    @Test
+    public void histogram() {
+        // Given
+        QueryStatistics.Histogram histogram = new QueryStatistics.Histogram();
+
+        // When
+        histogram.record(0.5, 1);
+        histogram.record(10, 2);
+        histogram.record(5000, 3);
+
+        // Then
+        assertThat(histogram.get(0)).isEqualTo(1);
+        assertThat(histogram.get(2)).isEqualTo(2);
+        assertThat(histogram.get(4)).isEqualTo(3);
+        assertThat(histogram.toString())
+                .isEqualTo("< 1 ms: 1, < 10 ms: 0, < 100 ms: 2, < 1000 ms: 0, >= 1000 ms: 3");
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ *  Yona, 21st Century Project Hosting SW
+ *  <p>
+ *  Copyright Yona & Yobi Authors & NAVER Corp.
+ *  https://yona.io
+ **/
+package utils;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class XlsxWriterTest {
+    @Test
+    public void writeRows() throws Exception {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        try (XlsxWriter writer = new XlsxWriter(out, "issues")) {
+            writer.writeRow("ID", "TITLE");
+            writer.writeRow(1L, "<b>bold</b> & co");
+            writer.writeRow(2L, null);
+            assertThat(writer.getRowCount()).isEqualTo(3);
+        }
+
+        // Then
+        Map<String, String> entries = unzip(out.toByteArray());
+        assertThat(entries.keySet()).contains("[Content_Types].xml", "_rels/.rels",
+                "xl/workbook.xml", "xl/_rels/workbook.xml.rels", "xl/worksheets/sheet1.xml");
+        assertThat(entries.get("xl/workbook.xml")).contains("name=\"issues\"");
+
+        String sheet = entries.get("xl/worksheets/sheet1.xml");
+        assertThat(sheet).contains("<row r=\"3\">");
+        assertThat(sheet).contains("<c><v>1</v></c>");
+        assertThat(sheet).contains("&lt;b&gt;bold&lt;/b&gt; &amp; co");
+        assertThat(sheet).endsWith("</sheetData></worksheet>");
+    }
+
+    @Test
+    public void escapeDropsInvalidCharacters() {
+        assertThat(XlsxWriter.escape("a\u0000b\tc\"")).isEqualTo("ab\tc&quot;");
+    }
+
+    private static Map<String, String> unzip(byte[] bytes) throws Exception {
+        Map<String, String> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(bytes))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), IOUtils.toString(zip, StandardCharsets.UTF_8.name()));
+            }
+        }
+        return entries;
+    }
+}